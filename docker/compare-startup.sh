@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Compares time to a healthy /actuator/health and resident memory of the app
+# started as a plain jar, an AOT jar, an AOT jar with a CDS archive and,
+# if present, a native executable.
+#
+# Usage: POSTGRES_URL=... POSTGRES_USER=... POSTGRES_PASSWORD=... docker/compare-startup.sh
+# Expects target/ to contain the jar built with -Pfast-start and, optionally,
+# the native executable target/test-task (mvn -Pnative native:compile).
+# The CDS archive is trained into target/cds the same way docker/Dockerfile.fast-start does.
+set -euo pipefail
+
+PORT=${PORT:-8080}
+JAR=target/test-task-0.0.1-SNAPSHOT.jar
+HEALTH="http://localhost:${PORT}/actuator/health"
+
+measure() {
+  local mode=$1
+  shift
+  local start end pid rss
+  start=$(date +%s%N)
+  "$@" --server.port="${PORT}" > "target/startup-${mode}.log" 2>&1 &
+  pid=$!
+  until curl -sf "${HEALTH}" > /dev/null; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "${mode}: failed to start, see target/startup-${mode}.log"
+      return
+    fi
+    sleep 0.05
+  done
+  end=$(date +%s%N)
+  rss=$(ps -o rss= -p "${pid}" | tr -d ' ')
+  printf '%-10s %8d ms %8d MB\n' "${mode}" $(((end - start) / 1000000)) $((rss / 1024))
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+}
+
+prepare_cds() {
+  local dir=target/cds
+  [[ -f ${dir}/application.jsa ]] && return
+  rm -rf "${dir}" && mkdir -p "${dir}/unpacked" "${dir}/lib"
+  (cd "${dir}/unpacked" && jar -xf "../../../${JAR}")
+  cp "${dir}"/unpacked/BOOT-INF/lib/*.jar "${dir}/lib/"
+  printf 'Main-Class: org.clearsolutions.task.TestTaskApplication\n' > "${dir}/manifest.txt"
+  echo "Class-Path: $(cd "${dir}" && ls lib/*.jar | tr '\n' ' ')" | fold -w 70 | sed '2,$s/^/ /' >> "${dir}/manifest.txt"
+  jar -cfm "${dir}/application.jar" "${dir}/manifest.txt" -C "${dir}/unpacked/BOOT-INF/classes" .
+  # Trained with the same class path as the measured run, otherwise the archive is rejected.
+  java -XX:ArchiveClassesAtExit="${dir}/application.jsa" -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=fast-start -Dspring.context.exit=onRefresh -Duser.startup.training-run=true \
+    -Dspring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false -Dspring.jpa.hibernate.ddl-auto=none \
+    -Dspring.jpa.database=postgresql \
+    -Dspring.datasource.url=jdbc:postgresql://localhost:5432/postgres \
+    -Dspring.datasource.hikari.initialization-fail-timeout=-1 -Dspring.datasource.hikari.connection-timeout=250 -Duser.cache-invalidation.enabled=false \
+    -jar "${dir}/application.jar" > "${dir}/training.log" 2>&1
+}
+
+prepare_cds
+printf '%-10s %11s %11s\n' mode startup rss
+measure jar java -jar "${JAR}"
+measure aot java -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start -jar "${JAR}"
+measure aot+cds java -XX:SharedArchiveFile=target/cds/application.jsa -Dspring.aot.enabled=true \
+  -Dspring.profiles.active=fast-start -jar target/cds/application.jar
+if [[ -x target/test-task ]]; then
+  measure native target/test-task -Dspring.profiles.active=fast-start
+fi
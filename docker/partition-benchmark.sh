@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Shows partition pruning of the birthday search and compares archiving a birth
+# decade with DELETE against detaching its partition. Loads synthetic users into
+# a migrated database; every statement that changes data is rolled back except
+# the initial load, so run it against a throwaway database.
+#
+# Usage: PGHOST=localhost PGPORT=5450 PGUSER=admin-user PGPASSWORD=password PGDATABASE=postgres \
+#        USERS=1000000 docker/partition-benchmark.sh
+set -euo pipefail
+
+USERS=${USERS:-1000000}
+
+psql -v ON_ERROR_STOP=1 -q <<SQL
+\echo Loading ${USERS} users
+INSERT INTO task.users (email, first_name, last_name, birth_date, address, phone)
+SELECT 'bench-' || n || '@example.com', 'First' || n, 'Last' || n,
+       date '1920-01-01' + (n % 31000), 'Kyiv', NULL
+FROM generate_series(1, ${USERS}) AS n;
+ANALYZE task.users;
+
+\echo
+\echo Birthday search, only the partitions of 1990-1999 must be listed
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM task.users
+WHERE birth_date BETWEEN date '1990-03-10' AND date '1999-01-26' AND deleted_at IS NULL
+ORDER BY first_name
+LIMIT 20;
+
+\timing on
+\echo
+\echo Archiving the 1950s with DELETE
+BEGIN;
+DELETE FROM task.users WHERE birth_date >= date '1950-01-01' AND birth_date < date '1960-01-01';
+ROLLBACK;
+
+\echo
+\echo Archiving the 1950s by detaching the partition
+BEGIN;
+SELECT task.detach_users_partition(date '1950-01-01');
+ROLLBACK;
+SQL
@@ -0,0 +1,44 @@
+package org.clearsolutions.task.archive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.archive")
+public class ArchiveProperties {
+
+    /**
+     * Runs the archiver on this instance. Every instance reads the segments, but only one
+     * should write them.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Segment files, shared by all instances.
+     */
+    private Path directory = Path.of("user-archive");
+
+    /**
+     * Users not changed for this long are archived.
+     */
+    private Duration inactiveFor = Duration.ofDays(730);
+
+    private int segmentRows = 10_000;
+
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * How often an instance looks for segments written by the archiver of another one.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * Rows of decoded id and birth date columns kept in memory across all segments.
+     */
+    private long maxCachedKeys = 2_000_000;
+}
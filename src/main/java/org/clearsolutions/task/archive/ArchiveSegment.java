@@ -0,0 +1,379 @@
+package org.clearsolutions.task.archive;
+
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A file of archived users stored column by column, each column deflated on its own. Rows
+ * are sorted by birth date and id, so a birth date range is a run of rows found by binary
+ * search. The header holds the row count, the smallest and largest id and birth date and
+ * where each column starts, so segments that can not match are skipped without reading
+ * any column.
+ * <p>
+ * The file is memory-mapped, columns are inflated straight from the mapping. Ids, birth
+ * dates and update times are stored as zigzag varint deltas to the previous row, strings
+ * as their UTF-8 length plus one, zero for null, followed by the bytes.
+ */
+public final class ArchiveSegment {
+
+    enum Column {
+        ID, BIRTH_DATE, UPDATED_AT, EMAIL, FIRST_NAME, LAST_NAME, ADDRESS, PHONE
+    }
+
+    /**
+     * {@code USRSEG01}
+     */
+    private static final long MAGIC = 0x5553525345473031L;
+    private static final int COLUMN_ENTRY_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES
+            + Column.values().length * COLUMN_ENTRY_SIZE;
+
+    public record Summary(int rows, long minId, long maxId, LocalDate minBirthDate, LocalDate maxBirthDate) {
+
+        public boolean overlaps(LocalDate from, LocalDate to) {
+            return !maxBirthDate.isBefore(from) && !minBirthDate.isAfter(to);
+        }
+
+        public boolean covers(long id) {
+            return minId <= id && id <= maxId;
+        }
+    }
+
+    /**
+     * The decoded id and birth date columns, enough to find rows without inflating the
+     * others.
+     */
+    static final class Keys {
+
+        private final long[] ids;
+        private final int[] birthDays;
+
+        private Keys(long[] ids, int[] birthDays) {
+            this.ids = ids;
+            this.birthDays = birthDays;
+        }
+
+        int rows() {
+            return ids.length;
+        }
+
+        /**
+         * Ids are not sorted within a segment, but a linear scan of one segment takes
+         * microseconds and the header skips most segments.
+         */
+        int rowOf(long id) {
+            for (int row = 0; row < ids.length; row++) {
+                if (ids[row] == id) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The first row that sorts after {@code (birthDay, id)}.
+         */
+        int firstAfter(int birthDay, long id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (birthDays[middle] < birthDay || birthDays[middle] == birthDay && ids[middle] <= id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        int firstFrom(LocalDate birthDate) {
+            return firstAfter((int) birthDate.toEpochDay() - 1, Long.MAX_VALUE);
+        }
+
+        int endAfter(LocalDate birthDate) {
+            return firstAfter((int) birthDate.toEpochDay(), Long.MAX_VALUE);
+        }
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final Summary summary;
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer, Summary summary) {
+        this.path = path;
+        this.buffer = buffer;
+        this.summary = summary;
+    }
+
+    public static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("%s is not an archive segment.".formatted(path));
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("%s is not an archive segment.".formatted(path));
+            }
+            Summary summary = new Summary(buffer.getInt(8), buffer.getLong(12), buffer.getLong(20),
+                    LocalDate.ofEpochDay(buffer.getInt(28)), LocalDate.ofEpochDay(buffer.getInt(32)));
+            return new ArchiveSegment(path, buffer, summary);
+        }
+    }
+
+    /**
+     * Writes {@code users} to a new file at {@code path} and forces it to disk.
+     */
+    public static Summary write(Path path, List<User> users) throws IOException {
+        if (users.isEmpty()) {
+            throw new IllegalArgumentException("An archive segment needs at least one user.");
+        }
+        List<User> sorted = users.stream().sorted(ShardedUserRepository.BIRTH_DATE_ORDER).toList();
+        Encoder[] columns = new Encoder[Column.values().length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Encoder();
+        }
+        long previousId = 0;
+        long previousDay = 0;
+        long previousMicros = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (User user : sorted) {
+            long day = user.getBirthDate().toEpochDay();
+            long micros = toMicros(user.getUpdatedAt());
+            columns[Column.ID.ordinal()].zigzag(user.getId() - previousId);
+            columns[Column.BIRTH_DATE.ordinal()].zigzag(day - previousDay);
+            columns[Column.UPDATED_AT.ordinal()].zigzag(micros - previousMicros);
+            columns[Column.EMAIL.ordinal()].string(user.getEmail());
+            columns[Column.FIRST_NAME.ordinal()].string(user.getFirstName());
+            columns[Column.LAST_NAME.ordinal()].string(user.getLastName());
+            columns[Column.ADDRESS.ordinal()].string(user.getAddress());
+            columns[Column.PHONE.ordinal()].string(user.getPhoneNumber());
+            previousId = user.getId();
+            previousDay = day;
+            previousMicros = micros;
+            minId = Math.min(minId, user.getId());
+            maxId = Math.max(maxId, user.getId());
+        }
+        Summary summary = new Summary(sorted.size(), minId, maxId,
+                sorted.get(0).getBirthDate(), sorted.get(sorted.size() - 1).getBirthDate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putLong(MAGIC)
+                .putInt(summary.rows())
+                .putLong(summary.minId())
+                .putLong(summary.maxId())
+                .putInt((int) summary.minBirthDate().toEpochDay())
+                .putInt((int) summary.maxBirthDate().toEpochDay());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE;
+            for (Encoder column : columns) {
+                byte[] raw = column.toByteArray();
+                ByteBuffer deflated = ByteBuffer.wrap(deflate(raw));
+                header.putLong(position).putInt(deflated.remaining()).putInt(raw.length);
+                while (deflated.hasRemaining()) {
+                    position += channel.write(deflated, position);
+                }
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        return summary;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Summary getSummary() {
+        return summary;
+    }
+
+    Keys readKeys() {
+        Decoder ids = decoder(Column.ID);
+        Decoder birthDays = decoder(Column.BIRTH_DATE);
+        long[] idColumn = new long[summary.rows()];
+        int[] birthDayColumn = new int[summary.rows()];
+        long id = 0;
+        long day = 0;
+        for (int row = 0; row < summary.rows(); row++) {
+            id += ids.zigzag();
+            day += birthDays.zigzag();
+            idColumn[row] = id;
+            birthDayColumn[row] = (int) day;
+        }
+        return new Keys(idColumn, birthDayColumn);
+    }
+
+    /**
+     * Reads the rows {@code [from, to)}. The other columns are inflated from their start,
+     * so callers read the rows they need in one call.
+     */
+    List<User> read(Keys keys, int from, int to) {
+        Decoder updatedAt = decoder(Column.UPDATED_AT);
+        Decoder email = decoder(Column.EMAIL);
+        Decoder firstName = decoder(Column.FIRST_NAME);
+        Decoder lastName = decoder(Column.LAST_NAME);
+        Decoder address = decoder(Column.ADDRESS);
+        Decoder phone = decoder(Column.PHONE);
+        long micros = 0;
+        for (int row = 0; row < from; row++) {
+            micros += updatedAt.zigzag();
+            email.skipString();
+            firstName.skipString();
+            lastName.skipString();
+            address.skipString();
+            phone.skipString();
+        }
+        List<User> users = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            micros += updatedAt.zigzag();
+            users.add(User.builder()
+                    .id(keys.ids[row])
+                    .birthDate(LocalDate.ofEpochDay(keys.birthDays[row]))
+                    .updatedAt(fromMicros(micros))
+                    .email(email.string())
+                    .firstName(firstName.string())
+                    .lastName(lastName.string())
+                    .address(address.string())
+                    .phoneNumber(phone.string())
+                    .build());
+        }
+        return users;
+    }
+
+    private Decoder decoder(Column column) {
+        int entry = HEADER_SIZE - (Column.values().length - column.ordinal()) * COLUMN_ENTRY_SIZE;
+        int offset = (int) buffer.getLong(entry);
+        int length = buffer.getInt(entry + Long.BYTES);
+        byte[] raw = new byte[buffer.getInt(entry + Long.BYTES + Integer.BYTES)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, length));
+            int inflated = 0;
+            while (inflated < raw.length) {
+                int count = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Column %s of %s is truncated.".formatted(column, path));
+                }
+                inflated += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Column %s of %s is corrupt.".formatted(column, path), e);
+        } finally {
+            inflater.end();
+        }
+        return new Decoder(raw);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000);
+    }
+
+    private static final class Encoder extends ByteArrayOutputStream {
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void zigzag(long value) {
+            varint(value << 1 ^ value >> 63);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Decoder {
+
+        private final byte[] bytes;
+        private int position;
+
+        Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            byte next;
+            do {
+                next = bytes[position++];
+                value |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            } while (next < 0);
+            return value;
+        }
+
+        long zigzag() {
+            long value = varint();
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        String string() {
+            int length = (int) varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skipString() {
+            int length = Math.max(0, (int) varint() - 1);
+            position += length;
+        }
+    }
+}
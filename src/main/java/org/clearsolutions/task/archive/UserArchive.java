@@ -0,0 +1,187 @@
+package org.clearsolutions.task.archive;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.dto.BirthDateRange;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.sharding.KWayMerge;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the users {@link UserArchiver} moved out of {@code task.users}. Every instance maps
+ * the segments of the shared archive directory and picks up new ones every
+ * {@code user.archive.refresh-interval}. The decoded ids and birth dates of recently used
+ * segments stay in memory, the other columns are inflated for the rows a read returns.
+ */
+@Slf4j
+@Component
+public class UserArchive {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final Sort BIRTH_DATE_SORT = Sort.by("birthDate", "id");
+
+    private final ArchiveProperties properties;
+    private final Cache<ArchiveSegment, ArchiveSegment.Keys> keys;
+    private volatile List<ArchiveSegment> segments = List.of();
+
+    public UserArchive(ArchiveProperties properties) {
+        this.properties = properties;
+        this.keys = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxCachedKeys())
+                .weigher((ArchiveSegment segment, ArchiveSegment.Keys segmentKeys) -> segmentKeys.rows())
+                .build();
+        refresh();
+    }
+
+    /**
+     * Opens the segments written since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${user.archive.refresh-interval}")
+    public synchronized void refresh() {
+        if (!Files.isDirectory(properties.getDirectory())) {
+            return;
+        }
+        Set<Path> known = segments.stream().map(ArchiveSegment::getPath).collect(Collectors.toSet());
+        List<ArchiveSegment> opened = new ArrayList<>(segments);
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(properties.getDirectory(), "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (known.contains(file)) {
+                    continue;
+                }
+                try {
+                    opened.add(ArchiveSegment.open(file));
+                } catch (IOException e) {
+                    log.error("Can not open archive segment {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Can not list the archive segments of {}", properties.getDirectory(), e);
+        }
+        segments = List.copyOf(opened);
+    }
+
+    synchronized void add(Path file) throws IOException {
+        List<ArchiveSegment> added = new ArrayList<>(segments);
+        added.add(ArchiveSegment.open(file));
+        segments = List.copyOf(added);
+    }
+
+    public Optional<User> findById(long id) {
+        for (ArchiveSegment segment : segments) {
+            if (!segment.getSummary().covers(id)) {
+                continue;
+            }
+            ArchiveSegment.Keys segmentKeys = keys(segment);
+            int row = segmentKeys.rowOf(id);
+            if (row >= 0) {
+                return Optional.of(segment.read(segmentKeys, row, row + 1).get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Counts archived users born in {@code [from, to]} from the key columns only.
+     */
+    public long count(LocalDate from, LocalDate to) {
+        long count = 0;
+        for (ArchiveSegment segment : segments) {
+            if (segment.getSummary().overlaps(from, to)) {
+                ArchiveSegment.Keys segmentKeys = keys(segment);
+                count += segmentKeys.endAfter(to) - segmentKeys.firstFrom(from);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The first {@code limit} archived users born in {@code [from, to]} in the order of
+     * {@code sort}. Segments are stored in birth date order, any other order reads every
+     * matching row.
+     */
+    public List<User> search(LocalDate from, LocalDate to, Sort sort, long limit) {
+        boolean stored = sort.equals(BIRTH_DATE_SORT);
+        Comparator<User> order = ShardedUserRepository.comparator(sort);
+        List<List<User>> perSegment = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (!segment.getSummary().overlaps(from, to)) {
+                continue;
+            }
+            ArchiveSegment.Keys segmentKeys = keys(segment);
+            int first = segmentKeys.firstFrom(from);
+            int end = segmentKeys.endAfter(to);
+            if (first == end) {
+                continue;
+            }
+            if (stored) {
+                perSegment.add(segment.read(segmentKeys, first, (int) Math.min(end, first + limit)));
+            } else {
+                List<User> rows = new ArrayList<>(segment.read(segmentKeys, first, end));
+                rows.sort(order);
+                perSegment.add(rows);
+            }
+        }
+        return KWayMerge.merge(perSegment, order, 0, (int) Math.min(limit, Integer.MAX_VALUE));
+    }
+
+    /**
+     * The first {@code limit} archived users born until {@code to} after the cursor position,
+     * in birth date and id order.
+     */
+    public List<User> scroll(LocalDate to, LocalDate afterBirthDate, long afterId, int limit) {
+        List<List<User>> perSegment = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (!segment.getSummary().overlaps(afterBirthDate, to)) {
+                continue;
+            }
+            ArchiveSegment.Keys segmentKeys = keys(segment);
+            int first = segmentKeys.firstAfter((int) afterBirthDate.toEpochDay(), afterId);
+            int end = Math.min(segmentKeys.endAfter(to), first + limit);
+            if (first < end) {
+                perSegment.add(segment.read(segmentKeys, first, end));
+            }
+        }
+        return KWayMerge.merge(perSegment, ShardedUserRepository.BIRTH_DATE_ORDER, 0, limit);
+    }
+
+    /**
+     * {@link #scroll(LocalDate, LocalDate, long, int)} over sorted, disjoint ranges.
+     */
+    public List<User> scroll(List<BirthDateRange> ranges, LocalDate afterBirthDate, long afterId, int limit) {
+        List<User> rows = new ArrayList<>();
+        for (BirthDateRange range : ranges) {
+            if (rows.size() == limit) {
+                break;
+            }
+            if (range.getTo().isBefore(afterBirthDate)) {
+                continue;
+            }
+            rows.addAll(afterBirthDate.isBefore(range.getFrom())
+                    ? scroll(range.getTo(), range.getFrom().minusDays(1), Long.MAX_VALUE, limit - rows.size())
+                    : scroll(range.getTo(), afterBirthDate, afterId, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    private ArchiveSegment.Keys keys(ArchiveSegment segment) {
+        return keys.get(segment, ArchiveSegment::readKeys);
+    }
+}
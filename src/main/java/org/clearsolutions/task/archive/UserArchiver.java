@@ -0,0 +1,153 @@
+package org.clearsolutions.task.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Moves users not changed for {@code user.archive.inactive-for} from {@code task.users} to
+ * segment files of {@link UserArchive}, {@code user.archive.segment-rows} users per segment
+ * in birth date order.
+ * <p>
+ * A segment is written to a temporary file in the transaction that deletes its users and
+ * records it in {@code task.user_archive_segments}, and only renamed into place after that
+ * transaction commits. After a crash in between, {@link #recover} renames the temporary
+ * files of recorded segments and deletes the others, whose users are still in the table.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class UserArchiver {
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final LocalDate MIN_BIRTH_DATE = LocalDate.of(1, 1, 1);
+
+    private final UserRepository userRepository;
+    private final UserArchive archive;
+    private final ArchiveProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter archived;
+
+    public UserArchiver(UserRepository userRepository, UserArchive archive, ArchiveProperties properties,
+                        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.archive = archive;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.archived = Counter.builder("user.archive.archived")
+                .description("Users moved from the table to archive segments")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!properties.isEnabled() || !Files.isDirectory(properties.getDirectory())) {
+            return;
+        }
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(properties.getDirectory(), "*" + TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                String fileName = temp.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - TEMP_SUFFIX.length());
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        userRepository.isArchiveSegmentRecorded(name)))) {
+                    log.info("Publishing archive segment {} left behind by the last run", name);
+                    publish(temp, name);
+                } else {
+                    Files.delete(temp);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Can not recover the archive segments of {}", properties.getDirectory(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${user.archive.interval}")
+    public void archive() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant inactiveSince = Instant.now().minus(properties.getInactiveFor());
+        LocalDate afterBirthDate = MIN_BIRTH_DATE;
+        long afterId = 0;
+        try {
+            Files.createDirectories(properties.getDirectory());
+            List<User> users;
+            do {
+                users = archiveSegment(inactiveSince, afterBirthDate, afterId);
+                if (!users.isEmpty()) {
+                    User last = users.get(users.size() - 1);
+                    afterBirthDate = last.getBirthDate();
+                    afterId = last.getId();
+                }
+            } while (users.size() == properties.getSegmentRows());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Archiving users failed, it will be retried in {}", properties.getInterval(), e);
+        }
+    }
+
+    /**
+     * Archives the next inactive users after the given position, returns them in birth date
+     * and id order.
+     */
+    List<User> archiveSegment(Instant inactiveSince, LocalDate afterBirthDate, long afterId) throws IOException {
+        String name = "users-%d-%s".formatted(System.currentTimeMillis(), UUID.randomUUID().toString().substring(0, 8));
+        Path temp = properties.getDirectory().resolve(name + TEMP_SUFFIX);
+        List<User> users;
+        try {
+            users = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<User> chunk = userRepository.archiveChunk(inactiveSince, afterBirthDate, afterId,
+                        properties.getSegmentRows());
+                if (chunk.isEmpty()) {
+                    return chunk;
+                }
+                ArchiveSegment.Summary summary;
+                try {
+                    summary = ArchiveSegment.write(temp, chunk);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Can not write archive segment " + name, e);
+                }
+                userRepository.recordArchiveSegment(name, summary.rows(), summary.minId(), summary.maxId(),
+                        summary.minBirthDate(), summary.maxBirthDate());
+                return chunk;
+            }));
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (users.isEmpty()) {
+            return users;
+        }
+        publish(temp, name);
+        archived.increment(users.size());
+        log.info("Archived {} users born {} to {} into segment {}", users.size(), users.get(0).getBirthDate(),
+                users.get(users.size() - 1).getBirthDate(), name);
+        return users;
+    }
+
+    private void publish(Path temp, String name) throws IOException {
+        Path file = properties.getDirectory().resolve(name + UserArchive.SEGMENT_SUFFIX);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        archive.add(file);
+    }
+}
@@ -0,0 +1,88 @@
+package org.clearsolutions.task.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the requests of one traffic class served at the same time, so a class can hold
+ * at most {@code maxConcurrent} servlet threads however many of its requests arrive.
+ */
+public class Bulkhead {
+
+    @Getter
+    private final TrafficClass trafficClass;
+    @Getter
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+    private final Timer waitTime;
+
+    public Bulkhead(TrafficClass trafficClass, BulkheadProperties.ClassSettings settings, MeterRegistry registry) {
+        this.trafficClass = trafficClass;
+        this.maxConcurrent = settings.getMaxConcurrent();
+        this.maxWait = settings.getMaxWait();
+        this.permits = new Semaphore(maxConcurrent);
+        Gauge.builder("user.bulkhead.active", this, Bulkhead::getActive)
+                .description("Requests of the traffic class being served")
+                .tag("class", trafficClass.tag())
+                .register(registry);
+        Gauge.builder("user.bulkhead.saturation", this, bulkhead -> (double) bulkhead.getActive() / maxConcurrent)
+                .description("Share of the concurrent requests of the traffic class in use")
+                .tag("class", trafficClass.tag())
+                .register(registry);
+        Gauge.builder("user.bulkhead.waiting", waiting, AtomicInteger::get)
+                .description("Requests of the traffic class waiting for a free slot")
+                .tag("class", trafficClass.tag())
+                .register(registry);
+        this.rejected = Counter.builder("user.bulkhead.rejected")
+                .description("Requests rejected because the bulkhead of their traffic class was full")
+                .tag("class", trafficClass.tag())
+                .register(registry);
+        this.waitTime = Timer.builder("user.bulkhead.wait")
+                .description("Time requests waited for a free slot of their traffic class")
+                .tag("class", trafficClass.tag())
+                .register(registry);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (maxWait.isZero()) {
+            rejected.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            if (permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
@@ -0,0 +1,73 @@
+package org.clearsolutions.task.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Puts every {@code UserController} request into the traffic class of its route, admits
+ * it through the bulkhead of the class and lets its transactions use the pool of the
+ * class. The route is the mapped pattern rather than the path, so a lookup is one map get.
+ */
+public class BulkheadInterceptor implements HandlerInterceptor {
+
+    private static final String BULKHEAD_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".bulkhead";
+
+    private final Map<String, TrafficClass> routes = new HashMap<>();
+    private final Map<TrafficClass, Bulkhead> bulkheads = new EnumMap<>(TrafficClass.class);
+    private final Duration retryAfter;
+
+    public BulkheadInterceptor(BulkheadProperties properties, MeterRegistry registry) {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            BulkheadProperties.ClassSettings settings = properties.get(trafficClass);
+            bulkheads.put(trafficClass, new Bulkhead(trafficClass, settings, registry));
+            for (String route : settings.getRoutes()) {
+                TrafficClass other = routes.put(route.trim().replaceAll("\\s+", " "), trafficClass);
+                if (other != null && other != trafficClass) {
+                    throw new IllegalStateException("Route '%s' is in the traffic classes %s and %s"
+                            .formatted(route, other.tag(), trafficClass.tag()));
+                }
+            }
+        }
+        this.retryAfter = properties.getRetryAfter();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Bulkhead bulkhead = bulkheads.get(classify(request));
+        if (!bulkhead.tryAcquire()) {
+            throw new LoadSheddingException("The %s bulkhead of %d concurrent requests is full."
+                    .formatted(bulkhead.getTrafficClass().tag(), bulkhead.getMaxConcurrent()), retryAfter);
+        }
+        request.setAttribute(BULKHEAD_ATTRIBUTE, bulkhead);
+        TrafficClassContext.set(bulkhead.getTrafficClass());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(BULKHEAD_ATTRIBUTE) instanceof Bulkhead bulkhead) {
+            request.removeAttribute(BULKHEAD_ATTRIBUTE);
+            TrafficClassContext.clear();
+            bulkhead.release();
+        }
+    }
+
+    public Bulkhead getBulkhead(TrafficClass trafficClass) {
+        return bulkheads.get(trafficClass);
+    }
+
+    TrafficClass classify(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return routes.getOrDefault(request.getMethod() + " " + pattern, TrafficClass.INTERACTIVE);
+    }
+}
@@ -0,0 +1,87 @@
+package org.clearsolutions.task.bulkhead;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.bulkhead")
+public class BulkheadProperties {
+
+    /**
+     * Replaces the single connection pool with one pool per traffic class.
+     */
+    private boolean enabled = true;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private ClassSettings interactive = new ClassSettings(10, Duration.ofSeconds(2), Duration.ofSeconds(5),
+            200, Duration.ZERO, List.of());
+
+    private ClassSettings bulk = new ClassSettings(4, Duration.ofSeconds(30), Duration.ZERO, 4, Duration.ZERO,
+            List.of("POST /api/v1/users/_bulk",
+                    "POST /api/v1/users/_bulk/delete",
+                    "POST /api/v1/users/_bulk/patch",
+                    "GET /api/v1/users/_bulk/jobs/{jobId}",
+                    "GET /api/v1/users/birthdays/scroll",
+                    "POST /api/v1/users/birthdays/_search",
+                    "GET /api/v1/users/changes"));
+
+    private ClassSettings export = new ClassSettings(2, Duration.ofSeconds(30), Duration.ZERO, 4, Duration.ZERO,
+            List.of("POST /api/v1/users/_export",
+                    "GET /api/v1/users/_export/{jobId}",
+                    "GET /api/v1/users/_export/{jobId}/file"));
+
+    private ClassSettings admin = new ClassSettings(3, Duration.ofSeconds(30), Duration.ZERO, 2, Duration.ZERO,
+            List.of("GET /api/v1/users/stats"));
+
+    public ClassSettings get(TrafficClass trafficClass) {
+        return switch (trafficClass) {
+            case INTERACTIVE -> interactive;
+            case BULK -> bulk;
+            case EXPORT -> export;
+            case ADMIN -> admin;
+        };
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClassSettings {
+
+        private int poolSize;
+
+        /**
+         * How long a transaction waits for a connection of the pool.
+         */
+        private Duration connectionTimeout;
+
+        /**
+         * {@code statement_timeout} of the connections, zero keeps the database default.
+         */
+        private Duration statementTimeout;
+
+        /**
+         * Requests of the class served at the same time.
+         */
+        private int maxConcurrent;
+
+        /**
+         * How long a request waits for a free slot before it is rejected.
+         */
+        private Duration maxWait;
+
+        /**
+         * Routes of {@code UserController} in the class, as the method and the mapped
+         * pattern, e.g. {@code GET /api/v1/users/_export/{jobId}}.
+         */
+        private List<String> routes;
+    }
+}
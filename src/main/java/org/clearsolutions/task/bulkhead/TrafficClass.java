@@ -0,0 +1,34 @@
+package org.clearsolutions.task.bulkhead;
+
+import java.util.Locale;
+
+/**
+ * Kinds of work that get their own connection pool and bulkhead, so that heavy work can
+ * not take the connections and threads the interactive requests need.
+ */
+public enum TrafficClass {
+
+    /**
+     * Single user reads and writes, and everything without a route of another class.
+     */
+    INTERACTIVE,
+
+    /**
+     * Bulk writes, bulk jobs and long birth date scans.
+     */
+    BULK,
+
+    /**
+     * CSV exports and their downloads.
+     */
+    EXPORT,
+
+    /**
+     * Statistics, migrations and the scheduled maintenance jobs.
+     */
+    ADMIN;
+
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
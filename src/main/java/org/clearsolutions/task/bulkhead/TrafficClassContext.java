@@ -0,0 +1,53 @@
+package org.clearsolutions.task.bulkhead;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Holds the traffic class of the work the current thread does. The datasource picks the
+ * connection pool by it when a transaction starts, so the class must be set before.
+ */
+public final class TrafficClassContext {
+
+    private static final ThreadLocal<TrafficClass> CURRENT = new ThreadLocal<>();
+
+    private TrafficClassContext() {
+    }
+
+    public static TrafficClass current() {
+        return Objects.requireNonNullElse(CURRENT.get(), TrafficClass.INTERACTIVE);
+    }
+
+    public static <T> T call(TrafficClass trafficClass, Supplier<T> work) {
+        TrafficClass previous = CURRENT.get();
+        CURRENT.set(trafficClass);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static Runnable wrap(TrafficClass trafficClass, Runnable task) {
+        return () -> call(trafficClass, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    static void set(TrafficClass trafficClass) {
+        CURRENT.set(trafficClass);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    private static void restore(TrafficClass previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
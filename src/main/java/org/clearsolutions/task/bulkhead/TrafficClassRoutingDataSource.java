@@ -0,0 +1,39 @@
+package org.clearsolutions.task.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections of the pool of the {@link TrafficClassContext#current() current}
+ * traffic class, so a class that uses up its pool waits on its own pool only.
+ */
+public class TrafficClassRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<TrafficClass, HikariDataSource> pools;
+
+    public TrafficClassRoutingDataSource(Map<TrafficClass, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(TrafficClass.INTERACTIVE));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public HikariDataSource getPool(TrafficClass trafficClass) {
+        return pools.get(trafficClass);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TrafficClassContext.current();
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,162 @@
+package org.clearsolutions.task.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache for birthday searches. Concurrent identical searches are coalesced
+ * into a single database query whose result is shared by all callers, and the result is
+ * kept for {@code user.search-cache.ttl} unless a user is changed in the meantime.
+ * <p>
+ * Every cached page remembers the invalidation generation its query started in and is
+ * only served while that generation is current, so a page put right after an
+ * invalidation is never read.
+ */
+@Component
+public class BirthDateSearchCache {
+
+    private final SearchCacheProperties properties;
+    private final Cache<SearchKey, CachedPage> results;
+    private final Map<SearchKey, CompletableFuture<Page<UserResponse>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter coalesced;
+    private final Counter executed;
+
+    public BirthDateSearchCache(SearchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getTtl())
+                .maximumWeight(properties.getMaxRows())
+                .weigher((SearchKey key, CachedPage cached) -> cached.page().getNumberOfElements() + 1)
+                .build();
+        this.hits = searchCounter(meterRegistry, "hit");
+        this.coalesced = searchCounter(meterRegistry, "coalesced");
+        this.executed = searchCounter(meterRegistry, "executed");
+        Gauge.builder("user.search.coalescing.ratio", this, BirthDateSearchCache::coalescingRatio)
+                .description("Share of birthday searches answered without their own database query")
+                .register(meterRegistry);
+    }
+
+    public Page<UserResponse> get(LocalDate from, LocalDate to, Pageable pageable,
+                                  Supplier<Page<UserResponse>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        SearchKey key = new SearchKey(from, to, pageable);
+        CachedPage cached = results.getIfPresent(key);
+        if (cached != null && cached.generation() == generation.get()) {
+            hits.increment();
+            return cached.page();
+        }
+        CompletableFuture<Page<UserResponse>> flight = new CompletableFuture<>();
+        CompletableFuture<Page<UserResponse>> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            Page<UserResponse> shared = await(leader);
+            if (shared != null) {
+                coalesced.increment();
+                return shared;
+            }
+            // The leader is too slow, its result is not waited for any longer.
+            executed.increment();
+            return loader.get();
+        }
+        executed.increment();
+        long startGeneration = generation.get();
+        try {
+            Page<UserResponse> page = loader.get();
+            // A write during the query may not be visible in the page, so it is not kept.
+            // An invalidation right after this check leaves an entry that is never served.
+            if (startGeneration == generation.get()) {
+                results.put(key, new CachedPage(startGeneration, page));
+            }
+            flight.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Users changed on another instance may have moved in or out of any cached range.
+     */
+    @EventListener
+    public void onUsersInvalidated(UsersInvalidatedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        inFlight.clear();
+        results.invalidateAll();
+    }
+
+    private double coalescingRatio() {
+        double shared = hits.count() + coalesced.count();
+        double total = shared + executed.count();
+        return total == 0 ? 0 : shared / total;
+    }
+
+    /**
+     * @return the page of the leader, or {@code null} when it did not finish within
+     * {@code user.search-cache.max-wait}
+     */
+    private Page<UserResponse> await(CompletableFuture<Page<UserResponse>> flight) {
+        try {
+            return flight.get(properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an identical search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Counter searchCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("user.search.requests")
+                .description("Birthday searches by how they were answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record SearchKey(LocalDate from, LocalDate to, Pageable pageable) {
+    }
+
+    private record CachedPage(long generation, Page<UserResponse> page) {
+    }
+}
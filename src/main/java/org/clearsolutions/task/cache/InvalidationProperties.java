@@ -0,0 +1,23 @@
+package org.clearsolutions.task.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.cache-invalidation")
+public class InvalidationProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * How long the listener blocks waiting for notifications before checking whether it
+     * has to stop. Notifications themselves are handled as soon as they arrive.
+     */
+    private Duration pollTimeout = Duration.ofMillis(500);
+
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
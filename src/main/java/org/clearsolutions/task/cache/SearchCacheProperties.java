@@ -0,0 +1,28 @@
+package org.clearsolutions.task.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.search-cache")
+public class SearchCacheProperties {
+
+    private boolean enabled = true;
+
+    private Duration ttl = Duration.ofSeconds(2);
+
+    /**
+     * Upper bound on the number of cached users summed over all cached pages.
+     */
+    private long maxRows = 50_000;
+
+    /**
+     * How long a search waits for an identical one that is already running before it
+     * queries the database itself.
+     */
+    private Duration maxWait = Duration.ofSeconds(5);
+}
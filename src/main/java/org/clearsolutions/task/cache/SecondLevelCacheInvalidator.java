@@ -0,0 +1,35 @@
+package org.clearsolutions.task.cache;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts users that were changed behind Hibernate's back: by the native statements of the
+ * bulk jobs, or by another instance as reported by the change notifications. Changes made
+ * through the entity are kept in sync by Hibernate itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheInvalidator {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @EventListener
+    public void onUsersInvalidated(UsersInvalidatedEvent event) {
+        Cache cache = entityManagerFactory.getCache();
+        if (event.isAllUsers()) {
+            cache.evict(User.class);
+        } else {
+            event.getUserIds().forEach(id -> cache.evict(User.class, id));
+        }
+        // Any user may have moved in or out of a cached range.
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(SecondLevelCacheProperties.BIRTHDAY_SEARCH_REGION);
+    }
+}
@@ -0,0 +1,45 @@
+package org.clearsolutions.task.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Regions of the Hibernate second-level cache. Every region Hibernate asks for must be
+ * listed, an unknown region fails the startup.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.second-level-cache")
+public class SecondLevelCacheProperties {
+
+    public static final String USER_REGION = "user";
+    public static final String BIRTHDAY_SEARCH_REGION = "user.birthday-search";
+
+    private Map<String, Region> regions = new LinkedHashMap<>(Map.of(
+            USER_REGION, new Region(10_000, Duration.ofMinutes(10)),
+            BIRTHDAY_SEARCH_REGION, new Region(1_000, Duration.ofMinutes(1)),
+            "default-query-results-region", new Region(1_000, Duration.ofMinutes(1)),
+            // Query results are checked against these timestamps, so they must outlive them.
+            "default-update-timestamps-region", new Region(10_000, null)));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Region {
+
+        private long maxSize = 10_000;
+
+        /**
+         * Unset keeps entries until they are evicted for size.
+         */
+        private Duration expireAfterWrite;
+    }
+}
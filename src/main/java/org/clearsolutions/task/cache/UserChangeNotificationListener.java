@@ -0,0 +1,140 @@
+package org.clearsolutions.task.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Listens on the {@value #CHANNEL} channel filled by the {@code task.notify_user_changes}
+ * trigger and republishes the changed ids as {@link UsersInvalidatedEvent}. It keeps its
+ * own connection outside the pool, because a listening session must stay open.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserChangeNotificationListener implements SmartLifecycle {
+
+    static final String CHANNEL = "task_user_changes";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final InvalidationProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::listen, "user-change-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Whatever was sent while we were not listening is lost.
+                eventPublisher.publishEvent(UsersInvalidatedEvent.all());
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int timeout = (int) properties.getPollTimeout().toMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeout);
+                    if (notifications != null && notifications.length > 0) {
+                        Set<Long> ids = parseIds(notifications);
+                        if (ids == null) {
+                            log.warn("Can not parse a {} payload, invalidating all users", CHANNEL);
+                        }
+                        eventPublisher.publishEvent(ids == null
+                                ? UsersInvalidatedEvent.all() : UsersInvalidatedEvent.of(ids));
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the {} listener connection, reconnecting in {}", CHANNEL,
+                            properties.getReconnectDelay(), e);
+                    pause();
+                }
+            } catch (RuntimeException e) {
+                // A failing invalidation listener must not end the thread. The reconnect
+                // invalidates all users, which also covers the ids whose handling failed.
+                if (running) {
+                    log.error("The {} listener failed, reconnecting in {}", CHANNEL,
+                            properties.getReconnectDelay(), e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getReconnectDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Collects the comma separated ids of all payloads.
+     *
+     * @return the ids, or {@code null} when a payload is not a list of ids and the changed
+     * users are unknown
+     */
+    static Set<Long> parseIds(PGNotification[] notifications) {
+        Set<Long> ids = new HashSet<>();
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            if (payload == null) {
+                continue;
+            }
+            for (String id : payload.split(",")) {
+                if (id.isBlank()) {
+                    continue;
+                }
+                try {
+                    ids.add(Long.parseLong(id.trim()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return ids;
+    }
+}
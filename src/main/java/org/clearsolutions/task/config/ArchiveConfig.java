@@ -0,0 +1,10 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.archive.ArchiveProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+}
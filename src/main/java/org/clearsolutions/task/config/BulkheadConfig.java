@@ -0,0 +1,36 @@
+package org.clearsolutions.task.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.bulkhead.BulkheadInterceptor;
+import org.clearsolutions.task.bulkhead.BulkheadProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the bulkheads of the traffic classes in front of the user endpoints. The
+ * pools of the classes are set up by {@link BulkheadDataSourceConfig}.
+ */
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+@RequiredArgsConstructor
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    private final BulkheadProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.isEnabled()) {
+            registry.addInterceptor(new BulkheadInterceptor(properties,
+                            meterRegistry.getIfAvailable(SimpleMeterRegistry::new)))
+                    .addPathPatterns("/api/v1/users/**")
+                    // Open streams hold neither a servlet thread nor a connection.
+                    .excludePathPatterns("/api/v1/users/changes/stream");
+        }
+    }
+}
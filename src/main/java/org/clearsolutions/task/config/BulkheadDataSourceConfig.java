@@ -0,0 +1,63 @@
+package org.clearsolutions.task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.clearsolutions.task.bulkhead.BulkheadProperties;
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.clearsolutions.task.bulkhead.TrafficClassRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Replaces the datasource Spring Boot configures with one Hikari pool per traffic class.
+ * Every pool takes the {@code spring.datasource.hikari} settings with the size and timeouts
+ * of its class, and reports the {@code hikaricp.*} metrics under its own pool name.
+ */
+@Configuration
+@EnableConfigurationProperties(BulkheadProperties.class)
+@ConditionalOnProperty(name = "user.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class BulkheadDataSourceConfig {
+
+    @Bean
+    public TrafficClassRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                                    BulkheadProperties properties, Environment environment,
+                                                    MeterRegistry meterRegistry) {
+        Map<TrafficClass, HikariDataSource> pools = new EnumMap<>(TrafficClass.class);
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            BulkheadProperties.ClassSettings settings = properties.get(trafficClass);
+            HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("user-" + trafficClass.tag());
+            pool.setMaximumPoolSize(settings.getPoolSize());
+            pool.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+            if (!settings.getStatementTimeout().isZero()) {
+                pool.setConnectionInitSql("SET statement_timeout = " + settings.getStatementTimeout().toMillis());
+            }
+            pool.setMetricRegistry(meterRegistry);
+            pools.put(trafficClass, pool);
+        }
+        return new TrafficClassRoutingDataSource(pools);
+    }
+
+    /**
+     * Scheduled jobs are maintenance work, so the scheduler threads use the admin pool.
+     */
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer adminTrafficClassCustomizer() {
+        return scheduler -> scheduler.setThreadFactory(task ->
+                scheduler.newThread(TrafficClassContext.wrap(TrafficClass.ADMIN, task)));
+    }
+}
@@ -0,0 +1,11 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.cache.InvalidationProperties;
+import org.clearsolutions.task.cache.SearchCacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({SearchCacheProperties.class, InvalidationProperties.class})
+public class CacheConfig {
+}
@@ -0,0 +1,10 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.stream.ChangeStreamProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChangeStreamProperties.class)
+public class ChangeStreamConfig {
+}
@@ -0,0 +1,30 @@
+package org.clearsolutions.task.config;
+
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.limiter.ConcurrencyLimitInterceptor;
+import org.clearsolutions.task.limiter.ConcurrencyLimitProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the adaptive concurrency limit in front of the user endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+@RequiredArgsConstructor
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitProperties properties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.isEnabled()) {
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(properties))
+                    .addPathPatterns("/api/v1/users/**")
+                    // Downloads and streams take as long as the client reads, which says nothing about the database.
+                    .excludePathPatterns("/api/v1/users/_export/*/file", "/api/v1/users/changes/stream");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.jfr.FlightRecorderProperties;
+import org.clearsolutions.task.jfr.FlightRecordingEndpoint;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the flight recording endpoint when it is exposed, see
+ * {@code management.endpoints.web.exposure.include}.
+ */
+@Configuration
+@EnableConfigurationProperties(FlightRecorderProperties.class)
+public class FlightRecorderConfig {
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public FlightRecordingEndpoint flightRecordingEndpoint(FlightRecorderProperties properties) {
+        return new FlightRecordingEndpoint(properties);
+    }
+}
@@ -0,0 +1,28 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * The CDS training run of the fast-start image refreshes the context without a database.
+     * This is checked at runtime because AOT processing fixes {@code spring.flyway.enabled}
+     * at build time.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${user.startup.training-run:false}") boolean trainingRun) {
+        return flyway -> {
+            if (!trainingRun) {
+                // Migrations may run longer than the statement timeout of interactive connections.
+                TrafficClassContext.call(TrafficClass.ADMIN, flyway::migrate);
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package org.clearsolutions.task.config;
+
+import org.clearsolutions.task.grpc.GrpcServer;
+import org.clearsolutions.task.grpc.GrpcServerProperties;
+import org.clearsolutions.task.grpc.UserGrpcService;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Serves the gRPC API on {@code user.grpc.port}, for internal callers only. It is not
+ * behind the concurrency limit of the REST endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties(GrpcServerProperties.class)
+@ConditionalOnProperty(name = "user.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class GrpcConfig {
+
+    @Bean
+    public UserGrpcService userGrpcService(UserService userService, ObjectProvider<UserBulkService> userBulkService,
+                                           UserRequestValidator userRequestValidator,
+                                           GrpcServerProperties properties) {
+        return new UserGrpcService(userService, userBulkService.getIfAvailable(), userRequestValidator, properties);
+    }
+
+    @Bean
+    public GrpcServer grpcServer(GrpcServerProperties properties, UserGrpcService userGrpcService) {
+        return new GrpcServer(properties, List.of(userGrpcService));
+    }
+}
@@ -0,0 +1,38 @@
+package org.clearsolutions.task.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.clearsolutions.task.outbox.*;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Selects the sink the outbox relay publishes to, see {@code user.outbox.sink}. There is
+ * no default sink, so an enabled relay without one fails the start instead of losing events.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "user.outbox.sink", havingValue = "webhook")
+    public OutboxSink webhookOutboxSink(RestClient.Builder restClientBuilder, OutboxProperties properties) {
+        return new WebhookOutboxSink(restClientBuilder.build(), properties.getWebhookUrl());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.outbox.sink", havingValue = "file")
+    public OutboxSink fileOutboxSink(ObjectMapper objectMapper, OutboxProperties properties) {
+        return new FileOutboxSink(properties.getFilePath(), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.outbox.sink", havingValue = "in-memory")
+    public OutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+}
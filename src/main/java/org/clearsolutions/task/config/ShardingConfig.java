@@ -0,0 +1,81 @@
+package org.clearsolutions.task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.clearsolutions.task.sharding.*;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects to the shards of {@code user.sharding.shards} and migrates them with the
+ * migrations of the primary database. Their datasources are deliberately not beans, the
+ * primary datasource stays the one Spring Boot configures.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties, FlywayProperties flywayProperties,
+                                   @Value("${user.startup.training-run:false}") boolean trainingRun) {
+        List<Shard> shards = new ArrayList<>();
+        List<String> keySlots = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.ShardProperties shard = properties.getShards().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("user-shard-" + i);
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(properties.getPoolSize());
+            if (!trainingRun) {
+                Flyway.configure()
+                        .dataSource(dataSource)
+                        .schemas(flywayProperties.getSchemas().toArray(String[]::new))
+                        .locations(flywayProperties.getLocations().toArray(String[]::new))
+                        .load()
+                        .migrate();
+            }
+            keySlots.add(shard.getKeySlots());
+            shards.add(new Shard(i, dataSource, new NamedParameterJdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        return new ShardRouter(shards, keySlots);
+    }
+
+    @Bean
+    public ShardFanOut shardFanOut(ShardRouter shardRouter, ShardingProperties properties) {
+        return new ShardFanOut(shardRouter, properties.getFanOutTimeout(),
+                shardRouter.getShards().size() * properties.getPoolSize());
+    }
+
+    @Bean
+    public ShardedUserRepository shardedUserRepository() {
+        return new ShardedUserRepository();
+    }
+
+    /**
+     * Moves the claims before the web server starts, because it starts only after all
+     * singletons are created.
+     */
+    @Bean
+    public ShardClaimRebalancer shardClaimRebalancer(ShardRouter shardRouter, ShardedUserRepository repository,
+                                                     @Value("${user.startup.training-run:false}") boolean trainingRun) {
+        ShardClaimRebalancer rebalancer = new ShardClaimRebalancer(shardRouter, repository);
+        if (!trainingRun) {
+            rebalancer.rebalance();
+        }
+        return rebalancer;
+    }
+}
@@ -2,20 +2,63 @@ package org.clearsolutions.task.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.dto.BirthdaySearchRequest;
+import org.clearsolutions.task.dto.BulkJobResponse;
+import org.clearsolutions.task.dto.BulkPatchRequest;
+import org.clearsolutions.task.dto.BulkRequest;
+import org.clearsolutions.task.dto.BulkResponse;
+import org.clearsolutions.task.dto.ExportJobResponse;
+import org.clearsolutions.task.dto.ExportRequest;
+import org.clearsolutions.task.dto.UserChangePage;
 import org.clearsolutions.task.dto.UserCreateRequest;
 import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
+import org.clearsolutions.task.dto.UserSegmentRequest;
+import org.clearsolutions.task.dto.UserSegmentResponse;
+import org.clearsolutions.task.dto.UserStatsResponse;
+import org.clearsolutions.task.dto.UserCriteria;
 import org.clearsolutions.task.dto.UserUpdateRequest;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.exception.UnsupportedWithShardingException;
+import org.clearsolutions.task.export.ExportFileSender;
+import org.clearsolutions.task.jfr.RequestProblemEvent;
+import org.clearsolutions.task.service.UserBulkJobService;
+import org.clearsolutions.task.service.UserChangeStreamService;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.service.UserExportService;
+import org.clearsolutions.task.service.UserSegmentService;
 import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.service.UserStatsService;
+import org.clearsolutions.task.stream.ChangeStreamFilter;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.clearsolutions.task.validation.ValidationResult;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Set;
 
 @Validated
 @RestController
@@ -24,12 +67,29 @@ import java.time.LocalDate;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectProvider<UserBulkService> userBulkService;
+    private final ObjectProvider<UserBulkJobService> userBulkJobService;
+    private final UserStatsService userStatsService;
+    private final ObjectProvider<UserExportService> userExportService;
+    private final UserChangeStreamService userChangeStreamService;
+    private final ObjectProvider<UserSegmentService> userSegmentService;
+    private final UserRequestValidator userRequestValidator;
 
+    /**
+     * Validates the request itself rather than with {@code @Valid}, so that the frequent
+     * rejections are rendered without throwing.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "This method is used for user creation.")
-    public UserResponse createUser(@Valid @RequestBody UserCreateRequest request) {
-        return userService.createUser(request);
+    @ApiResponse(responseCode = "201", content = @Content(schema = @Schema(implementation = UserResponse.class)))
+    @ApiResponse(responseCode = "400", content = @Content(mediaType = MediaType.APPLICATION_PROBLEM_JSON_VALUE,
+            schema = @Schema(implementation = ProblemDetail.class)))
+    public ResponseEntity<?> createUser(@RequestBody UserCreateRequest request) {
+        ValidationResult validation = userRequestValidator.validate(request);
+        if (!validation.isValid()) {
+            return ResponseEntity.badRequest().body(RequestProblemEvent.commit(validation.toProblemDetail(), null));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(userService.createUser(request));
     }
 
     @GetMapping
@@ -55,6 +115,21 @@ public class UserController {
         userService.deleteUser(id);
     }
 
+    @GetMapping("/{userId}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving the user with the id, also an archived one.")
+    public UserResponse getUser(@PathVariable("userId") @Min(1) Long id) {
+        return userService.getUser(id);
+    }
+
+    @GetMapping("/by-email")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving the user with the email, ignoring its case.")
+    public UserResponse getUserByEmail(@RequestParam("email") @Parameter(example = "Oleksii.Ivanchenko@gmail.com")
+                                       @NotBlank String email) {
+        return userService.getUserByEmail(email);
+    }
+
     @GetMapping("/birthdays")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "This method is used for searching users by the birthday range")
@@ -64,4 +139,142 @@ public class UserController {
                                                          Pageable pageable) {
         return userService.searchUsersByBirthDate(from, to, pageable);
     }
+
+    @GetMapping("/birthdays/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for reading users born in the range in birth date order. " +
+            "Pass nextCursor of the response as cursor to continue.")
+    public UserScrollPage scrollUsersByBirthDate(@RequestParam("from") @Parameter(example = "1997-03-10") LocalDate from,
+                                                 @RequestParam("to") @Parameter(example = "2000-01-26") LocalDate to,
+                                                 @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(1000)
+                                                     int size,
+                                                 @RequestParam(value = "cursor", required = false) String cursor) {
+        return userService.scrollUsersByBirthDate(from, to, size, cursor);
+    }
+
+    @PostMapping("/birthdays/_search")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for reading users born in any of several ranges in birth date order, " +
+            "optionally only within recurring month-day windows. Pass nextCursor of the response as cursor to continue.")
+    public UserScrollPage searchUsersByBirthDateRanges(@Valid @RequestBody BirthdaySearchRequest request) {
+        return userService.searchUsersByBirthDateRanges(request);
+    }
+
+    @PostMapping("/_segment")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for counting and paging the users matching a birth date range, " +
+            "name prefixes and whether they have an address or phone. Served from the in-memory snapshot.")
+    public UserSegmentResponse findSegment(@Valid @RequestBody UserSegmentRequest request) {
+        return available(userSegmentService).findSegment(request);
+    }
+
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving the number of users by birth year, birth month and " +
+            "age bracket. The numbers may lag behind changes by up to a second.")
+    public UserStatsResponse getStats() {
+        return userStatsService.getStats();
+    }
+
+    @GetMapping("/changes")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving users created, updated or deleted after the given " +
+            "watermark. Pass nextSince and nextAfterId of the response to continue.")
+    public UserChangePage getUserChanges(@RequestParam(value = "since", required = false)
+                                         @Parameter(example = "2024-05-01T00:00:00Z") Instant since,
+                                         @RequestParam(value = "afterId", defaultValue = "0") @Min(0) Long afterId,
+                                         @RequestParam(value = "limit", defaultValue = "500") @Min(1) @Max(5000)
+                                             int limit) {
+        return userService.getUserChanges(Objects.requireNonNullElse(since, Instant.EPOCH), afterId, limit);
+    }
+
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "This method is used for receiving user changes as Server-Sent Events while they are " +
+            "committed. Reconnect with Last-Event-ID to resume, reload the users on a resync event.")
+    public SseEmitter streamUserChanges(@RequestParam(value = "types", required = false) Set<UserChangeType> types,
+                                        @RequestParam(value = "from", required = false)
+                                        @Parameter(example = "1997-03-10") LocalDate from,
+                                        @RequestParam(value = "to", required = false)
+                                        @Parameter(example = "2000-01-26") LocalDate to,
+                                        @RequestHeader(value = "Last-Event-ID", required = false)
+                                            String lastEventId) {
+        return userChangeStreamService.subscribe(new ChangeStreamFilter(types, from, to), lastEventId);
+    }
+
+    @PostMapping("/_bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for creating, updating and deleting many users in one request. " +
+            "Every operation gets its own status in the response.")
+    public BulkResponse bulk(@Valid @RequestBody BulkRequest request) {
+        return available(userBulkService).execute(request);
+    }
+
+    @PostMapping("/_bulk/delete")
+    @Operation(summary = "This method is used to delete all users with the given ids or born in the given range. " +
+            "The job runs in the background, poll the returned location for its progress.")
+    public ResponseEntity<BulkJobResponse> deleteUsers(@Valid @RequestBody UserCriteria criteria) {
+        return accepted(available(userBulkJobService).deleteUsers(criteria));
+    }
+
+    @PostMapping("/_bulk/patch")
+    @Operation(summary = "This method is used to set the same fields on all users with the given ids or born in " +
+            "the given range. The job runs in the background, poll the returned location for its progress.")
+    public ResponseEntity<BulkJobResponse> patchUsers(@Valid @RequestBody BulkPatchRequest request) {
+        return accepted(available(userBulkJobService).patchUsers(request));
+    }
+
+    @GetMapping("/_bulk/jobs/{jobId}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving the progress of a bulk delete or patch job.")
+    public BulkJobResponse getBulkJob(@PathVariable("jobId") String jobId) {
+        return available(userBulkJobService).getJob(jobId);
+    }
+
+    @PostMapping("/_export")
+    @Operation(summary = "This method is used to export the users born in the given range, all users without a " +
+            "range, to a CSV file. The job runs in the background, poll the returned location for its progress.")
+    public ResponseEntity<ExportJobResponse> exportUsers(@RequestBody ExportRequest request) {
+        ExportJobResponse job = available(userExportService).submit(request);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/v1/users/_export/{jobId}")
+                        .buildAndExpand(job.getJobId())
+                        .toUri())
+                .body(job);
+    }
+
+    @GetMapping("/_export/{jobId}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "This method is used for receiving the progress of an export job.")
+    public ExportJobResponse getExportJob(@PathVariable("jobId") String jobId) {
+        return available(userExportService).getJob(jobId);
+    }
+
+    @GetMapping("/_export/{jobId}/file")
+    @Operation(summary = "This method is used to download the file of a completed export job. Pass a Range " +
+            "header to continue an interrupted download.")
+    public void downloadExport(@PathVariable("jobId") String jobId, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        ExportFileSender.send(available(userExportService).getFile(jobId), "users-" + jobId, request, response);
+    }
+
+    /**
+     * The bulk, export and segment services work on the primary database only, so they do
+     * not exist with sharding.
+     */
+    private static <T> T available(ObjectProvider<T> service) {
+        return service.getIfAvailable(() -> {
+            throw new UnsupportedWithShardingException(
+                    "This endpoint works on the primary database only and is not available with sharding.");
+        });
+    }
+
+    private static ResponseEntity<BulkJobResponse> accepted(BulkJobResponse job) {
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/v1/users/_bulk/jobs/{jobId}")
+                        .buildAndExpand(job.getJobId())
+                        .toUri())
+                .body(job);
+    }
 }
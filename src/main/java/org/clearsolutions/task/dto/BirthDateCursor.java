@@ -0,0 +1,43 @@
+package org.clearsolutions.task.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in a scroll by {@code (birthDate, id)}. It is opaque to clients, who only
+ * pass back the {@code nextCursor} they received.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BirthDateCursor {
+
+    private final LocalDate birthDate;
+    private final long id;
+
+    /**
+     * Position before the first user born on {@code from}.
+     */
+    public static BirthDateCursor start(LocalDate from) {
+        return new BirthDateCursor(from, 0L);
+    }
+
+    public static BirthDateCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("/");
+            return new BirthDateCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor '%s' is malformed.".formatted(cursor));
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((birthDate + "/" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
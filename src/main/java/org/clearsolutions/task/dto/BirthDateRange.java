@@ -0,0 +1,29 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * An inclusive range of birth dates.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@ToString
+public class BirthDateRange {
+
+    @NotNull
+    @Schema(example = "1990-01-01")
+    private LocalDate from;
+
+    @NotNull
+    @Schema(example = "1999-12-31")
+    private LocalDate to;
+
+}
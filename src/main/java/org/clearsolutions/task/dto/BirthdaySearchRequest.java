@@ -0,0 +1,40 @@
+package org.clearsolutions.task.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Users born in any of {@code ranges}, and if {@code windows} are given only those born on
+ * a day of one of them. Pages are read in birth date order by cursor, like
+ * {@code /birthdays/scroll}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class BirthdaySearchRequest {
+
+    @Valid
+    @NotEmpty(message = "At least one range must be passed.")
+    @Size(max = 100, message = "At most 100 ranges can be passed.")
+    private List<BirthDateRange> ranges;
+
+    @Valid
+    @Size(max = 12, message = "At most 12 windows can be passed.")
+    private List<MonthDayWindow> windows;
+
+    @Min(1)
+    @Max(1000)
+    @Builder.Default
+    private int size = 20;
+
+    private String cursor;
+}
@@ -0,0 +1,30 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkJobResponse {
+
+    private String jobId;
+    private BulkOperationType operation;
+    private BulkJobState state;
+
+    /**
+     * Users matching the criteria when the job started. Users changed concurrently
+     * may make {@code affected} end up lower.
+     */
+    private long total;
+    private long affected;
+    private int chunks;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -0,0 +1,5 @@
+package org.clearsolutions.task.dto;
+
+public enum BulkJobState {
+    QUEUED, RUNNING, COMPLETED, FAILED
+}
@@ -0,0 +1,22 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class BulkOperation {
+
+    @Schema(example = "UPDATE")
+    private BulkOperationType op;
+
+    @Schema(example = "1", description = "Required for UPDATE and DELETE.")
+    private Long id;
+
+    @Schema(description = "All required fields for CREATE, only the changed ones for UPDATE.")
+    private UserUpdateRequest user;
+}
@@ -0,0 +1,23 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import org.clearsolutions.task.exception.AppProblem;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOperationResult {
+
+    private int index;
+    private BulkOperationType op;
+    private Long id;
+    private int status;
+    private UserResponse user;
+    private List<AppProblem> problemDetails;
+}
@@ -0,0 +1,7 @@
+package org.clearsolutions.task.dto;
+
+public enum BulkOperationType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,25 @@
+package org.clearsolutions.task.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class BulkPatchRequest {
+
+    @Valid
+    @NotNull
+    private UserCriteria criteria;
+
+    /**
+     * Fields to set on every matched user, {@code null} fields are left unchanged.
+     */
+    @Valid
+    @NotNull
+    private UserUpdateRequest patch;
+}
@@ -0,0 +1,24 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class BulkRequest {
+
+    @Schema(description = "true - apply all operations or none of them, false - apply every valid operation.")
+    private boolean atomic;
+
+    @NotEmpty
+    @Size(max = 10_000, message = "A bulk request can contain at most 10000 operations.")
+    private List<BulkOperation> operations;
+}
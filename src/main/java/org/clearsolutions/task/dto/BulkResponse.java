@@ -0,0 +1,17 @@
+package org.clearsolutions.task.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkResponse {
+
+    private int succeeded;
+    private int failed;
+    private List<BulkOperationResult> results;
+}
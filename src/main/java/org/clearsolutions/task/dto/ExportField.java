@@ -0,0 +1,23 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Columns of a user export, named as the fields of {@link UserResponse}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportField {
+    ID("id"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName"),
+    EMAIL("email"),
+    BIRTH_DATE("birthDate"),
+    ADDRESS("address"),
+    PHONE_NUMBER("phoneNumber");
+
+    @JsonValue
+    private final String column;
+}
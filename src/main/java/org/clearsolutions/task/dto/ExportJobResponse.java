@@ -0,0 +1,44 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportJobResponse {
+
+    private String jobId;
+    private BulkJobState state;
+    private LocalDate from;
+    private LocalDate to;
+    private List<ExportField> fields;
+
+    /**
+     * Users matching the range when the job started. Users created or deleted while it
+     * runs may make {@code exported} differ.
+     */
+    private long total;
+    private long exported;
+    private int chunks;
+
+    /**
+     * Bytes written so far, the size of the file once completed.
+     */
+    private long size;
+
+    /**
+     * Times the job was resumed from its checkpoint after a restart.
+     */
+    private int resumed;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
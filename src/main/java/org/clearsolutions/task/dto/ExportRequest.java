@@ -0,0 +1,29 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Selects the live users of an export by an inclusive birth date range, all of them if
+ * the range is absent, and the columns of the file.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class ExportRequest {
+
+    @Schema(example = "1950-01-01")
+    private LocalDate from;
+
+    @Schema(example = "1960-12-31")
+    private LocalDate to;
+
+    @Schema(example = "[\"id\", \"email\", \"birthDate\"]", description = "Columns in file order, all if empty.")
+    private List<ExportField> fields;
+}
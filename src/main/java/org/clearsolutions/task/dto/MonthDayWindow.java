@@ -0,0 +1,28 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.MonthDay;
+
+/**
+ * Days of every year from {@code from} to {@code to}, both inclusive. A window whose end
+ * is before its start spans the new year.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class MonthDayWindow {
+
+    @NotNull
+    @Schema(type = "string", example = "--03-01")
+    private MonthDay from;
+
+    @NotNull
+    @Schema(type = "string", example = "--03-31")
+    private MonthDay to;
+}
@@ -0,0 +1,26 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A slice of the change feed. The next slice is requested with {@code since=nextSince}
+ * and {@code afterId=nextAfterId}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangePage {
+
+    private List<UserChangeResponse> changes;
+    private Instant nextSince;
+    private Long nextAfterId;
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangeResponse {
+
+    private Long id;
+    private Instant updatedAt;
+    private boolean deleted;
+    private UserResponse user;
+}
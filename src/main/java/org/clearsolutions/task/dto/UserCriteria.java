@@ -0,0 +1,34 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Selects the users of a bulk job, either by id or by an inclusive birth date range.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class UserCriteria {
+
+    @Schema(example = "[1, 2, 3]")
+    @Size(max = 100_000, message = "At most 100000 ids can be passed.")
+    private List<Long> ids;
+
+    @Schema(example = "1950-01-01")
+    private LocalDate from;
+
+    @Schema(example = "1960-12-31")
+    private LocalDate to;
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package org.clearsolutions.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A slice of users ordered by birth date and id. The next slice is requested with
+ * {@code cursor=nextCursor}, which is absent on the last slice.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserScrollPage {
+
+    private List<UserResponse> content;
+    private String nextCursor;
+}
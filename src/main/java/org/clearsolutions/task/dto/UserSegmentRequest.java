@@ -0,0 +1,49 @@
+package org.clearsolutions.task.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Live users matching all the given conditions, absent conditions match everyone. Name
+ * prefixes ignore case. Pages are in id order, a page {@code size} of 0 only counts.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class UserSegmentRequest {
+
+    @Schema(example = "1990-01-01")
+    private LocalDate from;
+
+    @Schema(example = "1999-12-31")
+    private LocalDate to;
+
+    @Schema(example = "Ol")
+    @Size(max = 100, message = "The prefix must be at most 100 characters.")
+    private String firstNamePrefix;
+
+    @Size(max = 100, message = "The prefix must be at most 100 characters.")
+    private String lastNamePrefix;
+
+    private Boolean hasAddress;
+
+    @Schema(example = "true")
+    private Boolean hasPhone;
+
+    @Min(0)
+    @Builder.Default
+    private int page = 0;
+
+    @Min(0)
+    @Max(1000)
+    @Builder.Default
+    private int size = 20;
+}
@@ -0,0 +1,25 @@
+package org.clearsolutions.task.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A page of a segment. {@code total} counts the whole segment as of {@code asOf}, the
+ * time the snapshot was loaded; changes since then are included as they are committed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+public class UserSegmentResponse {
+
+    private long total;
+    private int page;
+    private int size;
+    private List<UserResponse> content;
+    private Instant asOf;
+}
@@ -0,0 +1,45 @@
+package org.clearsolutions.task.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStatsResponse {
+
+    private long total;
+
+    /**
+     * Time the counters were read, the statistics reflect all changes committed before.
+     */
+    private Instant asOf;
+    private Map<Integer, Long> byBirthYear;
+
+    /**
+     * Keyed by {@code yyyy-MM}.
+     */
+    private Map<String, Long> byBirthMonth;
+    private List<AgeBracket> byAge;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AgeBracket {
+
+        private int minAge;
+
+        /**
+         * Exclusive, absent for the last bracket.
+         */
+        private Integer maxAge;
+        private long count;
+    }
+}
@@ -2,7 +2,12 @@ package org.clearsolutions.task.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.clearsolutions.task.cache.SecondLevelCacheProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Builder
@@ -12,10 +17,14 @@ import java.time.LocalDate;
 @Setter
 @Entity
 @Table(name = "users")
+@SQLRestriction("deleted_at is null")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheProperties.USER_REGION)
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -36,4 +45,16 @@ public class User {
     @Column(name = "phone")
     private String phoneNumber;
 
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
 }
@@ -0,0 +1,32 @@
+package org.clearsolutions.task.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+
+/**
+ * Number of live users born on a date, maintained by database triggers.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Immutable
+@Table(name = "user_birth_date_counts")
+public class UserBirthDateCount {
+
+    @Id
+    @Column(name = "birth_date")
+    private LocalDate birthDate;
+
+    @Column(name = "live_count", nullable = false)
+    private long liveCount;
+
+}
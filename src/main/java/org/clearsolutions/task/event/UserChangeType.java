@@ -0,0 +1,7 @@
+package org.clearsolutions.task.event;
+
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,21 @@
+package org.clearsolutions.task.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.clearsolutions.task.dto.UserResponse;
+
+/**
+ * Published by {@code UserService} inside the transaction that changed a user.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    private final UserChangeType type;
+    private final Long userId;
+
+    /**
+     * State after the change, {@code null} for deletions.
+     */
+    private final UserResponse user;
+}
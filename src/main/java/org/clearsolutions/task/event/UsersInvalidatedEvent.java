@@ -0,0 +1,26 @@
+package org.clearsolutions.task.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Tells the local caches that users were changed, possibly by another instance.
+ * When {@code allUsers} is set the ids are unknown and everything must be evicted.
+ */
+@Getter
+@AllArgsConstructor
+public class UsersInvalidatedEvent {
+
+    private final Set<Long> userIds;
+    private final boolean allUsers;
+
+    public static UsersInvalidatedEvent of(Set<Long> userIds) {
+        return new UsersInvalidatedEvent(userIds, false);
+    }
+
+    public static UsersInvalidatedEvent all() {
+        return new UsersInvalidatedEvent(Set.of(), true);
+    }
+}
@@ -0,0 +1,18 @@
+package org.clearsolutions.task.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a change targets an archived user. Archived users can be read but not
+ * changed.
+ */
+@Getter
+public class ArchivedUserException extends RuntimeException {
+
+    private final Long userId;
+
+    public ArchivedUserException(Long userId) {
+        super("User with id='%d' is archived and can not be changed".formatted(userId), null, false, false);
+        this.userId = userId;
+    }
+}
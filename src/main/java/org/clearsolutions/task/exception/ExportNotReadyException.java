@@ -0,0 +1,21 @@
+package org.clearsolutions.task.exception;
+
+import lombok.Getter;
+import org.clearsolutions.task.dto.BulkJobState;
+
+/**
+ * Thrown when the file of an export job is requested before the job has completed.
+ */
+@Getter
+public class ExportNotReadyException extends RuntimeException {
+
+    private final String jobId;
+    private final BulkJobState state;
+
+    public ExportNotReadyException(String jobId, BulkJobState state) {
+        super("Export job '%s' is %s, its file can be downloaded once it is COMPLETED.".formatted(jobId, state),
+                null, false, false);
+        this.jobId = jobId;
+        this.state = state;
+    }
+}
@@ -0,0 +1,20 @@
+package org.clearsolutions.task.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is rejected by a concurrency limit. It is created on the hot
+ * path of an overloaded node, so it carries no stack trace.
+ */
+@Getter
+public class LoadSheddingException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public LoadSheddingException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+}
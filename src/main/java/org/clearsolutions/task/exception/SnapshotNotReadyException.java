@@ -0,0 +1,11 @@
+package org.clearsolutions.task.exception;
+
+/**
+ * Thrown when a segment is queried while the user snapshot is disabled or still loading.
+ */
+public class SnapshotNotReadyException extends RuntimeException {
+
+    public SnapshotNotReadyException(String message) {
+        super(message, null, false, false);
+    }
+}
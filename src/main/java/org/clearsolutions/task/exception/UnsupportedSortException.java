@@ -0,0 +1,18 @@
+package org.clearsolutions.task.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a requested sort has no supporting index and is too large to sort in memory.
+ * It carries no stack trace, like the other rejections of client input.
+ */
+@Getter
+public class UnsupportedSortException extends RuntimeException {
+
+    private final String sort;
+
+    public UnsupportedSortException(String message, String sort) {
+        super(message, null, false, false);
+        this.sort = sort;
+    }
+}
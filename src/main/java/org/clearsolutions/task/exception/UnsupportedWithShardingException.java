@@ -0,0 +1,12 @@
+package org.clearsolutions.task.exception;
+
+/**
+ * Thrown by the endpoints whose services read and write the primary database only, when
+ * {@code user.sharding.enabled} is set and those services do not exist.
+ */
+public class UnsupportedWithShardingException extends RuntimeException {
+
+    public UnsupportedWithShardingException(String message) {
+        super(message, null, false, false);
+    }
+}
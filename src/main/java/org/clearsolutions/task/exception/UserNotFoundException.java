@@ -0,0 +1,34 @@
+package org.clearsolutions.task.exception;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.Getter;
+
+/**
+ * Thrown when no live user matches an id or an email. Probing for users is cheap for a
+ * client, so it carries no stack trace.
+ */
+@Getter
+public class UserNotFoundException extends EntityNotFoundException {
+
+    private final String field;
+    private final String value;
+
+    public UserNotFoundException(Long userId) {
+        this("User id", String.valueOf(userId), "User with id='%d' can not be found".formatted(userId));
+    }
+
+    private UserNotFoundException(String field, String value, String message) {
+        super(message);
+        this.field = field;
+        this.value = value;
+    }
+
+    public static UserNotFoundException byEmail(String email) {
+        return new UserNotFoundException("email", email, "User with email='%s' can not be found".formatted(email));
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
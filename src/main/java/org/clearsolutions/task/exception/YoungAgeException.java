@@ -3,13 +3,21 @@ package org.clearsolutions.task.exception;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+import java.time.LocalDate;
+
+/**
+ * Thrown when a birth date does not meet the age condition. Rejections are frequent and
+ * always answered with the same problem, so it carries no stack trace.
+ */
 @Getter
 public class YoungAgeException extends RuntimeException {
 
+    private final LocalDate birthDate;
     private final HttpStatus status;
 
-    public YoungAgeException(String message, HttpStatus status) {
-        super(message);
+    public YoungAgeException(String message, LocalDate birthDate, HttpStatus status) {
+        super(message, null, false, false);
+        this.birthDate = birthDate;
         this.status = status;
     }
 }
@@ -5,7 +5,16 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.apache.commons.lang3.StringUtils;
 import org.clearsolutions.task.exception.AppProblem;
+import org.clearsolutions.task.exception.ArchivedUserException;
+import org.clearsolutions.task.exception.ExportNotReadyException;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.clearsolutions.task.exception.SnapshotNotReadyException;
+import org.clearsolutions.task.exception.UnsupportedSortException;
+import org.clearsolutions.task.exception.UnsupportedWithShardingException;
+import org.clearsolutions.task.exception.UserNotFoundException;
 import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.jfr.RequestProblemEvent;
+import org.clearsolutions.task.validation.ValidationResult;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
@@ -22,12 +31,15 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import java.util.*;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_IMPLEMENTED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @RestControllerAdvice
 public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
 
-    private static final String PROBLEMS = "problemDetails";
+    private static final String PROBLEMS = ValidationResult.PROBLEMS;
 
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ProblemDetail handleDataIntegrityViolationException(
@@ -37,7 +49,7 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         String message = Objects.requireNonNullElse(rootCause, ex).getMessage();
         AppProblem appProblem = AppProblem.builder().message(message).build();
         pd.setProperty(PROBLEMS, List.of(appProblem));
-        return pd;
+        return RequestProblemEvent.commit(pd, ex);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
@@ -45,25 +57,75 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         ProblemDetail pd = ProblemDetail.forStatusAndDetail(BAD_REQUEST, "Illegal arguments");
         AppProblem appProblem = AppProblem.builder().message(ex.getMessage()).build();
         pd.setProperty(PROBLEMS, List.of(appProblem));
-        return pd;
+        return RequestProblemEvent.commit(pd, ex);
     }
 
     @ExceptionHandler(EntityNotFoundException.class)
     public ProblemDetail handleNotFoundException(EntityNotFoundException ex) {
         ProblemDetail pd = ProblemDetail.forStatusAndDetail(NOT_FOUND, "User is not found");
-        AppProblem appProblem = getProblem(ex.getMessage(), "User id",
-                StringUtils.substringBetween(ex.getMessage(), "'"));
+        AppProblem appProblem = ex instanceof UserNotFoundException notFound
+                ? getProblem(ex.getMessage(), notFound.getField(), notFound.getValue())
+                : getProblem(ex.getMessage(), "User id", StringUtils.substringBetween(ex.getMessage(), "'"));
         pd.setProperty(PROBLEMS, List.of(appProblem));
-        return pd;
+        return RequestProblemEvent.commit(pd, ex);
     }
 
     @ExceptionHandler(YoungAgeException.class)
     public ProblemDetail handleYoungAgeException(YoungAgeException ex) {
         ProblemDetail pd = ProblemDetail.forStatusAndDetail(BAD_REQUEST, "Young Age");
-        AppProblem appProblem = getProblem(ex.getMessage(), "birthDate",
-                StringUtils.substringBetween(ex.getMessage(), "'"));
+        AppProblem appProblem = getProblem(ex.getMessage(), "birthDate", String.valueOf(ex.getBirthDate()));
         pd.setProperty(PROBLEMS, List.of(appProblem));
-        return pd;
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(UnsupportedSortException.class)
+    public ProblemDetail handleUnsupportedSortException(UnsupportedSortException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(BAD_REQUEST, "Unsupported sort");
+        AppProblem appProblem = getProblem(ex.getMessage(), "sort", ex.getSort());
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(ExportNotReadyException.class)
+    public ProblemDetail handleExportNotReadyException(ExportNotReadyException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(CONFLICT, "Export is not ready");
+        AppProblem appProblem = getProblem(ex.getMessage(), "state", ex.getState().name());
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(ArchivedUserException.class)
+    public ProblemDetail handleArchivedUserException(ArchivedUserException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(CONFLICT, "User is archived");
+        AppProblem appProblem = getProblem(ex.getMessage(), "User id", String.valueOf(ex.getUserId()));
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(SnapshotNotReadyException.class)
+    public ProblemDetail handleSnapshotNotReadyException(SnapshotNotReadyException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(SERVICE_UNAVAILABLE, "User snapshot is not ready");
+        AppProblem appProblem = AppProblem.builder().message(ex.getMessage()).build();
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(UnsupportedWithShardingException.class)
+    public ProblemDetail handleUnsupportedWithShardingException(UnsupportedWithShardingException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(NOT_IMPLEMENTED, "Not available with sharding");
+        AppProblem appProblem = AppProblem.builder().message(ex.getMessage()).build();
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return RequestProblemEvent.commit(pd, ex);
+    }
+
+    @ExceptionHandler(LoadSheddingException.class)
+    public ResponseEntity<ProblemDetail> handleLoadSheddingException(LoadSheddingException ex) {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(SERVICE_UNAVAILABLE, "Too many concurrent requests");
+        AppProblem appProblem = AppProblem.builder().message(ex.getMessage()).build();
+        pd.setProperty(PROBLEMS, List.of(appProblem));
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(RequestProblemEvent.commit(pd, ex));
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
@@ -79,7 +141,7 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
             errors.add(error);
         }
         problemDetail.setProperty(PROBLEMS, errors);
-        return problemDetail;
+        return RequestProblemEvent.commit(problemDetail, e);
     }
 
     @Override
@@ -95,7 +157,7 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         String message = String.format("The field '%s' must have a valid type of '%s'", actualField, requiredType);
         AppProblem appProblem = getProblem(message, actualField, wrongValue.toString());
         pd.setProperty(PROBLEMS, List.of(appProblem));
-        return ResponseEntity.badRequest().body(pd);
+        return ResponseEntity.badRequest().body(RequestProblemEvent.commit(pd, ex));
     }
 
     @Override
@@ -112,7 +174,7 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
             appProblems.add(appProblem);
         }
         pd.setProperty(PROBLEMS, appProblems);
-        return ResponseEntity.badRequest().body(pd);
+        return ResponseEntity.badRequest().body(RequestProblemEvent.commit(pd, ex));
     }
 
 
@@ -0,0 +1,162 @@
+package org.clearsolutions.task.export;
+
+import org.clearsolutions.task.dto.ExportField;
+import org.clearsolutions.task.entity.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends users as CSV rows to an export file through one reused buffer, so a chunk of
+ * users reaches the file in a few large writes. {@link #sync} forces the written bytes to
+ * disk before a checkpoint refers to them.
+ */
+public class CsvExportWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<ExportField> fields;
+
+    private CsvExportWriter(FileChannel channel, ByteBuffer buffer, List<ExportField> fields) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.fields = fields;
+    }
+
+    /**
+     * Opens {@code file} to continue after its first {@code size} bytes. Anything written
+     * after the last checkpoint is cut off, and a new file starts with the header row.
+     */
+    public static CsvExportWriter open(Path file, long size, List<ExportField> fields, int bufferSize)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < size) {
+                throw new IOException("%s has %d bytes, its checkpoint expects %d.".formatted(file, channel.size(), size));
+            }
+            channel.truncate(size);
+            channel.position(size);
+            CsvExportWriter writer = new CsvExportWriter(channel, ByteBuffer.allocateDirect(bufferSize), fields);
+            if (size == 0) {
+                writer.writeHeader();
+            }
+            return writer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void write(List<User> users) throws IOException {
+        StringBuilder row = new StringBuilder(256);
+        for (User user : users) {
+            row.setLength(0);
+            for (ExportField field : fields) {
+                if (!row.isEmpty()) {
+                    row.append(',');
+                }
+                appendValue(row, value(user, field));
+            }
+            put(row.append('\n'));
+        }
+    }
+
+    /**
+     * Writes the buffered rows and forces them to disk, returns the size of the file.
+     */
+    public long sync() throws IOException {
+        drain();
+        channel.force(false);
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeHeader() throws IOException {
+        StringBuilder header = new StringBuilder();
+        for (ExportField field : fields) {
+            if (!header.isEmpty()) {
+                header.append(',');
+            }
+            header.append(field.getColumn());
+        }
+        put(header.append('\n'));
+    }
+
+    private void put(CharSequence row) throws IOException {
+        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            drain();
+        }
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String value(User user, ExportField field) {
+        Object value = switch (field) {
+            case ID -> user.getId();
+            case FIRST_NAME -> user.getFirstName();
+            case LAST_NAME -> user.getLastName();
+            case EMAIL -> user.getEmail();
+            case BIRTH_DATE -> user.getBirthDate();
+            case ADDRESS -> user.getAddress();
+            case PHONE_NUMBER -> user.getPhoneNumber();
+        };
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Quotes values as RFC 4180 requires, and prefixes values a spreadsheet would take for
+     * a formula with a quote.
+     */
+    private static void appendValue(StringBuilder row, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean formula = "=+-@".indexOf(value.charAt(0)) >= 0 && !isNumber(value);
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        if (formula) {
+            row.append('\'');
+        }
+        row.append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static boolean isNumber(String value) {
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isDigit(c) && c != ' ') {
+                return false;
+            }
+        }
+        return value.length() > 1;
+    }
+}
@@ -0,0 +1,17 @@
+package org.clearsolutions.task.export;
+
+import org.clearsolutions.task.dto.BulkJobState;
+import org.clearsolutions.task.dto.ExportField;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * State of an export job as stored next to its file after every chunk. The first
+ * {@code size} bytes of the file hold the users up to {@code lastId}.
+ */
+public record ExportCheckpoint(String jobId, BulkJobState state, LocalDate from, LocalDate to,
+                               List<ExportField> fields, long total, long exported, int chunks, long lastId,
+                               long size, int resumed, Instant startedAt, Instant finishedAt, String error) {
+}
@@ -0,0 +1,98 @@
+package org.clearsolutions.task.export;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sends a finished export file, or the single byte range a client asks for to continue an
+ * interrupted download. Tomcat sends the file with {@code sendfile} when its connector
+ * supports it, otherwise {@link FileChannel#transferTo} copies it without going through a
+ * heap buffer of the application.
+ */
+public final class ExportFileSender {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private ExportFileSender() {
+    }
+
+    /**
+     * Answers {@code 206} for one satisfiable range, {@code 416} for an unsatisfiable or
+     * malformed one and the whole file otherwise. A range with an {@code If-Range} that does
+     * not match the entity tag of the file is ignored.
+     */
+    public static void send(Path file, String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String etag = "\"%s-%d\"".formatted(name, size);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(name + ".csv").build().toString());
+            response.setContentType("text/csv;charset=UTF-8");
+
+            long start = 0;
+            long end = size - 1;
+            String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                } catch (IllegalArgumentException e) {
+                    ranges = List.of();
+                }
+                if (ranges.size() == 1 && isSatisfiable(ranges.get(0), size)) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, size));
+                } else if (ranges.size() <= 1) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                // Several ranges are answered with the whole file rather than a multipart body.
+            }
+            long length = end - start + 1;
+            response.setContentLengthLong(length);
+            if (length == 0) {
+                return;
+            }
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    private static boolean isSatisfiable(HttpRange range, long size) {
+        try {
+            return size > 0 && range.getRangeStart(size) < size;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.clearsolutions.task.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.dto.BulkJobState;
+import org.clearsolutions.task.dto.ExportField;
+import org.clearsolutions.task.dto.ExportJobResponse;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Progress of an export job. Written by the worker thread only and read by status
+ * requests, hence the volatile fields.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ExportJob {
+
+    private final String id;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<ExportField> fields;
+    private volatile BulkJobState state = BulkJobState.QUEUED;
+    private volatile long total;
+    private volatile long exported;
+    private volatile int chunks;
+    private volatile long lastId;
+    private volatile long size;
+    private volatile int resumed;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public ExportJob(LocalDate from, LocalDate to, List<ExportField> fields) {
+        this(UUID.randomUUID().toString(), from, to, List.copyOf(fields));
+    }
+
+    /**
+     * Restores a job from its checkpoint. A job that was queued or running continues as
+     * queued from the last checkpoint.
+     */
+    public static ExportJob restore(ExportCheckpoint checkpoint) {
+        ExportJob job = new ExportJob(checkpoint.jobId(), checkpoint.from(), checkpoint.to(), checkpoint.fields());
+        job.total = checkpoint.total();
+        job.exported = checkpoint.exported();
+        job.chunks = checkpoint.chunks();
+        job.lastId = checkpoint.lastId();
+        job.size = checkpoint.size();
+        job.resumed = checkpoint.resumed();
+        job.startedAt = checkpoint.startedAt();
+        job.finishedAt = checkpoint.finishedAt();
+        job.error = checkpoint.error();
+        if (job.isFinished()) {
+            job.state = checkpoint.state();
+        } else if (checkpoint.startedAt() != null) {
+            job.resumed++;
+        }
+        return job;
+    }
+
+    public boolean isStarted() {
+        return startedAt != null;
+    }
+
+    public boolean isFinished() {
+        return state == BulkJobState.COMPLETED || state == BulkJobState.FAILED;
+    }
+
+    public void start(long total) {
+        this.total = total;
+        this.startedAt = Instant.now();
+        this.state = BulkJobState.RUNNING;
+    }
+
+    public void resume() {
+        state = BulkJobState.RUNNING;
+    }
+
+    public void chunkDone(int users, long lastId, long size) {
+        exported += users;
+        chunks++;
+        this.lastId = lastId;
+        this.size = size;
+    }
+
+    /**
+     * Checkpoint of the job completed with a file of {@code size} bytes. The job itself is
+     * unchanged until {@link #finish} is called with it, so the checkpoint can be written
+     * before status requests see the job finished.
+     */
+    public ExportCheckpoint completed(long size) {
+        return toCheckpoint(BulkJobState.COMPLETED, size, Instant.now(), null);
+    }
+
+    /**
+     * Checkpoint of the job failed with {@code message}, see {@link #completed}.
+     */
+    public ExportCheckpoint failed(String message) {
+        return toCheckpoint(BulkJobState.FAILED, size, Instant.now(), message);
+    }
+
+    public void finish(ExportCheckpoint checkpoint) {
+        size = checkpoint.size();
+        finishedAt = checkpoint.finishedAt();
+        error = checkpoint.error();
+        state = checkpoint.state();
+    }
+
+    public ExportCheckpoint toCheckpoint() {
+        return toCheckpoint(state, size, finishedAt, error);
+    }
+
+    private ExportCheckpoint toCheckpoint(BulkJobState state, long size, Instant finishedAt, String error) {
+        return new ExportCheckpoint(id, state, from, to, fields, total, exported, chunks, lastId, size, resumed,
+                startedAt, finishedAt, error);
+    }
+
+    public ExportJobResponse toResponse() {
+        return ExportJobResponse.builder()
+                .jobId(id)
+                .state(state)
+                .from(from)
+                .to(to)
+                .fields(fields)
+                .total(total)
+                .exported(exported)
+                .chunks(chunks)
+                .size(size)
+                .resumed(resumed)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package org.clearsolutions.task.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.export")
+public class ExportProperties {
+
+    /**
+     * Files and checkpoints of the jobs. Downloads are served by the instance that ran the
+     * job, so it must survive restarts of that instance.
+     */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "user-exports");
+
+    /**
+     * Users read by one query and written before the next checkpoint.
+     */
+    private int chunkSize = 5000;
+
+    /**
+     * Every running job holds one database connection while it reads a chunk, so this
+     * bounds the share of the connection pool exports can take from requests.
+     */
+    private int maxConcurrentJobs = 1;
+
+    private int queueCapacity = 8;
+
+    private Duration pauseBetweenChunks = Duration.ZERO;
+
+    private DataSize writeBufferSize = DataSize.ofKilobytes(256);
+
+    /**
+     * How long a finished job and its file are kept.
+     */
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * Time running jobs get on shutdown to stop after their current chunk.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,108 @@
+package org.clearsolutions.task.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sends the items of a server-streaming call only while the transport is ready for them,
+ * so a slow client holds back the reading of further pages instead of making the server
+ * buffer the whole result. Items are produced lazily by a {@link Batches} source, one
+ * database page at a time.
+ */
+final class FlowControlledStream<T> {
+
+    private final ServerCallStreamObserver<T> observer;
+    private final Iterator<T> items;
+    private boolean done;
+
+    private FlowControlledStream(ServerCallStreamObserver<T> observer, Iterator<T> items) {
+        this.observer = observer;
+        this.items = items;
+    }
+
+    /**
+     * Starts streaming {@code items} to {@code responseObserver}. gRPC runs the call method
+     * and the handlers of the call one at a time, so the stream needs no locking.
+     */
+    static <T> void start(StreamObserver<T> responseObserver, Iterator<T> items) {
+        ServerCallStreamObserver<T> observer = (ServerCallStreamObserver<T>) responseObserver;
+        FlowControlledStream<T> stream = new FlowControlledStream<>(observer, items);
+        observer.setOnCancelHandler(() -> stream.done = true);
+        observer.setOnReadyHandler(stream::drain);
+        stream.drain();
+    }
+
+    private void drain() {
+        try {
+            while (!done && observer.isReady()) {
+                if (!items.hasNext()) {
+                    done = true;
+                    observer.onCompleted();
+                    return;
+                }
+                observer.onNext(items.next());
+            }
+        } catch (RuntimeException e) {
+            done = true;
+            observer.onError(GrpcStatuses.toStatus(e));
+        }
+    }
+
+    /**
+     * Iterates over batches that are fetched when the previous one is used up, and stops
+     * after {@code limit} items if it is positive.
+     */
+    abstract static class Batches<T> implements Iterator<T> {
+
+        private final int limit;
+        private Iterator<T> batch = Collections.emptyIterator();
+        private int sent;
+
+        /**
+         * Set by {@link #fetch} when it returns the last batch.
+         */
+        protected boolean last;
+
+        Batches(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Returns the next batch, of at most {@link #batchSize} items.
+         */
+        protected abstract List<T> fetch();
+
+        /**
+         * Batch size for a page size of {@code pageSize}, constant for the whole stream so
+         * that offset pages line up.
+         */
+        protected int batchSize(int pageSize) {
+            return limit > 0 ? Math.min(pageSize, limit) : pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (limit > 0 && sent >= limit) {
+                return false;
+            }
+            while (!batch.hasNext() && !last) {
+                batch = fetch().iterator();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            sent++;
+            return batch.next();
+        }
+    }
+}
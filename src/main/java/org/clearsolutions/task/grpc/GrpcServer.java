@@ -0,0 +1,68 @@
+package org.clearsolutions.task.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC services on their own port next to the servlet container. Calls run on
+ * the default executor of gRPC, as the services block on the database.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class GrpcServer implements SmartLifecycle {
+
+    private final GrpcServerProperties properties;
+    private final List<BindableService> services;
+    private Server server;
+
+    @Override
+    public synchronized void start() {
+        NettyServerBuilder builder = NettyServerBuilder.forPort(properties.getPort())
+                .maxInboundMessageSize((int) properties.getMaxInboundMessageSize().toBytes());
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not start the gRPC server on port " + properties.getPort(), e);
+        }
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    /**
+     * Stops accepting calls, then cancels the ones still running after {@code shutdownTimeout}.
+     */
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getPort();
+    }
+}
@@ -0,0 +1,35 @@
+package org.clearsolutions.task.grpc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.grpc")
+public class GrpcServerProperties {
+
+    private boolean enabled = true;
+
+    private int port = 9090;
+
+    private DataSize maxInboundMessageSize = DataSize.ofMegabytes(4);
+
+    /**
+     * Users read from the database at a time by the server-streaming calls.
+     */
+    private int streamPageSize = 500;
+
+    /**
+     * Users created in one transaction by {@code CreateUsers}.
+     */
+    private int createChunkSize = 1000;
+
+    /**
+     * Time running calls get to finish on shutdown before they are cancelled.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,92 @@
+package org.clearsolutions.task.grpc;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.Duration;
+import com.google.rpc.BadRequest;
+import com.google.rpc.Code;
+import com.google.rpc.RetryInfo;
+import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.StatusProto;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.exception.AppProblem;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.clearsolutions.task.exception.UnsupportedSortException;
+import org.clearsolutions.task.exception.UnsupportedWithShardingException;
+import org.clearsolutions.task.exception.UserNotFoundException;
+import org.clearsolutions.task.exception.YoungAgeException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The gRPC counterpart of {@code ControllerExceptionHandler}: maps the exceptions of the
+ * services to statuses, with the problems REST puts in {@code problemDetails} as
+ * {@link BadRequest} field violations.
+ */
+@Slf4j
+final class GrpcStatuses {
+
+    private GrpcStatuses() {
+    }
+
+    static StatusRuntimeException invalidArgument(String detail, List<AppProblem> problems) {
+        BadRequest.Builder badRequest = BadRequest.newBuilder();
+        for (AppProblem problem : problems) {
+            badRequest.addFieldViolations(BadRequest.FieldViolation.newBuilder()
+                    .setField(Objects.requireNonNullElse(problem.getField(), ""))
+                    .setDescription(Objects.requireNonNullElse(problem.getMessage(), "")));
+        }
+        return status(Code.INVALID_ARGUMENT, detail, Any.pack(badRequest.build()));
+    }
+
+    static StatusRuntimeException toStatus(Throwable ex) {
+        if (ex instanceof StatusRuntimeException status) {
+            return status;
+        }
+        if (ex instanceof YoungAgeException) {
+            return invalidArgument("Young Age", List.of(problem(ex.getMessage(), "birthDate")));
+        }
+        if (ex instanceof UnsupportedSortException) {
+            return invalidArgument("Unsupported sort", List.of(problem(ex.getMessage(), "sort")));
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return invalidArgument("Illegal arguments", List.of(problem(ex.getMessage(), null)));
+        }
+        if (ex instanceof DataIntegrityViolationException integrity) {
+            String message = Objects.requireNonNullElse(integrity.getRootCause(), ex).getMessage();
+            return invalidArgument("Constraint violation", List.of(problem(message, null)));
+        }
+        if (ex instanceof UserNotFoundException || ex instanceof EntityNotFoundException) {
+            return status(Code.NOT_FOUND, ex.getMessage());
+        }
+        if (ex instanceof UnsupportedWithShardingException) {
+            return status(Code.UNIMPLEMENTED, ex.getMessage());
+        }
+        if (ex instanceof LoadSheddingException shedding) {
+            RetryInfo retryInfo = RetryInfo.newBuilder()
+                    .setRetryDelay(Duration.newBuilder()
+                            .setSeconds(shedding.getRetryAfter().getSeconds())
+                            .setNanos(shedding.getRetryAfter().getNano()))
+                    .build();
+            return status(Code.UNAVAILABLE, ex.getMessage(), Any.pack(retryInfo));
+        }
+        log.error("gRPC call failed", ex);
+        return status(Code.INTERNAL, "Internal error");
+    }
+
+    private static StatusRuntimeException status(Code code, String message, Any... details) {
+        com.google.rpc.Status.Builder status = com.google.rpc.Status.newBuilder()
+                .setCode(code.getNumber())
+                .setMessage(Objects.requireNonNullElse(message, ""));
+        for (Any detail : details) {
+            status.addDetails(detail);
+        }
+        return StatusProto.toStatusRuntimeException(status.build());
+    }
+
+    private static AppProblem problem(String message, String field) {
+        return AppProblem.builder().message(message).field(field).build();
+    }
+}
@@ -0,0 +1,288 @@
+package org.clearsolutions.task.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.clearsolutions.task.dto.BulkOperation;
+import org.clearsolutions.task.dto.BulkOperationType;
+import org.clearsolutions.task.dto.BulkRequest;
+import org.clearsolutions.task.dto.BulkResponse;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
+import org.clearsolutions.task.exception.AppProblem;
+import org.clearsolutions.task.exception.UnsupportedWithShardingException;
+import org.clearsolutions.task.grpc.v1.CreateUserRequest;
+import org.clearsolutions.task.grpc.v1.CreateUserResult;
+import org.clearsolutions.task.grpc.v1.CreateUsersResponse;
+import org.clearsolutions.task.grpc.v1.DeleteUserRequest;
+import org.clearsolutions.task.grpc.v1.GetUserByEmailRequest;
+import org.clearsolutions.task.grpc.v1.ListUsersRequest;
+import org.clearsolutions.task.grpc.v1.SearchUsersByBirthDateRequest;
+import org.clearsolutions.task.grpc.v1.UpdateUserRequest;
+import org.clearsolutions.task.grpc.v1.User;
+import org.clearsolutions.task.grpc.v1.UserServiceGrpc;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.clearsolutions.task.validation.ValidationResult;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The gRPC API of {@code /api/v1/users}, implemented on the same services and validation
+ * as {@code UserController}. Lists and searches are streamed page by page under flow
+ * control, bulk creation is streamed by the client and applied in chunks by
+ * {@link UserBulkService}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
+
+    private final UserService userService;
+    /**
+     * {@code null} with sharding, {@code CreateUsers} is then unimplemented.
+     */
+    private final UserBulkService userBulkService;
+    private final UserRequestValidator userRequestValidator;
+    private final GrpcServerProperties properties;
+
+    @Override
+    public void createUser(CreateUserRequest request, StreamObserver<User> responseObserver) {
+        unary(responseObserver, () -> {
+            UserCreateRequest create = UserProtoMapper.toCreateRequest(request);
+            ValidationResult validation = userRequestValidator.validate(create);
+            if (!validation.isValid()) {
+                throw GrpcStatuses.invalidArgument(validation.getDetail(), validation.getProblems());
+            }
+            return UserProtoMapper.toProto(userService.createUser(create));
+        });
+    }
+
+    @Override
+    public void updateUser(UpdateUserRequest request, StreamObserver<User> responseObserver) {
+        unary(responseObserver, () -> {
+            checkId(request.getId());
+            return UserProtoMapper.toProto(userService.updateUser(request.getId(),
+                    UserProtoMapper.toUpdateRequest(request)));
+        });
+    }
+
+    @Override
+    public void deleteUser(DeleteUserRequest request, StreamObserver<Empty> responseObserver) {
+        unary(responseObserver, () -> {
+            checkId(request.getId());
+            userService.deleteUser(request.getId());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public void getUserByEmail(GetUserByEmailRequest request, StreamObserver<User> responseObserver) {
+        unary(responseObserver, () -> {
+            if (request.getEmail().isBlank()) {
+                throw GrpcStatuses.invalidArgument("Failed validation", List.of(AppProblem.builder()
+                        .message("must not be blank").field("email").wrongValue(request.getEmail()).build()));
+            }
+            return UserProtoMapper.toProto(userService.getUserByEmail(request.getEmail()));
+        });
+    }
+
+    /**
+     * Reads by keyset on the sort keys and the id, so neither a count nor an offset grows
+     * with the position in the stream.
+     */
+    @Override
+    public void listUsers(ListUsersRequest request, StreamObserver<User> responseObserver) {
+        stream(responseObserver, () -> {
+            checkLimit(request.getLimit());
+            Sort sort = UserProtoMapper.toSort(request);
+            return new FlowControlledStream.Batches<User>(request.getLimit()) {
+                private final int size = batchSize(properties.getStreamPageSize());
+                private String cursor;
+
+                @Override
+                protected List<User> fetch() {
+                    UserScrollPage users = userService.scrollUsers(sort, size, cursor);
+                    cursor = users.getNextCursor();
+                    last = cursor == null;
+                    return toProto(users.getContent());
+                }
+            };
+        });
+    }
+
+    /**
+     * Reads by the birth date cursor of the scroll endpoint, so deep positions in the stream
+     * cost no more than the first ones.
+     */
+    @Override
+    public void searchUsersByBirthDate(SearchUsersByBirthDateRequest request, StreamObserver<User> responseObserver) {
+        stream(responseObserver, () -> {
+            checkLimit(request.getLimit());
+            LocalDate from = UserProtoMapper.toLocalDate(request.getFrom(), "from");
+            LocalDate to = UserProtoMapper.toLocalDate(request.getTo(), "to");
+            return new FlowControlledStream.Batches<User>(request.getLimit()) {
+                private final int size = batchSize(properties.getStreamPageSize());
+                private String cursor;
+
+                @Override
+                protected List<User> fetch() {
+                    UserScrollPage users = userService.scrollUsersByBirthDate(from, to, size, cursor);
+                    cursor = users.getNextCursor();
+                    last = cursor == null;
+                    return toProto(users.getContent());
+                }
+            };
+        });
+    }
+
+    @Override
+    public StreamObserver<CreateUserRequest> createUsers(StreamObserver<CreateUsersResponse> responseObserver) {
+        return new CreateUsersObserver(responseObserver);
+    }
+
+    private UserBulkService bulkService() {
+        if (userBulkService == null) {
+            throw new UnsupportedWithShardingException("CreateUsers is not available with sharding.");
+        }
+        return userBulkService;
+    }
+
+    /**
+     * Collects the streamed users into chunks of {@code createChunkSize} and creates every
+     * full chunk right away, so the server holds at most one chunk. Requests with a date
+     * that can not be converted fail on their own without reaching the bulk service.
+     */
+    private class CreateUsersObserver implements StreamObserver<CreateUserRequest> {
+
+        private final StreamObserver<CreateUsersResponse> responseObserver;
+        private final CreateUsersResponse.Builder response = CreateUsersResponse.newBuilder();
+        private final List<BulkOperation> chunk = new ArrayList<>();
+        private final List<Integer> chunkIndexes = new ArrayList<>();
+        private int index;
+        private boolean failed;
+
+        CreateUsersObserver(StreamObserver<CreateUsersResponse> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(CreateUserRequest request) {
+            if (failed) {
+                return;
+            }
+            try {
+                chunk.add(BulkOperation.builder()
+                        .op(BulkOperationType.CREATE)
+                        .user(UserProtoMapper.toBulkCreate(request))
+                        .build());
+                chunkIndexes.add(index);
+            } catch (IllegalArgumentException e) {
+                addResult(CreateUserResult.newBuilder()
+                        .setIndex(index)
+                        .setStatus(HttpStatus.BAD_REQUEST.value())
+                        .addProblems(UserProtoMapper.toProto(AppProblem.builder().message(e.getMessage()).build()))
+                        .build());
+            }
+            index++;
+            if (chunk.size() >= properties.getCreateChunkSize()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.debug("CreateUsers stream failed after {} users", index, t);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            flush();
+            if (!failed) {
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                BulkResponse bulk = TrafficClassContext.call(TrafficClass.BULK, () ->
+                        bulkService().execute(BulkRequest.builder()
+                                .atomic(false)
+                                .operations(List.copyOf(chunk))
+                                .build()));
+                bulk.getResults().forEach(result ->
+                        addResult(UserProtoMapper.toProto(result, chunkIndexes.get(result.getIndex()))));
+            } catch (RuntimeException e) {
+                failed = true;
+                responseObserver.onError(GrpcStatuses.toStatus(e));
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+
+        private void addResult(CreateUserResult result) {
+            response.addResults(result);
+            if (result.getStatus() < 400) {
+                response.setSucceeded(response.getSucceeded() + 1);
+            } else {
+                response.setFailed(response.getFailed() + 1);
+            }
+        }
+    }
+
+    private static <T> void stream(StreamObserver<T> responseObserver, Supplier<Iterator<T>> items) {
+        Iterator<T> iterator;
+        try {
+            iterator = items.get();
+        } catch (RuntimeException e) {
+            responseObserver.onError(GrpcStatuses.toStatus(e));
+            return;
+        }
+        FlowControlledStream.start(responseObserver, iterator);
+    }
+
+    private static <T> void unary(StreamObserver<T> responseObserver, Supplier<T> call) {
+        T response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            responseObserver.onError(GrpcStatuses.toStatus(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private static List<User> toProto(List<UserResponse> users) {
+        return users.stream().map(UserProtoMapper::toProto).toList();
+    }
+
+    private static void checkId(long id) {
+        if (id < 1) {
+            throw new IllegalArgumentException("The user id must be positive, got %d.".formatted(id));
+        }
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative, got %d.".formatted(limit));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.clearsolutions.task.grpc;
+
+import com.google.type.Date;
+import org.clearsolutions.task.dto.BulkOperationResult;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserUpdateRequest;
+import org.clearsolutions.task.exception.AppProblem;
+import org.clearsolutions.task.grpc.v1.CreateUserRequest;
+import org.clearsolutions.task.grpc.v1.CreateUserResult;
+import org.clearsolutions.task.grpc.v1.ListUsersRequest;
+import org.clearsolutions.task.grpc.v1.Problem;
+import org.clearsolutions.task.grpc.v1.SortOrder;
+import org.clearsolutions.task.grpc.v1.UpdateUserRequest;
+import org.clearsolutions.task.grpc.v1.User;
+import org.springframework.data.domain.Sort;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Converts between the protobuf messages and the DTOs of the REST API, so that both share
+ * the validation of the DTOs. Empty strings of required fields become {@code null}, as an
+ * unset proto3 string can not be told apart from an empty one.
+ */
+final class UserProtoMapper {
+
+    private UserProtoMapper() {
+    }
+
+    static User toProto(UserResponse user) {
+        User.Builder builder = User.newBuilder()
+                .setId(user.getId())
+                .setFirstName(user.getFirstName())
+                .setLastName(user.getLastName())
+                .setEmail(user.getEmail())
+                .setBirthDate(toProto(user.getBirthDate()));
+        if (user.getAddress() != null) {
+            builder.setAddress(user.getAddress());
+        }
+        if (user.getPhoneNumber() != null) {
+            builder.setPhoneNumber(user.getPhoneNumber());
+        }
+        return builder.build();
+    }
+
+    static UserCreateRequest toCreateRequest(CreateUserRequest request) {
+        return UserCreateRequest.builder()
+                .firstName(emptyToNull(request.getFirstName()))
+                .lastName(emptyToNull(request.getLastName()))
+                .email(emptyToNull(request.getEmail()))
+                .birthDate(request.hasBirthDate() ? toLocalDate(request.getBirthDate(), "birth_date") : null)
+                .address(request.hasAddress() ? request.getAddress() : null)
+                .phoneNumber(request.hasPhoneNumber() ? request.getPhoneNumber() : null)
+                .build();
+    }
+
+    /**
+     * The bulk service takes creations as {@link UserUpdateRequest}.
+     */
+    static UserUpdateRequest toBulkCreate(CreateUserRequest request) {
+        UserCreateRequest create = toCreateRequest(request);
+        return UserUpdateRequest.builder()
+                .firstName(create.getFirstName())
+                .lastName(create.getLastName())
+                .email(create.getEmail())
+                .birthDate(create.getBirthDate())
+                .address(create.getAddress())
+                .phoneNumber(create.getPhoneNumber())
+                .build();
+    }
+
+    static UserUpdateRequest toUpdateRequest(UpdateUserRequest request) {
+        return UserUpdateRequest.builder()
+                .firstName(request.hasFirstName() ? request.getFirstName() : null)
+                .lastName(request.hasLastName() ? request.getLastName() : null)
+                .email(request.hasEmail() ? request.getEmail() : null)
+                .birthDate(request.hasBirthDate() ? toLocalDate(request.getBirthDate(), "birth_date") : null)
+                .address(request.hasAddress() ? request.getAddress() : null)
+                .phoneNumber(request.hasPhoneNumber() ? request.getPhoneNumber() : null)
+                .build();
+    }
+
+    static Sort toSort(ListUsersRequest request) {
+        List<Sort.Order> orders = request.getSortList().stream()
+                .map(order -> new Sort.Order(order.getDirection() == SortOrder.Direction.DESC
+                        ? Sort.Direction.DESC : Sort.Direction.ASC, order.getProperty()))
+                .toList();
+        return Sort.by(orders);
+    }
+
+    /**
+     * Converts the result of a bulk operation, which was the {@code index}-th request of the stream.
+     */
+    static CreateUserResult toProto(BulkOperationResult result, int index) {
+        CreateUserResult.Builder builder = CreateUserResult.newBuilder()
+                .setIndex(index)
+                .setStatus(result.getStatus());
+        if (result.getStatus() < 400 && result.getId() != null) {
+            builder.setId(result.getId());
+        }
+        if (result.getProblemDetails() != null) {
+            result.getProblemDetails().forEach(problem -> builder.addProblems(toProto(problem)));
+        }
+        return builder.build();
+    }
+
+    static Problem toProto(AppProblem problem) {
+        Problem.Builder builder = Problem.newBuilder().setMessage(String.valueOf(problem.getMessage()));
+        if (problem.getField() != null) {
+            builder.setField(problem.getField());
+        }
+        if (problem.getWrongValue() != null) {
+            builder.setWrongValue(problem.getWrongValue());
+        }
+        return builder.build();
+    }
+
+    static Date toProto(LocalDate date) {
+        return Date.newBuilder()
+                .setYear(date.getYear())
+                .setMonth(date.getMonthValue())
+                .setDay(date.getDayOfMonth())
+                .build();
+    }
+
+    /**
+     * Throws {@link IllegalArgumentException} for dates without a year, month or day, which
+     * {@code google.type.Date} allows.
+     */
+    static LocalDate toLocalDate(Date date, String field) {
+        try {
+            return LocalDate.of(date.getYear(), date.getMonth(), date.getDay());
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("The field '%s' must be a full date, got %d-%d-%d."
+                    .formatted(field, date.getYear(), date.getMonth(), date.getDay()));
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
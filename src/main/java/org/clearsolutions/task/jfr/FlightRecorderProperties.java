@@ -0,0 +1,38 @@
+package org.clearsolutions.task.jfr;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.flight-recorder")
+public class FlightRecorderProperties {
+
+    private Duration defaultDuration = Duration.ofMinutes(1);
+
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    /**
+     * Name of the JDK settings, {@code default} or {@code profile}.
+     */
+    private String settings = "profile";
+
+    /**
+     * Finished recordings kept for download, the oldest is deleted by the next start.
+     */
+    private int maxRecordings = 3;
+
+    /**
+     * Event types left out of every recording. The defaults record the environment variables,
+     * system properties, JVM arguments and process command lines, which hold credentials.
+     */
+    private List<String> disabledEvents = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty",
+            "jdk.JVMInformation", "jdk.SystemProcess");
+
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "flight-recordings");
+}
@@ -0,0 +1,197 @@
+package org.clearsolutions.task.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.exception.AppProblem;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-boxed Java Flight Recorder recordings on demand, under {@code /actuator/flightrecordings}.
+ * {@code POST} starts a recording, which stops by itself after its duration,
+ * {@code POST /{id}} stops it early, {@code GET /{id}} downloads the finished file and
+ * {@code DELETE /{id}} removes it.
+ */
+@Slf4j
+@Endpoint(id = "flightrecordings")
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint implements DisposableBean {
+
+    private final FlightRecorderProperties properties;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    @ReadOperation
+    public List<FlightRecordingResponse> recordings() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .map(this::toResponse)
+                .toList();
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Object> start(@Nullable Duration duration, @Nullable String settings) {
+        Duration length = duration == null ? properties.getDefaultDuration() : duration;
+        if (length.toMillis() <= 0 || length.compareTo(properties.getMaxDuration()) > 0) {
+            return problem(WebEndpointResponse.STATUS_BAD_REQUEST,
+                    "The duration must be positive and at most %s.".formatted(properties.getMaxDuration()));
+        }
+        String settingsName = settings == null ? properties.getSettings() : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            return problem(WebEndpointResponse.STATUS_BAD_REQUEST,
+                    "Unknown settings '%s', use default or profile.".formatted(settingsName));
+        }
+        if (!makeRoom()) {
+            return problem(409, "%d recordings are running already.".formatted(recordings.size()));
+        }
+        Recording recording = new Recording(configuration);
+        properties.getDisabledEvents().forEach(recording::disable);
+        try {
+            Files.createDirectories(properties.getDirectory());
+            recording.setName(settingsName);
+            recording.setToDisk(true);
+            recording.setDuration(length);
+            recording.setDestination(properties.getDirectory().resolve("recording-%d.jfr".formatted(recording.getId())));
+            recording.start();
+        } catch (IOException e) {
+            recording.close();
+            throw new IllegalStateException("Can not write recordings to " + properties.getDirectory(), e);
+        }
+        recordings.put(recording.getId(), recording);
+        log.info("Started flight recording {} with {} settings for {}", recording.getId(), settingsName, length);
+        return new WebEndpointResponse<>(toResponse(recording), WebEndpointResponse.STATUS_OK);
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> stop(@Selector long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return notFound(id);
+        }
+        if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) {
+            recording.stop();
+        }
+        return new WebEndpointResponse<>(toResponse(recording), WebEndpointResponse.STATUS_OK);
+    }
+
+    /**
+     * Answers 404 for an unknown recording and 409 for one that is still running, without a
+     * body as the operation only produces recording files.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> recording(@Selector long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (!isFinished(recording)) {
+            return new WebEndpointResponse<>(409);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(recording.getDestination()), WebEndpointResponse.STATUS_OK);
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Object> delete(@Selector long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            return notFound(id);
+        }
+        close(recording);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    @Override
+    public void destroy() {
+        recordings.values().forEach(this::close);
+        recordings.clear();
+    }
+
+    /**
+     * Deletes the oldest finished recording when the limit is reached, returns whether a
+     * new recording fits.
+     */
+    private boolean makeRoom() {
+        if (recordings.size() < properties.getMaxRecordings()) {
+            return true;
+        }
+        Optional<Recording> oldest = recordings.values().stream()
+                .filter(FlightRecordingEndpoint::isFinished)
+                .min(Comparator.comparingLong(Recording::getId));
+        oldest.ifPresent(recording -> {
+            recordings.remove(recording.getId());
+            close(recording);
+        });
+        return oldest.isPresent();
+    }
+
+    private void close(Recording recording) {
+        Path destination = recording.getDestination();
+        recording.close();
+        try {
+            if (destination != null) {
+                Files.deleteIfExists(destination);
+            }
+        } catch (IOException e) {
+            log.warn("Can not delete flight recording {}", destination, e);
+        }
+    }
+
+    private FlightRecordingResponse toResponse(Recording recording) {
+        long size = recording.getSize();
+        Path destination = recording.getDestination();
+        if (isFinished(recording) && destination != null && Files.exists(destination)) {
+            try {
+                size = Files.size(destination);
+            } catch (IOException e) {
+                log.debug("Can not read the size of {}", destination, e);
+            }
+        }
+        return FlightRecordingResponse.builder()
+                .id(recording.getId())
+                .state(recording.getState().name())
+                .settings(recording.getName())
+                .startTime(recording.getStartTime())
+                .durationSeconds(recording.getDuration() == null ? 0 : recording.getDuration().toSeconds())
+                .size(size)
+                .build();
+    }
+
+    /**
+     * A recording with a destination is written there and closed when it stops.
+     */
+    private static boolean isFinished(Recording recording) {
+        return recording.getState() == RecordingState.STOPPED || recording.getState() == RecordingState.CLOSED;
+    }
+
+    private static WebEndpointResponse<Object> notFound(long id) {
+        return problem(WebEndpointResponse.STATUS_NOT_FOUND, "Recording %d can not be found.".formatted(id));
+    }
+
+    private static WebEndpointResponse<Object> problem(int status, String message) {
+        return new WebEndpointResponse<>(AppProblem.builder().message(message).build(), status);
+    }
+}
@@ -0,0 +1,24 @@
+package org.clearsolutions.task.jfr;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlightRecordingResponse {
+
+    private long id;
+    private String state;
+    private String settings;
+    private Instant startTime;
+    private long durationSeconds;
+    private long size;
+}
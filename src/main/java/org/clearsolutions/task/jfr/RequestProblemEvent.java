@@ -0,0 +1,40 @@
+package org.clearsolutions.task.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.http.ProblemDetail;
+
+/**
+ * A request answered with a problem, either by the exception handler or by a validation
+ * that rejected it without throwing.
+ */
+@Name("org.clearsolutions.task.RequestProblem")
+@Label("Request Problem")
+@Category({"Clear Solutions", "Users"})
+@Description("A request that was answered with a ProblemDetail")
+public class RequestProblemEvent extends Event {
+
+    @Label("Status")
+    int status;
+
+    @Label("Detail")
+    String detail;
+
+    @Label("Cause")
+    @Description("The exception class that was handled, empty for validation rejections")
+    String cause;
+
+    public static ProblemDetail commit(ProblemDetail problemDetail, Exception cause) {
+        RequestProblemEvent event = new RequestProblemEvent();
+        if (event.isEnabled()) {
+            event.status = problemDetail.getStatus();
+            event.detail = problemDetail.getDetail();
+            event.cause = cause == null ? null : cause.getClass().getName();
+            event.commit();
+        }
+        return problemDetail;
+    }
+}
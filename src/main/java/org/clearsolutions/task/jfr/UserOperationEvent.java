@@ -0,0 +1,55 @@
+package org.clearsolutions.task.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * One user service operation. It spans the service method, not the commit of its
+ * transaction. Without a running recording the event is disabled and costs next to nothing.
+ */
+@Name("org.clearsolutions.task.UserOperation")
+@Label("User Operation")
+@Category({"Clear Solutions", "Users"})
+@Description("A user service operation with the number of rows it returned or changed")
+public class UserOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Outcome")
+    @Description("ok, or the simple name of the exception that ended the operation")
+    String outcome;
+
+    public static <T> T record(String operation, Supplier<T> action, ToLongFunction<? super T> rows) {
+        UserOperationEvent event = new UserOperationEvent();
+        event.begin();
+        try {
+            T result = action.get();
+            event.rows = rows.applyAsLong(result);
+            event.outcome = "ok";
+            return result;
+        } catch (RuntimeException e) {
+            event.outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.operation = operation;
+            event.commit();
+        }
+    }
+
+    public static void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        }, result -> 1);
+    }
+}
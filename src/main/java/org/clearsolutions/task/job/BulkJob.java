@@ -0,0 +1,67 @@
+package org.clearsolutions.task.job;
+
+import lombok.Getter;
+import org.clearsolutions.task.dto.BulkJobResponse;
+import org.clearsolutions.task.dto.BulkJobState;
+import org.clearsolutions.task.dto.BulkOperationType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of a set-based bulk job. Written by the worker thread only and read by
+ * status requests, hence the volatile fields.
+ */
+@Getter
+public class BulkJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final BulkOperationType operation;
+    private volatile BulkJobState state = BulkJobState.QUEUED;
+    private volatile long total;
+    private volatile long affected;
+    private volatile int chunks;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public BulkJob(BulkOperationType operation) {
+        this.operation = operation;
+    }
+
+    public void start(long total) {
+        this.total = total;
+        this.startedAt = Instant.now();
+        this.state = BulkJobState.RUNNING;
+    }
+
+    public void chunkDone(int affectedRows) {
+        affected += affectedRows;
+        chunks++;
+    }
+
+    public void complete() {
+        finishedAt = Instant.now();
+        state = BulkJobState.COMPLETED;
+    }
+
+    public void fail(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        state = BulkJobState.FAILED;
+    }
+
+    public BulkJobResponse toResponse() {
+        return BulkJobResponse.builder()
+                .jobId(id)
+                .operation(operation)
+                .state(state)
+                .total(total)
+                .affected(affected)
+                .chunks(chunks)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package org.clearsolutions.task.job;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.bulk-job")
+public class BulkJobProperties {
+
+    /**
+     * Users changed by one statement. Every chunk commits on its own, so this bounds how
+     * long row locks are held.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Pause after every chunk, gives replication and vacuum room on large jobs.
+     */
+    private Duration pauseBetweenChunks = Duration.ZERO;
+
+    private int maxConcurrentJobs = 2;
+
+    private int queueCapacity = 16;
+
+    /**
+     * How long a finished job can still be queried.
+     */
+    private Duration retention = Duration.ofHours(1);
+}
@@ -0,0 +1,103 @@
+package org.clearsolutions.task.limiter;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter whose limit follows the gradient between the long-term and the
+ * most recent request latency (Gradient2 / Vegas style). When the database slows down
+ * the short latency grows above the long one, the gradient drops below 1 and the limit
+ * shrinks, so excess requests are rejected instead of queueing on the connection pool.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DRIFT_RATIO = 2.0;
+    private static final double DRIFT_DECAY = 0.95;
+
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final double longWindowWeight;
+    private final double sheddableShare;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, ConcurrencyLimitProperties.Limit settings,
+                                      ConcurrencyLimitProperties properties) {
+        this.name = name;
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.limit = settings.getInitialLimit();
+        this.smoothing = properties.getSmoothing();
+        this.tolerance = properties.getRttTolerance();
+        this.longWindowWeight = 2.0 / (properties.getLongWindow() + 1);
+        this.sheddableShare = properties.getSheddableShare();
+    }
+
+    /**
+     * Tries to take a slot. Sheddable requests are only admitted while the in-flight count
+     * is below {@code sheddableShare} of the limit, which keeps headroom for the rest.
+     *
+     * @param sheddable whether the request may be rejected first under pressure
+     * @return {@code true} when the request is admitted and {@link #release} must be called
+     */
+    public boolean tryAcquire(boolean sheddable) {
+        int max = sheddable ? Math.max(1, (int) (limit * sheddableShare)) : (int) limit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryAcquire} and, when {@code rttNanos} is positive,
+     * feeds the observed latency into the limit.
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            onSample(rttNanos, current);
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtRelease) {
+        double shortRtt = rttNanos;
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) * longWindowWeight;
+        }
+        if (longRttNanos / shortRtt > DRIFT_RATIO) {
+            longRttNanos *= DRIFT_DECAY;
+        }
+        // The limit is only meaningful while it is actually being used.
+        if (inFlightAtRelease < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
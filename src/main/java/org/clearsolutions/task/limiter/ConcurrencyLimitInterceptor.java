@@ -0,0 +1,81 @@
+package org.clearsolutions.task.limiter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Admits {@code UserController} requests through separate read and write limiters and
+ * feeds the observed latency back into them. The limiter is chosen by the mapped route,
+ * so searches sent as POST are reads. Reads with an export sized page are sheddable, so
+ * they are rejected before ordinary reads.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String LIMITER_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private final ConcurrencyLimitProperties properties;
+    private final Set<String> writeRoutes;
+    @Getter
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    @Getter
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.writeRoutes = properties.getWriteRoutes().stream()
+                .map(route -> route.trim().replaceAll("\\s+", " "))
+                .collect(Collectors.toUnmodifiableSet());
+        this.readLimiter = new AdaptiveConcurrencyLimiter("read", properties.getRead(), properties);
+        this.writeLimiter = new AdaptiveConcurrencyLimiter("write", properties.getWrite(), properties);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        boolean read = isRead(request);
+        AdaptiveConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire(read && isExport(request))) {
+            throw new LoadSheddingException("The %s limit of %d concurrent requests is reached."
+                    .formatted(limiter.getName(), limiter.getLimit()), properties.getRetryAfter());
+        }
+        request.setAttribute(LIMITER_ATTRIBUTE, limiter);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(LIMITER_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter limiter) {
+            request.removeAttribute(LIMITER_ATTRIBUTE);
+            long start = (long) request.getAttribute(START_ATTRIBUTE);
+            // Failed requests say nothing about database latency, so they only free the slot.
+            boolean failed = ex != null || response.getStatus() >= 500;
+            limiter.release(failed ? 0 : System.nanoTime() - start);
+        }
+    }
+
+    boolean isRead(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return !writeRoutes.contains(request.getMethod() + " " + pattern);
+    }
+
+    private boolean isExport(HttpServletRequest request) {
+        String size = request.getParameter("size");
+        if (size == null) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(size) >= properties.getExportPageSize();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
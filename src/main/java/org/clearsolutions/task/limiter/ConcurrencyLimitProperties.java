@@ -0,0 +1,72 @@
+package org.clearsolutions.task.limiter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Limit for the routes that only read, every route not in {@link #writeRoutes}.
+     */
+    private Limit read = new Limit(20, 4, 200);
+
+    /**
+     * Limit for the {@link #writeRoutes}.
+     */
+    private Limit write = new Limit(20, 4, 200);
+
+    /**
+     * Mapped routes, as {@code METHOD pattern}, that change users. Searches sent as POST
+     * are reads and stay out of this list.
+     */
+    private List<String> writeRoutes = List.of(
+            "POST /api/v1/users",
+            "PUT /api/v1/users/{userId}",
+            "DELETE /api/v1/users/{userId}",
+            "POST /api/v1/users/_bulk",
+            "POST /api/v1/users/_bulk/delete",
+            "POST /api/v1/users/_bulk/patch");
+
+    /**
+     * Share of the limit available to sheddable (export sized) requests.
+     */
+    private double sheddableShare = 0.5;
+
+    /**
+     * Page size from which a read is treated as an export and shed first.
+     */
+    private int exportPageSize = 500;
+
+    private double smoothing = 0.2;
+
+    private double rttTolerance = 1.5;
+
+    /**
+     * Number of samples the long-term latency average is taken over.
+     */
+    private int longWindow = 600;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+    }
+}
@@ -1,5 +1,6 @@
 package org.clearsolutions.task.mapper;
 
+import org.clearsolutions.task.dto.UserChangeResponse;
 import org.clearsolutions.task.dto.UserCreateRequest;
 import org.clearsolutions.task.dto.UserResponse;
 import org.clearsolutions.task.dto.UserUpdateRequest;
@@ -14,6 +15,18 @@ public interface UserMapper {
 
     UserResponse toResponse(User savedUser);
 
+    UserCreateRequest toCreateRequest(UserUpdateRequest request);
+
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateUser(@MappingTarget User existingUser, UserUpdateRequest request);
+
+    default UserChangeResponse toChangeResponse(User user) {
+        boolean deleted = user.getDeletedAt() != null;
+        return UserChangeResponse.builder()
+                .id(user.getId())
+                .updatedAt(user.getUpdatedAt())
+                .deleted(deleted)
+                .user(deleted ? null : toResponse(user))
+                .build();
+    }
 }
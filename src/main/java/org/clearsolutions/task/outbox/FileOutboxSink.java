@@ -0,0 +1,36 @@
+package org.clearsolutions.task.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Appends events as JSON lines and forces them to disk before the batch is acknowledged.
+ */
+@RequiredArgsConstructor
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (OutboxEvent event : batch) {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+            }
+            out.flush();
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.clearsolutions.task.outbox;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the last published events in memory. Meant for tests and local runs.
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private static final int CAPACITY = 10_000;
+
+    private final Deque<OutboxEvent> events = new ArrayDeque<>();
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) {
+        for (OutboxEvent event : batch) {
+            if (events.size() == CAPACITY) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    public synchronized List<OutboxEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,34 @@
+package org.clearsolutions.task.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.outbox")
+public class OutboxProperties {
+
+    /**
+     * Starts the relay, which needs an explicit {@link #sink}. Until then the events wait
+     * in the outbox.
+     */
+    private boolean relayEnabled = false;
+
+    private int batchSize = 500;
+
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * One of {@code webhook}, {@code file} or {@code in-memory}. The in-memory sink keeps
+     * the events in the heap only and is meant for tests and the {@code dev} profile.
+     */
+    private String sink;
+
+    private String webhookUrl;
+
+    private Path filePath = Path.of("user-events.jsonl");
+}
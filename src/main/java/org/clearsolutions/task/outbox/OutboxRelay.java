@@ -0,0 +1,77 @@
+package org.clearsolutions.task.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Drains the outbox into the configured {@link OutboxSink}. Each batch is locked with
+ * {@code SKIP LOCKED}, published and deleted in one transaction; if the sink fails the
+ * transaction rolls back and the batch is retried on the next flush. Runs only with
+ * {@code user.outbox.relay-enabled=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.outbox.relay-enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxSink sink;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer lag;
+    private final Counter published;
+
+    public OutboxRelay(OutboxRepository outboxRepository, OutboxSink sink, OutboxProperties properties,
+                       TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.lag = Timer.builder("user.outbox.lag")
+                .description("Time between a user change and its delivery to the sink")
+                .register(meterRegistry);
+        this.published = Counter.builder("user.outbox.published")
+                .description("User change events delivered to the sink")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${user.outbox.flush-interval}")
+    public void flush() {
+        try {
+            int drained;
+            do {
+                drained = Objects.requireNonNull(transactionTemplate.execute(status -> drainBatch()));
+            } while (drained == properties.getBatchSize());
+        } catch (RuntimeException e) {
+            log.warn("Outbox flush failed, it will be retried in {}", properties.getFlushInterval(), e);
+        }
+    }
+
+    private int drainBatch() {
+        List<OutboxEvent> batch = outboxRepository.lockNextBatch(properties.getBatchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.publish(batch);
+        } catch (Exception e) {
+            throw new IllegalStateException("Outbox sink rejected %d events".formatted(batch.size()), e);
+        }
+        outboxRepository.deleteAllInBatch(batch);
+        Instant now = Instant.now();
+        batch.forEach(event -> lag.record(Duration.between(event.getCreatedAt(), now)));
+        published.increment(batch.size());
+        return batch.size();
+    }
+}
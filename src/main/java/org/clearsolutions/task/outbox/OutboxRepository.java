@@ -0,0 +1,24 @@
+package org.clearsolutions.task.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest unpublished events. Rows locked by a relay on another instance are
+     * skipped, so several instances drain the outbox concurrently without double delivery.
+     */
+    @Query(value = """
+            SELECT * FROM task.user_outbox
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+}
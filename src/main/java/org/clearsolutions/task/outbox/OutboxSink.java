@@ -0,0 +1,12 @@
+package org.clearsolutions.task.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of the outbox relay. A batch is removed from the outbox only after
+ * {@link #publish} returns, so sinks must tolerate receiving a batch again after a failure.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> batch) throws Exception;
+}
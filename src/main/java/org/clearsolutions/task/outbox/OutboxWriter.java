@@ -0,0 +1,44 @@
+package org.clearsolutions.task.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Stores every user change in the outbox. The listener runs synchronously in the
+ * transaction that published the event, so the outbox row commits or rolls back
+ * together with the change itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        outboxRepository.save(OutboxEvent.builder()
+                .userId(event.getUserId())
+                .eventType(event.getType())
+                .payload(toJson(event))
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    private String toJson(UserChangedEvent event) {
+        if (event.getUser() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(event.getUser());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("User '%d' can not be written to the outbox".formatted(event.getUserId()), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.clearsolutions.task.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * Posts each batch as a JSON array. Any non-2xx response fails the batch.
+ */
+@RequiredArgsConstructor
+public class WebhookOutboxSink implements OutboxSink {
+
+    private final RestClient restClient;
+    private final String url;
+
+    @Override
+    public void publish(List<OutboxEvent> batch) {
+        restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(batch)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
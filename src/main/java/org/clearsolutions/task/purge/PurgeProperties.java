@@ -0,0 +1,42 @@
+package org.clearsolutions.task.purge;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.purge")
+public class PurgeProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * How long a deleted user stays as a tombstone. Change feed consumers that poll less
+     * often than this miss deletions.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    private Duration interval = Duration.ofMinutes(1);
+
+    /**
+     * Daily windows the purger runs in, {@code HH:mm-HH:mm} in {@link #zone}. Empty means
+     * at any time.
+     */
+    private List<PurgeWindow> windows = new ArrayList<>(List.of(PurgeWindow.of("01:00-05:00")));
+
+    private ZoneId zone = ZoneId.systemDefault();
+
+    private int batchSize = 500;
+
+    /**
+     * Upper bound of the deleted rows per second, the purger sleeps between batches to stay
+     * below it.
+     */
+    private int maxRowsPerSecond = 2000;
+}
@@ -0,0 +1,44 @@
+package org.clearsolutions.task.purge;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A daily time window such as {@code 01:00-05:00}. A window whose end is before its start
+ * spans midnight, {@code 22:00-02:00} runs from ten in the evening to two in the morning.
+ */
+public record PurgeWindow(LocalTime start, LocalTime end) {
+
+    public PurgeWindow {
+        if (start.equals(end)) {
+            throw new IllegalArgumentException("Purge window %s-%s is empty.".formatted(start, end));
+        }
+    }
+
+    /**
+     * Parses {@code HH:mm-HH:mm}, also used to bind {@code user.purge.windows}.
+     */
+    public static PurgeWindow of(String window) {
+        String[] bounds = window.split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Purge window '%s' is not HH:mm-HH:mm.".formatted(window));
+        }
+        try {
+            return new PurgeWindow(LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Purge window '%s' is not HH:mm-HH:mm.".formatted(window), e);
+        }
+    }
+
+    public boolean contains(LocalTime time) {
+        if (start.isBefore(end)) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+        return !time.isBefore(start) || time.isBefore(end);
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
@@ -0,0 +1,110 @@
+package org.clearsolutions.task.purge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard deletes the tombstones {@code deleteUser} and bulk deletes leave behind once they are
+ * older than the retention. It runs only inside the configured windows and deletes in
+ * small batches, each in its own transaction, sleeping between them so that it stays below
+ * {@code user.purge.max-rows-per-second}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class TombstonePurger {
+
+    private final UserRepository userRepository;
+    private final PurgeProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter purged;
+    private final Timer batches;
+    private final AtomicLong backlog = new AtomicLong();
+
+    @Setter(AccessLevel.PACKAGE)
+    private Clock clock = Clock.systemUTC();
+
+    public TombstonePurger(UserRepository userRepository, PurgeProperties properties,
+                           TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.purged = Counter.builder("user.purge.deleted")
+                .description("Tombstones of deleted users removed for good")
+                .register(meterRegistry);
+        this.batches = Timer.builder("user.purge.batch")
+                .description("Time to delete one batch of tombstones")
+                .register(meterRegistry);
+        Gauge.builder("user.purge.backlog", backlog, AtomicLong::get)
+                .description("Tombstones older than the retention, counted when a purge starts")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${user.purge.interval}")
+    public void purge() {
+        if (!properties.isEnabled() || !isInWindow()) {
+            return;
+        }
+        Instant deletedBefore = clock.instant().minus(properties.getRetention());
+        long total = 0;
+        try {
+            backlog.set(Objects.requireNonNull(transactionTemplate.execute(status ->
+                    userRepository.countTombstones(deletedBefore))));
+            int deleted;
+            do {
+                long started = System.nanoTime();
+                deleted = Objects.requireNonNull(transactionTemplate.execute(status ->
+                        userRepository.purgeTombstones(deletedBefore, properties.getBatchSize()))).size();
+                long elapsed = System.nanoTime() - started;
+                batches.record(elapsed, TimeUnit.NANOSECONDS);
+                purged.increment(deleted);
+                total += deleted;
+                long remaining = backlog.get() - deleted;
+                backlog.set(Math.max(0, remaining));
+                throttle(deleted, elapsed);
+            } while (deleted == properties.getBatchSize() && isInWindow());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Purging tombstones failed, it will be retried in {}", properties.getInterval(), e);
+        }
+        if (total > 0) {
+            log.info("Purged {} tombstones deleted before {}, {} left", total, deletedBefore, backlog.get());
+        }
+    }
+
+    boolean isInWindow() {
+        if (properties.getWindows().isEmpty()) {
+            return true;
+        }
+        LocalTime now = LocalTime.now(clock.withZone(properties.getZone()));
+        return properties.getWindows().stream().anyMatch(window -> window.contains(now));
+    }
+
+    /**
+     * Sleeps for the rest of the time {@code deleted} rows may take at the configured rate.
+     */
+    private void throttle(int deleted, long elapsedNanos) throws InterruptedException {
+        long budgetNanos = TimeUnit.SECONDS.toNanos(deleted) / properties.getMaxRowsPerSecond();
+        if (budgetNanos > elapsedNanos) {
+            TimeUnit.NANOSECONDS.sleep(budgetNanos - elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.clearsolutions.task.repository;
+
+import org.clearsolutions.task.entity.UserBirthDateCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserBirthDateCountRepository extends JpaRepository<UserBirthDateCount, LocalDate> {
+
+    List<UserBirthDateCount> findByLiveCountGreaterThan(long liveCount);
+}
@@ -0,0 +1,45 @@
+package org.clearsolutions.task.repository;
+
+import org.clearsolutions.task.dto.UserCriteria;
+import org.clearsolutions.task.dto.UserUpdateRequest;
+import org.clearsolutions.task.entity.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Set-based statements for bulk jobs and background maintenance. Every chunk call changes
+ * at most {@code limit} users with one statement. The bulk job chunks write their outbox
+ * rows in the same statement and return the ids of the changed users in ascending order.
+ */
+public interface UserBulkRepository {
+
+    long countMatching(UserCriteria criteria);
+
+    List<Long> softDeleteChunk(UserCriteria criteria, long afterId, int limit);
+
+    List<Long> patchChunk(UserCriteria criteria, UserUpdateRequest patch, long afterId, int limit);
+
+    /**
+     * Hard deletes at most {@code limit} tombstones deleted before {@code deletedBefore},
+     * oldest first, and skips the ones other transactions hold. Their deletion was already
+     * written to the outbox when they were soft deleted, so no outbox rows are written.
+     */
+    List<Long> purgeTombstones(Instant deletedBefore, int limit);
+
+    long countTombstones(Instant deletedBefore);
+
+    /**
+     * Hard deletes at most {@code limit} live users not changed since {@code inactiveSince}
+     * that sort after {@code (afterBirthDate, afterId)} and returns them in birth date and
+     * id order. Their emails, phones and birth date counts stay, see
+     * {@code V11__archive_user_segments.sql}.
+     */
+    List<User> archiveChunk(Instant inactiveSince, LocalDate afterBirthDate, long afterId, int limit);
+
+    void recordArchiveSegment(String name, int rows, long minId, long maxId, LocalDate minBirthDate,
+                              LocalDate maxBirthDate);
+
+    boolean isArchiveSegmentRecorded(String name);
+}
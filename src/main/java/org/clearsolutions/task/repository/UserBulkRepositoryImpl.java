@@ -0,0 +1,194 @@
+package org.clearsolutions.task.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.clearsolutions.task.dto.UserCriteria;
+import org.clearsolutions.task.dto.UserUpdateRequest;
+import org.clearsolutions.task.entity.User;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserBulkRepositoryImpl implements UserBulkRepository {
+
+    private static final String PAYLOAD = """
+            jsonb_build_object('id', c.id, 'firstName', c.first_name, 'lastName', c.last_name, 'email', c.email,
+                               'birthDate', c.birth_date, 'address', c.address, 'phoneNumber', c.phone)""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public long countMatching(UserCriteria criteria) {
+        Query query = entityManager.createNativeQuery(
+                "SELECT count(*) FROM task.users WHERE deleted_at IS NULL AND " + where(criteria), Long.class);
+        bind(query, criteria);
+        return (Long) query.getSingleResult();
+    }
+
+    @Override
+    public List<Long> softDeleteChunk(UserCriteria criteria, long afterId, int limit) {
+        return changeChunk(criteria, "deleted_at = now()", "DELETED", "NULL", Map.of(), afterId, limit);
+    }
+
+    @Override
+    public List<Long> patchChunk(UserCriteria criteria, UserUpdateRequest patch, long afterId, int limit) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        putIfSet(values, "first_name", patch.getFirstName());
+        putIfSet(values, "last_name", patch.getLastName());
+        putIfSet(values, "birth_date", patch.getBirthDate());
+        putIfSet(values, "address", patch.getAddress());
+        List<String> assignments = new ArrayList<>();
+        values.keySet().forEach(column -> assignments.add(column + " = :" + column));
+        return changeChunk(criteria, String.join(", ", assignments), "UPDATED", PAYLOAD, values, afterId, limit);
+    }
+
+    /**
+     * Reads the deleted ids instead of running an update query, which would make Hibernate
+     * evict the whole user region of the second-level cache. The notification trigger evicts
+     * the purged users one by one.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> purgeTombstones(Instant deletedBefore, int limit) {
+        return entityManager.createNativeQuery("""
+                        WITH batch AS (
+                            SELECT id, birth_date FROM task.users
+                            WHERE deleted_at < :deletedBefore
+                            ORDER BY deleted_at, id
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        DELETE FROM task.users u USING batch
+                        WHERE u.id = batch.id AND u.birth_date = batch.birth_date
+                        RETURNING u.id
+                        """, Long.class)
+                .setParameter("deletedBefore", deletedBefore)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countTombstones(Instant deletedBefore) {
+        return (Long) entityManager.createNativeQuery(
+                        "SELECT count(*) FROM task.users WHERE deleted_at < :deletedBefore", Long.class)
+                .setParameter("deletedBefore", deletedBefore)
+                .getSingleResult();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<User> archiveChunk(Instant inactiveSince, LocalDate afterBirthDate, long afterId, int limit) {
+        entityManager.createNativeQuery("SELECT set_config('task.archiving', 'on', true)").getSingleResult();
+        return entityManager.createNativeQuery("""
+                        WITH batch AS (
+                            SELECT id, birth_date FROM task.users
+                            WHERE deleted_at IS NULL AND updated_at < :inactiveSince
+                              AND (birth_date, id) > (:afterBirthDate, :afterId)
+                            ORDER BY birth_date, id
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                        ), archived AS (
+                            DELETE FROM task.users u USING batch
+                            WHERE u.id = batch.id AND u.birth_date = batch.birth_date
+                            RETURNING u.*
+                        )
+                        SELECT * FROM archived ORDER BY birth_date, id
+                        """, User.class)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .setParameter("inactiveSince", inactiveSince)
+                .setParameter("afterBirthDate", afterBirthDate)
+                .setParameter("afterId", afterId)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    /**
+     * The query space keeps Hibernate from evicting the second-level cache, which it does
+     * for native updates of unknown tables.
+     */
+    @Override
+    public void recordArchiveSegment(String name, int rows, long minId, long maxId, LocalDate minBirthDate,
+                                     LocalDate maxBirthDate) {
+        entityManager.createNativeQuery("""
+                        INSERT INTO task.user_archive_segments
+                            (name, row_count, min_id, max_id, min_birth_date, max_birth_date)
+                        VALUES (:name, :rows, :minId, :maxId, :minBirthDate, :maxBirthDate)
+                        """)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("task.user_archive_segments")
+                .setParameter("name", name)
+                .setParameter("rows", rows)
+                .setParameter("minId", minId)
+                .setParameter("maxId", maxId)
+                .setParameter("minBirthDate", minBirthDate)
+                .setParameter("maxBirthDate", maxBirthDate)
+                .executeUpdate();
+    }
+
+    @Override
+    public boolean isArchiveSegmentRecorded(String name) {
+        return (Boolean) entityManager.createNativeQuery(
+                        "SELECT count(*) > 0 FROM task.user_archive_segments WHERE name = :name", Boolean.class)
+                .setParameter("name", name)
+                .getSingleResult();
+    }
+
+    /**
+     * Locks the next chunk in id order, changes it and appends its outbox rows. Locking in
+     * id order keeps concurrent jobs from deadlocking on each other.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> changeChunk(UserCriteria criteria, String assignments, String eventType, String payload,
+                                   Map<String, Object> values, long afterId, int limit) {
+        Query query = entityManager.createNativeQuery("""
+                WITH batch AS (
+                    SELECT id FROM task.users
+                    WHERE deleted_at IS NULL AND %s AND id > :afterId
+                    ORDER BY id
+                    LIMIT :limit
+                    FOR UPDATE
+                ), changed AS (
+                    UPDATE task.users u SET %s, updated_at = now()
+                    FROM batch WHERE u.id = batch.id
+                    RETURNING u.*
+                ), outbox AS (
+                    INSERT INTO task.user_outbox (user_id, event_type, payload, created_at)
+                    SELECT c.id, '%s', %s, now() FROM changed c
+                )
+                SELECT c.id FROM changed c ORDER BY c.id
+                """.formatted(where(criteria), assignments, eventType, payload), Long.class);
+        bind(query, criteria);
+        values.forEach(query::setParameter);
+        query.setParameter("afterId", afterId);
+        query.setParameter("limit", limit);
+        return query.getResultList();
+    }
+
+    private static String where(UserCriteria criteria) {
+        return criteria.hasIds() ? "id IN (:ids)" : "birth_date BETWEEN :from AND :to";
+    }
+
+    private static void bind(Query query, UserCriteria criteria) {
+        if (criteria.hasIds()) {
+            query.setParameter("ids", criteria.getIds());
+        } else {
+            query.setParameter("from", criteria.getFrom());
+            query.setParameter("to", criteria.getTo());
+        }
+    }
+
+    private static void putIfSet(Map<String, Object> values, String column, Object value) {
+        if (value != null) {
+            values.put(column, value);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.clearsolutions.task.repository;
+
+import org.clearsolutions.task.entity.User;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Reads of all live users by keyset, see {@link org.clearsolutions.task.sort.UserKeyset}.
+ */
+public interface UserKeysetRepository {
+
+    /**
+     * First {@code limit} live users in {@code sort} order after {@code cursor}, from the
+     * start when it is {@code null}. The sort must be planned by
+     * {@link org.clearsolutions.task.sort.UserSortRegistry}.
+     */
+    List<User> findLiveAfter(Sort sort, String cursor, int limit);
+}
@@ -0,0 +1,33 @@
+package org.clearsolutions.task.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.sort.UserKeyset;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+public class UserKeysetRepositoryImpl implements UserKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<User> findLiveAfter(Sort sort, String cursor, int limit) {
+        UserKeyset.Condition after = UserKeyset.after(sort, cursor, UserKeyset::column);
+        StringJoiner orderBy = new StringJoiner(", ");
+        sort.forEach(order -> orderBy.add(UserKeyset.column(order.getProperty()) + " " + order.getDirection()));
+        Query query = entityManager.createNativeQuery("""
+                SELECT * FROM task.users
+                WHERE deleted_at IS NULL AND %s
+                ORDER BY %s
+                LIMIT :limit
+                """.formatted(after.sql(), orderBy), User.class);
+        after.parameters().forEach(query::setParameter);
+        return query.setParameter("limit", limit).getResultList();
+    }
+}
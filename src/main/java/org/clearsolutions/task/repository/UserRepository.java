@@ -1,15 +1,126 @@
 package org.clearsolutions.task.repository;
 
+import jakarta.persistence.QueryHint;
+import org.clearsolutions.task.cache.SecondLevelCacheProperties;
+import org.clearsolutions.task.dto.BirthDateRange;
 import org.clearsolutions.task.entity.User;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserBulkRepository, UserKeysetRepository {
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheProperties.BIRTHDAY_SEARCH_REGION)
+    })
     Page<User> getUsersByBirthDateBetween(LocalDate from, LocalDate to, Pageable pageable);
+
+    /**
+     * Seeks the live user with the email in any case, see {@code users_email_normalized_live_idx}.
+     */
+    @Query(value = """
+            SELECT * FROM task.users u
+            WHERE u.email_normalized = lower(btrim(:email)) AND u.deleted_at IS NULL
+            """, nativeQuery = true)
+    Optional<User> findLiveByEmail(@Param("email") String email);
+
+    /**
+     * The user holding the email claim, also an archived one.
+     */
+    @Query(value = "SELECT e.user_id FROM task.user_emails e WHERE e.email = lower(btrim(:email))", nativeQuery = true)
+    Optional<Long> findClaimingUserId(@Param("email") String email);
+
+    /**
+     * Keyset scan of the change feed, tombstones included.
+     */
+    @Query(value = """
+            SELECT * FROM task.users u
+            WHERE (u.updated_at, u.id) > (:since, :afterId) AND u.updated_at < :until
+            ORDER BY u.updated_at, u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<User> findChanges(@Param("since") Instant since, @Param("afterId") long afterId,
+                           @Param("until") Instant until, @Param("limit") int limit);
+
+    /**
+     * Keyset scan of live users born in {@code [from, to]} after the given position.
+     */
+    @Query(value = """
+            SELECT * FROM task.users u
+            WHERE u.deleted_at IS NULL AND u.birth_date BETWEEN :from AND :to
+              AND (u.birth_date, u.id) > (:afterBirthDate, :afterId)
+            ORDER BY u.birth_date, u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<User> scrollByBirthDate(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                 @Param("afterBirthDate") LocalDate afterBirthDate, @Param("afterId") long afterId,
+                                 @Param("limit") int limit);
+
+    /**
+     * Keyset scan of live users born in any of {@code ranges} after the given position, in
+     * birth date order. The ranges must be sorted and disjoint.
+     */
+    default List<User> scrollByBirthDateRanges(List<BirthDateRange> ranges, LocalDate afterBirthDate, long afterId,
+                                               int limit) {
+        return scrollRanges(ranges, afterBirthDate, afterId, limit, this::scrollByBirthDate);
+    }
+
+    /**
+     * Runs {@code scan} on the ranges one after another, each a keyset scan of the birth date
+     * index, until {@code limit} users are read. The ranges before the position are skipped
+     * and the ones after the last needed are never queried, so a full page costs one query
+     * per range it spans.
+     */
+    static List<User> scrollRanges(List<BirthDateRange> ranges, LocalDate afterBirthDate, long afterId, int limit,
+                                   RangeScan scan) {
+        List<User> rows = new ArrayList<>();
+        for (BirthDateRange range : ranges) {
+            if (rows.size() == limit) {
+                break;
+            }
+            if (!range.getTo().isBefore(afterBirthDate)) {
+                rows.addAll(scan.scroll(range.getFrom(), range.getTo(), afterBirthDate, afterId, limit - rows.size()));
+            }
+        }
+        return rows;
+    }
+
+    @FunctionalInterface
+    interface RangeScan {
+        List<User> scroll(LocalDate from, LocalDate to, LocalDate afterBirthDate, long afterId, int limit);
+    }
+
+    /**
+     * Keyset scan of live users born in {@code [from, to]} in id order for exports. The
+     * users are not put into the second-level cache, a large export would evict the users
+     * that requests need.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    @Query(value = """
+            SELECT * FROM task.users u
+            WHERE u.deleted_at IS NULL AND u.birth_date BETWEEN :from AND :to AND u.id > :afterId
+            ORDER BY u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<User> findExportChunk(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                               @Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT count(*) FROM task.users u
+            WHERE u.deleted_at IS NULL AND u.birth_date BETWEEN :from AND :to
+            """, nativeQuery = true)
+    long countLiveByBirthDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
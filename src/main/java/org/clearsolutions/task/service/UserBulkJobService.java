@@ -0,0 +1,13 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.BulkJobResponse;
+import org.clearsolutions.task.dto.BulkPatchRequest;
+import org.clearsolutions.task.dto.UserCriteria;
+
+public interface UserBulkJobService {
+    BulkJobResponse deleteUsers(UserCriteria criteria);
+
+    BulkJobResponse patchUsers(BulkPatchRequest request);
+
+    BulkJobResponse getJob(String jobId);
+}
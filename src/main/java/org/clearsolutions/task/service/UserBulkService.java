@@ -0,0 +1,8 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.BulkRequest;
+import org.clearsolutions.task.dto.BulkResponse;
+
+public interface UserBulkService {
+    BulkResponse execute(BulkRequest request);
+}
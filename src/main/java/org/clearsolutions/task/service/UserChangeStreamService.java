@@ -0,0 +1,8 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.stream.ChangeStreamFilter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface UserChangeStreamService {
+    SseEmitter subscribe(ChangeStreamFilter filter, String lastEventId);
+}
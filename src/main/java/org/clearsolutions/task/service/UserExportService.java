@@ -0,0 +1,14 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.ExportJobResponse;
+import org.clearsolutions.task.dto.ExportRequest;
+
+import java.nio.file.Path;
+
+public interface UserExportService {
+    ExportJobResponse submit(ExportRequest request);
+
+    ExportJobResponse getJob(String jobId);
+
+    Path getFile(String jobId);
+}
@@ -0,0 +1,8 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.UserSegmentRequest;
+import org.clearsolutions.task.dto.UserSegmentResponse;
+
+public interface UserSegmentService {
+    UserSegmentResponse findSegment(UserSegmentRequest request);
+}
@@ -1,11 +1,16 @@
 package org.clearsolutions.task.service;
 
+import org.clearsolutions.task.dto.BirthdaySearchRequest;
+import org.clearsolutions.task.dto.UserChangePage;
 import org.clearsolutions.task.dto.UserCreateRequest;
 import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
 import org.clearsolutions.task.dto.UserUpdateRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 public interface UserService {
@@ -13,9 +18,25 @@ public interface UserService {
 
     Page<UserResponse> getAllUsers(Pageable pageable);
 
+    /**
+     * A slice of all live users in {@code sort} order after {@code cursor}, read by keyset
+     * without counting, see {@link org.clearsolutions.task.sort.UserKeyset}.
+     */
+    UserScrollPage scrollUsers(Sort sort, int size, String cursor);
+
     UserResponse updateUser(Long id, UserUpdateRequest request);
 
     void deleteUser(Long id);
 
+    UserResponse getUser(Long id);
+
+    UserResponse getUserByEmail(String email);
+
     Page<UserResponse> searchUsersByBirthDate(LocalDate from, LocalDate to, Pageable pageable);
+
+    UserScrollPage scrollUsersByBirthDate(LocalDate from, LocalDate to, int size, String cursor);
+
+    UserScrollPage searchUsersByBirthDateRanges(BirthdaySearchRequest request);
+
+    UserChangePage getUserChanges(Instant since, Long afterId, int limit);
 }
@@ -0,0 +1,7 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.UserStatsResponse;
+
+public interface UserStatsService {
+    UserStatsResponse getStats();
+}
@@ -0,0 +1,84 @@
+package org.clearsolutions.task.service.impl;
+
+import org.clearsolutions.task.dto.BirthDateRange;
+import org.clearsolutions.task.dto.BirthdaySearchRequest;
+import org.clearsolutions.task.dto.MonthDayWindow;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Turns the ranges and windows of a {@link BirthdaySearchRequest} into sorted, disjoint
+ * date ranges. Windows are cut out of every year of every range, so each planned range is
+ * one index range scan, no user matches two of them and the ranges in order give the
+ * users in birth date order.
+ */
+final class BirthDateRangePlanner {
+
+    private BirthDateRangePlanner() {
+    }
+
+    static List<BirthDateRange> plan(BirthdaySearchRequest request, int maxRanges) {
+        request.getRanges().forEach(range -> UserServiceImpl.checkBirthDateRange(range.getFrom(), range.getTo()));
+        List<BirthDateRange> ranges = merge(request.getRanges());
+        List<MonthDayWindow> windows = request.getWindows();
+        if (windows == null || windows.isEmpty()) {
+            return ranges;
+        }
+        List<BirthDateRange> cut = new ArrayList<>();
+        for (BirthDateRange range : ranges) {
+            for (int year = range.getFrom().getYear(); year <= range.getTo().getYear(); year++) {
+                for (MonthDayWindow window : windows) {
+                    if (!window.getFrom().isAfter(window.getTo())) {
+                        addOverlap(cut, range, start(window.getFrom(), year), window.getTo().atYear(year));
+                    } else {
+                        addOverlap(cut, range, LocalDate.of(year, 1, 1), window.getTo().atYear(year));
+                        addOverlap(cut, range, start(window.getFrom(), year), LocalDate.of(year, 12, 31));
+                    }
+                }
+                if (cut.size() > maxRanges) {
+                    throw new IllegalArgumentException("The ranges and windows make more than %d date ranges."
+                            .formatted(maxRanges));
+                }
+            }
+        }
+        return merge(cut);
+    }
+
+    /**
+     * Sorts the ranges and joins the ones that overlap or touch.
+     */
+    static List<BirthDateRange> merge(List<BirthDateRange> ranges) {
+        List<BirthDateRange> sorted = ranges.stream().sorted(Comparator.comparing(BirthDateRange::getFrom)).toList();
+        List<BirthDateRange> merged = new ArrayList<>();
+        for (BirthDateRange range : sorted) {
+            BirthDateRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !range.getFrom().isAfter(last.getTo().plusDays(1))) {
+                if (range.getTo().isAfter(last.getTo())) {
+                    merged.set(merged.size() - 1, new BirthDateRange(last.getFrom(), range.getTo()));
+                }
+            } else {
+                merged.add(new BirthDateRange(range.getFrom(), range.getTo()));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * February 29 starts on March 1 in other years.
+     */
+    private static LocalDate start(MonthDay monthDay, int year) {
+        return monthDay.isValidYear(year) ? monthDay.atYear(year) : monthDay.atYear(year).plusDays(1);
+    }
+
+    private static void addOverlap(List<BirthDateRange> ranges, BirthDateRange range, LocalDate from, LocalDate to) {
+        LocalDate start = from.isAfter(range.getFrom()) ? from : range.getFrom();
+        LocalDate end = to.isBefore(range.getTo()) ? to : range.getTo();
+        if (!start.isAfter(end)) {
+            ranges.add(new BirthDateRange(start, end));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.clearsolutions.task.service.impl;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.clearsolutions.task.cache.BirthDateSearchCache;
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.exception.UserNotFoundException;
+import org.clearsolutions.task.mapper.UserMapper;
+import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.sharding.KWayMerge;
+import org.clearsolutions.task.sharding.Shard;
+import org.clearsolutions.task.sharding.ShardFanOut;
+import org.clearsolutions.task.sharding.ShardRouter;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+import org.clearsolutions.task.sharding.ShardedUserRepository.UniqueKey;
+import org.clearsolutions.task.sort.UserSortRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link UserService} over hash-sharded storage, see {@link ShardRouter}. Reads by id go
+ * to one shard, lists and searches go to all shards and merge their sorted results.
+ * <p>
+ * A change of a user commits on its shard only. Claims of unique values on other shards
+ * are taken before that commit and released again if it fails, and the change events are
+ * published after it, so the outbox row is not atomic with the change in this mode.
+ */
+@Setter
+@Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardedUserServiceImpl implements UserService {
+
+    private final ShardRouter router;
+    private final ShardFanOut fanOut;
+    private final ShardedUserRepository repository;
+    private final UserMapper mapper;
+    private final BirthDateSearchCache searchCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${user.age}")
+    private Integer ageCondition;
+
+    @Value("${user.sort.max-top-n}")
+    private Integer maxTopN;
+
+    @Value("${user.birthday-search.max-ranges}")
+    private Integer maxRanges;
+
+    @Value("${user.change-feed.settle-time}")
+    private Duration changeFeedSettleTime;
+
+    @Override
+    public UserResponse createUser(UserCreateRequest request) {
+        UserServiceImpl.checkIfPersonIsAdultEnough(request.getBirthDate(), ageCondition);
+        // Normalized by a shard, so that routing and the email_normalized column always agree.
+        Shard home = router.forKey(repository.normalizeEmail(router.getShards().get(0), request.getEmail()));
+        User user = mapper.toEntity(request);
+        user.setId(repository.nextId(home));
+        List<Runnable> rollback = new ArrayList<>();
+        User saved;
+        try {
+            claimIfRemote(home, UniqueKey.PHONE, null, user.getPhoneNumber(), user.getId(), rollback);
+            saved = home.getTransactionTemplate().execute(status -> repository.insert(home, user));
+        } catch (RuntimeException e) {
+            rollback.forEach(Runnable::run);
+            throw e;
+        }
+        UserResponse response = mapper.toResponse(saved);
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.CREATED, response.getId(), response));
+        return response;
+    }
+
+    @Override
+    public Page<UserResponse> getAllUsers(Pageable pageable) {
+        return findPage(null, null, UserSortRegistry.plan(pageable, UserSortRegistry.Query.LIST, maxTopN));
+    }
+
+    /**
+     * Every shard returns its first {@code size + 1} users after the cursor, the merge keeps
+     * the first of them all.
+     */
+    @Override
+    public UserScrollPage scrollUsers(Sort sort, int size, String cursor) {
+        Sort planned = UserSortRegistry.plan(Pageable.unpaged(sort), UserSortRegistry.Query.LIST, maxTopN).getSort();
+        List<List<User>> perShard = fanOut.onAll(shard -> repository.findLiveAfter(shard, planned, cursor, size + 1));
+        List<User> rows = KWayMerge.merge(perShard, ShardedUserRepository.comparator(planned), 0, size + 1);
+        return UserServiceImpl.toScrollPage(rows, size, planned, mapper);
+    }
+
+    @Override
+    public UserResponse updateUser(Long id, UserUpdateRequest request) {
+        Shard home = router.forId(id);
+        User user = repository.findById(home, id).orElseThrow(() -> notFound(id));
+        String oldEmail = user.getEmail();
+        String oldPhone = user.getPhoneNumber();
+        mapper.updateUser(user, request);
+        boolean emailChanged = !oldEmail.equals(user.getEmail());
+        String oldNormalized = emailChanged ? repository.normalizeEmail(home, oldEmail) : null;
+        String newNormalized = emailChanged ? repository.normalizeEmail(home, user.getEmail()) : null;
+        List<Runnable> rollback = new ArrayList<>();
+        User saved;
+        try {
+            claimIfRemote(home, UniqueKey.EMAIL, oldNormalized, newNormalized, id, rollback);
+            claimIfRemote(home, UniqueKey.PHONE, oldPhone, user.getPhoneNumber(), id, rollback);
+            saved = home.getTransactionTemplate().execute(status -> repository.update(home, user));
+        } catch (RuntimeException e) {
+            rollback.forEach(Runnable::run);
+            throw e;
+        }
+        releaseIfRemote(home, UniqueKey.EMAIL, oldNormalized, newNormalized, id);
+        releaseIfRemote(home, UniqueKey.PHONE, oldPhone, saved.getPhoneNumber(), id);
+        UserResponse response = mapper.toResponse(saved);
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.UPDATED, id, response));
+        return response;
+    }
+
+    @Override
+    public void deleteUser(Long id) {
+        Shard home = router.forId(id);
+        User user = repository.findById(home, id).orElseThrow(() -> notFound(id));
+        boolean deleted = Boolean.TRUE.equals(home.getTransactionTemplate().execute(status ->
+                repository.softDelete(home, id)));
+        if (!deleted) {
+            throw notFound(id);
+        }
+        releaseIfRemote(home, UniqueKey.EMAIL, repository.normalizeEmail(home, user.getEmail()), null, id);
+        releaseIfRemote(home, UniqueKey.PHONE, user.getPhoneNumber(), null, id);
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.DELETED, id, null));
+    }
+
+    @Override
+    public UserResponse getUser(Long id) {
+        return repository.findById(router.forId(id), id)
+                .map(mapper::toResponse)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Asks every shard: a user lives on the shard that owned its email when it was created,
+     * which may have been as typed, before emails were normalized, or by another key layout.
+     */
+    @Override
+    public UserResponse getUserByEmail(String email) {
+        return fanOut.onAll(shard -> repository.findByEmail(shard, email)).stream()
+                .flatMap(Optional::stream)
+                .findFirst()
+                .map(mapper::toResponse)
+                .orElseThrow(() -> UserNotFoundException.byEmail(email));
+    }
+
+    @Override
+    public Page<UserResponse> searchUsersByBirthDate(LocalDate from, LocalDate to, Pageable pageable) {
+        UserServiceImpl.checkBirthDateRange(from, to);
+        Pageable sorted = UserSortRegistry.plan(pageable, UserSortRegistry.Query.BIRTHDAY_SEARCH, maxTopN);
+        return searchCache.get(from, to, sorted, () -> findPage(from, to, sorted));
+    }
+
+    @Override
+    public UserScrollPage scrollUsersByBirthDate(LocalDate from, LocalDate to, int size, String cursor) {
+        UserServiceImpl.checkBirthDateRange(from, to);
+        BirthDateCursor after = cursor == null ? BirthDateCursor.start(from) : BirthDateCursor.decode(cursor);
+        List<List<User>> perShard = fanOut.onAll(shard ->
+                repository.scrollByBirthDate(shard, from, to, after.getBirthDate(), after.getId(), size + 1));
+        List<User> rows = KWayMerge.merge(perShard, ShardedUserRepository.BIRTH_DATE_ORDER, 0, size + 1);
+        return UserServiceImpl.toScrollPage(rows, size, mapper);
+    }
+
+    @Override
+    public UserScrollPage searchUsersByBirthDateRanges(BirthdaySearchRequest request) {
+        List<BirthDateRange> ranges = BirthDateRangePlanner.plan(request, maxRanges);
+        if (ranges.isEmpty()) {
+            return UserScrollPage.builder().content(List.of()).build();
+        }
+        BirthDateCursor after = request.getCursor() == null
+                ? BirthDateCursor.start(ranges.get(0).getFrom()) : BirthDateCursor.decode(request.getCursor());
+        int size = request.getSize();
+        List<List<User>> perShard = fanOut.onAll(shard ->
+                repository.scrollByBirthDateRanges(shard, ranges, after.getBirthDate(), after.getId(), size + 1));
+        List<User> rows = KWayMerge.merge(perShard, ShardedUserRepository.BIRTH_DATE_ORDER, 0, size + 1);
+        return UserServiceImpl.toScrollPage(rows, size, mapper);
+    }
+
+    @Override
+    public UserChangePage getUserChanges(Instant since, Long afterId, int limit) {
+        Instant until = Instant.now().minus(changeFeedSettleTime);
+        List<List<User>> perShard = fanOut.onAll(shard ->
+                repository.findChanges(shard, since, afterId, until, limit + 1));
+        List<User> rows = KWayMerge.merge(perShard, ShardedUserRepository.CHANGE_ORDER, 0, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<User> changes = hasMore ? rows.subList(0, limit) : rows;
+        UserChangePage.UserChangePageBuilder page = UserChangePage.builder()
+                .changes(changes.stream().map(mapper::toChangeResponse).toList())
+                .hasMore(hasMore)
+                .nextSince(since)
+                .nextAfterId(afterId);
+        if (!changes.isEmpty()) {
+            User last = changes.get(changes.size() - 1);
+            page.nextSince(last.getUpdatedAt()).nextAfterId(last.getId());
+        }
+        return page.build();
+    }
+
+    /**
+     * Every shard returns its first {@code offset + size} users, the merge skips the offset.
+     * Deep pages get expensive; {@link #scrollUsersByBirthDate} does not have that cost.
+     */
+    private Page<UserResponse> findPage(LocalDate from, LocalDate to, Pageable pageable) {
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        List<List<User>> perShard = fanOut.onAll(shard ->
+                repository.findFirst(shard, from, to, pageable.getSort(), limit));
+        List<Long> counts = fanOut.onAll(shard -> repository.count(shard, from, to));
+        List<User> content = KWayMerge.merge(perShard, ShardedUserRepository.comparator(pageable.getSort()),
+                pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(content.stream().map(mapper::toResponse).toList(), pageable,
+                counts.stream().mapToLong(Long::longValue).sum());
+    }
+
+    private void claimIfRemote(Shard home, UniqueKey key, String oldValue, String newValue, long userId,
+                               List<Runnable> rollback) {
+        if (newValue == null || newValue.equals(oldValue)) {
+            return;
+        }
+        Shard owner = router.forKey(newValue);
+        if (owner != home) {
+            repository.claim(owner, key, newValue, userId);
+            rollback.add(() -> repository.release(owner, key, newValue, userId));
+        }
+    }
+
+    private void releaseIfRemote(Shard home, UniqueKey key, String oldValue, String newValue, long userId) {
+        if (oldValue == null || oldValue.equals(newValue)) {
+            return;
+        }
+        Shard owner = router.forKey(oldValue);
+        if (owner != home) {
+            repository.release(owner, key, oldValue, userId);
+        }
+    }
+
+    private static EntityNotFoundException notFound(Long id) {
+        return new UserNotFoundException(id);
+    }
+}
@@ -0,0 +1,198 @@
+package org.clearsolutions.task.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.job.BulkJob;
+import org.clearsolutions.task.job.BulkJobProperties;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.UserBulkJobService;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Runs bulk deletes and patches in the background as a series of set-based statements.
+ * Every chunk commits in its own transaction, so a large job never holds many row locks
+ * and its progress can be read while it runs.
+ */
+@Slf4j
+@Setter
+@Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class UserBulkJobServiceImpl implements UserBulkJobService, DisposableBean {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BulkJobProperties properties;
+    private final ExecutorService executor;
+    private final Cache<String, BulkJob> jobs;
+
+    @Value("${user.age}")
+    private Integer ageCondition;
+
+    public UserBulkJobServiceImpl(UserRepository userRepository, TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher, BulkJobProperties properties) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.executor = new ThreadPoolExecutor(properties.getMaxConcurrentJobs(), properties.getMaxConcurrentJobs(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("user-bulk-job-"));
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getRetention())
+                .build();
+    }
+
+    @Override
+    public BulkJobResponse deleteUsers(UserCriteria criteria) {
+        checkCriteria(criteria);
+        return submit(new BulkJob(BulkOperationType.DELETE), criteria, userRepository::softDeleteChunk);
+    }
+
+    @Override
+    public BulkJobResponse patchUsers(BulkPatchRequest request) {
+        checkCriteria(request.getCriteria());
+        UserUpdateRequest patch = request.getPatch();
+        checkPatch(patch);
+        return submit(new BulkJob(BulkOperationType.UPDATE), request.getCriteria(),
+                (criteria, afterId, limit) -> userRepository.patchChunk(criteria, patch, afterId, limit));
+    }
+
+    @Override
+    public BulkJobResponse getJob(String jobId) {
+        BulkJob job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Bulk job with id='%s' can not be found".formatted(jobId));
+        }
+        return job.toResponse();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private BulkJobResponse submit(BulkJob job, UserCriteria criteria, ChunkStatement statement) {
+        try {
+            executor.execute(TrafficClassContext.wrap(TrafficClass.BULK, () -> run(job, criteria, statement)));
+        } catch (RejectedExecutionException e) {
+            throw new LoadSheddingException("Too many bulk jobs are waiting, try again later.", RETRY_AFTER);
+        }
+        jobs.put(job.getId(), job);
+        return job.toResponse();
+    }
+
+    void run(BulkJob job, UserCriteria criteria, ChunkStatement statement) {
+        try {
+            if (criteria.hasIds()) {
+                List<Long> ids = criteria.getIds().stream().distinct().sorted().toList();
+                job.start(ids.size());
+                for (int from = 0; from < ids.size(); from += properties.getChunkSize()) {
+                    List<Long> chunkIds = ids.subList(from, Math.min(from + properties.getChunkSize(), ids.size()));
+                    runChunk(job, UserCriteria.builder().ids(chunkIds).build(), 0L, statement);
+                }
+            } else {
+                job.start(Objects.requireNonNull(transactionTemplate.execute(status ->
+                        userRepository.countMatching(criteria))));
+                long afterId = 0L;
+                List<Long> changed;
+                // Rows locked or changed concurrently can make a chunk come back short, so
+                // only an empty chunk means the range is exhausted.
+                while (!(changed = runChunk(job, criteria, afterId, statement)).isEmpty()) {
+                    afterId = changed.get(changed.size() - 1);
+                }
+            }
+            job.complete();
+            log.info("Bulk job {} ({}) changed {} users in {} chunks",
+                    job.getId(), job.getOperation(), job.getAffected(), job.getChunks());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Interrupted by shutdown");
+        } catch (RuntimeException e) {
+            log.error("Bulk job {} failed after {} chunks", job.getId(), job.getChunks(), e);
+            job.fail(Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()));
+        }
+        jobs.put(job.getId(), job);
+    }
+
+    private List<Long> runChunk(BulkJob job, UserCriteria criteria, long afterId, ChunkStatement statement)
+            throws InterruptedException {
+        List<Long> changed = Objects.requireNonNull(transactionTemplate.execute(status ->
+                statement.apply(criteria, afterId, properties.getChunkSize())));
+        job.chunkDone(changed.size());
+        // Keeps long running jobs from expiring before they finish.
+        jobs.put(job.getId(), job);
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(UsersInvalidatedEvent.of(new HashSet<>(changed)));
+            long pauseMillis = properties.getPauseBetweenChunks().toMillis();
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+        return changed;
+    }
+
+    private static void checkCriteria(UserCriteria criteria) {
+        boolean byRange = criteria.getFrom() != null || criteria.getTo() != null;
+        if (criteria.hasIds() == byRange) {
+            throw new IllegalArgumentException("Pass either a list of ids or a birth date range.");
+        }
+        if (criteria.hasIds()) {
+            if (criteria.getIds().stream().anyMatch(id -> id == null || id < 1)) {
+                throw new IllegalArgumentException("Ids must be positive numbers.");
+            }
+        } else if (criteria.getFrom() == null || criteria.getTo() == null) {
+            throw new IllegalArgumentException("Both `from` and `to` of the birth date range are required.");
+        } else if (criteria.getTo().isBefore(criteria.getFrom())) {
+            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'."
+                    .formatted(criteria.getTo(), criteria.getFrom()));
+        }
+    }
+
+    private void checkPatch(UserUpdateRequest patch) {
+        if (patch.getEmail() != null || patch.getPhoneNumber() != null) {
+            throw new IllegalArgumentException("Email and phone number are unique and can not be set on many users.");
+        }
+        if (patch.getFirstName() == null && patch.getLastName() == null && patch.getBirthDate() == null
+                && patch.getAddress() == null) {
+            throw new IllegalArgumentException("The patch does not change any field.");
+        }
+        LocalDate birthday = patch.getBirthDate();
+        if (birthday != null) {
+            UserRequestValidator.checkAge(birthday, ageCondition).ifPresent(problem -> {
+                throw new YoungAgeException(problem.getMessage(), birthday, HttpStatus.BAD_REQUEST);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkStatement {
+        List<Long> apply(UserCriteria criteria, long afterId, int limit);
+    }
+}
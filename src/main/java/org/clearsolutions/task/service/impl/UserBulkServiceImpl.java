@@ -0,0 +1,248 @@
+package org.clearsolutions.task.service.impl;
+
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.exception.AppProblem;
+import org.clearsolutions.task.mapper.UserMapper;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Executes a bulk request in one transaction. Operations are validated and applied to the
+ * persistence context in request order, then flushed together, so Hibernate sends the
+ * inserts and updates as JDBC batches. In non-atomic mode a database constraint failure of
+ * the batch makes every operation run again in its own transaction to isolate the culprit.
+ */
+@Setter
+@Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserBulkServiceImpl implements UserBulkService {
+
+    private static final String ROLLED_BACK = "Rolled back because another operation of the request failed.";
+
+    private final UserRepository userRepository;
+    private final UserMapper mapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${user.age}")
+    private Integer ageCondition;
+
+    @Override
+    public BulkResponse execute(BulkRequest request) {
+        List<BulkOperation> operations = request.getOperations();
+        BulkOperationResult[] results = new BulkOperationResult[operations.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                apply(operations, 0, results);
+                if (request.isAtomic() && hasFailures(results)) {
+                    status.setRollbackOnly();
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (request.isAtomic()) {
+                rejectAll(operations, results, e);
+            } else {
+                applyOneByOne(operations, results);
+            }
+        }
+        if (request.isAtomic() && hasFailures(results)) {
+            markRolledBack(results);
+        }
+        int failed = (int) Arrays.stream(results).filter(UserBulkServiceImpl::isFailure).count();
+        return BulkResponse.builder()
+                .succeeded(results.length - failed)
+                .failed(failed)
+                .results(List.of(results))
+                .build();
+    }
+
+    private void applyOneByOne(List<BulkOperation> operations, BulkOperationResult[] results) {
+        TransactionTemplate own = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        own.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < operations.size(); i++) {
+            int index = i;
+            try {
+                own.executeWithoutResult(status -> apply(operations.subList(index, index + 1), index, results));
+            } catch (DataIntegrityViolationException e) {
+                results[index] = failure(index, operations.get(index), HttpStatus.BAD_REQUEST, constraintProblem(e));
+            }
+        }
+    }
+
+    /**
+     * Applies {@code operations} and writes their results to {@code results} starting at
+     * {@code offset}. Must run inside a transaction.
+     */
+    private void apply(List<BulkOperation> operations, int offset, BulkOperationResult[] results) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BulkOperation operation = operations.get(i);
+            List<AppProblem> problems = validate(operation);
+            if (!problems.isEmpty()) {
+                results[offset + i] = failure(offset + i, operation, HttpStatus.BAD_REQUEST, problems);
+            } else if (operation.getOp() != BulkOperationType.CREATE) {
+                ids.add(operation.getId());
+            }
+        }
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), user));
+
+        Map<Integer, User> applied = new LinkedHashMap<>();
+        List<User> created = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < operations.size(); i++) {
+            int index = offset + i;
+            if (results[index] != null) {
+                continue;
+            }
+            BulkOperation operation = operations.get(i);
+            if (operation.getOp() == BulkOperationType.CREATE) {
+                User user = mapper.toEntity(mapper.toCreateRequest(operation.getUser()));
+                created.add(user);
+                applied.put(index, user);
+                continue;
+            }
+            // Users deleted earlier in the same request are gone for later operations.
+            User user = users.get(operation.getId());
+            if (user == null) {
+                results[index] = failure(index, operation, HttpStatus.NOT_FOUND, List.of(notFound(operation.getId())));
+            } else if (operation.getOp() == BulkOperationType.UPDATE) {
+                mapper.updateUser(user, operation.getUser());
+                applied.put(index, user);
+            } else {
+                user.setDeletedAt(now);
+                users.remove(user.getId());
+                applied.put(index, user);
+            }
+        }
+        userRepository.saveAll(created);
+        userRepository.flush();
+
+        applied.forEach((index, user) -> {
+            BulkOperation operation = operations.get(index - offset);
+            boolean deleted = operation.getOp() == BulkOperationType.DELETE;
+            UserResponse response = deleted ? null : mapper.toResponse(user);
+            eventPublisher.publishEvent(new UserChangedEvent(changeType(operation.getOp()), user.getId(), response));
+            results[index] = BulkOperationResult.builder()
+                    .index(index)
+                    .op(operation.getOp())
+                    .id(user.getId())
+                    .status(operation.getOp() == BulkOperationType.CREATE ? HttpStatus.CREATED.value() : HttpStatus.OK.value())
+                    .user(response)
+                    .build();
+        });
+    }
+
+    private List<AppProblem> validate(BulkOperation operation) {
+        if (operation.getOp() == null) {
+            return List.of(problem("Operation type is required.", "op", null));
+        }
+        if (operation.getOp() != BulkOperationType.CREATE && (operation.getId() == null || operation.getId() < 1)) {
+            return List.of(problem("A positive user id is required.", "id", String.valueOf(operation.getId())));
+        }
+        if (operation.getOp() == BulkOperationType.DELETE) {
+            return List.of();
+        }
+        if (operation.getUser() == null) {
+            return List.of(problem("User data is required.", "user", null));
+        }
+        if (operation.getOp() == BulkOperationType.UPDATE) {
+            return UserRequestValidator.toProblems(validator.validate(operation.getUser()));
+        }
+        UserCreateRequest request = mapper.toCreateRequest(operation.getUser());
+        List<AppProblem> problems = UserRequestValidator.toProblems(validator.validate(request));
+        if (problems.isEmpty()) {
+            return UserRequestValidator.checkAge(request.getBirthDate(), ageCondition).map(List::of).orElse(List.of());
+        }
+        return problems;
+    }
+
+    /**
+     * The failed flush does not tell which operation violated the constraint, so every
+     * operation that passed validation is rejected with the database problem, including
+     * those whose results were not written yet.
+     */
+    private void rejectAll(List<BulkOperation> operations, BulkOperationResult[] results,
+                           DataIntegrityViolationException e) {
+        List<AppProblem> problems = constraintProblem(e);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null || !isFailure(results[i])) {
+                results[i] = failure(i, operations.get(i), HttpStatus.BAD_REQUEST, problems);
+            }
+        }
+    }
+
+    private static void markRolledBack(BulkOperationResult[] results) {
+        for (BulkOperationResult result : results) {
+            if (!isFailure(result)) {
+                result.setStatus(HttpStatus.FAILED_DEPENDENCY.value());
+                result.setUser(null);
+                result.setProblemDetails(List.of(problem(ROLLED_BACK, null, null)));
+            }
+        }
+    }
+
+    private static boolean hasFailures(BulkOperationResult[] results) {
+        return Arrays.stream(results).anyMatch(UserBulkServiceImpl::isFailure);
+    }
+
+    private static boolean isFailure(BulkOperationResult result) {
+        return result == null || result.getStatus() >= 400;
+    }
+
+    private static BulkOperationResult failure(int index, BulkOperation operation, HttpStatus status,
+                                               List<AppProblem> problems) {
+        return BulkOperationResult.builder()
+                .index(index)
+                .op(operation.getOp())
+                .id(operation.getId())
+                .status(status.value())
+                .problemDetails(problems)
+                .build();
+    }
+
+    private static List<AppProblem> constraintProblem(DataIntegrityViolationException e) {
+        String message = Objects.requireNonNullElse(e.getRootCause(), e).getMessage();
+        return List.of(problem(message, null, null));
+    }
+
+    private static AppProblem notFound(Long id) {
+        return problem("User with id='%d' can not be found".formatted(id), "User id", String.valueOf(id));
+    }
+
+    private static AppProblem problem(String message, String field, String wrongValue) {
+        return AppProblem.builder()
+                .message(message)
+                .field(field)
+                .wrongValue(wrongValue)
+                .build();
+    }
+
+    private static UserChangeType changeType(BulkOperationType op) {
+        return switch (op) {
+            case CREATE -> UserChangeType.CREATED;
+            case UPDATE -> UserChangeType.UPDATED;
+            case DELETE -> UserChangeType.DELETED;
+        };
+    }
+}
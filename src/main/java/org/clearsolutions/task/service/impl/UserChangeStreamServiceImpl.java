@@ -0,0 +1,98 @@
+package org.clearsolutions.task.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.clearsolutions.task.service.UserChangeStreamService;
+import org.clearsolutions.task.stream.ChangeStreamFilter;
+import org.clearsolutions.task.stream.ChangeStreamProperties;
+import org.clearsolutions.task.stream.ChangeStreamSubscriber;
+import org.clearsolutions.task.stream.UserChangeHub;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Streams the user changes committed on this instance to Server-Sent Events clients.
+ * Changes are published after the commit, so clients never see a change that was rolled
+ * back. Users changed by bulk jobs or other instances are only known by id, so clients
+ * get a {@code resync} for them.
+ */
+@Service
+public class UserChangeStreamServiceImpl implements UserChangeStreamService, DisposableBean {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final ChangeStreamProperties properties;
+    private final ExecutorService executor;
+    private final UserChangeHub hub;
+
+    public UserChangeStreamServiceImpl(ChangeStreamProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.executor = Executors.newFixedThreadPool(properties.getSenderThreads(),
+                new CustomizableThreadFactory("user-change-stream-"));
+        this.hub = new UserChangeHub(properties.getRingBufferSize(), properties.getEchoWindow());
+        Gauge.builder("user.change-stream.subscribers", hub, UserChangeHub::getSubscriberCount)
+                .description("Open change streams")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change-stream.published", hub, UserChangeHub::getSequence)
+                .description("User changes published to the change streams")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change-stream.resyncs", hub, UserChangeHub::getResyncs)
+                .description("Clients told to reload because their events were dropped or are no longer kept, "
+                        + "or users changed elsewhere")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public SseEmitter subscribe(ChangeStreamFilter filter, String lastEventId) {
+        if (filter.from() != null && filter.to() != null && filter.to().isBefore(filter.from())) {
+            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'."
+                    .formatted(filter.to(), filter.from()));
+        }
+        if (hub.getSubscriberCount() >= properties.getMaxSubscribers()) {
+            throw new LoadSheddingException("The limit of %d change streams is reached."
+                    .formatted(properties.getMaxSubscribers()), RETRY_AFTER);
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        ChangeStreamSubscriber subscriber = new ChangeStreamSubscriber(emitter, filter,
+                properties.getClientBufferSize(), executor, hub::unsubscribe);
+        emitter.onCompletion(() -> hub.unsubscribe(subscriber));
+        emitter.onTimeout(() -> hub.unsubscribe(subscriber));
+        emitter.onError(e -> hub.unsubscribe(subscriber));
+        hub.subscribe(subscriber, lastEventId);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        hub.publish(event.getType(), event.getUserId(), event.getUser());
+    }
+
+    @EventListener
+    public void onUsersInvalidated(UsersInvalidatedEvent event) {
+        hub.invalidate(event.isAllUsers() ? null : event.getUserIds());
+    }
+
+    @Scheduled(fixedDelayString = "${user.change-stream.heartbeat-interval}")
+    public void heartbeat() {
+        hub.ping();
+    }
+
+    @Override
+    public void destroy() {
+        hub.completeAll();
+        executor.shutdownNow();
+    }
+}
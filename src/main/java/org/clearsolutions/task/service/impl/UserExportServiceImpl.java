@@ -0,0 +1,323 @@
+package org.clearsolutions.task.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.clearsolutions.task.dto.BulkJobState;
+import org.clearsolutions.task.dto.ExportField;
+import org.clearsolutions.task.dto.ExportJobResponse;
+import org.clearsolutions.task.dto.ExportRequest;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.exception.ExportNotReadyException;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.clearsolutions.task.export.CsvExportWriter;
+import org.clearsolutions.task.export.ExportCheckpoint;
+import org.clearsolutions.task.export.ExportJob;
+import org.clearsolutions.task.export.ExportProperties;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.UserExportService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Exports live users to CSV files in the background. A job reads users in id order one
+ * chunk at a time, appends them to its file and then records the last exported id and the
+ * file size in a checkpoint next to the file. Jobs that were queued or running when the
+ * instance stopped continue from their checkpoint after the next start.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class UserExportServiceImpl implements UserExportService, DisposableBean {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(30);
+    private static final LocalDate MIN_BIRTH_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_BIRTH_DATE = LocalDate.of(9999, 12, 31);
+    private static final String CHECKPOINT_SUFFIX = ".json";
+    private static final String FILE_SUFFIX = ".csv";
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+    private final ExecutorService executor;
+    private final Cache<String, ExportJob> jobs;
+
+    public UserExportServiceImpl(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper, ExportProperties properties) {
+        this.userRepository = userRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.executor = new ThreadPoolExecutor(properties.getMaxConcurrentJobs(), properties.getMaxConcurrentJobs(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("user-export-"));
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new RetentionExpiry(properties.getRetention()))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String id, ExportJob job, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        delete(id);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public ExportJobResponse submit(ExportRequest request) {
+        List<ExportField> fields = checkFields(request.getFields());
+        if (request.getFrom() != null && request.getTo() != null && request.getTo().isBefore(request.getFrom())) {
+            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'."
+                    .formatted(request.getTo(), request.getFrom()));
+        }
+        ExportJob job = new ExportJob(request.getFrom(), request.getTo(), fields);
+        checkpoint(job);
+        try {
+            executor.execute(TrafficClassContext.wrap(TrafficClass.EXPORT, () -> run(job)));
+        } catch (RejectedExecutionException e) {
+            delete(job.getId());
+            throw new LoadSheddingException("Too many exports are waiting, try again later.", RETRY_AFTER);
+        }
+        jobs.put(job.getId(), job);
+        return job.toResponse();
+    }
+
+    @Override
+    public ExportJobResponse getJob(String jobId) {
+        return find(jobId).toResponse();
+    }
+
+    @Override
+    public Path getFile(String jobId) {
+        ExportJob job = find(jobId);
+        if (job.getState() != BulkJobState.COMPLETED) {
+            throw new ExportNotReadyException(jobId, job.getState());
+        }
+        return file(jobId);
+    }
+
+    /**
+     * Restores the jobs of the export directory, deletes the expired ones and queues the
+     * unfinished ones again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        if (!Files.isDirectory(properties.getDirectory())) {
+            return;
+        }
+        try (DirectoryStream<Path> checkpoints =
+                     Files.newDirectoryStream(properties.getDirectory(), "*" + CHECKPOINT_SUFFIX)) {
+            for (Path path : checkpoints) {
+                ExportJob job = ExportJob.restore(objectMapper.readValue(path.toFile(), ExportCheckpoint.class));
+                if (job.isFinished() && isExpired(job)) {
+                    delete(job.getId());
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                if (!job.isFinished()) {
+                    log.info("Resuming export job {} after user id {}", job.getId(), job.getLastId());
+                    try {
+                        executor.execute(TrafficClassContext.wrap(TrafficClass.EXPORT, () -> run(job)));
+                    } catch (RejectedExecutionException e) {
+                        finish(job, job.failed("Could not be resumed, too many exports were waiting"));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Can not read the export jobs of {}", properties.getDirectory(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        // Running jobs stop after their current chunk, waiting keeps them from writing files after shutdown.
+        try {
+            if (!executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Export jobs did not stop within {}", properties.getShutdownTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void run(ExportJob job) {
+        LocalDate from = Objects.requireNonNullElse(job.getFrom(), MIN_BIRTH_DATE);
+        LocalDate to = Objects.requireNonNullElse(job.getTo(), MAX_BIRTH_DATE);
+        ExportCheckpoint end = null;
+        try {
+            if (job.isStarted()) {
+                job.resume();
+            } else {
+                job.start(Objects.requireNonNull(readOnly.execute(status ->
+                        userRepository.countLiveByBirthDateBetween(from, to))));
+            }
+            checkpoint(job);
+            try (CsvExportWriter writer = CsvExportWriter.open(file(job.getId()), job.getSize(), job.getFields(),
+                    (int) properties.getWriteBufferSize().toBytes())) {
+                List<User> users;
+                while (!(users = Objects.requireNonNull(readOnly.execute(status -> userRepository.findExportChunk(
+                        from, to, job.getLastId(), properties.getChunkSize())))).isEmpty()) {
+                    writer.write(users);
+                    job.chunkDone(users.size(), users.get(users.size() - 1).getId(), writer.sync());
+                    checkpoint(job);
+                    // Keeps long running jobs from expiring before they finish.
+                    jobs.put(job.getId(), job);
+                    long pauseMillis = properties.getPauseBetweenChunks().toMillis();
+                    if (pauseMillis > 0) {
+                        Thread.sleep(pauseMillis);
+                    }
+                }
+                end = job.completed(writer.sync());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            if (!executor.isShutdown()) {
+                log.error("Export job {} failed after {} chunks", job.getId(), job.getChunks(), e);
+                end = job.failed(Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()));
+            }
+        }
+        if (end == null) {
+            // Stopped by shutdown, the last checkpoint stays for the next start.
+            log.info("Export job {} stops after {} chunks and resumes after restart", job.getId(), job.getChunks());
+            return;
+        }
+        finish(job, end);
+        if (job.getState() == BulkJobState.COMPLETED) {
+            log.info("Export job {} wrote {} users in {} chunks, {} bytes",
+                    job.getId(), job.getExported(), job.getChunks(), job.getSize());
+        }
+    }
+
+    /**
+     * Writes the final checkpoint of the job before the job shows as finished, so a client
+     * that sees it completed finds its checkpoint complete as well.
+     */
+    private void finish(ExportJob job, ExportCheckpoint end) {
+        try {
+            checkpoint(job.getId(), end);
+        } catch (UncheckedIOException e) {
+            log.error("Export job {} can not be finished", job.getId(), e);
+            end = job.failed(e.getMessage());
+        }
+        job.finish(end);
+        jobs.put(job.getId(), job);
+    }
+
+    private ExportJob find(String jobId) {
+        ExportJob job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Export job with id='%s' can not be found".formatted(jobId));
+        }
+        return job;
+    }
+
+    /**
+     * Replaces the checkpoint of the job atomically, so a crash leaves either the previous
+     * or the new one.
+     */
+    private void checkpoint(ExportJob job) {
+        checkpoint(job.getId(), job.toCheckpoint());
+    }
+
+    private void checkpoint(String jobId, ExportCheckpoint state) {
+        try {
+            Files.createDirectories(properties.getDirectory());
+            Path checkpoint = checkpointFile(jobId);
+            Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), state);
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not write the checkpoint of export job " + jobId, e);
+        }
+    }
+
+    private void delete(String jobId) {
+        try {
+            Files.deleteIfExists(checkpointFile(jobId));
+            Files.deleteIfExists(file(jobId));
+        } catch (IOException e) {
+            log.warn("Can not delete the files of export job {}", jobId, e);
+        }
+    }
+
+    private boolean isExpired(ExportJob job) {
+        return job.getFinishedAt().plus(properties.getRetention()).isBefore(Instant.now());
+    }
+
+    private Path file(String jobId) {
+        return properties.getDirectory().resolve(jobId + FILE_SUFFIX);
+    }
+
+    private Path checkpointFile(String jobId) {
+        return properties.getDirectory().resolve(jobId + CHECKPOINT_SUFFIX);
+    }
+
+    private static List<ExportField> checkFields(List<ExportField> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return List.of(ExportField.values());
+        }
+        if (fields.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Fields must be one of %s.".formatted(EnumSet.allOf(ExportField.class)));
+        }
+        if (fields.stream().distinct().count() < fields.size()) {
+            throw new IllegalArgumentException("Every field can be exported only once.");
+        }
+        return fields;
+    }
+
+    /**
+     * Keeps a finished job for {@code retention} after it finished, also across restarts,
+     * and an unfinished one for {@code retention} after its last progress.
+     */
+    private record RetentionExpiry(Duration retention) implements Expiry<String, ExportJob> {
+
+        @Override
+        public long expireAfterCreate(String id, ExportJob job, long currentTime) {
+            if (job.getFinishedAt() == null) {
+                return retention.toNanos();
+            }
+            Duration age = Duration.between(job.getFinishedAt(), Instant.now());
+            return Math.max(0, retention.minus(age).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, ExportJob job, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, ExportJob job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.clearsolutions.task.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserSegmentRequest;
+import org.clearsolutions.task.dto.UserSegmentResponse;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.mapper.UserMapper;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.UserSegmentService;
+import org.clearsolutions.task.snapshot.UserSnapshot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the segment in the {@link UserSnapshot} and reads only the users of the requested
+ * page from the database, mostly from the second level cache.
+ */
+@Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserSegmentServiceImpl implements UserSegmentService {
+
+    private final UserSnapshot userSnapshot;
+    private final UserRepository userRepository;
+    private final UserMapper mapper;
+
+    @Override
+    public UserSegmentResponse findSegment(UserSegmentRequest request) {
+        if (request.getFrom() != null && request.getTo() != null && request.getTo().isBefore(request.getFrom())) {
+            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'."
+                    .formatted(request.getTo(), request.getFrom()));
+        }
+        UserSnapshot.Segment segment = userSnapshot.query(request);
+        List<UserResponse> content = List.of();
+        if (!segment.ids().isEmpty()) {
+            Map<Long, User> users = userRepository.findAllById(segment.ids()).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            // A user deleted since the scan is left out of the page.
+            content = segment.ids().stream()
+                    .map(users::get)
+                    .filter(Objects::nonNull)
+                    .map(mapper::toResponse)
+                    .toList();
+        }
+        return UserSegmentResponse.builder()
+                .total(segment.total())
+                .page(request.getPage())
+                .size(request.getSize())
+                .content(content)
+                .asOf(segment.asOf())
+                .build();
+    }
+}
@@ -1,85 +1,300 @@
 package org.clearsolutions.task.service.impl;
 
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.clearsolutions.task.archive.UserArchive;
+import org.clearsolutions.task.cache.BirthDateSearchCache;
+import org.clearsolutions.task.dto.BirthDateCursor;
+import org.clearsolutions.task.dto.BirthDateRange;
+import org.clearsolutions.task.dto.BirthdaySearchRequest;
+import org.clearsolutions.task.dto.UserChangePage;
 import org.clearsolutions.task.dto.UserCreateRequest;
 import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
 import org.clearsolutions.task.dto.UserUpdateRequest;
 import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.exception.ArchivedUserException;
+import org.clearsolutions.task.exception.UserNotFoundException;
 import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.jfr.UserOperationEvent;
 import org.clearsolutions.task.mapper.UserMapper;
 import org.clearsolutions.task.repository.UserRepository;
 import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.sharding.KWayMerge;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+import org.clearsolutions.task.sort.UserKeyset;
+import org.clearsolutions.task.sort.UserSortRegistry;
+import org.clearsolutions.task.validation.UserRequestValidator;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.Period;
+import java.util.List;
+import java.util.function.Function;
 
 @Setter
 @Service
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final UserMapper mapper;
+    private final UserArchive userArchive;
+    private final BirthDateSearchCache searchCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${user.age}")
     private Integer ageCondition;
 
+    @Value("${user.sort.max-top-n}")
+    private Integer maxTopN;
+
+    @Value("${user.birthday-search.max-ranges}")
+    private Integer maxRanges;
+
+    @Value("${user.change-feed.settle-time}")
+    private Duration changeFeedSettleTime;
+
     @Override
     @Transactional
     public UserResponse createUser(UserCreateRequest request) {
-        checkIfPersonIsAdultEnough(request);
-        User savedUser = userRepository.save(mapper.toEntity(request));
-        return mapper.toResponse(savedUser);
+        return UserOperationEvent.record("create", () -> {
+            checkIfPersonIsAdultEnough(request);
+            User savedUser = userRepository.save(mapper.toEntity(request));
+            UserResponse response = mapper.toResponse(savedUser);
+            eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.CREATED, savedUser.getId(), response));
+            return response;
+        }, response -> 1);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<UserResponse> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable).map(mapper::toResponse);
+        Pageable sorted = UserSortRegistry.plan(pageable, UserSortRegistry.Query.LIST, maxTopN);
+        return UserOperationEvent.record("list", () -> userRepository.findAll(sorted).map(mapper::toResponse),
+                Page::getNumberOfElements);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserScrollPage scrollUsers(Sort sort, int size, String cursor) {
+        Sort planned = UserSortRegistry.plan(Pageable.unpaged(sort), UserSortRegistry.Query.LIST, maxTopN).getSort();
+        return UserOperationEvent.record("list", () -> toScrollPage(
+                userRepository.findLiveAfter(planned, cursor, size + 1), size, planned, mapper),
+                page -> page.getContent().size());
     }
 
     @Override
     @Transactional
     public UserResponse updateUser(Long id, UserUpdateRequest request) {
-        User existingUser = userRepository.findById(id).orElseThrow(() ->
-                new EntityNotFoundException("User with id='%d' can not be found".formatted(id)));
-        mapper.updateUser(existingUser, request);
-        return mapper.toResponse(existingUser);
+        return UserOperationEvent.record("update", () -> {
+            User existingUser = findLiveUser(id);
+            mapper.updateUser(existingUser, request);
+            UserResponse response = mapper.toResponse(existingUser);
+            eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.UPDATED, id, response));
+            return response;
+        }, response -> 1);
     }
 
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
-        } else {
-            throw new EntityNotFoundException("User with id='%d' can not be found".formatted(id));
-        }
+        UserOperationEvent.record("delete", () -> {
+            User existingUser = findLiveUser(id);
+            // The row stays as a tombstone so that the change feed can report the deletion.
+            existingUser.setDeletedAt(Instant.now());
+            eventPublisher.publishEvent(new UserChangedEvent(UserChangeType.DELETED, id, null));
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserResponse getUser(Long id) {
+        return UserOperationEvent.record("get", () -> userRepository.findById(id)
+                .filter(user -> user.getDeletedAt() == null)
+                .or(() -> userArchive.findById(id))
+                .map(mapper::toResponse)
+                .orElseThrow(() -> new UserNotFoundException(id)), response -> 1);
     }
 
+    /**
+     * An archived user still holds its email claim, which leads to its archived row.
+     */
     @Override
     @Transactional(readOnly = true)
+    public UserResponse getUserByEmail(String email) {
+        return UserOperationEvent.record("find-by-email", () -> userRepository.findLiveByEmail(email)
+                .or(() -> userRepository.findClaimingUserId(email).flatMap(userArchive::findById))
+                .map(mapper::toResponse)
+                .orElseThrow(() -> UserNotFoundException.byEmail(email)), response -> 1);
+    }
+
+    /**
+     * Runs outside a service transaction so that callers coalesced onto another caller's
+     * query do not hold a connection while waiting; the repository call has its own.
+     */
+    @Override
     public Page<UserResponse> searchUsersByBirthDate(LocalDate from, LocalDate to, Pageable pageable) {
-        if (from.isBefore(to)) {
-            return userRepository.getUsersByBirthDateBetween(from, to, pageable).map(mapper::toResponse);
-        } else {
-            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'.".formatted(to, from));
+        return UserOperationEvent.record("search", () -> {
+            checkBirthDateRange(from, to);
+            Pageable sorted = UserSortRegistry.plan(pageable, UserSortRegistry.Query.BIRTHDAY_SEARCH, maxTopN);
+            long archived = userArchive.count(from, to);
+            if (archived > 0) {
+                return searchWithArchive(from, to, sorted, archived);
+            }
+            return searchCache.get(from, to, sorted, () ->
+                    userRepository.getUsersByBirthDateBetween(from, to, sorted).map(mapper::toResponse));
+        }, Page::getNumberOfElements);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserScrollPage scrollUsersByBirthDate(LocalDate from, LocalDate to, int size, String cursor) {
+        return UserOperationEvent.record("scroll", () -> {
+            checkBirthDateRange(from, to);
+            BirthDateCursor after = cursor == null ? BirthDateCursor.start(from) : BirthDateCursor.decode(cursor);
+            List<User> rows = userRepository.scrollByBirthDate(from, to, after.getBirthDate(), after.getId(), size + 1);
+            List<User> archived = userArchive.scroll(to, after.getBirthDate(), after.getId(), size + 1);
+            if (!archived.isEmpty()) {
+                rows = KWayMerge.merge(List.of(rows, archived), ShardedUserRepository.BIRTH_DATE_ORDER, 0, size + 1);
+            }
+            return toScrollPage(rows, size, mapper);
+        }, page -> page.getContent().size());
+    }
+
+    /**
+     * The ranges are read one after another until the page is full, see
+     * {@link UserRepository#scrollByBirthDateRanges}.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserScrollPage searchUsersByBirthDateRanges(BirthdaySearchRequest request) {
+        return UserOperationEvent.record("range-search", () -> {
+            List<BirthDateRange> ranges = BirthDateRangePlanner.plan(request, maxRanges);
+            if (ranges.isEmpty()) {
+                return UserScrollPage.builder().content(List.of()).build();
+            }
+            BirthDateCursor after = request.getCursor() == null
+                    ? BirthDateCursor.start(ranges.get(0).getFrom()) : BirthDateCursor.decode(request.getCursor());
+            int size = request.getSize();
+            List<User> rows = userRepository.scrollByBirthDateRanges(ranges, after.getBirthDate(), after.getId(),
+                    size + 1);
+            List<User> archived = userArchive.scroll(ranges, after.getBirthDate(), after.getId(), size + 1);
+            if (!archived.isEmpty()) {
+                rows = KWayMerge.merge(List.of(rows, archived), ShardedUserRepository.BIRTH_DATE_ORDER, 0, size + 1);
+            }
+            return toScrollPage(rows, size, mapper);
+        }, page -> page.getContent().size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserChangePage getUserChanges(Instant since, Long afterId, int limit) {
+        return UserOperationEvent.record("changes", () -> readChanges(since, afterId, limit),
+                page -> page.getChanges().size());
+    }
+
+    private UserChangePage readChanges(Instant since, Long afterId, int limit) {
+        // Rows younger than the settle time may still be overtaken by slower transactions
+        // that commit an earlier updated_at, so they are left for the next call.
+        Instant until = Instant.now().minus(changeFeedSettleTime);
+        List<User> rows = userRepository.findChanges(since, afterId, until, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<User> changes = hasMore ? rows.subList(0, limit) : rows;
+        UserChangePage.UserChangePageBuilder page = UserChangePage.builder()
+                .changes(changes.stream().map(mapper::toChangeResponse).toList())
+                .hasMore(hasMore)
+                .nextSince(since)
+                .nextAfterId(afterId);
+        if (!changes.isEmpty()) {
+            User last = changes.get(changes.size() - 1);
+            page.nextSince(last.getUpdatedAt()).nextAfterId(last.getId());
         }
+        return page.build();
+    }
+
+    /**
+     * Both sources return their first {@code offset + size} users in the order of the page,
+     * the merge skips the offset. Archived users skip the search cache.
+     */
+    private Page<UserResponse> searchWithArchive(LocalDate from, LocalDate to, Pageable sorted, long archived) {
+        long skip = sorted.isPaged() ? sorted.getOffset() : 0;
+        int size = sorted.isPaged() ? sorted.getPageSize() : Integer.MAX_VALUE;
+        Pageable first = sorted.isPaged() ? PageRequest.of(0, (int) (skip + size), sorted.getSort()) : sorted;
+        Page<User> live = userRepository.getUsersByBirthDateBetween(from, to, first);
+        List<User> cold = userArchive.search(from, to, sorted.getSort(), Math.min(skip + size, archived));
+        List<User> content = KWayMerge.merge(List.of(live.getContent(), cold),
+                ShardedUserRepository.comparator(sorted.getSort()), skip, size);
+        return new PageImpl<>(content.stream().map(mapper::toResponse).toList(), sorted,
+                live.getTotalElements() + archived);
+    }
+
+    /**
+     * {@code @SQLRestriction} only filters SQL, a soft-deleted user may still come from the
+     * second-level cache. Archived users are read-only.
+     */
+    private User findLiveUser(Long id) {
+        return userRepository.findById(id)
+                .filter(user -> user.getDeletedAt() == null)
+                .orElseThrow(() -> userArchive.findById(id).isPresent()
+                        ? new ArchivedUserException(id) : new UserNotFoundException(id));
     }
 
     private void checkIfPersonIsAdultEnough(UserCreateRequest request) {
-        LocalDate birthday = request.getBirthDate();
-        LocalDate currentDate = LocalDate.now();
-        int age = Period.between(birthday, currentDate).getYears();
-        if (age < ageCondition) throw new YoungAgeException(
-                "You are too young to register. Your birthday is at '%s'".formatted(birthday), HttpStatus.BAD_REQUEST);
+        checkIfPersonIsAdultEnough(request.getBirthDate(), ageCondition);
+    }
+
+    /**
+     * The controller rejects young users before calling the service, this guards the
+     * other callers.
+     */
+    static void checkIfPersonIsAdultEnough(LocalDate birthday, int ageCondition) {
+        UserRequestValidator.checkAge(birthday, ageCondition).ifPresent(problem -> {
+            throw new YoungAgeException(problem.getMessage(), birthday, HttpStatus.BAD_REQUEST);
+        });
+    }
+
+    static void checkBirthDateRange(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Date `to`-'%s' is before date `from`-'%s'.".formatted(to, from));
+        }
+    }
+
+    /**
+     * Turns {@code size + 1} rows ordered by birth date and id into a page of {@code size}
+     * with the cursor of its last row, the extra row only tells that there is more.
+     */
+    static UserScrollPage toScrollPage(List<User> rows, int size, UserMapper mapper) {
+        return toScrollPage(rows, size, last -> new BirthDateCursor(last.getBirthDate(), last.getId()).encode(), mapper);
+    }
+
+    static UserScrollPage toScrollPage(List<User> rows, int size, Sort sort, UserMapper mapper) {
+        return toScrollPage(rows, size, last -> UserKeyset.encode(sort, last), mapper);
+    }
+
+    private static UserScrollPage toScrollPage(List<User> rows, int size, Function<User, String> cursor,
+                                               UserMapper mapper) {
+        boolean hasMore = rows.size() > size;
+        List<User> content = hasMore ? rows.subList(0, size) : rows;
+        UserScrollPage.UserScrollPageBuilder page = UserScrollPage.builder()
+                .content(content.stream().map(mapper::toResponse).toList());
+        if (hasMore) {
+            page.nextCursor(cursor.apply(content.get(size - 1)));
+        }
+        return page.build();
     }
 }
@@ -0,0 +1,90 @@
+package org.clearsolutions.task.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.Setter;
+import org.clearsolutions.task.dto.UserStatsResponse;
+import org.clearsolutions.task.entity.UserBirthDateCount;
+import org.clearsolutions.task.repository.UserBirthDateCountRepository;
+import org.clearsolutions.task.service.UserStatsService;
+import org.clearsolutions.task.sharding.ShardFanOut;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+import org.clearsolutions.task.stats.BirthDateHistogram;
+import org.clearsolutions.task.stats.UserStatsProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves statistics from a {@link BirthDateHistogram} of the per birth date counters that
+ * the database maintains with every change. The histogram is reloaded in the background
+ * once it is older than {@code user.stats.refresh-after}, so requests never wait for the
+ * database except for the very first one.
+ */
+@Setter
+@Service
+public class UserStatsServiceImpl implements UserStatsService {
+
+    private final UserBirthDateCountRepository countRepository;
+    private final ObjectProvider<ShardFanOut> shardFanOut;
+    private final ObjectProvider<ShardedUserRepository> shardedUserRepository;
+    private final UserStatsProperties properties;
+    private final LoadingCache<Boolean, BirthDateHistogram> histogram;
+
+    @Value("${user.age}")
+    private Integer ageCondition;
+
+    public UserStatsServiceImpl(UserBirthDateCountRepository countRepository,
+                                ObjectProvider<ShardFanOut> shardFanOut,
+                                ObjectProvider<ShardedUserRepository> shardedUserRepository,
+                                UserStatsProperties properties) {
+        this.countRepository = countRepository;
+        this.shardFanOut = shardFanOut;
+        this.shardedUserRepository = shardedUserRepository;
+        this.properties = properties;
+        this.histogram = Caffeine.newBuilder()
+                .refreshAfterWrite(properties.getRefreshAfter())
+                .build(key -> load());
+    }
+
+    @Override
+    public UserStatsResponse getStats() {
+        BirthDateHistogram current = histogram.get(Boolean.TRUE);
+        LocalDate today = LocalDate.now();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        bounds.add(ageCondition);
+        properties.getAgeBrackets().stream().filter(bound -> bound > ageCondition).sorted().forEach(bounds::add);
+        List<UserStatsResponse.AgeBracket> byAge = new ArrayList<>();
+        for (int i = 0; i < bounds.size(); i++) {
+            Integer maxAge = i + 1 < bounds.size() ? bounds.get(i + 1) : null;
+            long count = current.countAtLeast(bounds.get(i), today)
+                    - (maxAge == null ? 0 : current.countAtLeast(maxAge, today));
+            byAge.add(new UserStatsResponse.AgeBracket(bounds.get(i), maxAge, count));
+        }
+        return UserStatsResponse.builder()
+                .total(current.total())
+                .asOf(current.getAsOf())
+                .byBirthYear(current.getByYear())
+                .byBirthMonth(current.getByMonth())
+                .byAge(byAge)
+                .build();
+    }
+
+    private BirthDateHistogram load() {
+        Instant asOf = Instant.now();
+        ShardFanOut fanOut = shardFanOut.getIfAvailable();
+        if (fanOut == null) {
+            return BirthDateHistogram.of(countRepository.findByLiveCountGreaterThan(0), asOf);
+        }
+        ShardedUserRepository repository = shardedUserRepository.getObject();
+        List<UserBirthDateCount> counts = new ArrayList<>();
+        fanOut.onAll(repository::countByBirthDate).forEach(counts::addAll);
+        return BirthDateHistogram.of(counts, asOf);
+    }
+}
@@ -0,0 +1,41 @@
+package org.clearsolutions.task.sharding;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.*;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class KWayMerge {
+
+    /**
+     * Merges lists that are each sorted by {@code order}, drops the first {@code skip}
+     * elements of the merged order and returns at most {@code limit} of the rest. Runs in
+     * {@code O((skip + limit) log k)} for {@code k} lists.
+     */
+    public static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> order, long skip, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> order.compare(a.value, b.value));
+        for (List<T> list : sortedLists) {
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+        List<T> merged = new ArrayList<>(limit);
+        long position = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head<T> head = heads.poll();
+            if (position++ >= skip) {
+                merged.add(head.value);
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+}
@@ -0,0 +1,18 @@
+package org.clearsolutions.task.sharding;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+@Getter
+@RequiredArgsConstructor
+public class Shard {
+
+    private final int index;
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+}
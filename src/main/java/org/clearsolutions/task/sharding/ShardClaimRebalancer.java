@@ -0,0 +1,115 @@
+package org.clearsolutions.task.sharding;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.sharding.ShardedUserRepository.KeyClaim;
+import org.clearsolutions.task.sharding.ShardedUserRepository.UniqueKey;
+import org.clearsolutions.task.sharding.ShardedUserRepository.UserKeys;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Moves the email and phone claims to the shards owning their key slots whenever the key
+ * layout differs from the one recorded on the shards: after a change of
+ * {@code user.sharding.shards[].key-slots}, and once for claims placed by an older layout,
+ * e.g. of emails claimed as typed before they were normalized.
+ * <p>
+ * First every live user claims its values on their owners, then the claims left on shards
+ * that no longer own them are released. It runs before the application takes traffic and
+ * assumes no other instance writes with a different layout meanwhile. Values shared by
+ * several users stop the startup, as the normalization migration does.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardClaimRebalancer {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final int MAX_REPORTED = 20;
+
+    private final ShardRouter router;
+    private final ShardedUserRepository repository;
+
+    public void rebalance() {
+        String layout = router.keyLayout();
+        boolean current = router.getShards().stream()
+                .allMatch(shard -> repository.findKeyLayout(shard).filter(layout::equals).isPresent());
+        if (current) {
+            return;
+        }
+        log.info("Moving email and phone claims to the owners of key layout {}", layout);
+        long start = System.nanoTime();
+        TreeSet<String> duplicates = new TreeSet<>();
+        long claimed = 0;
+        for (Shard home : router.getShards()) {
+            claimed += claimOnOwners(home, duplicates);
+        }
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException(("Live users share emails or phones: %s. Change or delete all but one "
+                    + "user of each value and start again.").formatted(duplicates.stream().limit(MAX_REPORTED).toList()));
+        }
+        long released = 0;
+        for (Shard shard : router.getShards()) {
+            released += releaseForeign(shard);
+            repository.saveKeyLayout(shard, layout);
+        }
+        log.info("Moved the claims of {} values, released {} misplaced claims in {} ms", claimed, released,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long claimOnOwners(Shard home, TreeSet<String> duplicates) {
+        long claimed = 0;
+        long afterId = 0;
+        List<UserKeys> users;
+        while (!(users = repository.findKeys(home, afterId, BATCH_SIZE)).isEmpty()) {
+            Map<UniqueKey, Map<Shard, List<KeyClaim>>> remote = new EnumMap<>(UniqueKey.class);
+            for (UserKeys user : users) {
+                addIfRemote(remote, home, UniqueKey.EMAIL, user.email(), user.id());
+                addIfRemote(remote, home, UniqueKey.PHONE, user.phone(), user.id());
+            }
+            for (Map.Entry<UniqueKey, Map<Shard, List<KeyClaim>>> byKey : remote.entrySet()) {
+                for (Map.Entry<Shard, List<KeyClaim>> byOwner : byKey.getValue().entrySet()) {
+                    duplicates.addAll(repository.claimAll(byOwner.getKey(), byKey.getKey(), byOwner.getValue()));
+                    claimed += byOwner.getValue().size();
+                }
+            }
+            afterId = users.get(users.size() - 1).id();
+        }
+        return claimed;
+    }
+
+    private void addIfRemote(Map<UniqueKey, Map<Shard, List<KeyClaim>>> remote, Shard home, UniqueKey key,
+                             String value, long userId) {
+        if (value == null) {
+            return;
+        }
+        Shard owner = router.forKey(value);
+        if (owner != home) {
+            remote.computeIfAbsent(key, k -> new HashMap<>())
+                    .computeIfAbsent(owner, o -> new ArrayList<>())
+                    .add(new KeyClaim(value, userId));
+        }
+    }
+
+    /**
+     * Releases the claims {@code shard} holds for users of other shards but no longer owns.
+     * The claims of its own users are kept by the trigger of {@code task.users}.
+     */
+    private long releaseForeign(Shard shard) {
+        long released = 0;
+        for (UniqueKey key : UniqueKey.values()) {
+            List<KeyClaim> misplaced = repository.findForeignClaims(shard, key).stream()
+                    .filter(claim -> router.forKey(claim.value()) != shard)
+                    .toList();
+            for (int from = 0; from < misplaced.size(); from += BATCH_SIZE) {
+                repository.releaseAll(shard, key, misplaced.subList(from, Math.min(misplaced.size(), from + BATCH_SIZE)));
+            }
+            released += misplaced.size();
+        }
+        return released;
+    }
+}
@@ -0,0 +1,56 @@
+package org.clearsolutions.task.sharding;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Runs the same query on every shard in parallel.
+ */
+public class ShardFanOut implements AutoCloseable {
+
+    private final ShardRouter router;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    public ShardFanOut(ShardRouter router, Duration timeout, int threads) {
+        this.router = router;
+        this.timeout = timeout;
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-shard-"));
+    }
+
+    /**
+     * Returns the results in shard order. Fails if any shard fails or does not answer
+     * within the timeout, because a merge over the remaining shards would silently miss users.
+     */
+    public <T> List<T> onAll(Function<Shard, T> query) {
+        List<CompletableFuture<T>> futures = router.getShards().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new QueryTimeoutException("Not all shards answered within " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
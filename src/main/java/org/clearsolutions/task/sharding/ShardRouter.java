@@ -0,0 +1,149 @@
+package org.clearsolutions.task.sharding;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.clearsolutions.task.exception.UserNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Maps users to shards. Emails and phones hash into {@link #KEY_SLOTS} fixed slots, and
+ * every slot is owned by one shard, see {@code user.sharding.shards[].key-slots}. A value
+ * is claimed on the shard owning its slot, which makes the unique lookup tables of that
+ * shard enforce global uniqueness. A new user lives on the owner of its email, and its id
+ * carries that shard in the low {@link #SHARD_BITS} bits, so requests by id need no lookup.
+ * <p>
+ * Appending a shard moves no slot, so existing claims stay valid. The appended shard
+ * takes new users once slots are assigned to it.
+ */
+@Getter
+public class ShardRouter implements AutoCloseable {
+
+    public static final int SHARD_BITS = 10;
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+    public static final int KEY_SLOTS = 1024;
+
+    private final List<Shard> shards;
+    @Getter(AccessLevel.NONE)
+    private final Shard[] slotOwners;
+
+    /**
+     * @param keySlots the slot ranges of every shard, like {@code 0-511,768-1023}, by shard
+     *                 index; {@code null} for a shard that owns no slot. A single shard owns
+     *                 all slots by default.
+     */
+    public ShardRouter(List<Shard> shards, List<String> keySlots) {
+        if (shards.isEmpty() || shards.size() > MAX_SHARDS) {
+            throw new IllegalStateException("Between 1 and %d shards must be configured, found %d"
+                    .formatted(MAX_SHARDS, shards.size()));
+        }
+        this.shards = List.copyOf(shards);
+        this.slotOwners = slotOwners(this.shards, keySlots);
+    }
+
+    public Shard forId(long id) {
+        int index = (int) (id & (MAX_SHARDS - 1));
+        if (id < 1 || index >= shards.size()) {
+            throw new UserNotFoundException(id);
+        }
+        return shards.get(index);
+    }
+
+    /**
+     * The shard owning the slot of {@code key}. {@link String#hashCode} is specified, so the
+     * slot of a value never changes.
+     */
+    public Shard forKey(String key) {
+        return slotOwners[slot(key)];
+    }
+
+    /**
+     * Owner of every run of key slots, like {@code 0-341:0,342-682:1,683-1023:2}.
+     */
+    public String keyLayout() {
+        StringJoiner layout = new StringJoiner(",");
+        int from = 0;
+        for (int slot = 1; slot <= KEY_SLOTS; slot++) {
+            if (slot == KEY_SLOTS || slotOwners[slot] != slotOwners[from]) {
+                layout.add("%d-%d:%d".formatted(from, slot - 1, slotOwners[from].getIndex()));
+                from = slot;
+            }
+        }
+        return layout.toString();
+    }
+
+    public static int slot(String key) {
+        return Math.floorMod(key.hashCode(), KEY_SLOTS);
+    }
+
+    private static Shard[] slotOwners(List<Shard> shards, List<String> keySlots) {
+        Shard[] owners = new Shard[KEY_SLOTS];
+        boolean assigned = false;
+        for (int i = 0; i < shards.size(); i++) {
+            String ranges = i < keySlots.size() ? keySlots.get(i) : null;
+            if (ranges == null || ranges.isBlank()) {
+                continue;
+            }
+            assigned = true;
+            for (String range : ranges.split(",")) {
+                int[] bounds = parseRange(range.trim());
+                for (int slot = bounds[0]; slot <= bounds[1]; slot++) {
+                    if (owners[slot] != null) {
+                        throw new IllegalStateException("Key slot %d is assigned to shards %d and %d"
+                                .formatted(slot, owners[slot].getIndex(), i));
+                    }
+                    owners[slot] = shards.get(i);
+                }
+            }
+        }
+        if (!assigned && shards.size() == 1) {
+            Arrays.fill(owners, shards.get(0));
+            return owners;
+        }
+        if (!assigned) {
+            throw new IllegalStateException(("Key slots must be assigned explicitly to several shards, "
+                    + "e.g. user.sharding.shards[i].key-slots: %s").formatted(evenSplit(shards.size())));
+        }
+        for (int slot = 0; slot < KEY_SLOTS; slot++) {
+            if (owners[slot] == null) {
+                throw new IllegalStateException("Key slot %d is not assigned to a shard".formatted(slot));
+            }
+        }
+        return owners;
+    }
+
+    private static int[] parseRange(String range) {
+        String[] bounds = range.split("-", 2);
+        try {
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length == 1 ? from : Integer.parseInt(bounds[1].trim());
+            if (from < 0 || to >= KEY_SLOTS || from > to) {
+                throw new IllegalStateException("Key slot range '%s' must lie within 0-%d"
+                        .formatted(range, KEY_SLOTS - 1));
+            }
+            return new int[]{from, to};
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Key slot range '%s' must look like 0-511".formatted(range));
+        }
+    }
+
+    private static List<String> evenSplit(int shards) {
+        List<String> ranges = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            ranges.add("%d-%d".formatted(i * KEY_SLOTS / shards, (i + 1) * KEY_SLOTS / shards - 1));
+        }
+        return ranges;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Shard shard : shards) {
+            if (shard.getDataSource() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
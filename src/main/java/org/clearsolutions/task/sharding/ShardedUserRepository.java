@@ -0,0 +1,345 @@
+package org.clearsolutions.task.sharding;
+
+import org.clearsolutions.task.dto.BirthDateRange;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.entity.UserBirthDateCount;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.sort.UserKeyset;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Plain SQL access to the users of one shard. Every shard runs the same migrations as the
+ * primary database, so the statements mirror the JPA mappings of {@link User}.
+ */
+public class ShardedUserRepository {
+
+    /**
+     * Sortable properties, their columns and their order in Java. Strings are compared in
+     * the "C" collation so that every shard sorts them like {@link String#compareTo}, which
+     * the merge of the shard results relies on.
+     */
+    private static final Map<String, SortableColumn> SORTABLE = Map.of(
+            "id", new SortableColumn("id", Comparator.comparing(User::getId)),
+            "firstName", new SortableColumn("first_name COLLATE \"C\"", Comparator.comparing(User::getFirstName)),
+            "lastName", new SortableColumn("last_name COLLATE \"C\"", Comparator.comparing(User::getLastName)),
+            "email", new SortableColumn("email COLLATE \"C\"", Comparator.comparing(User::getEmail)),
+            "birthDate", new SortableColumn("birth_date", Comparator.comparing(User::getBirthDate)),
+            "updatedAt", new SortableColumn("updated_at", Comparator.comparing(User::getUpdatedAt)));
+
+    public static final Comparator<User> BIRTH_DATE_ORDER =
+            Comparator.comparing(User::getBirthDate).thenComparing(User::getId);
+
+    public static final Comparator<User> CHANGE_ORDER =
+            Comparator.comparing(User::getUpdatedAt).thenComparing(User::getId);
+
+    private static final RowMapper<User> USER = ShardedUserRepository::mapUser;
+
+    public long nextId(Shard shard) {
+        return Objects.requireNonNull(shard.getJdbc().queryForObject(
+                "SELECT (nextval('task.users_id_seq') << %d) | :shard".formatted(ShardRouter.SHARD_BITS),
+                Map.of("shard", shard.getIndex()), Long.class));
+    }
+
+    public User insert(Shard shard, User user) {
+        return shard.getJdbc().queryForObject("""
+                INSERT INTO task.users (id, email, first_name, last_name, birth_date, address, phone)
+                VALUES (:id, :email, :firstName, :lastName, :birthDate, :address, :phone)
+                RETURNING *
+                """, userParameters(user), USER);
+    }
+
+    public Optional<User> findById(Shard shard, long id) {
+        return shard.getJdbc().query("SELECT * FROM task.users WHERE id = :id AND deleted_at IS NULL",
+                Map.of("id", id), USER).stream().findFirst();
+    }
+
+    public Optional<User> findByEmail(Shard shard, String email) {
+        return shard.getJdbc().query("""
+                SELECT * FROM task.users WHERE email_normalized = lower(btrim(:email)) AND deleted_at IS NULL
+                """, Map.of("email", email), USER).stream().findFirst();
+    }
+
+    public User update(Shard shard, User user) {
+        return shard.getJdbc().queryForObject("""
+                UPDATE task.users
+                SET email = :email, first_name = :firstName, last_name = :lastName, birth_date = :birthDate,
+                    address = :address, phone = :phone, updated_at = now()
+                WHERE id = :id AND deleted_at IS NULL
+                RETURNING *
+                """, userParameters(user), USER);
+    }
+
+    public boolean softDelete(Shard shard, long id) {
+        return shard.getJdbc().update("""
+                UPDATE task.users SET deleted_at = now(), updated_at = now()
+                WHERE id = :id AND deleted_at IS NULL
+                """, Map.of("id", id)) > 0;
+    }
+
+    /**
+     * The form emails are unique and looked up in, computed by the database with the same
+     * expression as the generated {@code email_normalized} column.
+     */
+    public String normalizeEmail(Shard shard, String email) {
+        return shard.getJdbc().queryForObject("SELECT lower(btrim(:email))", Map.of("email", email), String.class);
+    }
+
+    /**
+     * Claims a unique value of a user living on another shard in the lookup table of
+     * {@code shard}. Fails with a unique violation if the value is taken. Emails are
+     * claimed normalized, see {@link #normalizeEmail}.
+     */
+    public void claim(Shard shard, UniqueKey key, String value, long userId) {
+        shard.getJdbc().update("INSERT INTO task.%s (%s, user_id) VALUES (:value, :userId)"
+                .formatted(key.table, key.column), Map.of("value", value, "userId", userId));
+    }
+
+    public void release(Shard shard, UniqueKey key, String value, long userId) {
+        shard.getJdbc().update("DELETE FROM task.%s WHERE %s = :value AND user_id = :userId"
+                .formatted(key.table, key.column), Map.of("value", value, "userId", userId));
+    }
+
+    /**
+     * Claims the values unless already taken and returns those taken by another user.
+     */
+    public List<String> claimAll(Shard shard, UniqueKey key, List<KeyClaim> claims) {
+        // The final SELECT sees the table as before the insert, so only older claims conflict.
+        return shard.getJdbc().queryForList("""
+                WITH input AS (
+                    SELECT * FROM unnest(:values, :userIds) AS i(value, user_id)
+                ), claimed AS (
+                    INSERT INTO task.%1$s (%2$s, user_id) SELECT value, user_id FROM input ON CONFLICT DO NOTHING
+                )
+                SELECT i.value FROM input i JOIN task.%1$s t ON t.%2$s = i.value AND t.user_id <> i.user_id
+                """.formatted(key.table, key.column), claimParameters(claims), String.class);
+    }
+
+    public void releaseAll(Shard shard, UniqueKey key, List<KeyClaim> claims) {
+        shard.getJdbc().update("""
+                DELETE FROM task.%1$s t USING unnest(:values, :userIds) AS i(value, user_id)
+                WHERE t.%2$s = i.value AND t.user_id = i.user_id
+                """.formatted(key.table, key.column), claimParameters(claims));
+    }
+
+    /**
+     * Claims held by {@code shard} for users living on other shards.
+     */
+    public List<KeyClaim> findForeignClaims(Shard shard, UniqueKey key) {
+        return shard.getJdbc().query("SELECT %s, user_id FROM task.%s WHERE (user_id & :mask) <> :shard"
+                        .formatted(key.column, key.table),
+                Map.of("mask", ShardRouter.MAX_SHARDS - 1, "shard", shard.getIndex()),
+                (rs, row) -> new KeyClaim(rs.getString(1), rs.getLong(2)));
+    }
+
+    /**
+     * The next {@code limit} live users after {@code afterId} with their normalized email and phone.
+     */
+    public List<UserKeys> findKeys(Shard shard, long afterId, int limit) {
+        return shard.getJdbc().query("""
+                SELECT id, email_normalized, phone FROM task.users
+                WHERE deleted_at IS NULL AND id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """, Map.of("afterId", afterId, "limit", limit),
+                (rs, row) -> new UserKeys(rs.getLong(1), rs.getString(2), rs.getString(3)));
+    }
+
+    public Optional<String> findKeyLayout(Shard shard) {
+        return shard.getJdbc().queryForList("SELECT layout FROM task.shard_key_layout", Map.of(), String.class)
+                .stream().findFirst();
+    }
+
+    public void saveKeyLayout(Shard shard, String layout) {
+        shard.getJdbc().update("""
+                INSERT INTO task.shard_key_layout (layout) VALUES (:layout)
+                ON CONFLICT (id) DO UPDATE SET layout = EXCLUDED.layout, applied_at = now()
+                """, Map.of("layout", layout));
+    }
+
+    /**
+     * First {@code limit} live users in {@code sort} order, optionally born in {@code [from, to]}.
+     */
+    public List<User> findFirst(Shard shard, LocalDate from, LocalDate to, Sort sort, long limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        return shard.getJdbc().query("SELECT * FROM task.users WHERE deleted_at IS NULL%s ORDER BY %s LIMIT :limit"
+                .formatted(birthDateFilter(from, to, parameters), orderBy(sort)), parameters, USER);
+    }
+
+    /**
+     * See {@link org.clearsolutions.task.repository.UserKeysetRepository#findLiveAfter}.
+     */
+    public List<User> findLiveAfter(Shard shard, Sort sort, String cursor, int limit) {
+        UserKeyset.Condition after = UserKeyset.after(sort, cursor, property -> SORTABLE.get(property).column);
+        return shard.getJdbc().query("""
+                SELECT * FROM task.users
+                WHERE deleted_at IS NULL AND %s
+                ORDER BY %s
+                LIMIT :limit
+                """.formatted(after.sql(), orderBy(sort)),
+                new MapSqlParameterSource(after.parameters()).addValue("limit", limit), USER);
+    }
+
+    public long count(Shard shard, LocalDate from, LocalDate to) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        return Objects.requireNonNull(shard.getJdbc().queryForObject(
+                "SELECT count(*) FROM task.users WHERE deleted_at IS NULL" + birthDateFilter(from, to, parameters),
+                parameters, Long.class));
+    }
+
+    public List<User> scrollByBirthDate(Shard shard, LocalDate from, LocalDate to, LocalDate afterBirthDate,
+                                        long afterId, int limit) {
+        return shard.getJdbc().query("""
+                SELECT * FROM task.users
+                WHERE deleted_at IS NULL AND birth_date BETWEEN :from AND :to
+                  AND (birth_date, id) > (:afterBirthDate, :afterId)
+                ORDER BY birth_date, id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("afterBirthDate", afterBirthDate)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit), USER);
+    }
+
+    /**
+     * See {@link UserRepository#scrollByBirthDateRanges}.
+     */
+    public List<User> scrollByBirthDateRanges(Shard shard, List<BirthDateRange> ranges, LocalDate afterBirthDate,
+                                              long afterId, int limit) {
+        return UserRepository.scrollRanges(ranges, afterBirthDate, afterId, limit,
+                (from, to, afterDate, after, rest) -> scrollByBirthDate(shard, from, to, afterDate, after, rest));
+    }
+
+    public List<User> findChanges(Shard shard, Instant since, long afterId, Instant until, int limit) {
+        return shard.getJdbc().query("""
+                SELECT * FROM task.users
+                WHERE (updated_at, id) > (:since, :afterId) AND updated_at < :until
+                ORDER BY updated_at, id
+                LIMIT :limit
+                """, new MapSqlParameterSource()
+                .addValue("since", OffsetDateTime.ofInstant(since, ZoneOffset.UTC))
+                .addValue("afterId", afterId)
+                .addValue("until", OffsetDateTime.ofInstant(until, ZoneOffset.UTC))
+                .addValue("limit", limit), USER);
+    }
+
+    public List<UserBirthDateCount> countByBirthDate(Shard shard) {
+        return shard.getJdbc().query("SELECT birth_date, live_count FROM task.user_birth_date_counts WHERE live_count > 0",
+                (rs, row) -> new UserBirthDateCount(rs.getObject("birth_date", LocalDate.class), rs.getLong("live_count")));
+    }
+
+    /**
+     * Order of {@link #findFirst} in Java, for merging the results of several shards.
+     */
+    public static Comparator<User> comparator(Sort sort) {
+        Comparator<User> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<User> next = sortable(order).comparator;
+            next = order.isAscending() ? next : next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (endsWithId(sort)) {
+            return comparator;
+        }
+        Comparator<User> byId = Comparator.comparing(User::getId);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private static String orderBy(Sort sort) {
+        StringJoiner orderBy = new StringJoiner(", ");
+        for (Sort.Order order : sort) {
+            orderBy.add(sortable(order).column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        // The id makes the order total, which a merge of several shards needs.
+        return endsWithId(sort) ? orderBy.toString() : orderBy.add("id").toString();
+    }
+
+    private static boolean endsWithId(Sort sort) {
+        return sort.stream().reduce((first, second) -> second)
+                .map(order -> order.getProperty().equals("id"))
+                .orElse(false);
+    }
+
+    private static SortableColumn sortable(Sort.Order order) {
+        SortableColumn column = SORTABLE.get(order.getProperty());
+        if (column == null) {
+            throw new IllegalArgumentException("Sorting by '%s' is not supported, use one of %s."
+                    .formatted(order.getProperty(), new TreeSet<>(SORTABLE.keySet())));
+        }
+        return column;
+    }
+
+    private static String birthDateFilter(LocalDate from, LocalDate to, MapSqlParameterSource parameters) {
+        if (from == null) {
+            return "";
+        }
+        parameters.addValue("from", from).addValue("to", to);
+        return " AND birth_date BETWEEN :from AND :to";
+    }
+
+    private static MapSqlParameterSource claimParameters(List<KeyClaim> claims) {
+        return new MapSqlParameterSource()
+                .addValue("values", new SqlArrayValue("varchar", claims.stream().map(KeyClaim::value).toArray()))
+                .addValue("userIds", new SqlArrayValue("bigint", claims.stream().map(KeyClaim::userId).toArray()));
+    }
+
+    private static MapSqlParameterSource userParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("email", user.getEmail())
+                .addValue("firstName", user.getFirstName())
+                .addValue("lastName", user.getLastName())
+                .addValue("birthDate", user.getBirthDate())
+                .addValue("address", user.getAddress())
+                .addValue("phone", user.getPhoneNumber());
+    }
+
+    private static User mapUser(ResultSet rs, int row) throws SQLException {
+        OffsetDateTime deletedAt = rs.getObject("deleted_at", OffsetDateTime.class);
+        return User.builder()
+                .id(rs.getLong("id"))
+                .email(rs.getString("email"))
+                .firstName(rs.getString("first_name"))
+                .lastName(rs.getString("last_name"))
+                .birthDate(rs.getObject("birth_date", LocalDate.class))
+                .address(rs.getString("address"))
+                .phoneNumber(rs.getString("phone"))
+                .updatedAt(rs.getObject("updated_at", OffsetDateTime.class).toInstant())
+                .deletedAt(deletedAt == null ? null : deletedAt.toInstant())
+                .build();
+    }
+
+    public enum UniqueKey {
+        EMAIL("user_emails", "email"),
+        PHONE("user_phones", "phone");
+
+        private final String table;
+        private final String column;
+
+        UniqueKey(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    public record KeyClaim(String value, long userId) {
+    }
+
+    public record UserKeys(long id, String email, String phone) {
+    }
+
+    private record SortableColumn(String column, Comparator<User> comparator) {
+    }
+}
@@ -0,0 +1,50 @@
+package org.clearsolutions.task.sharding;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.sharding")
+public class ShardingProperties {
+
+    /**
+     * When set, users are stored on {@code shards} instead of the primary datasource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The position of a shard in this list is encoded into the ids of its users, so
+     * shards can only be appended. An appended shard owns no key slots.
+     */
+    private List<ShardProperties> shards = new ArrayList<>();
+
+    private int poolSize = 10;
+
+    /**
+     * Time a query sent to all shards may take before the request fails.
+     */
+    private Duration fanOutTimeout = Duration.ofSeconds(5);
+
+    @Getter
+    @Setter
+    public static class ShardProperties {
+
+        private String url;
+        private String username;
+        private String password;
+
+        /**
+         * Ranges of the key slots this shard owns, like {@code 0-511,768-1023}, see
+         * {@link ShardRouter}. With several shards every slot must be owned by exactly one.
+         * When slots move to another shard, the next start moves their claims, see
+         * {@link ShardClaimRebalancer}; all instances must be stopped for that.
+         */
+        private String keySlots;
+    }
+}
@@ -0,0 +1,14 @@
+package org.clearsolutions.task.snapshot;
+
+import java.util.BitSet;
+
+/**
+ * A segment query resolved against the snapshot: the birth date range in epoch days and
+ * the dictionary codes of the names matching the prefixes.
+ *
+ * @param firstNameCodes {@code null} when the first name is not filtered
+ * @param hasAddress     {@code null} when the address is not filtered
+ */
+public record SegmentFilter(int fromDay, int toDay, BitSet firstNameCodes, BitSet lastNameCodes,
+                            Boolean hasAddress, Boolean hasPhone) {
+}
@@ -0,0 +1,38 @@
+package org.clearsolutions.task.snapshot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.snapshot")
+public class SnapshotProperties {
+
+    /**
+     * Loads the live users into memory after the start and serves segment queries from them.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Rows fetched per round trip while the table is streamed.
+     */
+    private int fetchSize = 10000;
+
+    /**
+     * Threads scanning the snapshot, zero for one per processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Rows one scan task covers.
+     */
+    private int chunkRows = 65536;
+
+    /**
+     * Wait before a failed full load is tried again.
+     */
+    private Duration retryDelay = Duration.ofSeconds(30);
+}
@@ -0,0 +1,49 @@
+package org.clearsolutions.task.snapshot;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores every distinct string once and refers to it by a code. Names repeat a lot, so a
+ * column of codes is much smaller than a column of strings, and a prefix is matched once
+ * per distinct name instead of once per row. Codes are never reused.
+ */
+public class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Returns the codes of the values starting with {@code prefix}, ignoring case.
+     */
+    public BitSet codesWithPrefix(String prefix) {
+        BitSet matching = new BitSet(values.size());
+        for (int code = 0; code < values.size(); code++) {
+            if (values.get(code).regionMatches(true, 0, prefix, 0, prefix.length())) {
+                matching.set(code);
+            }
+        }
+        return matching;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,145 @@
+package org.clearsolutions.task.snapshot;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The snapshot rows, one array per column and sorted by id. Birth dates are epoch days,
+ * names are codes of a {@link StringDictionary} and the nullable address and phone are
+ * bits. A deleted row stays in place with its {@code live} bit cleared until a quarter
+ * of the rows are dead and they are compacted away.
+ * <p>
+ * Not thread-safe, {@link UserSnapshot} guards it with a read-write lock.
+ */
+public class UserColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringDictionary firstNames = new StringDictionary();
+    private final StringDictionary lastNames = new StringDictionary();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] birthDays = new int[INITIAL_CAPACITY];
+    private int[] firstNameCodes = new int[INITIAL_CAPACITY];
+    private int[] lastNameCodes = new int[INITIAL_CAPACITY];
+    private BitSet live = new BitSet();
+    private BitSet hasAddress = new BitSet();
+    private BitSet hasPhone = new BitSet();
+    private int size;
+    private int dead;
+
+    /**
+     * Adds or replaces the row of the user. Users mostly arrive in id order, so a new row
+     * is appended or shifts only the few rows of concurrently committed users.
+     */
+    public void upsert(long id, LocalDate birthDate, String firstName, String lastName, boolean address,
+                       boolean phone) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row < 0) {
+            row = -row - 1;
+            insertAt(row);
+            ids[row] = id;
+        } else if (!live.get(row)) {
+            dead--;
+        }
+        birthDays[row] = (int) birthDate.toEpochDay();
+        firstNameCodes[row] = firstNames.encode(firstName);
+        lastNameCodes[row] = lastNames.encode(lastName);
+        live.set(row);
+        hasAddress.set(row, address);
+        hasPhone.set(row, phone);
+    }
+
+    public void remove(long id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0 && live.get(row)) {
+            live.clear(row);
+            dead++;
+            if (dead > size / 4) {
+                compact();
+            }
+        }
+    }
+
+    public boolean matches(int row, SegmentFilter filter) {
+        int birthDay = birthDays[row];
+        return live.get(row)
+                && birthDay >= filter.fromDay() && birthDay <= filter.toDay()
+                && (filter.hasAddress() == null || hasAddress.get(row) == filter.hasAddress())
+                && (filter.hasPhone() == null || hasPhone.get(row) == filter.hasPhone())
+                && (filter.firstNameCodes() == null || filter.firstNameCodes().get(firstNameCodes[row]))
+                && (filter.lastNameCodes() == null || filter.lastNameCodes().get(lastNameCodes[row]));
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveRows() {
+        return size - dead;
+    }
+
+    public StringDictionary getFirstNames() {
+        return firstNames;
+    }
+
+    public StringDictionary getLastNames() {
+        return lastNames;
+    }
+
+    private void insertAt(int row) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            birthDays = Arrays.copyOf(birthDays, capacity);
+            firstNameCodes = Arrays.copyOf(firstNameCodes, capacity);
+            lastNameCodes = Arrays.copyOf(lastNameCodes, capacity);
+        }
+        int moved = size - row;
+        if (moved > 0) {
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(birthDays, row, birthDays, row + 1, moved);
+            System.arraycopy(firstNameCodes, row, firstNameCodes, row + 1, moved);
+            System.arraycopy(lastNameCodes, row, lastNameCodes, row + 1, moved);
+            live = shift(live, row);
+            hasAddress = shift(hasAddress, row);
+            hasPhone = shift(hasPhone, row);
+        }
+        size++;
+    }
+
+    /**
+     * Moves the bits from {@code row} on one position up and leaves {@code row} cleared.
+     */
+    private BitSet shift(BitSet bits, int row) {
+        BitSet shifted = bits.get(0, row);
+        BitSet tail = bits.get(row, size);
+        for (int bit = tail.nextSetBit(0); bit >= 0; bit = tail.nextSetBit(bit + 1)) {
+            shifted.set(row + 1 + bit);
+        }
+        return shifted;
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int row = live.nextSetBit(0); row >= 0 && row < size; row = live.nextSetBit(row + 1)) {
+            ids[target] = ids[row];
+            birthDays[target] = birthDays[row];
+            firstNameCodes[target] = firstNameCodes[row];
+            lastNameCodes[target] = lastNameCodes[row];
+            hasAddress.set(target, hasAddress.get(row));
+            hasPhone.set(target, hasPhone.get(row));
+            target++;
+        }
+        live.clear();
+        live.set(0, target);
+        hasAddress.clear(target, size);
+        hasPhone.clear(target, size);
+        size = target;
+        dead = 0;
+    }
+}
@@ -0,0 +1,389 @@
+package org.clearsolutions.task.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.bulkhead.TrafficClass;
+import org.clearsolutions.task.bulkhead.TrafficClassContext;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserSegmentRequest;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.clearsolutions.task.exception.SnapshotNotReadyException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Read-only in-memory copy of the live users for segment queries, see {@link UserColumns}.
+ * It is loaded by streaming {@code task.users} once the application is ready and then
+ * follows the changes: the changes of this instance are applied when they commit, and the
+ * users of an invalidation, which also covers bulk jobs and other instances, are read
+ * again. A reload keeps serving the previous columns and applies the changes that commit
+ * meanwhile to both. Full loads are coalesced: a request while one is queued is dropped,
+ * and a failed load is tried again after {@code user.snapshot.retry-delay}.
+ * <p>
+ * A query counts the matching rows of fixed size chunks in parallel on a fork-join pool,
+ * then walks the counts to the chunks of the requested page and collects only those.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class UserSnapshot implements DisposableBean {
+
+    private static final String COLUMNS =
+            "id, birth_date, first_name, last_name, address IS NOT NULL, phone IS NOT NULL";
+    private static final String LOAD = "SELECT " + COLUMNS + " FROM task.users WHERE deleted_at IS NULL ORDER BY id";
+    private static final String RELOAD = "SELECT " + COLUMNS + " FROM task.users "
+            + "WHERE deleted_at IS NULL AND id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final SnapshotProperties properties;
+    private final ScheduledExecutorService loader;
+    private final ForkJoinPool scanPool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Timer loads;
+    private final Timer queries;
+    private final AtomicBoolean loadQueued = new AtomicBoolean();
+
+    // Guarded by lock.
+    private UserColumns columns = new UserColumns();
+    private List<Consumer<UserColumns>> pending;
+    private volatile Instant loadedAt;
+    private volatile boolean loading;
+
+    public UserSnapshot(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                        SnapshotProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.properties = properties;
+        this.loader = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("user-snapshot-"));
+        this.scanPool = new ForkJoinPool(properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors());
+        this.loads = Timer.builder("user.snapshot.load")
+                .description("Time to stream all live users into the snapshot")
+                .register(meterRegistry);
+        this.queries = Timer.builder("user.snapshot.query")
+                .description("Time to count and page a segment of the snapshot")
+                .register(meterRegistry);
+        Gauge.builder("user.snapshot.rows", this, UserSnapshot::getLiveRows)
+                .description("Live users in the snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the users unless the invalidation the listener sends when it connects did already.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (properties.isEnabled() && loadedAt == null && !loading) {
+            requestLoad(Duration.ZERO);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        UserResponse user = event.getUser();
+        if (event.getType() == UserChangeType.DELETED || user == null) {
+            apply(target -> target.remove(event.getUserId()));
+        } else {
+            SnapshotRow row = new SnapshotRow(user.getId(), user.getBirthDate(), user.getFirstName(),
+                    user.getLastName(), user.getAddress() != null, user.getPhoneNumber() != null);
+            apply(row::applyTo);
+        }
+    }
+
+    @EventListener
+    public void onUsersInvalidated(UsersInvalidatedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (event.isAllUsers()) {
+            requestLoad(Duration.ZERO);
+        } else {
+            loader.execute(TrafficClassContext.wrap(TrafficClass.ADMIN, () -> reload(event.getUserIds())));
+        }
+    }
+
+    public Segment query(UserSegmentRequest request) {
+        if (!properties.isEnabled()) {
+            throw new SnapshotNotReadyException("The user snapshot is disabled, see user.snapshot.enabled.");
+        }
+        Instant asOf = loadedAt;
+        if (asOf == null) {
+            throw new SnapshotNotReadyException("The user snapshot is still loading, try again later.");
+        }
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            SegmentFilter filter = filter(columns, request);
+            int chunkRows = properties.getChunkRows();
+            int[] counts = new int[(columns.size() + chunkRows - 1) / chunkRows];
+            if (counts.length > 0) {
+                scanPool.invoke(new CountChunks(columns, filter, chunkRows, counts, 0, counts.length));
+            }
+            long total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            List<Long> ids = collect(columns, filter, chunkRows, counts,
+                    (long) request.getPage() * request.getSize(), request.getSize());
+            return new Segment(total, ids, asOf);
+        } finally {
+            lock.readLock().unlock();
+            queries.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return loadedAt != null;
+    }
+
+    @Override
+    public void destroy() {
+        loader.shutdownNow();
+        scanPool.shutdownNow();
+    }
+
+    void load() {
+        loadQueued.set(false);
+        loading = true;
+        try {
+            if (!loadAll()) {
+                requestLoad(properties.getRetryDelay());
+            }
+        } finally {
+            loading = false;
+        }
+    }
+
+    private boolean loadAll() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        UserColumns loaded = new UserColumns();
+        boolean complete = false;
+        try {
+            readOnly.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(LOAD);
+                statement.setFetchSize(properties.getFetchSize());
+                return statement;
+            }, (RowCallbackHandler) resultSet -> SnapshotRow.of(resultSet).applyTo(loaded)));
+            complete = true;
+        } catch (RuntimeException e) {
+            log.error("Can not load the user snapshot, it keeps the previous state and tries again in {}",
+                    properties.getRetryDelay(), e);
+        }
+        lock.writeLock().lock();
+        try {
+            if (complete) {
+                pending.forEach(change -> change.accept(loaded));
+                columns = loaded;
+                loadedAt = Instant.now();
+            }
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (complete) {
+            long took = System.nanoTime() - start;
+            loads.record(took, TimeUnit.NANOSECONDS);
+            log.info("Loaded {} users into the snapshot in {} ms",
+                    loaded.liveRows(), TimeUnit.NANOSECONDS.toMillis(took));
+        }
+        return complete;
+    }
+
+    void reload(Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<SnapshotRow> rows;
+        try {
+            rows = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(RELOAD);
+                statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+                return statement;
+            }, (resultSet, rowNum) -> SnapshotRow.of(resultSet));
+        } catch (RuntimeException e) {
+            log.warn("Can not reload {} users into the snapshot", userIds.size(), e);
+            return;
+        }
+        Set<Long> removed = new HashSet<>(userIds);
+        rows.forEach(row -> removed.remove(row.id()));
+        apply(target -> {
+            rows.forEach(row -> row.applyTo(target));
+            removed.forEach(target::remove);
+        });
+    }
+
+    /**
+     * Queues a full load unless one is queued already, as that one reads every change made
+     * before it starts. A running load does not count, it may have read the table before
+     * the changes that made the caller ask.
+     */
+    private void requestLoad(Duration delay) {
+        if (loadQueued.compareAndSet(false, true)) {
+            loader.schedule(TrafficClassContext.wrap(TrafficClass.ADMIN, this::load), delay.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void apply(Consumer<UserColumns> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(columns);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int getLiveRows() {
+        lock.readLock().lock();
+        try {
+            return columns.liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static SegmentFilter filter(UserColumns columns, UserSegmentRequest request) {
+        return new SegmentFilter(
+                request.getFrom() == null ? Integer.MIN_VALUE : (int) request.getFrom().toEpochDay(),
+                request.getTo() == null ? Integer.MAX_VALUE : (int) request.getTo().toEpochDay(),
+                codes(columns.getFirstNames(), request.getFirstNamePrefix()),
+                codes(columns.getLastNames(), request.getLastNamePrefix()),
+                request.getHasAddress(),
+                request.getHasPhone());
+    }
+
+    private static BitSet codes(StringDictionary dictionary, String prefix) {
+        return prefix == null || prefix.isBlank() ? null : dictionary.codesWithPrefix(prefix.trim());
+    }
+
+    private static List<Long> collect(UserColumns columns, SegmentFilter filter, int chunkRows, int[] counts,
+                                      long offset, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        long skip = offset;
+        for (int chunk = 0; chunk < counts.length && ids.size() < limit; chunk++) {
+            if (skip >= counts[chunk]) {
+                skip -= counts[chunk];
+                continue;
+            }
+            int end = Math.min(columns.size(), (chunk + 1) * chunkRows);
+            for (int row = chunk * chunkRows; row < end && ids.size() < limit; row++) {
+                if (columns.matches(row, filter)) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        ids.add(columns.id(row));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param ids the ids of the requested page in id order
+     */
+    public record Segment(long total, List<Long> ids, Instant asOf) {
+    }
+
+    private record SnapshotRow(long id, LocalDate birthDate, String firstName, String lastName, boolean address,
+                               boolean phone) {
+
+        static SnapshotRow of(ResultSet resultSet) throws SQLException {
+            return new SnapshotRow(resultSet.getLong(1), resultSet.getObject(2, LocalDate.class),
+                    resultSet.getString(3), resultSet.getString(4), resultSet.getBoolean(5), resultSet.getBoolean(6));
+        }
+
+        void applyTo(UserColumns columns) {
+            columns.upsert(id, birthDate, firstName, lastName, address, phone);
+        }
+    }
+
+    /**
+     * Counts the matching rows of the chunks {@code [from, to)}, splitting down to one chunk
+     * per task.
+     */
+    private static final class CountChunks extends RecursiveAction {
+
+        private final UserColumns columns;
+        private final SegmentFilter filter;
+        private final int chunkRows;
+        private final int[] counts;
+        private final int from;
+        private final int to;
+
+        CountChunks(UserColumns columns, SegmentFilter filter, int chunkRows, int[] counts, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.chunkRows = chunkRows;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CountChunks(columns, filter, chunkRows, counts, from, middle),
+                        new CountChunks(columns, filter, chunkRows, counts, middle, to));
+                return;
+            }
+            int end = Math.min(columns.size(), (from + 1) * chunkRows);
+            int count = 0;
+            for (int row = from * chunkRows; row < end; row++) {
+                if (columns.matches(row, filter)) {
+                    count++;
+                }
+            }
+            counts[from] = count;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.clearsolutions.task.sort;
+
+import org.clearsolutions.task.entity.User;
+import org.springframework.data.domain.Sort;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Continues a sort planned by {@link UserSortRegistry} after the last user read, by
+ * comparing the sort keys instead of skipping an offset. Keys of the same direction are
+ * compared as one row value, so a sort an index serves, {@code (key, id)} in one direction,
+ * becomes a range scan of that index. Any other sort is a top-N sort of the users after the
+ * cursor. The cursor holds the sort key values of the last user and is opaque to callers.
+ */
+public final class UserKeyset {
+
+    private static final Map<String, Key> KEYS = Map.of(
+            "id", new Key("id", User::getId, Long::valueOf),
+            "birthDate", new Key("birth_date", User::getBirthDate, LocalDate::parse),
+            "firstName", new Key("first_name", User::getFirstName, value -> value),
+            "lastName", new Key("last_name", User::getLastName, value -> value),
+            "email", new Key("email", User::getEmail, value -> value),
+            "updatedAt", new Key("updated_at", User::getUpdatedAt,
+                    value -> OffsetDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC)));
+
+    private UserKeyset() {
+    }
+
+    /**
+     * Condition on the users after {@code cursor} with its parameters, or {@code TRUE} for a
+     * scroll from the start.
+     *
+     * @param column column of a sort property, as it is ordered by
+     */
+    public static Condition after(Sort sort, String cursor, Function<String, String> column) {
+        if (cursor == null) {
+            return new Condition("TRUE", Map.of());
+        }
+        List<Sort.Order> orders = sort.toList();
+        List<Object> values = decode(cursor, orders);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<List<Integer>> runs = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            parameters.put("k" + i, values.get(i));
+            if (i == 0 || orders.get(i).getDirection() != orders.get(i - 1).getDirection()) {
+                runs.add(new ArrayList<>());
+            }
+            runs.get(runs.size() - 1).add(i);
+        }
+        String sql = compare(runs.get(runs.size() - 1), orders, column);
+        for (int run = runs.size() - 2; run >= 0; run--) {
+            List<Integer> keys = runs.get(run);
+            sql = "%s OR (%s = %s AND (%s))".formatted(compare(keys, orders, column),
+                    row(keys, i -> column.apply(orders.get(i).getProperty())), row(keys, i -> ":k" + i), sql);
+        }
+        return new Condition("(" + sql + ")", parameters);
+    }
+
+    /**
+     * Cursor of the position after {@code last}.
+     */
+    public static String encode(Sort sort, User last) {
+        StringJoiner parts = new StringJoiner("/");
+        for (Sort.Order order : sort) {
+            Object value = key(order.getProperty()).value.apply(last);
+            parts.add(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(parts.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Column of a sort property in {@code task.users}.
+     */
+    public static String column(String property) {
+        return key(property).column;
+    }
+
+    private static List<Object> decode(String cursor, List<Sort.Order> orders) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("/", -1);
+            if (parts.length != orders.size()) {
+                throw new IllegalArgumentException();
+            }
+            List<Object> values = new ArrayList<>(parts.length);
+            for (int i = 0; i < parts.length; i++) {
+                values.add(key(orders.get(i).getProperty()).parser
+                        .apply(URLDecoder.decode(parts[i], StandardCharsets.UTF_8)));
+            }
+            return values;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor '%s' is malformed.".formatted(cursor));
+        }
+    }
+
+    private static String compare(List<Integer> keys, List<Sort.Order> orders, Function<String, String> column) {
+        return "%s %s %s".formatted(row(keys, i -> column.apply(orders.get(i).getProperty())),
+                orders.get(keys.get(0)).isAscending() ? ">" : "<", row(keys, i -> ":k" + i));
+    }
+
+    private static String row(List<Integer> keys, Function<Integer, String> element) {
+        StringJoiner row = new StringJoiner(", ", "(", ")");
+        keys.forEach(i -> row.add(element.apply(i)));
+        return row.toString();
+    }
+
+    private static Key key(String property) {
+        Key key = KEYS.get(property);
+        if (key == null) {
+            throw new IllegalArgumentException("Sorting by '%s' is not supported.".formatted(property));
+        }
+        return key;
+    }
+
+    /**
+     * SQL condition and the parameters it binds.
+     */
+    public record Condition(String sql, Map<String, Object> parameters) {
+    }
+
+    private record Key(String column, Function<User, Object> value, Function<String, Object> parser) {
+    }
+}
@@ -0,0 +1,105 @@
+package org.clearsolutions.task.sort;
+
+import org.clearsolutions.task.exception.UnsupportedSortException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sort keys of {@link org.clearsolutions.task.entity.User} and the indexes that serve them,
+ * see {@code V09__index_user_sort_keys.sql}. A sort that an index serves for the query is
+ * passed to the database as is. Any other registered sort is a top-N sort that Postgres
+ * keeps in memory, allowed only while the page ends within the first {@code maxTopN} rows.
+ * Unknown keys are rejected. Every planned sort ends with {@code id} in the direction of
+ * its first key, so pages are stable and the order can be continued by keyset.
+ */
+public final class UserSortRegistry {
+
+    public enum Query {
+        /**
+         * All live users.
+         */
+        LIST,
+        /**
+         * Live users born in a date range.
+         */
+        BIRTHDAY_SEARCH
+    }
+
+    private record Capability(String index, Query... indexedFor) {
+
+        boolean isIndexedFor(Query query) {
+            return List.of(indexedFor).contains(query);
+        }
+    }
+
+    private static final String ID = "id";
+
+    private static final Map<String, Capability> CAPABILITIES = Map.of(
+            ID, new Capability("users_pkey", Query.LIST),
+            "birthDate", new Capability("users_birth_date_id_live_idx", Query.LIST, Query.BIRTHDAY_SEARCH),
+            "firstName", new Capability("users_first_name_id_live_idx", Query.LIST),
+            "lastName", new Capability("users_last_name_id_live_idx", Query.LIST),
+            "email", new Capability("users_email_id_live_idx", Query.LIST),
+            "updatedAt", new Capability("users_updated_at_id_idx", Query.LIST));
+
+    private UserSortRegistry() {
+    }
+
+    /**
+     * Returns {@code pageable} with its sort completed for {@code query}, or throws
+     * {@link UnsupportedSortException}. An unsorted page gets the cheapest order of the query.
+     */
+    public static Pageable plan(Pageable pageable, Query query, int maxTopN) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            if (!CAPABILITIES.containsKey(order.getProperty())) {
+                throw new UnsupportedSortException("Sorting by '%s' is not supported, use one of %s."
+                        .formatted(order.getProperty(), CAPABILITIES.keySet().stream().sorted().toList()),
+                        describe(pageable.getSort()));
+            }
+            if (order.getProperty().equals(ID)) {
+                break;
+            }
+            orders.add(order);
+        }
+        if (orders.isEmpty() && pageable.getSort().isUnsorted() && query == Query.BIRTHDAY_SEARCH) {
+            orders.add(Sort.Order.asc("birthDate"));
+        }
+        Sort.Direction direction = orders.isEmpty() ? idDirection(pageable.getSort()) : orders.get(0).getDirection();
+        orders.add(new Sort.Order(direction, ID));
+
+        if (!isIndexed(orders, query) && pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() > maxTopN) {
+            throw new UnsupportedSortException(("Sorting by %s has no index for this query and is only supported "
+                    + "within the first %d rows.").formatted(describe(pageable.getSort()), maxTopN),
+                    describe(pageable.getSort()));
+        }
+        Sort sort = Sort.by(orders);
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    /**
+     * An index on {@code (key, id)} serves the sort if it has one key besides {@code id} and
+     * both go the same direction, which the planned sort guarantees.
+     */
+    private static boolean isIndexed(List<Sort.Order> orders, Query query) {
+        return orders.size() <= 2 && CAPABILITIES.get(orders.get(0).getProperty()).isIndexedFor(query);
+    }
+
+    private static Sort.Direction idDirection(Sort sort) {
+        Sort.Order order = sort.getOrderFor(ID);
+        return order == null ? Sort.Direction.ASC : order.getDirection();
+    }
+
+    private static String describe(Sort sort) {
+        return sort.stream()
+                .map(order -> order.getProperty() + "," + order.getDirection().name().toLowerCase())
+                .collect(Collectors.joining(";"));
+    }
+}
@@ -0,0 +1,89 @@
+package org.clearsolutions.task.stats;
+
+import lombok.Getter;
+import org.clearsolutions.task.entity.UserBirthDateCount;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Immutable counts of live users per birth date, kept as cumulative sums over a day
+ * array. The number of users born in any date range, and thus in any age bracket, is the
+ * difference of two array entries.
+ */
+public class BirthDateHistogram {
+
+    private final long firstDay;
+
+    /**
+     * {@code cumulative[i]} counts the users born up to and including {@code firstDay + i}.
+     */
+    private final long[] cumulative;
+
+    @Getter
+    private final Instant asOf;
+
+    @Getter
+    private final Map<Integer, Long> byYear;
+
+    @Getter
+    private final Map<String, Long> byMonth;
+
+    private BirthDateHistogram(long firstDay, long[] cumulative, Instant asOf,
+                               Map<Integer, Long> byYear, Map<String, Long> byMonth) {
+        this.firstDay = firstDay;
+        this.cumulative = cumulative;
+        this.asOf = asOf;
+        this.byYear = byYear;
+        this.byMonth = byMonth;
+    }
+
+    /**
+     * Counts of the same date are summed, so the counts of several shards can be passed.
+     */
+    public static BirthDateHistogram of(Collection<UserBirthDateCount> counts, Instant asOf) {
+        if (counts.isEmpty()) {
+            return new BirthDateHistogram(0, new long[0], asOf, Map.of(), Map.of());
+        }
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (UserBirthDateCount count : counts) {
+            firstDay = Math.min(firstDay, count.getBirthDate().toEpochDay());
+            lastDay = Math.max(lastDay, count.getBirthDate().toEpochDay());
+        }
+        long[] cumulative = new long[(int) (lastDay - firstDay + 1)];
+        Map<Integer, Long> byYear = new TreeMap<>();
+        Map<String, Long> byMonth = new TreeMap<>();
+        for (UserBirthDateCount count : counts) {
+            cumulative[(int) (count.getBirthDate().toEpochDay() - firstDay)] += count.getLiveCount();
+            byYear.merge(count.getBirthDate().getYear(), count.getLiveCount(), Long::sum);
+            byMonth.merge(YearMonth.from(count.getBirthDate()).toString(), count.getLiveCount(), Long::sum);
+        }
+        for (int i = 1; i < cumulative.length; i++) {
+            cumulative[i] += cumulative[i - 1];
+        }
+        return new BirthDateHistogram(firstDay, cumulative, asOf,
+                Collections.unmodifiableMap(byYear), Collections.unmodifiableMap(byMonth));
+    }
+
+    public long total() {
+        return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * Users that are at least {@code age} years old on {@code today}.
+     */
+    public long countAtLeast(int age, LocalDate today) {
+        return bornUpTo(today.minusYears(age));
+    }
+
+    private long bornUpTo(LocalDate date) {
+        long index = date.toEpochDay() - firstDay;
+        if (cumulative.length == 0 || index < 0) {
+            return 0;
+        }
+        return cumulative[(int) Math.min(index, cumulative.length - 1)];
+    }
+}
@@ -0,0 +1,25 @@
+package org.clearsolutions.task.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.stats")
+public class UserStatsProperties {
+
+    /**
+     * Age of the statistics after which the next request triggers a reload in the
+     * background. Requests are answered from the previous statistics meanwhile.
+     */
+    private Duration refreshAfter = Duration.ofSeconds(1);
+
+    /**
+     * Lower bounds of the age brackets above {@code user.age}, which is the first bound.
+     */
+    private List<Integer> ageBrackets = List.of(25, 35, 45, 55, 65);
+}
@@ -0,0 +1,73 @@
+package org.clearsolutions.task.stream;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the latest events, which have consecutive sequences, in a fixed array.
+ */
+public class ChangeRingBuffer {
+
+    private final ChangeStreamEvent[] events;
+    private long last;
+    private long first;
+
+    public ChangeRingBuffer(int capacity) {
+        this.events = new ChangeStreamEvent[capacity];
+    }
+
+    public synchronized void add(ChangeStreamEvent event) {
+        events[slot(event.sequence())] = event;
+        last = event.sequence();
+    }
+
+    /**
+     * Drops the kept events, so only clients that resume from {@code sequence} on get a
+     * replay.
+     */
+    public synchronized void clear(long sequence) {
+        Arrays.fill(events, null);
+        first = sequence;
+        last = sequence;
+    }
+
+    /**
+     * Whether every user of {@code userIds} is among the events since {@code since}.
+     */
+    public synchronized boolean containsAll(Set<Long> userIds, Instant since) {
+        Set<Long> remaining = new HashSet<>(userIds);
+        long oldest = Math.max(first + 1, last - events.length + 1);
+        for (long next = last; next >= oldest && !remaining.isEmpty(); next--) {
+            ChangeStreamEvent event = events[slot(next)];
+            if (event.changedAt().isBefore(since)) {
+                break;
+            }
+            remaining.remove(event.userId());
+        }
+        return remaining.isEmpty();
+    }
+
+    /**
+     * Returns the events after {@code sequence}, or {@code null} when some of them were
+     * already overwritten or dropped or the sequence was never handed out.
+     */
+    public synchronized List<ChangeStreamEvent> after(long sequence) {
+        long oldest = Math.max(first + 1, last - events.length + 1);
+        if (sequence > last || sequence + 1 < oldest) {
+            return null;
+        }
+        List<ChangeStreamEvent> after = new ArrayList<>((int) (last - sequence));
+        for (long next = sequence + 1; next <= last; next++) {
+            after.add(events[slot(next)]);
+        }
+        return after;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % events.length);
+    }
+}
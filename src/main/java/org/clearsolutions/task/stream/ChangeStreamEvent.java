@@ -0,0 +1,26 @@
+package org.clearsolutions.task.stream;
+
+import org.clearsolutions.task.dto.UserChangeResponse;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.event.UserChangeType;
+
+import java.time.Instant;
+
+/**
+ * A committed user change as it is sent to the stream. The {@code id} is the
+ * {@code Last-Event-ID} a client resumes from.
+ *
+ * @param user state after the change, {@code null} for deletions
+ */
+public record ChangeStreamEvent(long sequence, String id, UserChangeType type, Long userId, UserResponse user,
+                                Instant changedAt) {
+
+    public UserChangeResponse toResponse() {
+        return UserChangeResponse.builder()
+                .id(userId)
+                .updatedAt(changedAt)
+                .deleted(type == UserChangeType.DELETED)
+                .user(user)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package org.clearsolutions.task.stream;
+
+import org.clearsolutions.task.event.UserChangeType;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Selects the events a client receives. The birth date range applies to the state after
+ * the change, deletions carry no state and pass it.
+ *
+ * @param types {@code null} or empty for all types
+ * @param from  {@code null} for no lower bound, inclusive
+ * @param to    {@code null} for no upper bound, inclusive
+ */
+public record ChangeStreamFilter(Set<UserChangeType> types, LocalDate from, LocalDate to) {
+
+    public static final ChangeStreamFilter ALL = new ChangeStreamFilter(null, null, null);
+
+    public boolean matches(ChangeStreamEvent event) {
+        if (types != null && !types.isEmpty() && !types.contains(event.type())) {
+            return false;
+        }
+        if (event.user() == null || event.user().getBirthDate() == null) {
+            return true;
+        }
+        LocalDate birthDate = event.user().getBirthDate();
+        return (from == null || !birthDate.isBefore(from)) && (to == null || !birthDate.isAfter(to));
+    }
+}
@@ -0,0 +1,44 @@
+package org.clearsolutions.task.stream;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.change-stream")
+public class ChangeStreamProperties {
+
+    private int maxSubscribers = 5000;
+
+    /**
+     * Latest events kept for clients resuming with {@code Last-Event-ID}.
+     */
+    private int ringBufferSize = 10000;
+
+    /**
+     * How long after a change of this instance the database notification of its user is
+     * taken as the echo of that change. Notifications of other users make every client
+     * resync.
+     */
+    private Duration echoWindow = Duration.ofSeconds(5);
+
+    /**
+     * Events waiting for one client, a client further behind is told to resync.
+     */
+    private int clientBufferSize = 1000;
+
+    /**
+     * Threads writing the events to the clients.
+     */
+    private int senderThreads = 4;
+
+    /**
+     * How long a stream stays open, clients reconnect with {@code Last-Event-ID} after it.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+}
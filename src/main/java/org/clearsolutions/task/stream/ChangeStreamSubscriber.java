@@ -0,0 +1,147 @@
+package org.clearsolutions.task.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * One client of the change stream. Events wait in a bounded queue and are written by at
+ * most one sender task at a time, so a slow client never blocks the publisher or other
+ * clients. When the queue is full the waiting events are dropped and the client gets a
+ * {@code resync} event telling it to reload the users, after which the stream continues.
+ * Users changed outside the stream lead to the same event.
+ */
+public class ChangeStreamSubscriber {
+
+    static final String RESYNC = "resync";
+
+    private final SseEmitter emitter;
+    private final ChangeStreamFilter filter;
+    private final int capacity;
+    private final Executor executor;
+    private final Consumer<ChangeStreamSubscriber> onClose;
+    private final Deque<ChangeStreamEvent> queue = new ArrayDeque<>();
+    private String resyncId;
+    private boolean pingPending;
+    private boolean scheduled;
+    private boolean closed;
+
+    public ChangeStreamSubscriber(SseEmitter emitter, ChangeStreamFilter filter, int capacity, Executor executor,
+                                  Consumer<ChangeStreamSubscriber> onClose) {
+        this.emitter = emitter;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Queues the event if it passes the filter. Returns {@code false} when the queue was
+     * full and the client has to resync.
+     */
+    public synchronized boolean offer(ChangeStreamEvent event) {
+        if (closed || !filter.matches(event)) {
+            return true;
+        }
+        if (queue.size() >= capacity) {
+            queue.clear();
+            resyncId = event.id();
+            schedule();
+            return false;
+        }
+        queue.add(event);
+        schedule();
+        return true;
+    }
+
+    /**
+     * Drops the waiting events and tells the client to reload from {@code id} on.
+     */
+    public synchronized void resync(String id) {
+        queue.clear();
+        resyncId = id;
+        schedule();
+    }
+
+    /**
+     * Sends a comment, which keeps proxies from closing an idle stream and finds clients
+     * that are gone.
+     */
+    public synchronized void ping() {
+        pingPending = true;
+        schedule();
+    }
+
+    public void complete() {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+        }
+        emitter.complete();
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    private void schedule() {
+        if (!scheduled && !closed) {
+            scheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            SseEmitter.SseEventBuilder next;
+            synchronized (this) {
+                next = closed ? null : next();
+                if (next == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            try {
+                emitter.send(next);
+            } catch (IOException | IllegalStateException e) {
+                // The client is gone, the container completes the emitter.
+                synchronized (this) {
+                    closed = true;
+                    scheduled = false;
+                    queue.clear();
+                }
+                onClose.accept(this);
+                return;
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder next() {
+        if (resyncId != null) {
+            SseEmitter.SseEventBuilder resync = SseEmitter.event()
+                    .id(resyncId)
+                    .name(RESYNC)
+                    .data("Changes were missed, reload the users and keep reading the stream.");
+            resyncId = null;
+            return resync;
+        }
+        ChangeStreamEvent event = queue.poll();
+        if (event != null) {
+            return SseEmitter.event()
+                    .id(event.id())
+                    .name(event.type().name().toLowerCase(Locale.ROOT))
+                    .data(event.toResponse(), MediaType.APPLICATION_JSON);
+        }
+        if (pingPending) {
+            pingPending = false;
+            return SseEmitter.event().comment("ping");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,128 @@
+package org.clearsolutions.task.stream;
+
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.event.UserChangeType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Numbers the committed changes, keeps the latest of them for resuming clients and hands
+ * every change to the subscribers. Event ids carry the start time of the instance, so an
+ * id of an earlier run or of another instance leads to a resync instead of a wrong replay.
+ * Users changed without a change of this instance, by bulk jobs or other instances, also
+ * lead to a resync of every subscriber.
+ */
+public class UserChangeHub {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ChangeRingBuffer ring;
+    private final Duration echoWindow;
+    private final Set<ChangeStreamSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LongAdder resyncs = new LongAdder();
+    private long sequence;
+
+    public UserChangeHub(int ringBufferSize, Duration echoWindow) {
+        this.ring = new ChangeRingBuffer(ringBufferSize);
+        this.echoWindow = echoWindow;
+    }
+
+    public synchronized ChangeStreamEvent publish(UserChangeType type, Long userId, UserResponse user) {
+        sequence++;
+        ChangeStreamEvent event = new ChangeStreamEvent(sequence, id(sequence), type, userId, user, Instant.now());
+        ring.add(event);
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            if (!subscriber.offer(event)) {
+                resyncs.increment();
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Tells every subscriber to reload, unless all {@code userIds} were published within
+     * the echo window, which makes the invalidation the echo of changes already sent. The
+     * resync takes a sequence of its own and drops the kept events, so clients resuming
+     * from before it resync as well.
+     *
+     * @param userIds {@code null} when the changed users are unknown
+     */
+    public synchronized void invalidate(Set<Long> userIds) {
+        if (userIds != null && ring.containsAll(userIds, Instant.now().minus(echoWindow))) {
+            return;
+        }
+        sequence++;
+        ring.clear(sequence);
+        for (ChangeStreamSubscriber subscriber : subscribers) {
+            resyncs.increment();
+            subscriber.resync(id(sequence));
+        }
+    }
+
+    /**
+     * Registers the subscriber after queueing the events it missed since
+     * {@code lastEventId}, or a resync when they are no longer known. Both happen under
+     * the lock of {@link #publish}, so no event is lost or sent twice in between.
+     */
+    public synchronized void subscribe(ChangeStreamSubscriber subscriber, String lastEventId) {
+        if (lastEventId != null) {
+            List<ChangeStreamEvent> missed = missedSince(lastEventId);
+            if (missed == null) {
+                resyncs.increment();
+                subscriber.resync(id(sequence));
+            } else {
+                for (ChangeStreamEvent event : missed) {
+                    if (!subscriber.offer(event)) {
+                        resyncs.increment();
+                    }
+                }
+            }
+        }
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(ChangeStreamSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public void ping() {
+        subscribers.forEach(ChangeStreamSubscriber::ping);
+    }
+
+    public void completeAll() {
+        subscribers.forEach(ChangeStreamSubscriber::complete);
+        subscribers.clear();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getResyncs() {
+        return resyncs.sum();
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    private List<ChangeStreamEvent> missedSince(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return null;
+        }
+        try {
+            return ring.after(Long.parseLong(lastEventId.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+}
@@ -0,0 +1,72 @@
+package org.clearsolutions.task.validation;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.exception.AppProblem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Validates user creation without exceptions. A large share of registrations comes from
+ * bots and fails validation, so rejected requests are answered from the problems collected
+ * here instead of a thrown {@code MethodArgumentNotValidException} or
+ * {@code YoungAgeException} that the exception handler has to take apart again.
+ */
+@Setter
+@Component
+@RequiredArgsConstructor
+public class UserRequestValidator {
+
+    private static final String TOO_YOUNG = "You are too young to register. Your birthday is at '%s'";
+
+    private final Validator validator;
+
+    @Value("${user.age}")
+    private Integer ageCondition;
+
+    public ValidationResult validate(UserCreateRequest request) {
+        List<AppProblem> problems = toProblems(validator.validate(request));
+        if (!problems.isEmpty()) {
+            return ValidationResult.rejected("Failed validation", problems);
+        }
+        return checkAge(request.getBirthDate(), ageCondition)
+                .map(problem -> ValidationResult.rejected("Young Age", List.of(problem)))
+                .orElse(ValidationResult.valid());
+    }
+
+    /**
+     * Returns the problem of a birth date that is too recent for {@code ageCondition} years.
+     */
+    public static Optional<AppProblem> checkAge(LocalDate birthDate, int ageCondition) {
+        if (Period.between(birthDate, LocalDate.now()).getYears() >= ageCondition) {
+            return Optional.empty();
+        }
+        return Optional.of(AppProblem.builder()
+                .message(TOO_YOUNG.formatted(birthDate))
+                .field("birthDate")
+                .wrongValue(birthDate.toString())
+                .build());
+    }
+
+    public static List<AppProblem> toProblems(Set<? extends ConstraintViolation<?>> violations) {
+        List<AppProblem> problems = new ArrayList<>(violations.size());
+        for (ConstraintViolation<?> violation : violations) {
+            problems.add(AppProblem.builder()
+                    .message(violation.getMessage())
+                    .field(violation.getPropertyPath().toString())
+                    .wrongValue(violation.getInvalidValue() == null ? null : violation.getInvalidValue().toString())
+                    .build());
+        }
+        return problems;
+    }
+}
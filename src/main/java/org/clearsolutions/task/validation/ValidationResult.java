@@ -0,0 +1,45 @@
+package org.clearsolutions.task.validation;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.clearsolutions.task.exception.AppProblem;
+import org.springframework.http.ProblemDetail;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Outcome of validating a request: either valid, or a detail and the problems that are
+ * rendered as the same {@link ProblemDetail} the exception handler would produce.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ValidationResult {
+
+    public static final String PROBLEMS = "problemDetails";
+
+    private static final ValidationResult VALID = new ValidationResult(null, List.of());
+
+    private final String detail;
+    private final List<AppProblem> problems;
+
+    public static ValidationResult valid() {
+        return VALID;
+    }
+
+    public static ValidationResult rejected(String detail, List<AppProblem> problems) {
+        return new ValidationResult(detail, problems);
+    }
+
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    public ProblemDetail toProblemDetail() {
+        ProblemDetail pd = ProblemDetail.forStatusAndDetail(BAD_REQUEST, detail);
+        pd.setProperty(PROBLEMS, problems);
+        return pd;
+    }
+}
@@ -0,0 +1,39 @@
+package org.clearsolutions.task.warmup;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Decides when round latencies stop improving: the warm-up is steady once
+ * {@code stableRounds} consecutive rounds each differ by at most {@code tolerance}
+ * from the round before.
+ */
+@RequiredArgsConstructor
+public class SteadyStateDetector {
+
+    private final int stableRounds;
+    private final double tolerance;
+
+    private double previous = -1;
+    private int stableCount;
+    @Getter
+    private int rounds;
+
+    public void addRound(double meanLatency) {
+        rounds++;
+        if (previous > 0 && Math.abs(meanLatency - previous) / previous <= tolerance) {
+            stableCount++;
+        } else {
+            stableCount = 0;
+        }
+        previous = meanLatency;
+    }
+
+    public boolean isSteady() {
+        return stableCount >= stableRounds;
+    }
+
+    public double getLastLatency() {
+        return previous;
+    }
+}
@@ -0,0 +1,35 @@
+package org.clearsolutions.task.warmup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "user.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Readiness is reported after this time even if latency has not settled yet.
+     */
+    private Duration maxDuration = Duration.ofSeconds(60);
+
+    private int roundSize = 50;
+
+    /**
+     * Number of consecutive rounds whose mean latency must stay within {@code tolerance}
+     * of the previous round.
+     */
+    private int stableRounds = 3;
+
+    private double tolerance = 0.1;
+
+    /**
+     * Whether to also run create/update/delete in transactions that are rolled back.
+     */
+    private boolean includeWrites = true;
+}
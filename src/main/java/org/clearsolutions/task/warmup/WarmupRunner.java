@@ -0,0 +1,114 @@
+package org.clearsolutions.task.warmup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.clearsolutions.task.controller.UserController;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserUpdateRequest;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic traffic before the application reports readiness. Spring Boot switches
+ * readiness to {@code ACCEPTING_TRAFFIC} only after all runners returned, so the JIT has
+ * compiled the Jackson, Hibernate, validation and mapping code before real traffic comes.
+ * Reads go over HTTP through the whole stack; writes call {@link UserController} inside
+ * a transaction that is always rolled back. Sharded storage commits on the shards, so
+ * writes are skipped there.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.parse("1950-01-01");
+
+    private final WarmupProperties properties;
+    private final UserController userController;
+    private final TransactionTemplate transactionTemplate;
+    private final RestClient.Builder restClientBuilder;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        RestClient client = restClientBuilder
+                .baseUrl("http://localhost:" + environment.getProperty("local.server.port", "8080"))
+                .build();
+        boolean includeWrites = properties.isIncludeWrites()
+                && !environment.getProperty("user.sharding.enabled", Boolean.class, false);
+        SteadyStateDetector detector = new SteadyStateDetector(properties.getStableRounds(), properties.getTolerance());
+        long start = System.nanoTime();
+        long deadline = start + properties.getMaxDuration().toNanos();
+        int iteration = 0;
+        try {
+            while (!detector.isSteady() && System.nanoTime() < deadline) {
+                long roundStart = System.nanoTime();
+                for (int i = 0; i < properties.getRoundSize(); i++) {
+                    runIteration(client, iteration++, includeWrites);
+                }
+                detector.addRound((double) (System.nanoTime() - roundStart) / properties.getRoundSize());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Warm-up stopped after {} iterations, continuing startup", iteration, e);
+            return;
+        }
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        meterRegistry.timer("user.warmup.duration").record(took);
+        if (detector.isSteady()) {
+            log.info("Warm-up reached steady state after {} rounds in {} ms, {} us per iteration",
+                    detector.getRounds(), took.toMillis(), latencyMicros(detector));
+        } else {
+            log.warn("Warm-up did not reach steady state within {}, last round {} us per iteration",
+                    properties.getMaxDuration(), latencyMicros(detector));
+        }
+    }
+
+    private void runIteration(RestClient client, int iteration, boolean includeWrites) {
+        LocalDate from = FIRST_BIRTH_DATE.plusDays(iteration % 10_000);
+        client.get().uri("/api/v1/users?page=0&size=20").retrieve().toBodilessEntity();
+        // Ranges differ per iteration so that the search cache does not answer them.
+        client.get().uri("/api/v1/users/birthdays?from={from}&to={to}&size=20", from, from.plusYears(10))
+                .retrieve().toBodilessEntity();
+        client.post().uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(UserCreateRequest.builder().firstName("W").email("not-an-email").build())
+                .exchange((request, response) -> response.getStatusCode());
+        if (includeWrites) {
+            transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                Object body = userController.createUser(UserCreateRequest.builder()
+                        .firstName("Warmup")
+                        .lastName("User")
+                        .email("warmup-%s@example.invalid".formatted(UUID.randomUUID()))
+                        .birthDate(from)
+                        .build()).getBody();
+                // A rejected user, e.g. too young for user.age, answers a problem detail.
+                if (!(body instanceof UserResponse created)) {
+                    return;
+                }
+                userController.updateUser(created.getId(), UserUpdateRequest.builder().lastName("Updated").build());
+                userController.deleteUser(created.getId());
+            });
+        }
+    }
+
+    private static long latencyMicros(SteadyStateDetector detector) {
+        return TimeUnit.NANOSECONDS.toMicros((long) detector.getLastLatency());
+    }
+}
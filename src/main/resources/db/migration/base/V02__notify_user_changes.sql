@@ -0,0 +1,40 @@
+-- Broadcasts the ids touched by every statement on task.users to the
+-- task_user_changes channel, so that each app instance can evict them.
+-- A NOTIFY payload is limited to 8000 bytes, hence the chunks of 300 ids.
+CREATE OR REPLACE FUNCTION task.notify_user_changes() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    ids        bigint[];
+    chunk_size constant int := 300;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        SELECT array_agg(DISTINCT id) INTO ids FROM old_rows;
+    ELSE
+        SELECT array_agg(DISTINCT id) INTO ids FROM new_rows;
+    END IF;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    FOR i IN 1 .. array_length(ids, 1) BY chunk_size
+        LOOP
+            PERFORM pg_notify('task_user_changes', array_to_string(ids[i:i + chunk_size - 1], ','));
+        END LOOP;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER users_notify_insert
+    AFTER INSERT ON task.users
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
+
+CREATE TRIGGER users_notify_update
+    AFTER UPDATE ON task.users
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
+
+CREATE TRIGGER users_notify_delete
+    AFTER DELETE ON task.users
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
@@ -0,0 +1,12 @@
+ALTER TABLE task.users
+    ADD COLUMN updated_at timestamp with time zone not null default now(),
+    ADD COLUMN deleted_at timestamp with time zone;
+
+-- Deleted users are kept as tombstones for the change feed, so uniqueness
+-- only applies to live rows.
+ALTER TABLE task.users DROP CONSTRAINT users_email_key;
+ALTER TABLE task.users DROP CONSTRAINT users_phone_key;
+CREATE UNIQUE INDEX users_email_live_key ON task.users (email) WHERE deleted_at IS NULL;
+CREATE UNIQUE INDEX users_phone_live_key ON task.users (phone) WHERE deleted_at IS NULL;
+
+CREATE INDEX users_updated_at_id_idx ON task.users (updated_at, id);
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS task.user_outbox
+(
+    id bigserial not null,
+    user_id bigint not null,
+    event_type character varying not null,
+    payload jsonb,
+    created_at timestamp with time zone not null default now(),
+    primary key (id)
+);
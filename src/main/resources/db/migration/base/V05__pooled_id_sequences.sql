@@ -0,0 +1,4 @@
+-- Hibernate allocates ids in blocks of 50 from these sequences, which lets it
+-- batch inserts; rows inserted with the column default simply skip ahead.
+ALTER SEQUENCE task.users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE task.user_outbox_id_seq INCREMENT BY 50;
@@ -0,0 +1,142 @@
+-- Moves task.users to a table partitioned by birth decade, so that birthday
+-- searches only scan the partitions of the requested range and a whole decade
+-- can be archived by detaching its partition.
+--
+-- The copy below runs in the migration transaction. Large installations should
+-- run it in id batches during a maintenance window before applying this script.
+
+ALTER TABLE task.users RENAME TO users_unpartitioned;
+ALTER TABLE task.users_unpartitioned RENAME CONSTRAINT users_pkey TO users_unpartitioned_pkey;
+ALTER SEQUENCE task.users_id_seq OWNED BY NONE;
+
+-- A primary key of a partitioned table must contain the partition key. Ids still
+-- come from a single sequence, so they stay unique across partitions.
+CREATE TABLE task.users
+(
+    id bigint not null default nextval('task.users_id_seq'),
+    email character varying not null,
+    first_name character varying not null,
+    last_name character varying not null,
+    birth_date date not null,
+    address character varying,
+    phone character varying,
+    updated_at timestamp with time zone not null default now(),
+    deleted_at timestamp with time zone,
+    primary key (id, birth_date)
+) PARTITION BY RANGE (birth_date);
+
+ALTER SEQUENCE task.users_id_seq OWNED BY task.users.id;
+
+CREATE OR REPLACE FUNCTION task.create_users_partition(decade_start date) RETURNS text
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    name text := format('users_p%ss', extract(year from decade_start));
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS task.%I PARTITION OF task.users FOR VALUES FROM (%L) TO (%L)',
+                   name, decade_start, (decade_start + interval '10 years')::date);
+    RETURN name;
+END;
+$$;
+
+SELECT task.create_users_partition(make_date(decade, 1, 1))
+FROM generate_series(1900, 2030, 10) AS decade;
+
+CREATE TABLE task.users_default PARTITION OF task.users DEFAULT;
+
+INSERT INTO task.users (id, email, first_name, last_name, birth_date, address, phone, updated_at, deleted_at)
+SELECT id, email, first_name, last_name, birth_date, address, phone, updated_at, deleted_at
+FROM task.users_unpartitioned;
+
+DROP TABLE task.users_unpartitioned;
+
+CREATE INDEX users_updated_at_id_idx ON task.users (updated_at, id);
+CREATE INDEX users_birth_date_live_idx ON task.users (birth_date) WHERE deleted_at IS NULL;
+
+-- Unique indexes of a partitioned table must contain the partition key, so email
+-- and phone uniqueness of live users is enforced by these lookup tables instead.
+CREATE TABLE task.user_emails
+(
+    email character varying not null primary key,
+    user_id bigint not null
+);
+
+CREATE TABLE task.user_phones
+(
+    phone character varying not null primary key,
+    user_id bigint not null
+);
+
+INSERT INTO task.user_emails (email, user_id)
+SELECT email, id FROM task.users WHERE deleted_at IS NULL;
+
+INSERT INTO task.user_phones (phone, user_id)
+SELECT phone, id FROM task.users WHERE deleted_at IS NULL AND phone IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION task.sync_user_unique_keys() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' AND OLD.deleted_at IS NULL THEN
+        DELETE FROM task.user_emails WHERE email = OLD.email AND user_id = OLD.id;
+        DELETE FROM task.user_phones WHERE phone = OLD.phone AND user_id = OLD.id;
+    END IF;
+    -- A duplicate fails here with unique_violation, as the dropped indexes did.
+    IF TG_OP <> 'DELETE' AND NEW.deleted_at IS NULL THEN
+        INSERT INTO task.user_emails (email, user_id) VALUES (NEW.email, NEW.id);
+        IF NEW.phone IS NOT NULL THEN
+            INSERT INTO task.user_phones (phone, user_id) VALUES (NEW.phone, NEW.id);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER users_unique_keys_insert
+    AFTER INSERT ON task.users
+    FOR EACH ROW EXECUTE FUNCTION task.sync_user_unique_keys();
+
+CREATE TRIGGER users_unique_keys_update
+    AFTER UPDATE ON task.users
+    FOR EACH ROW
+    WHEN (OLD.email IS DISTINCT FROM NEW.email OR OLD.phone IS DISTINCT FROM NEW.phone
+        OR OLD.deleted_at IS DISTINCT FROM NEW.deleted_at)
+    EXECUTE FUNCTION task.sync_user_unique_keys();
+
+CREATE TRIGGER users_unique_keys_delete
+    AFTER DELETE ON task.users
+    FOR EACH ROW EXECUTE FUNCTION task.sync_user_unique_keys();
+
+-- The change notifications of V02 went away with the old table.
+CREATE TRIGGER users_notify_insert
+    AFTER INSERT ON task.users
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
+
+CREATE TRIGGER users_notify_update
+    AFTER UPDATE ON task.users
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
+
+CREATE TRIGGER users_notify_delete
+    AFTER DELETE ON task.users
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.notify_user_changes();
+
+-- Archives a birth decade: releases the emails and phones of its users and
+-- detaches the partition, which is then a plain table that can be dumped and
+-- dropped without touching the rest of task.users.
+CREATE OR REPLACE FUNCTION task.detach_users_partition(decade_start date) RETURNS text
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    name text := format('users_p%ss', extract(year from decade_start));
+BEGIN
+    EXECUTE format('DELETE FROM task.user_emails e USING task.%I u WHERE e.user_id = u.id', name);
+    EXECUTE format('DELETE FROM task.user_phones p USING task.%I u WHERE p.user_id = u.id', name);
+    EXECUTE format('ALTER TABLE task.users DETACH PARTITION task.%I', name);
+    RETURN name;
+END;
+$$;
+
+ANALYZE task.users;
@@ -0,0 +1,70 @@
+-- Number of live users per birth date, maintained by statement-level triggers so
+-- that bulk statements update every date once. Statistics are computed from this
+-- table (tens of thousands of rows at most) instead of scanning task.users.
+CREATE TABLE task.user_birth_date_counts
+(
+    birth_date date not null primary key,
+    live_count bigint not null
+);
+
+INSERT INTO task.user_birth_date_counts (birth_date, live_count)
+SELECT birth_date, count(*) FROM task.users WHERE deleted_at IS NULL GROUP BY birth_date;
+
+CREATE OR REPLACE FUNCTION task.count_users_by_birth_date() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO task.user_birth_date_counts AS c (birth_date, live_count)
+        SELECT birth_date, count(*) FROM new_rows WHERE deleted_at IS NULL GROUP BY birth_date
+        ON CONFLICT (birth_date) DO UPDATE SET live_count = c.live_count + excluded.live_count;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO task.user_birth_date_counts AS c (birth_date, live_count)
+        SELECT birth_date, sum(delta)
+        FROM (SELECT birth_date, 1 AS delta FROM new_rows WHERE deleted_at IS NULL
+              UNION ALL
+              SELECT birth_date, -1 FROM old_rows WHERE deleted_at IS NULL) AS changes
+        GROUP BY birth_date
+        HAVING sum(delta) <> 0
+        ON CONFLICT (birth_date) DO UPDATE SET live_count = c.live_count + excluded.live_count;
+    ELSE
+        UPDATE task.user_birth_date_counts c
+        SET live_count = c.live_count - d.removed
+        FROM (SELECT birth_date, count(*) AS removed FROM old_rows WHERE deleted_at IS NULL GROUP BY birth_date) AS d
+        WHERE c.birth_date = d.birth_date;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER users_count_insert
+    AFTER INSERT ON task.users
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.count_users_by_birth_date();
+
+CREATE TRIGGER users_count_update
+    AFTER UPDATE ON task.users
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.count_users_by_birth_date();
+
+CREATE TRIGGER users_count_delete
+    AFTER DELETE ON task.users
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION task.count_users_by_birth_date();
+
+-- Detaching a partition removes its users without firing triggers, so the
+-- archival of V06 now takes them out of the counts as well.
+CREATE OR REPLACE FUNCTION task.detach_users_partition(decade_start date) RETURNS text
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    name text := format('users_p%ss', extract(year from decade_start));
+BEGIN
+    EXECUTE format('DELETE FROM task.user_emails e USING task.%I u WHERE e.user_id = u.id', name);
+    EXECUTE format('DELETE FROM task.user_phones p USING task.%I u WHERE p.user_id = u.id', name);
+    EXECUTE format('DELETE FROM task.user_birth_date_counts c USING (SELECT DISTINCT birth_date FROM task.%I) u '
+                       || 'WHERE c.birth_date = u.birth_date', name);
+    EXECUTE format('ALTER TABLE task.users DETACH PARTITION task.%I', name);
+    RETURN name;
+END;
+$$;
@@ -0,0 +1,52 @@
+-- Emails are unique regardless of case and surrounding spaces. The normalized form is a
+-- generated column, so every write path gets it without code changes, and the lookup
+-- table of V06 now holds normalized emails.
+
+ALTER TABLE task.users
+    ADD COLUMN email_normalized character varying GENERATED ALWAYS AS (lower(btrim(email))) STORED;
+
+-- Seek of GET /api/v1/users/by-email. The unique constraint stays on task.user_emails,
+-- a partitioned table can not have one without the birth date.
+CREATE INDEX users_email_normalized_live_idx ON task.users (email_normalized) WHERE deleted_at IS NULL;
+
+-- On a shard the lookup table also holds the claims of users living on other shards,
+-- so it is normalized in place rather than rebuilt from task.users.
+DO
+$$
+DECLARE
+    duplicates text;
+BEGIN
+    SELECT string_agg(email, ', ')
+    INTO duplicates
+    FROM (SELECT lower(btrim(email)) AS email
+          FROM task.user_emails
+          GROUP BY lower(btrim(email))
+          HAVING count(*) > 1
+          LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Live users share emails that differ only in case: %', duplicates
+            USING HINT = 'Change or delete all but one user of each email and run the migration again.';
+    END IF;
+END;
+$$;
+
+UPDATE task.user_emails SET email = lower(btrim(email)) WHERE email <> lower(btrim(email));
+
+CREATE OR REPLACE FUNCTION task.sync_user_unique_keys() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' AND OLD.deleted_at IS NULL THEN
+        DELETE FROM task.user_emails WHERE email = OLD.email_normalized AND user_id = OLD.id;
+        DELETE FROM task.user_phones WHERE phone = OLD.phone AND user_id = OLD.id;
+    END IF;
+    -- A duplicate fails here with unique_violation, as the dropped indexes did.
+    IF TG_OP <> 'DELETE' AND NEW.deleted_at IS NULL THEN
+        INSERT INTO task.user_emails (email, user_id) VALUES (NEW.email_normalized, NEW.id);
+        IF NEW.phone IS NOT NULL THEN
+            INSERT INTO task.user_phones (phone, user_id) VALUES (NEW.phone, NEW.id);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$;
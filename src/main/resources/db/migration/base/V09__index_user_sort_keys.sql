@@ -0,0 +1,9 @@
+-- Indexes behind the sort keys of UserSortRegistry. Each ends with id, the tiebreaker
+-- appended to every sort, and covers live users only, as the queries do.
+
+CREATE INDEX users_birth_date_id_live_idx ON task.users (birth_date, id) WHERE deleted_at IS NULL;
+DROP INDEX task.users_birth_date_live_idx;
+
+CREATE INDEX users_first_name_id_live_idx ON task.users (first_name, id) WHERE deleted_at IS NULL;
+CREATE INDEX users_last_name_id_live_idx ON task.users (last_name, id) WHERE deleted_at IS NULL;
+CREATE INDEX users_email_id_live_idx ON task.users (email, id) WHERE deleted_at IS NULL;
@@ -0,0 +1,4 @@
+-- Finds the tombstones the purger removes, oldest first. Live users are not in the index,
+-- so it stays as small as the backlog of tombstones.
+
+CREATE INDEX users_deleted_at_id_tombstone_idx ON task.users (deleted_at, id) WHERE deleted_at IS NOT NULL;
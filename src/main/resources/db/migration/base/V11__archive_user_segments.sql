@@ -0,0 +1,30 @@
+-- Cold tier of long inactive users, see UserArchiver. Archived users are deleted from
+-- task.users and written to segment files; this table lists the segments whose deletion
+-- committed, so that a segment file left behind by a crash can be kept or dropped.
+CREATE TABLE task.user_archive_segments
+(
+    name character varying not null primary key,
+    row_count integer not null,
+    min_id bigint not null,
+    max_id bigint not null,
+    min_birth_date date not null,
+    max_birth_date date not null,
+    archived_at timestamp with time zone not null default now()
+);
+
+-- Archived users are still users: they keep their email and phone and are still counted.
+-- The archiver sets task.archiving for its transaction, which skips these triggers.
+DROP TRIGGER users_unique_keys_delete ON task.users;
+CREATE TRIGGER users_unique_keys_delete
+    AFTER DELETE ON task.users
+    FOR EACH ROW
+    WHEN (current_setting('task.archiving', true) IS DISTINCT FROM 'on')
+    EXECUTE FUNCTION task.sync_user_unique_keys();
+
+DROP TRIGGER users_count_delete ON task.users;
+CREATE TRIGGER users_count_delete
+    AFTER DELETE ON task.users
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+    WHEN (current_setting('task.archiving', true) IS DISTINCT FROM 'on')
+    EXECUTE FUNCTION task.count_users_by_birth_date();
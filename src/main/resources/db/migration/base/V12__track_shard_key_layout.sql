@@ -0,0 +1,10 @@
+-- The key slot layout the email and phone claims of a shard were last placed for. When
+-- user.sharding.shards[].key-slots changes, or before the first start with key slots,
+-- the claims are moved to their owners on startup, see ShardClaimRebalancer. Unused on a
+-- database without sharding.
+CREATE TABLE task.shard_key_layout
+(
+    id         smallint                 not null primary key default 1 check (id = 1),
+    layout     character varying        not null,
+    applied_at timestamp with time zone not null default now()
+);
@@ -0,0 +1,88 @@
+package org.clearsolutions.task.archive;
+
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Sort;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserArchiveUnitTest {
+
+  private static final LocalDate FROM = LocalDate.parse("1980-01-01");
+  private static final LocalDate TO = LocalDate.parse("2010-01-01");
+
+  @TempDir
+  private Path directory;
+
+  private List<User> users;
+
+  private UserArchive archive;
+
+  @BeforeEach
+  void init() throws Exception {
+    users = DataUtils.createUserList();
+    for (int i = 0; i < users.size(); i++) {
+      users.get(i).setUpdatedAt(Instant.parse("2020-01-01T10:15:30.123456Z").plusSeconds(i));
+    }
+    users.get(3).setAddress(null);
+    ArchiveSegment.write(directory.resolve("users-1.seg"), List.of(users.get(2), users.get(0)));
+    ArchiveSegment.write(directory.resolve("users-2.seg"), List.of(users.get(3), users.get(1)));
+    ArchiveProperties properties = new ArchiveProperties();
+    properties.setDirectory(directory);
+    archive = new UserArchive(properties);
+  }
+
+  @Test
+  void findById_ReadsAllColumns_Test() {
+    User actual = archive.findById(4L).orElseThrow();
+
+    User expected = users.get(3);
+    assertEquals(expected.getEmail(), actual.getEmail());
+    assertEquals(expected.getFirstName(), actual.getFirstName());
+    assertEquals(expected.getLastName(), actual.getLastName());
+    assertEquals(expected.getBirthDate(), actual.getBirthDate());
+    assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+    assertNull(actual.getAddress());
+    assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    assertTrue(archive.findById(5L).isEmpty());
+  }
+
+  @Test
+  void search_MergesSegmentsInSortOrder_Test() {
+    LocalDate to = LocalDate.parse("2001-01-01");
+
+    assertEquals(3, archive.count(FROM, to));
+    assertEquals(List.of(1L, 2L, 3L), ids(archive.search(FROM, to, Sort.by("birthDate", "id"), 10)));
+    assertEquals(List.of(1L, 2L), ids(archive.search(FROM, to, Sort.by("birthDate", "id"), 2)));
+    assertEquals(List.of(3L, 2L), ids(archive.search(FROM, to,
+            Sort.by(Sort.Order.desc("lastName"), Sort.Order.desc("id")), 2)));
+  }
+
+  @Test
+  void scroll_ContinuesAfterCursor_Test() {
+    assertEquals(List.of(2L, 3L), ids(archive.scroll(TO, LocalDate.parse("1989-06-27"), 1L, 2)));
+    assertEquals(List.of(4L), ids(archive.scroll(TO, LocalDate.parse("2000-02-01"), 3L, 2)));
+  }
+
+  @Test
+  void summary_SkipsSegmentsOutsideRange_Test() throws Exception {
+    ArchiveSegment segment = ArchiveSegment.open(directory.resolve("users-2.seg"));
+
+    assertEquals(new ArchiveSegment.Summary(2, 2L, 4L, LocalDate.parse("1991-02-21"),
+            LocalDate.parse("2005-11-15")), segment.getSummary());
+    assertFalse(segment.getSummary().overlaps(FROM, LocalDate.parse("1991-02-20")));
+    assertEquals(0, archive.count(LocalDate.parse("2006-01-01"), TO));
+  }
+
+  private static List<Long> ids(List<User> users) {
+    return users.stream().map(User::getId).toList();
+  }
+}
@@ -0,0 +1,95 @@
+package org.clearsolutions.task.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadInterceptorUnitTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private BulkheadProperties properties;
+
+    @BeforeEach
+    void init() {
+        properties = new BulkheadProperties();
+        properties.getExport().setMaxConcurrent(1);
+    }
+
+    @AfterEach
+    void destroy() {
+        TrafficClassContext.clear();
+    }
+
+    @Test
+    void preHandle_ClassifiesByMappedRoute_Test() {
+        BulkheadInterceptor interceptor = new BulkheadInterceptor(properties, registry);
+
+        assertEquals(TrafficClass.EXPORT, interceptor.classify(request("GET", "/api/v1/users/_export/{jobId}/file")));
+        assertEquals(TrafficClass.BULK, interceptor.classify(request("POST", "/api/v1/users/_bulk/delete")));
+        assertEquals(TrafficClass.ADMIN, interceptor.classify(request("GET", "/api/v1/users/stats")));
+        assertEquals(TrafficClass.INTERACTIVE, interceptor.classify(request("POST", "/api/v1/users")));
+        assertEquals(TrafficClass.INTERACTIVE, interceptor.classify(request("POST", "/api/v1/users/stats")));
+    }
+
+    @Test
+    void preHandle_WhenClassFull_RejectsOnlyThatClass_Test() {
+        BulkheadInterceptor interceptor = new BulkheadInterceptor(properties, registry);
+        MockHttpServletRequest export = request("POST", "/api/v1/users/_export");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(export, response, null));
+        assertEquals(TrafficClass.EXPORT, TrafficClassContext.current());
+        assertThrows(LoadSheddingException.class,
+                () -> interceptor.preHandle(request("GET", "/api/v1/users/_export/{jobId}"), response, null));
+        assertTrue(interceptor.preHandle(request("PUT", "/api/v1/users/{userId}"), response, null));
+        assertEquals(1.0, registry.get("user.bulkhead.rejected").tag("class", "export").counter().count());
+
+        interceptor.afterCompletion(export, response, null, null);
+
+        assertEquals(0, interceptor.getBulkhead(TrafficClass.EXPORT).getActive());
+        assertTrue(interceptor.preHandle(request("GET", "/api/v1/users/_export/{jobId}"), response, null));
+    }
+
+    @Test
+    void constructor_WhenRouteInTwoClasses_Test() {
+        properties.getAdmin().setRoutes(List.of("GET /api/v1/users/changes"));
+
+        assertThrows(IllegalStateException.class, () -> new BulkheadInterceptor(properties, registry));
+    }
+
+    @Test
+    void dataSource_RoutesByCurrentClass_Test() {
+        Map<TrafficClass, HikariDataSource> pools = new EnumMap<>(TrafficClass.class);
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            pools.put(trafficClass, new HikariDataSource());
+        }
+        TrafficClassRoutingDataSource dataSource = new TrafficClassRoutingDataSource(pools);
+
+        assertSame(pools.get(TrafficClass.INTERACTIVE), target(dataSource));
+        assertSame(pools.get(TrafficClass.EXPORT), TrafficClassContext.call(TrafficClass.EXPORT, () -> target(dataSource)));
+        assertSame(pools.get(TrafficClass.INTERACTIVE), target(dataSource));
+    }
+
+    private static Object target(TrafficClassRoutingDataSource dataSource) {
+        return dataSource.getResolvedDataSources().get(dataSource.determineCurrentLookupKey());
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
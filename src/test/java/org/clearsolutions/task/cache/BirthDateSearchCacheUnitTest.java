@@ -0,0 +1,97 @@
+package org.clearsolutions.task.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthDateSearchCacheUnitTest {
+
+  private static final LocalDate FROM = LocalDate.parse("1980-01-01");
+  private static final LocalDate TO = LocalDate.parse("2000-01-01");
+
+  private final Page<UserResponse> page = new PageImpl<>(DataUtils.createUserResponseList());
+
+  private SearchCacheProperties properties;
+
+  private BirthDateSearchCache cache;
+
+  @BeforeEach
+  void init() {
+    properties = new SearchCacheProperties();
+    properties.setTtl(Duration.ofMinutes(1));
+    cache = new BirthDateSearchCache(properties, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void get_WhenCached_Test() {
+    AtomicInteger queries = new AtomicInteger();
+
+    cache.get(FROM, TO, PageRequest.of(0, 10), () -> count(queries));
+    Page<UserResponse> cached = cache.get(FROM, TO, PageRequest.of(0, 10), () -> count(queries));
+
+    assertEquals(page, cached);
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  void get_WhenInvalidatedDuringQuery_IsNotServed_Test() {
+    AtomicInteger queries = new AtomicInteger();
+
+    cache.get(FROM, TO, PageRequest.of(0, 10), () -> {
+      cache.invalidateAll();
+      return count(queries);
+    });
+    cache.get(FROM, TO, PageRequest.of(0, 10), () -> count(queries));
+
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  void get_WhenLeaderTooSlow_QueriesItself_Test() throws Exception {
+    properties.setMaxWait(Duration.ofMillis(50));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Page<UserResponse>> leader = CompletableFuture.supplyAsync(() ->
+            cache.get(FROM, TO, PageRequest.of(0, 10), () -> {
+              started.countDown();
+              await(release);
+              return page;
+            }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    Page<UserResponse> own = new PageImpl<>(List.of());
+    Page<UserResponse> result = cache.get(FROM, TO, PageRequest.of(0, 10), () -> own);
+
+    assertSame(own, result);
+    release.countDown();
+    assertSame(page, leader.get(5, TimeUnit.SECONDS));
+  }
+
+  private Page<UserResponse> count(AtomicInteger queries) {
+    queries.incrementAndGet();
+    return page;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.clearsolutions.task.cache;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecondLevelCacheInvalidatorUnitTest {
+
+  @Mock
+  private EntityManagerFactory entityManagerFactory;
+
+  @Mock
+  private SessionFactory sessionFactory;
+
+  @Mock
+  private Cache cache;
+
+  @Mock
+  private org.hibernate.Cache hibernateCache;
+
+  private SecondLevelCacheInvalidator invalidator;
+
+  @BeforeEach
+  void init() {
+    invalidator = new SecondLevelCacheInvalidator(entityManagerFactory);
+    when(entityManagerFactory.getCache()).thenReturn(cache);
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    when(sessionFactory.getCache()).thenReturn(hibernateCache);
+  }
+
+  @Test
+  void onUsersInvalidated_WhenIdsKnown_Test() {
+    invalidator.onUsersInvalidated(UsersInvalidatedEvent.of(Set.of(1L, 2L)));
+
+    verify(cache).evict(User.class, 1L);
+    verify(cache).evict(User.class, 2L);
+    verify(cache, never()).evict(User.class);
+    verify(hibernateCache).evictQueryRegion(SecondLevelCacheProperties.BIRTHDAY_SEARCH_REGION);
+  }
+
+  @Test
+  void onUsersInvalidated_WhenAllUsers_Test() {
+    invalidator.onUsersInvalidated(UsersInvalidatedEvent.all());
+
+    verify(cache).evict(User.class);
+    verify(cache, never()).evict(eq(User.class), anyLong());
+    verify(hibernateCache).evictQueryRegion(SecondLevelCacheProperties.BIRTHDAY_SEARCH_REGION);
+  }
+}
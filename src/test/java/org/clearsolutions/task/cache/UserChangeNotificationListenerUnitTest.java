@@ -0,0 +1,67 @@
+package org.clearsolutions.task.cache;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGNotification;
+import org.postgresql.core.Notification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserChangeNotificationListenerUnitTest {
+
+  @Test
+  void parseIds_WhenSeveralNotifications_Test() {
+    Set<Long> ids = UserChangeNotificationListener.parseIds(new PGNotification[]{
+            notification("1,2,3"), notification("3,40")});
+
+    assertEquals(Set.of(1L, 2L, 3L, 40L), ids);
+  }
+
+  @Test
+  void parseIds_WhenEmptyPayloads_Test() {
+    Set<Long> ids = UserChangeNotificationListener.parseIds(new PGNotification[]{
+            notification(""), notification(null), notification(" , 7 ,")});
+
+    assertEquals(Set.of(7L), ids);
+  }
+
+  @Test
+  void parseIds_WhenNoNotifications_Test() {
+    assertEquals(Set.of(), UserChangeNotificationListener.parseIds(new PGNotification[0]));
+  }
+
+  @Test
+  void parseIds_WhenMalformed_ReturnsUnknown_Test() {
+    assertNull(UserChangeNotificationListener.parseIds(new PGNotification[]{
+            notification("1,2"), notification("3,x")}));
+    assertNull(UserChangeNotificationListener.parseIds(new PGNotification[]{
+            notification("99999999999999999999")}));
+  }
+
+  @Test
+  void listen_WhenRuntimeException_Reconnects_Test() {
+    DataSourceProperties dataSourceProperties = mock(DataSourceProperties.class);
+    when(dataSourceProperties.determineUrl()).thenThrow(new IllegalStateException("listener failed"));
+    InvalidationProperties properties = new InvalidationProperties();
+    properties.setReconnectDelay(Duration.ofMillis(10));
+    UserChangeNotificationListener listener = new UserChangeNotificationListener(dataSourceProperties, properties,
+            mock(ApplicationEventPublisher.class));
+
+    listener.start();
+    try {
+      verify(dataSourceProperties, timeout(5000).atLeast(3)).determineUrl();
+      assertTrue(listener.isRunning());
+    } finally {
+      listener.stop();
+    }
+  }
+
+  private static PGNotification notification(String payload) {
+    return new Notification(UserChangeNotificationListener.CHANNEL, 42, payload);
+  }
+}
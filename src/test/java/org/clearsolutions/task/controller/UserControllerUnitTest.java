@@ -4,12 +4,22 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.SneakyThrows;
-import org.clearsolutions.task.dto.UserCreateRequest;
-import org.clearsolutions.task.dto.UserResponse;
-import org.clearsolutions.task.dto.UserUpdateRequest;
-import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.exception.ArchivedUserException;
+import org.clearsolutions.task.exception.SnapshotNotReadyException;
+import org.clearsolutions.task.exception.UserNotFoundException;
+import org.clearsolutions.task.service.UserBulkJobService;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.service.UserChangeStreamService;
+import org.clearsolutions.task.service.UserExportService;
+import org.clearsolutions.task.service.UserSegmentService;
 import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.service.UserStatsService;
+import org.clearsolutions.task.sort.UserSortRegistry;
+import org.clearsolutions.task.stream.ChangeStreamFilter;
 import org.clearsolutions.task.utils.DataUtils;
+import org.clearsolutions.task.validation.UserRequestValidator;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,14 +28,20 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.Mockito.*;
@@ -35,11 +51,30 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(UserController.class)
+@Import(UserRequestValidator.class)
 class UserControllerUnitTest {
 
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserBulkService userBulkService;
+
+    @MockBean
+    private UserBulkJobService userBulkJobService;
+
+    @MockBean
+    private UserStatsService userStatsService;
+
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserChangeStreamService userChangeStreamService;
+
+    @MockBean
+    private UserSegmentService userSegmentService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -232,9 +267,6 @@ class UserControllerUnitTest {
                      ]
                  }
                 """.formatted(birthDate, birthDate);
-        doThrow(new YoungAgeException(
-                "You are too young to register. Your birthday is at '%s'" .formatted(birthDate),
-                HttpStatus.BAD_REQUEST)).when(userService).createUser(request);
 
         mockMvc.perform(post("/api/v1/users")
                         .content(jsonContent)
@@ -242,7 +274,7 @@ class UserControllerUnitTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().json(expectedJsonResult));
 
-        verify(userService, Mockito.times(1)).createUser(request);
+        verify(userService, Mockito.times(0)).createUser(request);
     }
 
     @Test
@@ -284,6 +316,51 @@ class UserControllerUnitTest {
         verify(userService, times(1)).deleteUser(id);
     }
 
+    @Test
+    @SneakyThrows
+    void getUserByEmail_WhenOk_Test() {
+        UserResponse userResponse = DataUtils.toUserResponse(DataUtils.createUserCreateRequest());
+        when(userService.getUserByEmail("Oleksii.Ivanchenko@Gmail.com")).thenReturn(userResponse);
+
+        mockMvc.perform(get("/api/v1/users/by-email").param("email", "Oleksii.Ivanchenko@Gmail.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("oleksii.ivanchenko@gmail.com"));
+    }
+
+    @Test
+    @SneakyThrows
+    void getUserByEmail_WhenNotFound_Test() {
+        String email = "nobody@example.com";
+        when(userService.getUserByEmail(email)).thenThrow(UserNotFoundException.byEmail(email));
+
+        mockMvc.perform(get("/api/v1/users/by-email").param("email", email))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.problemDetails[0].field").value("email"))
+                .andExpect(jsonPath("$.problemDetails[0].wrongValue").value(email));
+    }
+
+    @Test
+    @SneakyThrows
+    void deleteUser_WhenArchived_Test() {
+        doThrow(new ArchivedUserException(7L)).when(userService).deleteUser(7L);
+
+        mockMvc.perform(delete("/api/v1/users/7"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.detail").value("User is archived"))
+                .andExpect(jsonPath("$.problemDetails[0].wrongValue").value("7"));
+    }
+
+    @Test
+    @SneakyThrows
+    void getUser_WhenOk_Test() {
+        UserResponse userResponse = DataUtils.createUserResponseList().get(1);
+        when(userService.getUser(2L)).thenReturn(userResponse);
+
+        mockMvc.perform(get("/api/v1/users/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(userResponse.getEmail()));
+    }
+
     @Test
     @SneakyThrows
     void updateUser_WhenOK_Test() {
@@ -352,6 +429,24 @@ class UserControllerUnitTest {
         verify(userService, times(1)).getAllUsers(any(Pageable.class));
     }
 
+    @Test
+    @SneakyThrows
+    void getAllUsers_WhenSortUnsupported_Test() {
+        when(userService.getAllUsers(any(Pageable.class))).thenAnswer(invocation -> {
+            UserSortRegistry.plan(invocation.getArgument(0), UserSortRegistry.Query.LIST, 1000);
+            return Page.empty();
+        });
+
+        mockMvc.perform(get("/api/v1/users")
+                        .param("sort", "phone,desc"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpectAll(
+                        jsonPath("$.detail").value("Unsupported sort"),
+                        jsonPath("$.problemDetails[0].field").value("sort"),
+                        jsonPath("$.problemDetails[0].wrongValue").value("phone,desc"));
+    }
+
     @Test
     @SneakyThrows
     void searchUsersByBirthDate_WhenToIsBeforeFrom() {
@@ -419,4 +514,242 @@ class UserControllerUnitTest {
                 .searchUsersByBirthDate(eq(from), eq(to), any(Pageable.class));
     }
 
+    @Test
+    @SneakyThrows
+    void getUserChanges_WhenOk() {
+        Instant since = Instant.parse("2024-05-01T00:00:00Z");
+        UserResponse user = DataUtils.createUserResponseList().get(0);
+        UserChangePage page = UserChangePage.builder()
+                .changes(List.of(
+                        new UserChangeResponse(1L, since.plusSeconds(1), false, user),
+                        new UserChangeResponse(2L, since.plusSeconds(2), true, null)))
+                .nextSince(since.plusSeconds(2))
+                .nextAfterId(2L)
+                .hasMore(false)
+                .build();
+        when(userService.getUserChanges(since, 0L, 500)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/changes")
+                        .param("since", since.toString()))
+                .andExpect(status().isOk())
+                .andExpectAll(
+                        jsonPath("$.changes.size()").value(2),
+                        jsonPath("$.changes[0].user.email").value(user.getEmail()),
+                        jsonPath("$.changes[1].deleted").value(true),
+                        jsonPath("$.nextAfterId").value(2),
+                        jsonPath("$.hasMore").value(false)
+                );
+
+        verify(userService, times(1)).getUserChanges(since, 0L, 500);
+    }
+
+    @Test
+    @SneakyThrows
+    void getUserChanges_WhenLimitTooBig_Test() {
+        mockMvc.perform(get("/api/v1/users/changes")
+                        .param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, times(0)).getUserChanges(any(Instant.class), any(Long.class), any(Integer.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void bulk_WhenOk() {
+        BulkRequest request = new BulkRequest(false, List.of(
+                new BulkOperation(BulkOperationType.DELETE, 1L, null),
+                new BulkOperation(BulkOperationType.DELETE, 2L, null)));
+        BulkResponse response = BulkResponse.builder()
+                .succeeded(1)
+                .failed(1)
+                .results(List.of(
+                        BulkOperationResult.builder().index(0).op(BulkOperationType.DELETE).id(1L).status(200).build(),
+                        BulkOperationResult.builder().index(1).op(BulkOperationType.DELETE).id(2L).status(404).build()))
+                .build();
+        when(userBulkService.execute(request)).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/users/_bulk")
+                        .content(objectMapper.writeValueAsString(request))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpectAll(
+                        jsonPath("$.succeeded").value(1),
+                        jsonPath("$.failed").value(1),
+                        jsonPath("$.results[1].status").value(404)
+                );
+
+        verify(userBulkService, times(1)).execute(request);
+    }
+
+    @Test
+    @SneakyThrows
+    void bulk_WhenNoOperations_Test() {
+        mockMvc.perform(post("/api/v1/users/_bulk")
+                        .content("{\"atomic\":true,\"operations\":[]}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(userBulkService, times(0)).execute(any(BulkRequest.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void deleteUsers_WhenOk() {
+        UserCriteria criteria = UserCriteria.builder()
+                .from(LocalDate.parse("1950-01-01"))
+                .to(LocalDate.parse("1960-01-01"))
+                .build();
+        BulkJobResponse job = BulkJobResponse.builder()
+                .jobId("42")
+                .operation(BulkOperationType.DELETE)
+                .state(BulkJobState.QUEUED)
+                .build();
+        when(userBulkJobService.deleteUsers(criteria)).thenReturn(job);
+
+        mockMvc.perform(post("/api/v1/users/_bulk/delete")
+                        .content(objectMapper.writeValueAsString(criteria))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/users/_bulk/jobs/42"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+
+        verify(userBulkJobService, times(1)).deleteUsers(criteria);
+    }
+
+    @Test
+    @SneakyThrows
+    void getBulkJob_WhenNotFound_Test() {
+        when(userBulkJobService.getJob("42"))
+                .thenThrow(new EntityNotFoundException("Bulk job with id='42' can not be found"));
+
+        mockMvc.perform(get("/api/v1/users/_bulk/jobs/42"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @SneakyThrows
+    void scrollUsersByBirthDate_WhenMalformedCursor_Test() {
+        LocalDate from = LocalDate.parse("1980-01-01");
+        LocalDate to = LocalDate.parse("2000-01-01");
+        when(userService.scrollUsersByBirthDate(from, to, 20, "bad"))
+                .thenThrow(new IllegalArgumentException("Cursor 'bad' is malformed."));
+
+        mockMvc.perform(get("/api/v1/users/birthdays/scroll")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.problemDetails[0].message").value("Cursor 'bad' is malformed."));
+    }
+
+    @Test
+    @SneakyThrows
+    void searchUsersByBirthDateRanges_WhenOk_Test() {
+        BirthdaySearchRequest request = BirthdaySearchRequest.builder()
+                .ranges(List.of(new BirthDateRange(LocalDate.parse("1980-01-01"), LocalDate.parse("2000-01-01"))))
+                .windows(List.of(new MonthDayWindow(MonthDay.of(12, 20), MonthDay.of(1, 10))))
+                .size(2)
+                .build();
+        List<UserResponse> users = DataUtils.createUserResponseList().subList(0, 2);
+        when(userService.searchUsersByBirthDateRanges(request))
+                .thenReturn(UserScrollPage.builder().content(users).nextCursor("next").build());
+
+        mockMvc.perform(post("/api/v1/users/birthdays/_search")
+                        .content(objectMapper.writeValueAsString(request))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpectAll(
+                        jsonPath("$.content.size()").value(2),
+                        jsonPath("$.nextCursor").value("next")
+                );
+
+        verify(userService, times(1)).searchUsersByBirthDateRanges(request);
+    }
+
+    @Test
+    @SneakyThrows
+    void searchUsersByBirthDateRanges_WhenNoRanges_Test() {
+        mockMvc.perform(post("/api/v1/users/birthdays/_search")
+                        .content("{\"ranges\":[],\"size\":20}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, times(0)).searchUsersByBirthDateRanges(any(BirthdaySearchRequest.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void streamUserChanges_WhenResuming_Test() {
+        ChangeStreamFilter filter = new ChangeStreamFilter(Set.of(UserChangeType.CREATED),
+                LocalDate.parse("1990-01-01"), null);
+        when(userChangeStreamService.subscribe(filter, "lrx1-42")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/users/changes/stream")
+                        .param("types", "CREATED")
+                        .param("from", "1990-01-01")
+                        .header("Last-Event-ID", "lrx1-42")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(userChangeStreamService, times(1)).subscribe(filter, "lrx1-42");
+    }
+
+    @Test
+    @SneakyThrows
+    void findSegment_WhenOk_Test() {
+        UserSegmentRequest request = UserSegmentRequest.builder()
+                .firstNamePrefix("O")
+                .hasPhone(true)
+                .build();
+        when(userSegmentService.findSegment(request)).thenReturn(UserSegmentResponse.builder()
+                .total(2)
+                .page(0)
+                .size(20)
+                .content(DataUtils.createUserResponseList().subList(0, 1))
+                .asOf(Instant.parse("2024-05-01T00:00:00Z"))
+                .build());
+
+        mockMvc.perform(post("/api/v1/users/_segment")
+                        .content(objectMapper.writeValueAsString(request))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpectAll(
+                        jsonPath("$.total").value(2),
+                        jsonPath("$.content[0].firstName").value("Oleksii")
+                );
+    }
+
+    @Test
+    @SneakyThrows
+    void findSegment_WhenSnapshotNotReady_Test() {
+        when(userSegmentService.findSegment(any(UserSegmentRequest.class)))
+                .thenThrow(new SnapshotNotReadyException("The user snapshot is still loading, try again later."));
+
+        mockMvc.perform(post("/api/v1/users/_segment")
+                        .content("{}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @SneakyThrows
+    void getStats_WhenOk() {
+        UserStatsResponse stats = UserStatsResponse.builder()
+                .total(3)
+                .asOf(Instant.parse("2024-05-01T00:00:00Z"))
+                .byBirthYear(Map.of(1990, 3L))
+                .byBirthMonth(Map.of("1990-03", 3L))
+                .byAge(List.of(new UserStatsResponse.AgeBracket(18, null, 3)))
+                .build();
+        when(userStatsService.getStats()).thenReturn(stats);
+
+        mockMvc.perform(get("/api/v1/users/stats"))
+                .andExpect(status().isOk())
+                .andExpectAll(
+                        jsonPath("$.total").value(3),
+                        jsonPath("$.byBirthYear.1990").value(3),
+                        jsonPath("$.byAge[0].minAge").value(18)
+                );
+    }
+
 }
@@ -0,0 +1,90 @@
+package org.clearsolutions.task.export;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportFileSenderUnitTest {
+
+  @TempDir
+  private Path directory;
+
+  private Path file;
+
+  @BeforeEach
+  void init() throws Exception {
+    file = Files.writeString(directory.resolve("export.csv"), "id,email\n1,a@gmail.com\n2,b@gmail.com\n");
+  }
+
+  @Test
+  void send_WhenNoRange_Test() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ExportFileSender.send(file, "users-1", new MockHttpServletRequest(), response);
+
+    assertEquals(200, response.getStatus());
+    assertEquals(Files.readString(file), response.getContentAsString());
+    assertEquals("bytes", response.getHeader("Accept-Ranges"));
+  }
+
+  @Test
+  void send_WhenRange_Test() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Range", "bytes=9-");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ExportFileSender.send(file, "users-1", request, response);
+
+    assertEquals(206, response.getStatus());
+    assertEquals("1,a@gmail.com\n2,b@gmail.com\n", response.getContentAsString());
+    assertEquals("bytes 9-36/37", response.getHeader("Content-Range"));
+  }
+
+  @Test
+  void send_WhenIfRangeOutdated_SendsWholeFile_Test() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Range", "bytes=9-");
+    request.addHeader("If-Range", "\"users-1-10\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ExportFileSender.send(file, "users-1", request, response);
+
+    assertEquals(200, response.getStatus());
+    assertEquals(37, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void send_WhenRangeNotSatisfiable_Test() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Range", "bytes=100-");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ExportFileSender.send(file, "users-1", request, response);
+
+    assertEquals(416, response.getStatus());
+    assertEquals("bytes */37", response.getHeader("Content-Range"));
+  }
+
+  @Test
+  void send_WhenSendfileSupported_LeavesCopyToTomcat_Test() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAttribute("org.apache.tomcat.sendfile.support", true);
+    request.addHeader("Range", "bytes=0-8");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    ExportFileSender.send(file, "users-1", request, response);
+
+    assertEquals(206, response.getStatus());
+    assertEquals(0, response.getContentAsByteArray().length);
+    assertEquals(9, response.getContentLengthLong());
+    assertEquals(0L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+    assertEquals(9L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+  }
+}
@@ -0,0 +1,231 @@
+package org.clearsolutions.task.grpc;
+
+import com.google.rpc.BadRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.Validation;
+import org.clearsolutions.task.dto.BulkOperationResult;
+import org.clearsolutions.task.dto.BulkOperationType;
+import org.clearsolutions.task.dto.BulkRequest;
+import org.clearsolutions.task.dto.BulkResponse;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
+import org.clearsolutions.task.exception.UserNotFoundException;
+import org.clearsolutions.task.grpc.v1.*;
+import org.clearsolutions.task.service.UserBulkService;
+import org.clearsolutions.task.service.UserService;
+import org.clearsolutions.task.utils.DataUtils;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserGrpcServiceUnitTest {
+
+  @Mock
+  private UserService userService;
+
+  @Mock
+  private UserBulkService userBulkService;
+
+  private Server server;
+  private ManagedChannel channel;
+  private UserServiceGrpc.UserServiceBlockingStub blockingStub;
+  private UserServiceGrpc.UserServiceStub asyncStub;
+
+  @BeforeEach
+  void init() throws Exception {
+    UserRequestValidator validator =
+            new UserRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    validator.setAgeCondition(18);
+    GrpcServerProperties properties = new GrpcServerProperties();
+    properties.setStreamPageSize(2);
+    properties.setCreateChunkSize(2);
+    UserGrpcService service = new UserGrpcService(userService, userBulkService, validator, properties);
+
+    String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    blockingStub = UserServiceGrpc.newBlockingStub(channel);
+    asyncStub = UserServiceGrpc.newStub(channel);
+  }
+
+  @AfterEach
+  void close() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  void createUser_WhenOk_Test() {
+    UserCreateRequest request = DataUtils.createUserCreateRequest();
+    when(userService.createUser(request)).thenReturn(DataUtils.toUserResponse(request));
+
+    User actual = blockingStub.createUser(toProto(request));
+
+    assertEquals(1L, actual.getId());
+    assertEquals(request.getEmail(), actual.getEmail());
+    assertEquals(request.getBirthDate(), UserProtoMapper.toLocalDate(actual.getBirthDate(), "birth_date"));
+    assertEquals(request.getPhoneNumber(), actual.getPhoneNumber());
+  }
+
+  @Test
+  void createUser_WhenTooYoung_Test() {
+    UserCreateRequest request = DataUtils.createUserCreateRequest();
+    request.setBirthDate(LocalDate.now().minusYears(10));
+
+    StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+            () -> blockingStub.createUser(toProto(request)));
+
+    assertEquals(Status.Code.INVALID_ARGUMENT, ex.getStatus().getCode());
+    assertEquals("Young Age", ex.getStatus().getDescription());
+    assertEquals("birthDate", badRequest(ex).getFieldViolations(0).getField());
+    verify(userService, never()).createUser(any());
+  }
+
+  @Test
+  void createUser_WhenRequiredFieldsMissing_Test() {
+    StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+            () -> blockingStub.createUser(CreateUserRequest.newBuilder().setFirstName("Oleksii").build()));
+
+    assertEquals(Status.Code.INVALID_ARGUMENT, ex.getStatus().getCode());
+    assertEquals(3, badRequest(ex).getFieldViolationsCount());
+  }
+
+  @Test
+  void getUserByEmail_WhenNotFound_Test() {
+    when(userService.getUserByEmail("none@gmail.com")).thenThrow(UserNotFoundException.byEmail("none@gmail.com"));
+
+    StatusRuntimeException ex = assertThrows(StatusRuntimeException.class, () -> blockingStub.getUserByEmail(
+            GetUserByEmailRequest.newBuilder().setEmail("none@gmail.com").build()));
+
+    assertEquals(Status.Code.NOT_FOUND, ex.getStatus().getCode());
+  }
+
+  @Test
+  void listUsers_StreamsAllPages_Test() {
+    List<UserResponse> users = DataUtils.createUserResponseList();
+    Sort sort = Sort.by(Sort.Order.desc("lastName"));
+    when(userService.scrollUsers(sort, 2, null)).thenReturn(new UserScrollPage(users.subList(0, 2), "next"));
+    when(userService.scrollUsers(sort, 2, "next")).thenReturn(new UserScrollPage(users.subList(2, 3), null));
+
+    List<User> actual = new ArrayList<>();
+    blockingStub.listUsers(ListUsersRequest.newBuilder()
+                    .addSort(SortOrder.newBuilder().setProperty("lastName").setDirection(SortOrder.Direction.DESC))
+                    .build())
+            .forEachRemaining(actual::add);
+
+    assertEquals(List.of(1L, 2L, 3L), actual.stream().map(User::getId).toList());
+    verify(userService, times(2)).scrollUsers(any(), anyInt(), any());
+    verify(userService, never()).getAllUsers(any());
+  }
+
+  @Test
+  void searchUsersByBirthDate_FollowsCursorUpToLimit_Test() {
+    List<UserResponse> users = DataUtils.createUserResponseList();
+    LocalDate from = LocalDate.parse("1980-01-01");
+    LocalDate to = LocalDate.parse("2001-01-01");
+    when(userService.scrollUsersByBirthDate(from, to, 2, null))
+            .thenReturn(new UserScrollPage(users.subList(0, 2), "next"));
+    when(userService.scrollUsersByBirthDate(from, to, 2, "next"))
+            .thenReturn(new UserScrollPage(users.subList(2, 4), "last"));
+
+    List<User> actual = new ArrayList<>();
+    blockingStub.searchUsersByBirthDate(SearchUsersByBirthDateRequest.newBuilder()
+                    .setFrom(UserProtoMapper.toProto(from))
+                    .setTo(UserProtoMapper.toProto(to))
+                    .setLimit(3)
+                    .build())
+            .forEachRemaining(actual::add);
+
+    assertEquals(List.of(1L, 2L, 3L), actual.stream().map(User::getId).toList());
+    verify(userService, never()).scrollUsersByBirthDate(from, to, 2, "last");
+  }
+
+  @Test
+  void createUsers_CreatesInChunks_Test() throws Exception {
+    when(userBulkService.execute(any(BulkRequest.class))).thenAnswer(invocation -> {
+      BulkRequest request = invocation.getArgument(0);
+      assertFalse(request.isAtomic());
+      List<BulkOperationResult> results = IntStream.range(0, request.getOperations().size())
+              .mapToObj(i -> BulkOperationResult.builder()
+                      .index(i).op(BulkOperationType.CREATE).id(100L + i).status(201).build())
+              .toList();
+      return BulkResponse.builder().succeeded(results.size()).results(results).build();
+    });
+    CompletableFuture<CreateUsersResponse> response = new CompletableFuture<>();
+
+    StreamObserver<CreateUserRequest> requests = asyncStub.createUsers(new StreamObserver<>() {
+      @Override
+      public void onNext(CreateUsersResponse value) {
+        response.complete(value);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        response.completeExceptionally(t);
+      }
+
+      @Override
+      public void onCompleted() {
+      }
+    });
+    CreateUserRequest valid = toProto(DataUtils.createUserCreateRequest());
+    requests.onNext(valid);
+    requests.onNext(valid.toBuilder().setBirthDate(com.google.type.Date.newBuilder().setYear(2001)).build());
+    requests.onNext(valid);
+    requests.onNext(valid);
+    requests.onCompleted();
+
+    CreateUsersResponse actual = response.get(5, TimeUnit.SECONDS);
+    assertEquals(3, actual.getSucceeded());
+    assertEquals(1, actual.getFailed());
+    assertEquals(List.of(1, 0, 2, 3), actual.getResultsList().stream().map(CreateUserResult::getIndex).toList());
+    assertEquals(400, actual.getResults(0).getStatus());
+    assertEquals(101L, actual.getResults(2).getId());
+    verify(userBulkService, times(2)).execute(any(BulkRequest.class));
+  }
+
+  private static BadRequest badRequest(StatusRuntimeException ex) {
+    try {
+      return StatusProto.fromThrowable(ex).getDetails(0).unpack(BadRequest.class);
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static CreateUserRequest toProto(UserCreateRequest request) {
+    return CreateUserRequest.newBuilder()
+            .setFirstName(request.getFirstName())
+            .setLastName(request.getLastName())
+            .setEmail(request.getEmail())
+            .setBirthDate(UserProtoMapper.toProto(request.getBirthDate()))
+            .setAddress(request.getAddress())
+            .setPhoneNumber(request.getPhoneNumber())
+            .build();
+  }
+}
@@ -0,0 +1,88 @@
+package org.clearsolutions.task.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingEndpointUnitTest {
+
+  @TempDir
+  private Path directory;
+
+  private FlightRecordingEndpoint endpoint;
+
+  @BeforeEach
+  void init() {
+    FlightRecorderProperties properties = new FlightRecorderProperties();
+    properties.setDirectory(directory);
+    properties.setSettings("default");
+    endpoint = new FlightRecordingEndpoint(properties);
+  }
+
+  @AfterEach
+  void close() {
+    endpoint.destroy();
+  }
+
+  @Test
+  void recording_ContainsUserOperations_Test() throws Exception {
+    WebEndpointResponse<Object> started = endpoint.start(Duration.ofMinutes(1), null);
+    assertEquals(200, started.getStatus());
+    long id = ((FlightRecordingResponse) started.getBody()).getId();
+    assertEquals(409, endpoint.recording(id).getStatus());
+
+    UserOperationEvent.record("list", () -> List.of(1, 2, 3), List::size);
+    assertThrows(IllegalStateException.class, () -> UserOperationEvent.record("delete", () -> {
+      throw new IllegalStateException();
+    }));
+    endpoint.stop(id);
+
+    WebEndpointResponse<Resource> file = endpoint.recording(id);
+    assertEquals(200, file.getStatus());
+    List<RecordedEvent> operations = RecordingFile.readAllEvents(file.getBody().getFile().toPath()).stream()
+            .filter(event -> event.getEventType().getName().equals("org.clearsolutions.task.UserOperation"))
+            .toList();
+    assertEquals(2, operations.size());
+    assertEquals("list", operations.get(0).getString("operation"));
+    assertEquals(3, operations.get(0).getLong("rows"));
+    assertEquals("ok", operations.get(0).getString("outcome"));
+    assertEquals("IllegalStateException", operations.get(1).getString("outcome"));
+
+    assertEquals(204, endpoint.delete(id).getStatus());
+    assertFalse(Files.exists(file.getBody().getFile().toPath()));
+    assertTrue(endpoint.recordings().isEmpty());
+  }
+
+  @Test
+  void recording_LeavesOutEnvironment_Test() throws Exception {
+    long id = ((FlightRecordingResponse) endpoint.start(Duration.ofMinutes(1), null).getBody()).getId();
+    endpoint.stop(id);
+
+    List<String> types = RecordingFile.readAllEvents(endpoint.recording(id).getBody().getFile().toPath()).stream()
+            .map(event -> event.getEventType().getName())
+            .toList();
+    assertFalse(types.isEmpty());
+    assertFalse(types.contains("jdk.InitialEnvironmentVariable"));
+    assertFalse(types.contains("jdk.InitialSystemProperty"));
+    assertFalse(types.contains("jdk.JVMInformation"));
+  }
+
+  @Test
+  void start_WhenDurationTooLong_Test() {
+    assertEquals(400, endpoint.start(Duration.ofHours(1), null).getStatus());
+    assertEquals(400, endpoint.start(null, "unknown").getStatus());
+    assertTrue(endpoint.recordings().isEmpty());
+  }
+}
@@ -0,0 +1,67 @@
+package org.clearsolutions.task.limiter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterUnitTest {
+
+    private ConcurrencyLimitProperties properties;
+
+    @BeforeEach
+    void init() {
+        properties = new ConcurrencyLimitProperties();
+        properties.setSmoothing(1.0);
+        properties.setLongWindow(1000);
+    }
+
+    @Test
+    void tryAcquire_WhenLimitReached_Test() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("write",
+                new ConcurrencyLimitProperties.Limit(2, 1, 10), properties);
+
+        assertTrue(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(false));
+        assertFalse(limiter.tryAcquire(false));
+
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire(false));
+    }
+
+    @Test
+    void tryAcquire_WhenSheddable_Test() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read",
+                new ConcurrencyLimitProperties.Limit(4, 1, 10), properties);
+
+        assertTrue(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(true));
+        assertFalse(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(false));
+    }
+
+    @Test
+    void release_WhenLatencyGrows_ShrinksLimit_Test() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read",
+                new ConcurrencyLimitProperties.Limit(100, 4, 200), properties);
+        saturate(limiter, 1_000_000);
+        int before = limiter.getLimit();
+
+        saturate(limiter, 50_000_000);
+
+        assertTrue(limiter.getLimit() < before);
+        assertTrue(limiter.getLimit() >= 4);
+    }
+
+    private void saturate(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        for (int i = 0; i < 20; i++) {
+            int limit = limiter.getLimit();
+            for (int j = 0; j < limit; j++) {
+                limiter.tryAcquire(false);
+            }
+            for (int j = 0; j < limit; j++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+}
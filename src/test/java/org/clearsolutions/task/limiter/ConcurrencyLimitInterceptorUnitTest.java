@@ -0,0 +1,46 @@
+package org.clearsolutions.task.limiter;
+
+import org.clearsolutions.task.exception.LoadSheddingException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitInterceptorUnitTest {
+
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+
+    @Test
+    void isRead_ClassifiesByMappedRoute_Test() {
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(properties);
+
+        assertTrue(interceptor.isRead(request("GET", "/api/v1/users/{userId}")));
+        assertTrue(interceptor.isRead(request("POST", "/api/v1/users/birthdays/_search")));
+        assertTrue(interceptor.isRead(request("POST", "/api/v1/users/_segment")));
+        assertTrue(interceptor.isRead(request("POST", "/api/v1/users/_export")));
+        assertFalse(interceptor.isRead(request("POST", "/api/v1/users")));
+        assertFalse(interceptor.isRead(request("PUT", "/api/v1/users/{userId}")));
+        assertFalse(interceptor.isRead(request("POST", "/api/v1/users/_bulk/delete")));
+    }
+
+    @Test
+    void preHandle_WhenWritesFull_AdmitsPostSearch_Test() {
+        properties.setWrite(new ConcurrencyLimitProperties.Limit(1, 1, 1));
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(properties);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request("POST", "/api/v1/users"), response, null));
+        assertThrows(LoadSheddingException.class,
+                () -> interceptor.preHandle(request("DELETE", "/api/v1/users/{userId}"), response, null));
+        assertTrue(interceptor.preHandle(request("POST", "/api/v1/users/birthdays/_search"), response, null));
+        assertEquals(1, interceptor.getReadLimiter().getInFlight());
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
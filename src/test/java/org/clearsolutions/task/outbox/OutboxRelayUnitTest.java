@@ -0,0 +1,102 @@
+package org.clearsolutions.task.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clearsolutions.task.config.OutboxConfig;
+import org.clearsolutions.task.event.UserChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayUnitTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InMemoryOutboxSink sink;
+    private OutboxProperties properties;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void init() {
+        sink = new InMemoryOutboxSink();
+        properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        relay = new OutboxRelay(outboxRepository, sink, properties, new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void flush_DrainsFullBatchesUntilEmpty_Test() {
+        List<OutboxEvent> first = List.of(event(1L), event(2L));
+        List<OutboxEvent> second = List.of(event(3L));
+        when(outboxRepository.lockNextBatch(2)).thenReturn(first).thenReturn(second);
+
+        relay.flush();
+
+        assertEquals(3, sink.getEvents().size());
+        verify(outboxRepository).deleteAllInBatch(first);
+        verify(outboxRepository).deleteAllInBatch(second);
+        verify(outboxRepository, times(2)).lockNextBatch(2);
+    }
+
+    @Test
+    void flush_WhenSinkFails_KeepsEvents_Test() throws Exception {
+        OutboxSink failingSink = mock(OutboxSink.class);
+        doThrow(new IllegalStateException("down")).when(failingSink).publish(anyList());
+        relay = new OutboxRelay(outboxRepository, failingSink, properties, new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry());
+        when(outboxRepository.lockNextBatch(2)).thenReturn(List.of(event(1L)));
+
+        relay.flush();
+
+        verify(outboxRepository, never()).deleteAllInBatch(anyList());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void relay_WhenNotEnabledWithSink_Test() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(OutboxConfig.class, OutboxRelay.class)
+                .withBean(OutboxRepository.class, () -> outboxRepository)
+                .withBean(TransactionTemplate.class, () -> new TransactionTemplate(transactionManager))
+                .withBean(SimpleMeterRegistry.class)
+                .withPropertyValues("user.outbox.flush-interval=PT1S");
+
+        runner.run(context -> {
+            assertThat(context).doesNotHaveBean(OutboxRelay.class);
+            assertThat(context).doesNotHaveBean(OutboxSink.class);
+        });
+        runner.withPropertyValues("user.outbox.relay-enabled=true")
+                .run(context -> assertThat(context).getFailure().hasMessageContaining(OutboxSink.class.getName()));
+        runner.withPropertyValues("user.outbox.relay-enabled=true", "user.outbox.sink=in-memory")
+                .run(context -> assertThat(context).hasSingleBean(OutboxRelay.class)
+                        .getBean(OutboxSink.class).isInstanceOf(InMemoryOutboxSink.class));
+        verifyNoInteractions(outboxRepository);
+    }
+
+    private OutboxEvent event(Long id) {
+        return OutboxEvent.builder()
+                .id(id)
+                .userId(id)
+                .eventType(UserChangeType.CREATED)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package org.clearsolutions.task.purge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clearsolutions.task.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TombstonePurgerUnitTest {
+
+  private static final Instant NOW = Instant.parse("2024-05-01T02:00:00Z");
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final PurgeProperties properties = new PurgeProperties();
+
+  private TombstonePurger purger;
+
+  @BeforeEach
+  void init() {
+    properties.setZone(ZoneOffset.UTC);
+    properties.setBatchSize(2);
+    properties.setMaxRowsPerSecond(1_000_000);
+    purger = new TombstonePurger(userRepository, properties, new TransactionTemplate(transactionManager),
+            meterRegistry);
+    purger.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  void purge_DeletesBatchesUntilBacklogIsEmpty_Test() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    Instant deletedBefore = NOW.minus(Duration.ofDays(7));
+    when(userRepository.countTombstones(deletedBefore)).thenReturn(3L);
+    when(userRepository.purgeTombstones(deletedBefore, 2)).thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L));
+
+    purger.purge();
+
+    verify(userRepository, times(2)).purgeTombstones(deletedBefore, 2);
+    assertEquals(3, meterRegistry.get("user.purge.deleted").counter().count());
+    assertEquals(2, meterRegistry.get("user.purge.batch").timer().count());
+    assertEquals(0, meterRegistry.get("user.purge.backlog").gauge().value());
+  }
+
+  @Test
+  void purge_WhenOutsideWindow_Test() {
+    properties.setWindows(List.of(PurgeWindow.of("03:00-05:00")));
+
+    purger.purge();
+
+    verifyNoInteractions(userRepository, transactionManager);
+  }
+
+  @Test
+  void purge_WhenDisabled_Test() {
+    properties.setEnabled(false);
+
+    purger.purge();
+
+    verifyNoInteractions(userRepository, transactionManager);
+  }
+
+  @Test
+  void window_WhenSpanningMidnight_Test() {
+    PurgeWindow window = PurgeWindow.of("22:00-02:00");
+
+    assertTrue(window.contains(LocalTime.of(23, 30)));
+    assertTrue(window.contains(LocalTime.of(1, 59)));
+    assertFalse(window.contains(LocalTime.of(2, 0)));
+    assertFalse(window.contains(LocalTime.of(12, 0)));
+    assertThrows(IllegalArgumentException.class, () -> PurgeWindow.of("22:00"));
+  }
+}
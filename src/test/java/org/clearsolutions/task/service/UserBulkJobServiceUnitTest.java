@@ -0,0 +1,135 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.job.BulkJobProperties;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.impl.UserBulkJobServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBulkJobServiceUnitTest {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private UserBulkJobServiceImpl bulkJobService;
+
+  @BeforeEach
+  void init() {
+    BulkJobProperties properties = new BulkJobProperties();
+    properties.setChunkSize(2);
+    bulkJobService = new UserBulkJobServiceImpl(userRepository, new TransactionTemplate(transactionManager),
+            eventPublisher, properties);
+    bulkJobService.setAgeCondition(18);
+  }
+
+  @AfterEach
+  void destroy() {
+    bulkJobService.destroy();
+  }
+
+  @Test
+  void deleteUsers_WhenIds_Test() throws InterruptedException {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    when(userRepository.softDeleteChunk(any(UserCriteria.class), anyLong(), anyInt()))
+            .thenReturn(List.of(1L, 2L)).thenReturn(List.of(5L));
+
+    BulkJobResponse job = bulkJobService.deleteUsers(UserCriteria.builder().ids(List.of(5L, 2L, 1L, 2L)).build());
+    BulkJobResponse finished = await(job.getJobId());
+
+    assertEquals(BulkJobState.COMPLETED, finished.getState());
+    assertEquals(3, finished.getTotal());
+    assertEquals(3, finished.getAffected());
+    assertEquals(2, finished.getChunks());
+    verify(userRepository).softDeleteChunk(eq(UserCriteria.builder().ids(List.of(1L, 2L)).build()), eq(0L), eq(2));
+    verify(userRepository).softDeleteChunk(eq(UserCriteria.builder().ids(List.of(5L)).build()), eq(0L), eq(2));
+    verify(eventPublisher, times(2)).publishEvent(any(UsersInvalidatedEvent.class));
+  }
+
+  @Test
+  void patchUsers_WhenRange_Test() throws InterruptedException {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    UserCriteria criteria = UserCriteria.builder()
+            .from(LocalDate.parse("1950-01-01"))
+            .to(LocalDate.parse("1960-01-01"))
+            .build();
+    UserUpdateRequest patch = UserUpdateRequest.builder().address("Kyiv").build();
+    when(userRepository.countMatching(criteria)).thenReturn(3L);
+    when(userRepository.patchChunk(criteria, patch, 0L, 2)).thenReturn(List.of(4L, 9L));
+    when(userRepository.patchChunk(criteria, patch, 9L, 2)).thenReturn(List.of(12L));
+    when(userRepository.patchChunk(criteria, patch, 12L, 2)).thenReturn(List.of());
+
+    BulkJobResponse job = bulkJobService.patchUsers(new BulkPatchRequest(criteria, patch));
+    BulkJobResponse finished = await(job.getJobId());
+
+    assertEquals(BulkJobState.COMPLETED, finished.getState());
+    assertEquals(3, finished.getAffected());
+    assertEquals(3, finished.getChunks());
+  }
+
+  @Test
+  void patchUsers_WhenUniqueField_Test() {
+    BulkPatchRequest request = new BulkPatchRequest(UserCriteria.builder().ids(List.of(1L)).build(),
+            UserUpdateRequest.builder().email("same@gmail.com").build());
+
+    assertThrows(IllegalArgumentException.class, () -> bulkJobService.patchUsers(request));
+    verifyNoInteractions(userRepository);
+  }
+
+  @Test
+  void patchUsers_WhenTooYoung_Test() {
+    BulkPatchRequest request = new BulkPatchRequest(UserCriteria.builder().ids(List.of(1L)).build(),
+            UserUpdateRequest.builder().birthDate(LocalDate.now().minusYears(3)).build());
+
+    assertThrows(YoungAgeException.class, () -> bulkJobService.patchUsers(request));
+  }
+
+  @Test
+  void deleteUsers_WhenIdsAndRange_Test() {
+    UserCriteria criteria = UserCriteria.builder()
+            .ids(List.of(1L))
+            .from(LocalDate.parse("1950-01-01"))
+            .to(LocalDate.parse("1960-01-01"))
+            .build();
+
+    assertThrows(IllegalArgumentException.class, () -> bulkJobService.deleteUsers(criteria));
+  }
+
+  private BulkJobResponse await(String jobId) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      BulkJobResponse job = bulkJobService.getJob(jobId);
+      if (job.getState() == BulkJobState.COMPLETED || job.getState() == BulkJobState.FAILED) {
+        return job;
+      }
+      Thread.sleep(10);
+    }
+    return fail("Bulk job " + jobId + " did not finish");
+  }
+}
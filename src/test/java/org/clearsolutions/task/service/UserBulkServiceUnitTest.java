@@ -0,0 +1,137 @@
+package org.clearsolutions.task.service;
+
+import jakarta.validation.Validation;
+import org.clearsolutions.task.dto.*;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.mapper.UserMapperImpl;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.impl.UserBulkServiceImpl;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserBulkServiceUnitTest {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private final SimpleTransactionStatus transactionStatus = new SimpleTransactionStatus();
+
+  private UserBulkServiceImpl bulkService;
+
+  @BeforeEach
+  void init() {
+    when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+    bulkService = new UserBulkServiceImpl(userRepository, new UserMapperImpl(),
+            Validation.buildDefaultValidatorFactory().getValidator(), eventPublisher,
+            new TransactionTemplate(transactionManager));
+    bulkService.setAgeCondition(18);
+  }
+
+  @Test
+  void execute_WhenMixedOperations_Test() {
+    User existing = DataUtils.toUser(DataUtils.createUserCreateRequest());
+    existing.setId(7L);
+    when(userRepository.findAllById(anyIterable())).thenReturn(List.of(existing));
+    BulkRequest request = new BulkRequest(false, List.of(
+            new BulkOperation(BulkOperationType.CREATE, null, toUpdateRequest(DataUtils.createUserCreateRequest())),
+            new BulkOperation(BulkOperationType.UPDATE, 7L, UserUpdateRequest.builder().firstName("Petro").build()),
+            new BulkOperation(BulkOperationType.DELETE, 7L, null),
+            new BulkOperation(BulkOperationType.DELETE, 7L, null),
+            new BulkOperation(BulkOperationType.CREATE, null, UserUpdateRequest.builder().firstName("Ivan").build())));
+
+    BulkResponse response = bulkService.execute(request);
+
+    assertEquals(3, response.getSucceeded());
+    assertEquals(2, response.getFailed());
+    assertEquals(List.of(201, 200, 200, 404, 400),
+            response.getResults().stream().map(BulkOperationResult::getStatus).toList());
+    assertEquals("Petro", existing.getFirstName());
+    assertNotNull(existing.getDeletedAt());
+    verify(userRepository, times(1)).findAllById(anyIterable());
+    verify(userRepository, times(1)).saveAll(anyIterable());
+    verify(eventPublisher, times(3)).publishEvent(any(UserChangedEvent.class));
+    verify(transactionManager, times(1)).commit(any(TransactionStatus.class));
+  }
+
+  @Test
+  void execute_WhenAtomicAndOneFails_Test() {
+    UserCreateRequest young = DataUtils.createUserCreateRequest();
+    young.setBirthDate(LocalDate.now().minusYears(10));
+    BulkRequest request = new BulkRequest(true, List.of(
+            new BulkOperation(BulkOperationType.CREATE, null, toUpdateRequest(DataUtils.createUserCreateRequest())),
+            new BulkOperation(BulkOperationType.CREATE, null, toUpdateRequest(young))));
+
+    BulkResponse response = bulkService.execute(request);
+
+    assertEquals(0, response.getSucceeded());
+    assertEquals(424, response.getResults().get(0).getStatus());
+    assertEquals(400, response.getResults().get(1).getStatus());
+    assertTrue(response.getResults().get(1).getProblemDetails().get(0).getMessage().startsWith("You are too young"));
+    assertTrue(transactionStatus.isRollbackOnly());
+  }
+
+  @Test
+  void execute_WhenAtomicAndDuplicateEmail_Test() {
+    doThrow(new DataIntegrityViolationException("duplicate key",
+            new SQLException("Key (lower(email))=(o.ivanyuk@gmail.com) already exists.")))
+            .when(userRepository).flush();
+    UserUpdateRequest user = toUpdateRequest(DataUtils.createUserCreateRequest());
+    UserCreateRequest young = DataUtils.createUserCreateRequest();
+    young.setBirthDate(LocalDate.now().minusYears(10));
+    BulkRequest request = new BulkRequest(true, List.of(
+            new BulkOperation(BulkOperationType.CREATE, null, user),
+            new BulkOperation(BulkOperationType.CREATE, null, toUpdateRequest(young)),
+            new BulkOperation(BulkOperationType.CREATE, null, user)));
+
+    BulkResponse response = bulkService.execute(request);
+
+    assertEquals(0, response.getSucceeded());
+    assertEquals(3, response.getFailed());
+    assertEquals(List.of(400, 400, 400),
+            response.getResults().stream().map(BulkOperationResult::getStatus).toList());
+    assertEquals(List.of(0, 1, 2),
+            response.getResults().stream().map(BulkOperationResult::getIndex).toList());
+    assertTrue(response.getResults().get(0).getProblemDetails().get(0).getMessage().contains("already exists"));
+    assertTrue(response.getResults().get(1).getProblemDetails().get(0).getMessage().startsWith("You are too young"));
+    verify(eventPublisher, never()).publishEvent(any());
+    verify(transactionManager, times(1)).rollback(any(TransactionStatus.class));
+  }
+
+  private static UserUpdateRequest toUpdateRequest(UserCreateRequest request) {
+    return UserUpdateRequest.builder()
+            .firstName(request.getFirstName())
+            .lastName(request.getLastName())
+            .email(request.getEmail())
+            .birthDate(request.getBirthDate())
+            .address(request.getAddress())
+            .phoneNumber(request.getPhoneNumber())
+            .build();
+  }
+}
@@ -0,0 +1,161 @@
+package org.clearsolutions.task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.clearsolutions.task.dto.BulkJobState;
+import org.clearsolutions.task.dto.ExportField;
+import org.clearsolutions.task.dto.ExportJobResponse;
+import org.clearsolutions.task.dto.ExportRequest;
+import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.exception.ExportNotReadyException;
+import org.clearsolutions.task.export.ExportCheckpoint;
+import org.clearsolutions.task.export.ExportProperties;
+import org.clearsolutions.task.repository.UserRepository;
+import org.clearsolutions.task.service.impl.UserExportServiceImpl;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceUnitTest {
+
+  private static final LocalDate MIN = LocalDate.of(1, 1, 1);
+  private static final LocalDate MAX = LocalDate.of(9999, 12, 31);
+
+  @TempDir
+  private Path directory;
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+  private UserExportServiceImpl exportService;
+
+  @BeforeEach
+  void init() {
+    ExportProperties properties = new ExportProperties();
+    properties.setDirectory(directory);
+    properties.setChunkSize(2);
+    exportService = new UserExportServiceImpl(userRepository, transactionManager, objectMapper, properties);
+  }
+
+  @AfterEach
+  void destroy() {
+    exportService.destroy();
+  }
+
+  @Test
+  void submit_WritesChunksAndCheckpoints_Test() throws Exception {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    List<User> users = DataUtils.createUserList();
+    when(userRepository.countLiveByBirthDateBetween(MIN, MAX)).thenReturn(3L);
+    when(userRepository.findExportChunk(MIN, MAX, 0L, 2)).thenReturn(users.subList(0, 2));
+    when(userRepository.findExportChunk(MIN, MAX, 2L, 2)).thenReturn(users.subList(2, 3));
+    when(userRepository.findExportChunk(MIN, MAX, 3L, 2)).thenReturn(List.of());
+
+    ExportJobResponse job = exportService.submit(ExportRequest.builder()
+            .fields(List.of(ExportField.ID, ExportField.EMAIL, ExportField.BIRTH_DATE))
+            .build());
+    ExportJobResponse finished = await(job.getJobId());
+
+    assertEquals(BulkJobState.COMPLETED, finished.getState());
+    assertEquals(3, finished.getExported());
+    assertEquals(2, finished.getChunks());
+    Path file = exportService.getFile(job.getJobId());
+    assertEquals("""
+            id,email,birthDate
+            1,o.ivanyuk@gmail.com,1989-06-27
+            2,dub123@gmail.com,1991-02-21
+            3,oksana@gmail.com,2000-02-01
+            """, Files.readString(file));
+    assertEquals(Files.size(file), finished.getSize());
+    ExportCheckpoint checkpoint = objectMapper.readValue(
+            directory.resolve(job.getJobId() + ".json").toFile(), ExportCheckpoint.class);
+    assertEquals(BulkJobState.COMPLETED, checkpoint.state());
+    assertEquals(3L, checkpoint.lastId());
+  }
+
+  @Test
+  void resumeJobs_ContinuesAfterCheckpoint_Test() throws Exception {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    List<User> users = DataUtils.createUserList();
+    LocalDate from = LocalDate.parse("1980-01-01");
+    String written = "id,lastName\n1,Ivanyuk\n";
+    // The row of user 2 was written after the last checkpoint and is cut off on resume.
+    Files.writeString(directory.resolve("job-1.csv"), written + "2,Piddu");
+    objectMapper.writeValue(directory.resolve("job-1.json").toFile(), new ExportCheckpoint("job-1",
+            BulkJobState.RUNNING, from, null, List.of(ExportField.ID, ExportField.LAST_NAME), 4, 1, 1, 1L,
+            written.length(), 0, Instant.now(), null, null));
+    when(userRepository.findExportChunk(eq(from), eq(MAX), eq(1L), anyInt())).thenReturn(users.subList(1, 3));
+    when(userRepository.findExportChunk(eq(from), eq(MAX), eq(3L), anyInt())).thenReturn(List.of());
+
+    exportService.resumeJobs();
+    ExportJobResponse finished = await("job-1");
+
+    assertEquals(BulkJobState.COMPLETED, finished.getState());
+    assertEquals(1, finished.getResumed());
+    assertEquals(3, finished.getExported());
+    assertEquals(written + "2,Piddubko\n3,Stefanchuk\n", Files.readString(exportService.getFile("job-1")));
+    verify(userRepository, never()).countLiveByBirthDateBetween(any(), any());
+  }
+
+  @Test
+  void getFile_WhenNotCompleted_Test() throws Exception {
+    objectMapper.writeValue(directory.resolve("job-2.json").toFile(), new ExportCheckpoint("job-2",
+            BulkJobState.FAILED, null, null, List.of(ExportField.ID), 0, 0, 0, 0L, 0, 0, Instant.now(),
+            Instant.now(), "Disk full"));
+    exportService.resumeJobs();
+
+    assertThrows(ExportNotReadyException.class, () -> exportService.getFile("job-2"));
+    assertEquals("Disk full", exportService.getJob("job-2").getError());
+  }
+
+  @Test
+  void submit_WhenFieldRepeated_Test() {
+    assertThrows(IllegalArgumentException.class, () -> exportService.submit(ExportRequest.builder()
+            .fields(List.of(ExportField.ID, ExportField.ID))
+            .build()));
+  }
+
+  /**
+   * Waits for the final checkpoint of the job. A job shows as finished only after its
+   * checkpoint is written, so the checkpoint is read after the job.
+   */
+  private ExportJobResponse await(String jobId) throws Exception {
+    Path checkpoint = directory.resolve(jobId + ".json");
+    for (int i = 0; i < 100; i++) {
+      ExportJobResponse job = exportService.getJob(jobId);
+      BulkJobState state = objectMapper.readValue(checkpoint.toFile(), ExportCheckpoint.class).state();
+      if (job.getState() == BulkJobState.COMPLETED || job.getState() == BulkJobState.FAILED) {
+        assertEquals(job.getState(), state);
+        return job;
+      }
+      Thread.sleep(50);
+    }
+    fail("Export job %s did not finish".formatted(jobId));
+    return null;
+  }
+}
@@ -1,10 +1,21 @@
 package org.clearsolutions.task.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
+import org.clearsolutions.task.archive.UserArchive;
+import org.clearsolutions.task.cache.BirthDateSearchCache;
+import org.clearsolutions.task.cache.SearchCacheProperties;
+import org.clearsolutions.task.dto.BirthDateCursor;
+import org.clearsolutions.task.dto.BirthDateRange;
+import org.clearsolutions.task.dto.BirthdaySearchRequest;
+import org.clearsolutions.task.dto.MonthDayWindow;
+import org.clearsolutions.task.dto.UserChangePage;
 import org.clearsolutions.task.dto.UserCreateRequest;
 import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserScrollPage;
 import org.clearsolutions.task.dto.UserUpdateRequest;
 import org.clearsolutions.task.entity.User;
+import org.clearsolutions.task.exception.ArchivedUserException;
 import org.clearsolutions.task.exception.YoungAgeException;
 import org.clearsolutions.task.mapper.UserMapper;
 import org.clearsolutions.task.repository.UserRepository;
@@ -16,15 +27,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,12 +61,25 @@ class UserServiceUnitTest {
   @Mock
   private UserMapper userMapper;
 
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Mock
+  private UserArchive userArchive;
+
+  @Spy
+  private BirthDateSearchCache searchCache = new BirthDateSearchCache(new SearchCacheProperties(),
+          new SimpleMeterRegistry());
+
   @InjectMocks
   private UserServiceImpl userService;
 
   @BeforeEach
   void init() {
     userService.setAgeCondition(18);
+    userService.setMaxTopN(1000);
+    userService.setMaxRanges(1000);
+    userService.setChangeFeedSettleTime(Duration.ofSeconds(5));
   }
 
   @Test
@@ -72,16 +110,18 @@ class UserServiceUnitTest {
   @Test
   void deleteUser_WhenOk_Test() {
     Long userId = 1L;
-    when(userRepository.existsById(userId)).thenReturn(true);
-    Mockito.doNothing().when(userRepository).deleteById(userId);
+    User user = DataUtils.createUserList().get(0);
+    when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
     assertDoesNotThrow(() -> userService.deleteUser(userId));
+    assertNotNull(user.getDeletedAt());
+    Mockito.verify(userRepository, Mockito.never()).deleteById(userId);
   }
 
   @Test
   void deleteUser_WhenUserNotFound_Test() {
     Long userId = 1L;
-    when(userRepository.existsById(userId)).thenReturn(false);
+    when(userRepository.findById(userId)).thenReturn(Optional.empty());
     assertThrows(EntityNotFoundException.class, () -> userService.deleteUser(userId));
   }
 
@@ -114,6 +154,44 @@ class UserServiceUnitTest {
     assertThrows(EntityNotFoundException.class, () -> userService.updateUser(id, requestForUpdate));
   }
 
+  @Test
+  void updateUser_WhenCachedUserIsDeleted_Test() {
+    User deleted = DataUtils.createUserList().get(0);
+    deleted.setDeletedAt(Instant.now());
+    when(userRepository.findById(deleted.getId())).thenReturn(Optional.of(deleted));
+    UserUpdateRequest requestForUpdate = UserUpdateRequest.builder().firstName("Oleksii").build();
+
+    assertThrows(EntityNotFoundException.class, () -> userService.updateUser(deleted.getId(), requestForUpdate));
+    verify(userMapper, times(0)).updateUser(any(), any());
+  }
+
+  @Test
+  void updateUser_WhenArchived_Test() {
+    User archived = DataUtils.createUserList().get(0);
+    when(userRepository.findById(archived.getId())).thenReturn(Optional.empty());
+    when(userArchive.findById(archived.getId())).thenReturn(Optional.of(archived));
+    UserUpdateRequest requestForUpdate = UserUpdateRequest.builder().firstName("Oleksii").build();
+
+    assertThrows(ArchivedUserException.class, () -> userService.updateUser(archived.getId(), requestForUpdate));
+  }
+
+  @Test
+  void getUser_WhenArchived_Test() {
+    User archived = DataUtils.createUserList().get(0);
+    when(userRepository.findById(archived.getId())).thenReturn(Optional.empty());
+    when(userArchive.findById(archived.getId())).thenReturn(Optional.of(archived));
+    when(userMapper.toResponse(archived)).thenReturn(DataUtils.toUserResponse(archived));
+
+    assertEquals(archived.getEmail(), userService.getUser(archived.getId()).getEmail());
+  }
+
+  @Test
+  void getUserByEmail_WhenNotFound_Test() {
+    when(userRepository.findLiveByEmail("Nobody@Example.com")).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> userService.getUserByEmail("Nobody@Example.com"));
+  }
+
   @Test
   void searchUsersByBirthDate_WhenToIsBeforeFrom_Test(){
     String dateFrom = "2003-03-10";
@@ -132,10 +210,11 @@ class UserServiceUnitTest {
     String dateTo = "2003-03-10";
     LocalDate to = LocalDate.parse(dateTo);
     Pageable pageRequest = PageRequest.of(0, 10, Sort.unsorted());
+    Pageable planned = PageRequest.of(0, 10, Sort.by("birthDate", "id"));
     List<User> userList = DataUtils.createUserList();
     List<User> searchedList = userList.subList(1, 3);
     PageImpl<User> users = new PageImpl<>(searchedList, pageRequest, userList.size());
-    when(userRepository.getUsersByBirthDateBetween(from, to, pageRequest)).thenReturn(users);
+    when(userRepository.getUsersByBirthDateBetween(from, to, planned)).thenReturn(users);
     when(userMapper.toResponse(searchedList.get(0))).thenReturn(DataUtils.toUserResponse(searchedList.get(0)));
     when(userMapper.toResponse(searchedList.get(1))).thenReturn(DataUtils.toUserResponse(searchedList.get(1)));
 
@@ -148,4 +227,172 @@ class UserServiceUnitTest {
     assertEquals(searchedList.get(1).getBirthDate(), actual.getContent().get(1).getBirthDate());
   }
 
+  @Test
+  void searchUsersByBirthDate_WhenArchived_MergesArchive_Test(){
+    LocalDate from = LocalDate.parse("1980-01-01");
+    LocalDate to = LocalDate.parse("2003-03-10");
+    Pageable planned = PageRequest.of(0, 10, Sort.by("birthDate", "id"));
+    List<User> userList = DataUtils.createUserList();
+    when(userArchive.count(from, to)).thenReturn(1L);
+    when(userArchive.search(from, to, planned.getSort(), 1)).thenReturn(List.of(userList.get(1)));
+    when(userRepository.getUsersByBirthDateBetween(from, to, planned))
+            .thenReturn(new PageImpl<>(List.of(userList.get(0), userList.get(2)), planned, 2));
+    when(userMapper.toResponse(any(User.class)))
+            .thenAnswer(invocation -> DataUtils.toUserResponse((User) invocation.getArgument(0)));
+
+    Page<UserResponse> actual = userService.searchUsersByBirthDate(from, to, PageRequest.of(0, 10));
+
+    assertEquals(List.of(1L, 2L, 3L), actual.getContent().stream().map(UserResponse::getId).toList());
+    assertEquals(3, actual.getTotalElements());
+  }
+
+  @Test
+  void searchUsersByBirthDate_WhenRepeated_UsesCache_Test(){
+    LocalDate from = LocalDate.parse("1990-03-10");
+    LocalDate to = LocalDate.parse("2003-03-10");
+    Pageable pageRequest = PageRequest.of(0, 10, Sort.unsorted());
+    Pageable planned = PageRequest.of(0, 10, Sort.by("birthDate", "id"));
+    List<User> searchedList = DataUtils.createUserList().subList(1, 3);
+    when(userRepository.getUsersByBirthDateBetween(from, to, planned))
+            .thenReturn(new PageImpl<>(searchedList, pageRequest, searchedList.size()));
+
+    userService.searchUsersByBirthDate(from, to, pageRequest);
+    Page<UserResponse> actual = userService.searchUsersByBirthDate(from, to, pageRequest);
+
+    assertEquals(searchedList.size(), actual.getContent().size());
+    verify(userRepository, times(1)).getUsersByBirthDateBetween(from, to, planned);
+
+    searchCache.invalidateAll();
+    userService.searchUsersByBirthDate(from, to, pageRequest);
+    verify(userRepository, times(2)).getUsersByBirthDateBetween(from, to, planned);
+  }
+
+  @Test
+  void getUserChanges_WhenMoreThanLimit_Test(){
+    Instant since = Instant.parse("2024-05-01T00:00:00Z");
+    List<User> changed = DataUtils.createUserList().subList(0, 3);
+    for (int i = 0; i < changed.size(); i++) {
+      changed.get(i).setUpdatedAt(since.plusSeconds(i + 1));
+    }
+    changed.get(1).setDeletedAt(since.plusSeconds(2));
+    when(userRepository.findChanges(eq(since), eq(0L), any(Instant.class), eq(3))).thenReturn(changed);
+    when(userMapper.toChangeResponse(any(User.class))).thenCallRealMethod();
+    when(userMapper.toResponse(any(User.class))).thenAnswer(inv -> DataUtils.toUserResponse((User) inv.getArgument(0)));
+
+    UserChangePage actual = userService.getUserChanges(since, 0L, 2);
+
+    assertTrue(actual.isHasMore());
+    assertEquals(2, actual.getChanges().size());
+    assertFalse(actual.getChanges().get(0).isDeleted());
+    assertTrue(actual.getChanges().get(1).isDeleted());
+    assertNull(actual.getChanges().get(1).getUser());
+    assertEquals(changed.get(1).getUpdatedAt(), actual.getNextSince());
+    assertEquals(changed.get(1).getId(), actual.getNextAfterId());
+  }
+
+  @Test
+  void getUserChanges_WhenNothingChanged_KeepsWatermark_Test(){
+    Instant since = Instant.parse("2024-05-01T00:00:00Z");
+    when(userRepository.findChanges(eq(since), eq(7L), any(Instant.class), eq(11))).thenReturn(List.of());
+
+    UserChangePage actual = userService.getUserChanges(since, 7L, 10);
+
+    assertFalse(actual.isHasMore());
+    assertTrue(actual.getChanges().isEmpty());
+    assertEquals(since, actual.getNextSince());
+    assertEquals(7L, actual.getNextAfterId());
+  }
+
+  @Test
+  void scrollUsersByBirthDate_WhenMoreThanSize_Test(){
+    LocalDate from = LocalDate.parse("1980-01-01");
+    LocalDate to = LocalDate.parse("2000-01-01");
+    List<User> rows = DataUtils.createUserList().subList(0, 3);
+    when(userRepository.scrollByBirthDate(from, to, from, 0L, 3)).thenReturn(rows);
+    when(userMapper.toResponse(any(User.class))).thenAnswer(inv -> DataUtils.toUserResponse((User) inv.getArgument(0)));
+
+    UserScrollPage first = userService.scrollUsersByBirthDate(from, to, 2, null);
+
+    assertEquals(2, first.getContent().size());
+    BirthDateCursor next = BirthDateCursor.decode(first.getNextCursor());
+    assertEquals(rows.get(1).getBirthDate(), next.getBirthDate());
+    assertEquals(rows.get(1).getId(), next.getId());
+
+    when(userRepository.scrollByBirthDate(from, to, next.getBirthDate(), next.getId(), 3))
+            .thenReturn(rows.subList(2, 3));
+
+    UserScrollPage last = userService.scrollUsersByBirthDate(from, to, 2, first.getNextCursor());
+
+    assertEquals(1, last.getContent().size());
+    assertNull(last.getNextCursor());
+  }
+
+  @Test
+  void searchUsersByBirthDateRanges_CutsWindowsOutOfEveryYear_Test() {
+    BirthdaySearchRequest request = BirthdaySearchRequest.builder()
+            .ranges(List.of(
+                    new BirthDateRange(LocalDate.parse("1991-06-01"), LocalDate.parse("1993-01-31")),
+                    new BirthDateRange(LocalDate.parse("1990-01-01"), LocalDate.parse("1991-12-31"))))
+            .windows(List.of(new MonthDayWindow(MonthDay.of(12, 20), MonthDay.of(1, 10)),
+                    new MonthDayWindow(MonthDay.of(2, 29), MonthDay.of(3, 1))))
+            .size(2)
+            .build();
+    List<BirthDateRange> planned = List.of(
+            new BirthDateRange(LocalDate.parse("1990-01-01"), LocalDate.parse("1990-01-10")),
+            new BirthDateRange(LocalDate.parse("1990-03-01"), LocalDate.parse("1990-03-01")),
+            new BirthDateRange(LocalDate.parse("1990-12-20"), LocalDate.parse("1991-01-10")),
+            new BirthDateRange(LocalDate.parse("1991-03-01"), LocalDate.parse("1991-03-01")),
+            new BirthDateRange(LocalDate.parse("1991-12-20"), LocalDate.parse("1992-01-10")),
+            new BirthDateRange(LocalDate.parse("1992-02-29"), LocalDate.parse("1992-03-01")),
+            new BirthDateRange(LocalDate.parse("1992-12-20"), LocalDate.parse("1993-01-10")));
+    LocalDate start = LocalDate.parse("1990-01-01");
+    List<User> rows = DataUtils.createUserList().subList(0, 3);
+    when(userRepository.scrollByBirthDateRanges(planned, start, 0L, 3)).thenReturn(rows);
+    when(userMapper.toResponse(any(User.class))).thenAnswer(inv -> DataUtils.toUserResponse((User) inv.getArgument(0)));
+
+    UserScrollPage page = userService.searchUsersByBirthDateRanges(request);
+
+    assertEquals(2, page.getContent().size());
+    assertEquals(rows.get(1).getId(), BirthDateCursor.decode(page.getNextCursor()).getId());
+  }
+
+  @Test
+  void searchUsersByBirthDateRanges_ReadsRangesInOrderUntilFull_Test() {
+    BirthDateRange skipped = new BirthDateRange(LocalDate.parse("1970-01-01"), LocalDate.parse("1970-12-31"));
+    BirthDateRange current = new BirthDateRange(LocalDate.parse("1980-01-01"), LocalDate.parse("1980-12-31"));
+    BirthDateRange next = new BirthDateRange(LocalDate.parse("1990-01-01"), LocalDate.parse("1990-12-31"));
+    BirthDateRange unread = new BirthDateRange(LocalDate.parse("2000-01-01"), LocalDate.parse("2000-12-31"));
+    BirthDateCursor after = new BirthDateCursor(LocalDate.parse("1980-06-01"), 7L);
+    BirthdaySearchRequest request = BirthdaySearchRequest.builder()
+            .ranges(List.of(unread, skipped, next, current))
+            .cursor(after.encode())
+            .size(2)
+            .build();
+    List<User> rows = DataUtils.createUserList().subList(0, 3);
+    doCallRealMethod().when(userRepository).scrollByBirthDateRanges(anyList(), any(), anyLong(), anyInt());
+    when(userRepository.scrollByBirthDate(current.getFrom(), current.getTo(), after.getBirthDate(), 7L, 3))
+            .thenReturn(rows.subList(0, 1));
+    when(userRepository.scrollByBirthDate(next.getFrom(), next.getTo(), after.getBirthDate(), 7L, 2))
+            .thenReturn(rows.subList(1, 3));
+    when(userMapper.toResponse(any(User.class))).thenAnswer(inv -> DataUtils.toUserResponse((User) inv.getArgument(0)));
+
+    UserScrollPage page = userService.searchUsersByBirthDateRanges(request);
+
+    assertEquals(List.of(rows.get(0).getId(), rows.get(1).getId()),
+            page.getContent().stream().map(UserResponse::getId).toList());
+    verify(userRepository, times(2)).scrollByBirthDate(any(), any(), any(), anyLong(), anyInt());
+  }
+
+  @Test
+  void searchUsersByBirthDateRanges_WhenTooManyRanges_Test() {
+    userService.setMaxRanges(10);
+    BirthdaySearchRequest request = BirthdaySearchRequest.builder()
+            .ranges(List.of(new BirthDateRange(LocalDate.parse("1950-01-01"), LocalDate.parse("2000-01-01"))))
+            .windows(List.of(new MonthDayWindow(MonthDay.of(3, 1), MonthDay.of(3, 31))))
+            .build();
+
+    assertThrows(IllegalArgumentException.class, () -> userService.searchUsersByBirthDateRanges(request));
+    verify(userRepository, never()).scrollByBirthDateRanges(anyList(), any(), anyLong(), anyInt());
+  }
+
 }
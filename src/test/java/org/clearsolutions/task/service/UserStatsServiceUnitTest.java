@@ -0,0 +1,74 @@
+package org.clearsolutions.task.service;
+
+import org.clearsolutions.task.dto.UserStatsResponse;
+import org.clearsolutions.task.entity.UserBirthDateCount;
+import org.clearsolutions.task.repository.UserBirthDateCountRepository;
+import org.clearsolutions.task.service.impl.UserStatsServiceImpl;
+import org.clearsolutions.task.sharding.ShardFanOut;
+import org.clearsolutions.task.sharding.ShardedUserRepository;
+import org.clearsolutions.task.stats.UserStatsProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceUnitTest {
+
+  @Mock
+  private UserBirthDateCountRepository countRepository;
+
+  @Mock
+  private ObjectProvider<ShardFanOut> shardFanOut;
+
+  @Mock
+  private ObjectProvider<ShardedUserRepository> shardedUserRepository;
+
+  private UserStatsServiceImpl statsService;
+
+  @BeforeEach
+  void init() {
+    UserStatsProperties properties = new UserStatsProperties();
+    properties.setAgeBrackets(List.of(30, 60));
+    statsService = new UserStatsServiceImpl(countRepository, shardFanOut, shardedUserRepository, properties);
+    statsService.setAgeCondition(18);
+  }
+
+  @Test
+  void getStats_WhenOk_Test() {
+    LocalDate today = LocalDate.now();
+    when(countRepository.findByLiveCountGreaterThan(0)).thenReturn(List.of(
+            new UserBirthDateCount(today.minusYears(10), 1),
+            new UserBirthDateCount(today.minusYears(18), 2),
+            new UserBirthDateCount(today.minusYears(30).plusDays(1), 3),
+            new UserBirthDateCount(today.minusYears(70), 4)));
+
+    UserStatsResponse stats = statsService.getStats();
+
+    assertEquals(10, stats.getTotal());
+    assertEquals(List.of(1L, 5L, 0L, 4L), stats.getByAge().stream().map(UserStatsResponse.AgeBracket::getCount).toList());
+    assertEquals(List.of(0, 18, 30, 60), stats.getByAge().stream().map(UserStatsResponse.AgeBracket::getMinAge).toList());
+    assertNull(stats.getByAge().get(3).getMaxAge());
+    assertEquals(4L, stats.getByBirthYear().get(today.minusYears(70).getYear()));
+    assertEquals(10L, stats.getByBirthMonth().values().stream().mapToLong(Long::longValue).sum());
+  }
+
+  @Test
+  void getStats_WhenRepeated_ReadsCountersOnce_Test() {
+    when(countRepository.findByLiveCountGreaterThan(0)).thenReturn(List.of());
+
+    statsService.getStats();
+    UserStatsResponse stats = statsService.getStats();
+
+    assertEquals(0, stats.getTotal());
+    verify(countRepository, times(1)).findByLiveCountGreaterThan(0);
+  }
+}
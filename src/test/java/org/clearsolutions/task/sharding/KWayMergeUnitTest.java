@@ -0,0 +1,57 @@
+package org.clearsolutions.task.sharding;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.clearsolutions.task.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KWayMergeUnitTest {
+
+    @Test
+    void merge_WhenSkipAndLimit_Test() {
+        List<List<Integer>> shards = List.of(List.of(1, 4, 7), List.of(2, 5), List.of(), List.of(3, 6, 8, 9));
+
+        assertEquals(List.of(1, 2, 3, 4), KWayMerge.merge(shards, Comparator.naturalOrder(), 0, 4));
+        assertEquals(List.of(5, 6, 7), KWayMerge.merge(shards, Comparator.naturalOrder(), 4, 3));
+        assertEquals(List.of(9), KWayMerge.merge(shards, Comparator.naturalOrder(), 8, 5));
+    }
+
+    @Test
+    void merge_WhenSortedByRepositoryComparator_Test() {
+        User a = user(1025L, "Anna", "1990-01-01");
+        User b = user(2L, "Anna", "1980-01-01");
+        User c = user(1L, "Bohdan", "1985-01-01");
+        Comparator<User> order = ShardedUserRepository.comparator(Sort.by(Sort.Order.asc("firstName")));
+
+        List<User> merged = KWayMerge.merge(List.of(List.of(a, c), List.of(b)), order, 0, 3);
+
+        assertEquals(List.of(b, a, c), merged);
+    }
+
+    @Test
+    void comparator_WhenUnsupportedProperty_Test() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ShardedUserRepository.comparator(Sort.by("address")));
+    }
+
+    @Test
+    void forId_WhenIdEncodesShard_Test() {
+        ShardRouter router = new ShardRouter(List.of(new Shard(0, null, null, null), new Shard(1, null, null, null)),
+                List.of("0-511", "512-1023"));
+
+        assertEquals(1, router.forId((7L << ShardRouter.SHARD_BITS) | 1).getIndex());
+        assertEquals(0, router.forId(7L << ShardRouter.SHARD_BITS).getIndex());
+        assertThrows(EntityNotFoundException.class,
+                () -> router.forId((7L << ShardRouter.SHARD_BITS) | 2));
+    }
+
+    private static User user(Long id, String firstName, String birthDate) {
+        return User.builder().id(id).firstName(firstName).birthDate(LocalDate.parse(birthDate)).build();
+    }
+}
@@ -0,0 +1,96 @@
+package org.clearsolutions.task.sharding;
+
+import org.clearsolutions.task.sharding.ShardedUserRepository.KeyClaim;
+import org.clearsolutions.task.sharding.ShardedUserRepository.UniqueKey;
+import org.clearsolutions.task.sharding.ShardedUserRepository.UserKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardClaimRebalancerUnitTest {
+
+    @Mock
+    private ShardedUserRepository repository;
+
+    private final Shard first = new Shard(0, null, null, null);
+    private final Shard second = new Shard(1, null, null, null);
+    private final ShardRouter router = new ShardRouter(List.of(first, second), List.of("0-511", "512-1023"));
+
+    private ShardClaimRebalancer rebalancer;
+
+    @BeforeEach
+    void init() {
+        rebalancer = new ShardClaimRebalancer(router, repository);
+    }
+
+    @Test
+    void rebalance_WhenLayoutCurrent_DoesNothing_Test() {
+        when(repository.findKeyLayout(any())).thenReturn(Optional.of(router.keyLayout()));
+
+        rebalancer.rebalance();
+
+        verify(repository, never()).findKeys(any(), anyLong(), anyInt());
+        verify(repository, never()).saveKeyLayout(any(), any());
+    }
+
+    @Test
+    void rebalance_MovesClaimsToOwners_Test() {
+        String ownedBySecond = emailOwnedBy(second);
+        String ownedByFirst = emailOwnedBy(first);
+        long userOfFirst = 1L << ShardRouter.SHARD_BITS;
+        when(repository.findKeyLayout(first)).thenReturn(Optional.empty());
+        when(repository.findKeys(first, 0L, 5_000)).thenReturn(List.of(new UserKeys(userOfFirst, ownedBySecond, null)));
+        when(repository.findKeys(first, userOfFirst, 5_000)).thenReturn(List.of());
+        when(repository.findKeys(second, 0L, 5_000)).thenReturn(List.of());
+        when(repository.claimAll(any(), any(), any())).thenReturn(List.of());
+        // Claimed as typed on the second shard before emails were normalized.
+        KeyClaim legacy = new KeyClaim(ownedByFirst, 2L << ShardRouter.SHARD_BITS);
+        KeyClaim owned = new KeyClaim(ownedBySecond, userOfFirst);
+        when(repository.findForeignClaims(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0) == second && invocation.getArgument(1) == UniqueKey.EMAIL
+                        ? List.of(legacy, owned) : List.of());
+
+        rebalancer.rebalance();
+
+        verify(repository).claimAll(second, UniqueKey.EMAIL, List.of(new KeyClaim(ownedBySecond, userOfFirst)));
+        verify(repository).releaseAll(second, UniqueKey.EMAIL, List.of(legacy));
+        verify(repository).saveKeyLayout(first, router.keyLayout());
+        verify(repository).saveKeyLayout(second, router.keyLayout());
+    }
+
+    @Test
+    void rebalance_WhenDuplicates_Fails_Test() {
+        String ownedBySecond = emailOwnedBy(second);
+        when(repository.findKeyLayout(first)).thenReturn(Optional.empty());
+        when(repository.findKeys(first, 0L, 5_000)).thenReturn(List.of(new UserKeys(1024L, ownedBySecond, null)));
+        when(repository.findKeys(first, 1024L, 5_000)).thenReturn(List.of());
+        when(repository.findKeys(second, 0L, 5_000)).thenReturn(List.of());
+        when(repository.claimAll(any(), any(), any())).thenReturn(List.of(ownedBySecond));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> rebalancer.rebalance());
+
+        assertTrue(e.getMessage().contains(ownedBySecond));
+        verify(repository, never()).releaseAll(any(), any(), any());
+        verify(repository, never()).saveKeyLayout(any(), any());
+    }
+
+    private String emailOwnedBy(Shard shard) {
+        return IntStream.range(0, 100).mapToObj("user%d@gmail.com"::formatted)
+                .filter(email -> router.forKey(email) == shard)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,55 @@
+package org.clearsolutions.task.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterUnitTest {
+
+    private static final List<String> KEYS = IntStream.range(0, 1000).mapToObj("user%d@gmail.com"::formatted).toList();
+
+    @Test
+    void forKey_WhenShardAppended_KeepsOwners_Test() {
+        ShardRouter three = new ShardRouter(shards(3), List.of("0-341", "342-682", "683-1023"));
+        ShardRouter four = new ShardRouter(shards(4), Arrays.asList("0-341", "342-682", "683-1023", null));
+
+        for (String key : KEYS) {
+            assertEquals(three.forKey(key).getIndex(), four.forKey(key).getIndex());
+        }
+        assertEquals(3, KEYS.stream().map(key -> three.forKey(key).getIndex()).distinct().count());
+    }
+
+    @Test
+    void forKey_WhenSeveralRangesPerShard_Test() {
+        ShardRouter router = new ShardRouter(shards(2), List.of("0-255, 512-767", "256-511,768-1023"));
+
+        for (String key : KEYS) {
+            int slot = ShardRouter.slot(key);
+            assertEquals(slot / 256 % 2, router.forKey(key).getIndex());
+        }
+    }
+
+    @Test
+    void forKey_WhenSingleShard_OwnsAllSlots_Test() {
+        ShardRouter router = new ShardRouter(shards(1), Arrays.asList((String) null));
+
+        assertEquals(0, router.forKey("a@gmail.com").getIndex());
+    }
+
+    @Test
+    void create_WhenSlotsInvalid_Test() {
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(shards(2), Arrays.asList(null, null)));
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(shards(2), List.of("0-600", "600-1023")));
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(shards(2), List.of("0-500", "502-1023")));
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(shards(2), List.of("0-511", "512-1024")));
+        assertThrows(IllegalStateException.class, () -> new ShardRouter(shards(2), List.of("0-511", "half")));
+    }
+
+    private static List<Shard> shards(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Shard(i, null, null, null)).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package org.clearsolutions.task.sharding;
+
+import org.clearsolutions.task.archive.UserArchiver;
+import org.clearsolutions.task.cache.UserChangeNotificationListener;
+import org.clearsolutions.task.controller.UserController;
+import org.clearsolutions.task.exception.handler.ControllerExceptionHandler;
+import org.clearsolutions.task.purge.TombstonePurger;
+import org.clearsolutions.task.service.*;
+import org.clearsolutions.task.service.impl.UserBulkJobServiceImpl;
+import org.clearsolutions.task.service.impl.UserBulkServiceImpl;
+import org.clearsolutions.task.service.impl.UserExportServiceImpl;
+import org.clearsolutions.task.service.impl.UserSegmentServiceImpl;
+import org.clearsolutions.task.snapshot.UserSnapshot;
+import org.clearsolutions.task.validation.UserRequestValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ShardedModeUnitTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withPropertyValues("user.sharding.enabled=true")
+            .withUserConfiguration(UserBulkServiceImpl.class, UserBulkJobServiceImpl.class,
+                    UserExportServiceImpl.class, UserSegmentServiceImpl.class, UserSnapshot.class,
+                    TombstonePurger.class, UserArchiver.class, UserChangeNotificationListener.class);
+
+    @Test
+    void context_HasNoServicesOfThePrimaryDatabase_Test() {
+        runner.run(context -> assertThat(context)
+                .hasNotFailed()
+                .doesNotHaveBean(UserBulkService.class)
+                .doesNotHaveBean(UserBulkJobService.class)
+                .doesNotHaveBean(UserExportService.class)
+                .doesNotHaveBean(UserSegmentService.class)
+                .doesNotHaveBean(UserSnapshot.class)
+                .doesNotHaveBean(TombstonePurger.class)
+                .doesNotHaveBean(UserArchiver.class)
+                .doesNotHaveBean(UserChangeNotificationListener.class));
+    }
+
+    @Test
+    void controller_RejectsBulkAndExport_Test() {
+        runner.run(context -> {
+            UserController controller = new UserController(mock(UserService.class),
+                    context.getBeanProvider(UserBulkService.class), context.getBeanProvider(UserBulkJobService.class),
+                    mock(UserStatsService.class), context.getBeanProvider(UserExportService.class),
+                    mock(UserChangeStreamService.class), context.getBeanProvider(UserSegmentService.class),
+                    mock(UserRequestValidator.class));
+            MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                    .setControllerAdvice(new ControllerExceptionHandler())
+                    .build();
+
+            mockMvc.perform(post("/api/v1/users/_bulk").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"operations\": [{\"op\": \"DELETE\", \"id\": 1}]}"))
+                    .andExpect(status().isNotImplemented())
+                    .andExpect(jsonPath("$.detail").value("Not available with sharding"));
+            mockMvc.perform(post("/api/v1/users/_bulk/delete").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"ids\": [1]}"))
+                    .andExpect(status().isNotImplemented());
+            mockMvc.perform(post("/api/v1/users/_export").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                    .andExpect(status().isNotImplemented());
+        });
+    }
+}
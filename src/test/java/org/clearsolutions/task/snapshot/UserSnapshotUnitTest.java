@@ -0,0 +1,182 @@
+package org.clearsolutions.task.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.dto.UserSegmentRequest;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.event.UserChangedEvent;
+import org.clearsolutions.task.event.UsersInvalidatedEvent;
+import org.clearsolutions.task.exception.SnapshotNotReadyException;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSnapshotUnitTest {
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private SnapshotProperties properties;
+
+  private UserSnapshot snapshot;
+
+  @BeforeEach
+  void init() {
+    properties = new SnapshotProperties();
+    properties.setEnabled(true);
+    properties.setParallelism(2);
+    properties.setChunkRows(2);
+    snapshot = new UserSnapshot(jdbcTemplate, transactionManager, properties, new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void destroy() {
+    snapshot.destroy();
+  }
+
+  @Test
+  void query_FiltersAndPagesAcrossChunks_Test() {
+    load();
+    List<UserResponse> users = DataUtils.createUserResponseList();
+    // Out of id order, as concurrent transactions may commit.
+    changed(users.get(3));
+    changed(users.get(1));
+    changed(users.get(0));
+    changed(users.get(2));
+    changed(new UserResponse(5L, "olena", "Koval", "olena@gmail.com",
+            LocalDate.parse("1995-03-08"), null, null));
+
+    UserSnapshot.Segment all = snapshot.query(UserSegmentRequest.builder().build());
+    assertEquals(5, all.total());
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L), all.ids());
+
+    UserSnapshot.Segment page = snapshot.query(UserSegmentRequest.builder().page(1).size(2).build());
+    assertEquals(5, page.total());
+    assertEquals(List.of(3L, 4L), page.ids());
+
+    UserSnapshot.Segment prefix = snapshot.query(UserSegmentRequest.builder().firstNamePrefix("o").build());
+    assertEquals(List.of(1L, 3L, 5L), prefix.ids());
+
+    UserSnapshot.Segment withPhone = snapshot.query(UserSegmentRequest.builder()
+            .firstNamePrefix("O")
+            .hasPhone(true)
+            .from(LocalDate.parse("1990-01-01"))
+            .build());
+    assertEquals(1, withPhone.total());
+    assertEquals(List.of(3L), withPhone.ids());
+
+    UserSnapshot.Segment countOnly = snapshot.query(UserSegmentRequest.builder().hasAddress(false).size(0).build());
+    assertEquals(1, countOnly.total());
+    assertTrue(countOnly.ids().isEmpty());
+  }
+
+  @Test
+  void query_AppliesUpdatesAndDeletes_Test() {
+    load();
+    List<UserResponse> users = DataUtils.createUserResponseList();
+    users.forEach(this::changed);
+    UserResponse renamed = users.get(1);
+    changed(new UserResponse(renamed.getId(), "Oleh", renamed.getLastName(), renamed.getEmail(),
+            renamed.getBirthDate(), renamed.getAddress(), renamed.getPhoneNumber()));
+    snapshot.onUserChanged(new UserChangedEvent(UserChangeType.DELETED, 1L, null));
+
+    UserSnapshot.Segment segment = snapshot.query(UserSegmentRequest.builder().firstNamePrefix("Ol").build());
+
+    assertEquals(1, segment.total());
+    assertEquals(List.of(2L), segment.ids());
+    assertEquals(3, snapshot.query(UserSegmentRequest.builder().build()).total());
+  }
+
+  @Test
+  void query_WhenNotLoaded_Test() {
+    assertFalse(snapshot.isReady());
+    assertThrows(SnapshotNotReadyException.class, () -> snapshot.query(UserSegmentRequest.builder().build()));
+  }
+
+  @Test
+  void query_WhenDisabled_Test() {
+    load();
+    properties.setEnabled(false);
+
+    assertThrows(SnapshotNotReadyException.class, () -> snapshot.query(UserSegmentRequest.builder().build()));
+  }
+
+  @Test
+  void onUsersInvalidated_CoalescesFullLoads_Test() throws InterruptedException {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    doAnswer(invocation -> {
+      running.countDown();
+      release.await();
+      return null;
+    }).doNothing().when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+    snapshot.onUsersInvalidated(UsersInvalidatedEvent.all());
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    // The running load may have read the table before these, one more load follows.
+    snapshot.onUsersInvalidated(UsersInvalidatedEvent.all());
+    snapshot.onUsersInvalidated(UsersInvalidatedEvent.all());
+    snapshot.start();
+    release.countDown();
+
+    awaitReady();
+    verify(jdbcTemplate, after(500).times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+  }
+
+  @Test
+  void load_WhenFailed_RetriesLater_Test() throws InterruptedException {
+    properties.setRetryDelay(Duration.ofMillis(10));
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    doThrow(new DataAccessResourceFailureException("down")).doNothing()
+            .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+    snapshot.load();
+    assertFalse(snapshot.isReady());
+
+    awaitReady();
+    verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+  }
+
+  private void load() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    snapshot.load();
+    assertTrue(snapshot.isReady());
+  }
+
+  private void awaitReady() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!snapshot.isReady() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(snapshot.isReady());
+  }
+
+  private void changed(UserResponse user) {
+    snapshot.onUserChanged(new UserChangedEvent(UserChangeType.UPDATED, user.getId(), user));
+  }
+}
@@ -0,0 +1,71 @@
+package org.clearsolutions.task.sort;
+
+import org.clearsolutions.task.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserKeysetUnitTest {
+
+  private final User last = User.builder()
+          .id(42L)
+          .firstName("Anna/Maria")
+          .lastName("O'Neil")
+          .email("anna@gmail.com")
+          .birthDate(LocalDate.parse("1990-05-01"))
+          .updatedAt(Instant.parse("2024-01-02T03:04:05.123456Z"))
+          .build();
+
+  @Test
+  void after_WhenFromStart_Test() {
+    assertEquals(new UserKeyset.Condition("TRUE", Map.of()),
+            UserKeyset.after(Sort.by("birthDate", "id"), null, UserKeyset::column));
+  }
+
+  @Test
+  void after_WhenOneDirection_ComparesRow_Test() {
+    Sort sort = Sort.by("birthDate", "id");
+
+    UserKeyset.Condition after = UserKeyset.after(sort, UserKeyset.encode(sort, last), UserKeyset::column);
+
+    assertEquals("((birth_date, id) > (:k0, :k1))", after.sql());
+    assertEquals(Map.of("k0", LocalDate.parse("1990-05-01"), "k1", 42L), after.parameters());
+  }
+
+  @Test
+  void after_WhenMixedDirections_Test() {
+    Sort sort = Sort.by(Sort.Order.desc("lastName"), Sort.Order.asc("firstName"), Sort.Order.desc("id"));
+
+    UserKeyset.Condition after = UserKeyset.after(sort, UserKeyset.encode(sort, last), UserKeyset::column);
+
+    assertEquals("((last_name) < (:k0) OR ((last_name) = (:k0) AND ((first_name) > (:k1) OR ((first_name) = (:k1) "
+            + "AND ((id) < (:k2))))))", after.sql());
+    assertEquals(Map.of("k0", "O'Neil", "k1", "Anna/Maria", "k2", 42L), after.parameters());
+  }
+
+  @Test
+  void after_DecodesTimestamps_Test() {
+    Sort sort = Sort.by("updatedAt", "id");
+
+    UserKeyset.Condition after = UserKeyset.after(sort, UserKeyset.encode(sort, last), UserKeyset::column);
+
+    assertEquals(OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 123_456_000, ZoneOffset.UTC), after.parameters().get("k0"));
+  }
+
+  @Test
+  void after_WhenCursorOfOtherSort_Test() {
+    String cursor = UserKeyset.encode(Sort.by("id"), last);
+
+    assertThrows(IllegalArgumentException.class,
+            () -> UserKeyset.after(Sort.by("birthDate", "id"), cursor, UserKeyset::column));
+    assertThrows(IllegalArgumentException.class,
+            () -> UserKeyset.after(Sort.by("id"), "not a cursor", UserKeyset::column));
+  }
+}
@@ -0,0 +1,56 @@
+package org.clearsolutions.task.sort;
+
+import org.clearsolutions.task.exception.UnsupportedSortException;
+import org.clearsolutions.task.sort.UserSortRegistry.Query;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSortRegistryUnitTest {
+
+  @Test
+  void plan_AppendsIdInDirectionOfFirstKey_Test() {
+    Pageable planned = UserSortRegistry.plan(PageRequest.of(2, 20, Sort.by(Sort.Direction.DESC, "lastName")),
+            Query.LIST, 1000);
+
+    assertEquals(PageRequest.of(2, 20, Sort.by(Sort.Order.desc("lastName"), Sort.Order.desc("id"))), planned);
+  }
+
+  @Test
+  void plan_WhenUnsorted_Test() {
+    assertEquals(Sort.by("id"), UserSortRegistry.plan(PageRequest.of(0, 10), Query.LIST, 1000).getSort());
+    assertEquals(Sort.by("birthDate", "id"),
+            UserSortRegistry.plan(PageRequest.of(0, 10), Query.BIRTHDAY_SEARCH, 1000).getSort());
+  }
+
+  @Test
+  void plan_DropsKeysAfterId_Test() {
+    Pageable planned = UserSortRegistry.plan(PageRequest.of(0, 10, Sort.by("email", "id", "firstName")),
+            Query.LIST, 1000);
+
+    assertEquals(Sort.by("email", "id"), planned.getSort());
+  }
+
+  @Test
+  void plan_WhenKeyUnknown_Test() {
+    UnsupportedSortException ex = assertThrows(UnsupportedSortException.class,
+            () -> UserSortRegistry.plan(PageRequest.of(0, 10, Sort.by("phone")), Query.LIST, 1000));
+
+    assertEquals("phone,asc", ex.getSort());
+  }
+
+  @Test
+  void plan_WhenNotIndexed_AllowsOnlyTopN_Test() {
+    Sort byLastName = Sort.by("lastName");
+    assertEquals(Sort.by("lastName", "id"),
+            UserSortRegistry.plan(PageRequest.of(9, 100, byLastName), Query.BIRTHDAY_SEARCH, 1000).getSort());
+    assertThrows(UnsupportedSortException.class,
+            () -> UserSortRegistry.plan(PageRequest.of(10, 100, byLastName), Query.BIRTHDAY_SEARCH, 1000));
+    assertThrows(UnsupportedSortException.class, () -> UserSortRegistry.plan(
+            PageRequest.of(10, 100, Sort.by("lastName", "firstName")), Query.LIST, 1000));
+    assertNotNull(UserSortRegistry.plan(PageRequest.of(10, 100, byLastName), Query.LIST, 1000));
+  }
+}
@@ -0,0 +1,160 @@
+package org.clearsolutions.task.stream;
+
+import org.clearsolutions.task.dto.UserResponse;
+import org.clearsolutions.task.event.UserChangeType;
+import org.clearsolutions.task.utils.DataUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserChangeHubUnitTest {
+
+    private final UserChangeHub hub = new UserChangeHub(3, Duration.ofMinutes(1));
+    private final List<UserResponse> users = DataUtils.createUserResponseList();
+
+    @Test
+    void publish_SendsMatchingChangesInOrder_Test() {
+        RecordingEmitter all = new RecordingEmitter();
+        RecordingEmitter filtered = new RecordingEmitter();
+        hub.subscribe(subscriber(all, ChangeStreamFilter.ALL, Runnable::run), null);
+        hub.subscribe(subscriber(filtered, new ChangeStreamFilter(Set.of(UserChangeType.CREATED, UserChangeType.DELETED),
+                LocalDate.parse("1990-01-01"), null), Runnable::run), null);
+
+        hub.publish(UserChangeType.CREATED, 1L, users.get(0));
+        hub.publish(UserChangeType.CREATED, 2L, users.get(1));
+        hub.publish(UserChangeType.UPDATED, 2L, users.get(1));
+        hub.publish(UserChangeType.DELETED, 1L, null);
+
+        assertEquals(List.of("created", "created", "updated", "deleted"), all.names());
+        assertEquals(List.of("created", "deleted"), filtered.names());
+    }
+
+    @Test
+    void subscribe_WithLastEventId_ReplaysMissedChanges_Test() {
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe(subscriber(first, ChangeStreamFilter.ALL, Runnable::run), null);
+        hub.publish(UserChangeType.CREATED, 1L, users.get(0));
+        hub.publish(UserChangeType.CREATED, 2L, users.get(1));
+        hub.publish(UserChangeType.UPDATED, 2L, users.get(1));
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        hub.subscribe(subscriber(resumed, ChangeStreamFilter.ALL, Runnable::run), first.ids().get(0));
+
+        assertEquals(first.ids().subList(1, 3), resumed.ids());
+    }
+
+    @Test
+    void subscribe_WhenLastEventIdNoLongerKept_Resyncs_Test() {
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe(subscriber(first, ChangeStreamFilter.ALL, Runnable::run), null);
+        for (long id = 1; id <= 5; id++) {
+            hub.publish(UserChangeType.DELETED, id, null);
+        }
+
+        RecordingEmitter old = new RecordingEmitter();
+        hub.subscribe(subscriber(old, ChangeStreamFilter.ALL, Runnable::run), first.ids().get(0));
+        RecordingEmitter unknown = new RecordingEmitter();
+        hub.subscribe(subscriber(unknown, ChangeStreamFilter.ALL, Runnable::run), "earlier-run-4");
+
+        assertEquals(List.of(ChangeStreamSubscriber.RESYNC), old.names());
+        assertEquals(List.of(first.ids().get(4)), old.ids());
+        assertEquals(List.of(ChangeStreamSubscriber.RESYNC), unknown.names());
+        assertEquals(2, hub.getResyncs());
+    }
+
+    @Test
+    void publish_WhenClientBufferFull_DropsAndResyncs_Test() {
+        List<Runnable> pending = new ArrayList<>();
+        RecordingEmitter slow = new RecordingEmitter();
+        hub.subscribe(new ChangeStreamSubscriber(slow, ChangeStreamFilter.ALL, 2, pending::add, hub::unsubscribe),
+                null);
+
+        for (long id = 1; id <= 4; id++) {
+            hub.publish(UserChangeType.DELETED, id, null);
+        }
+        pending.forEach(Runnable::run);
+
+        assertEquals(List.of(ChangeStreamSubscriber.RESYNC, "deleted"), slow.names());
+        assertEquals(1, pending.size());
+        assertEquals(1, hub.getResyncs());
+    }
+
+    @Test
+    void invalidate_WhenUsersChangedElsewhere_Resyncs_Test() {
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe(subscriber(first, ChangeStreamFilter.ALL, Runnable::run), null);
+        hub.publish(UserChangeType.CREATED, 1L, users.get(0));
+
+        hub.invalidate(Set.of(1L));
+        hub.invalidate(Set.of(1L, 2L));
+        hub.publish(UserChangeType.DELETED, 1L, null);
+
+        assertEquals(List.of("created", ChangeStreamSubscriber.RESYNC, "deleted"), first.names());
+        assertEquals(1, hub.getResyncs());
+
+        RecordingEmitter beforeResync = new RecordingEmitter();
+        hub.subscribe(subscriber(beforeResync, ChangeStreamFilter.ALL, Runnable::run), first.ids().get(0));
+        RecordingEmitter atResync = new RecordingEmitter();
+        hub.subscribe(subscriber(atResync, ChangeStreamFilter.ALL, Runnable::run), first.ids().get(1));
+
+        assertEquals(List.of(ChangeStreamSubscriber.RESYNC), beforeResync.names());
+        assertEquals(List.of("deleted"), atResync.names());
+    }
+
+    @Test
+    void invalidate_WhenAllUsers_Resyncs_Test() {
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe(subscriber(first, ChangeStreamFilter.ALL, Runnable::run), null);
+        hub.publish(UserChangeType.CREATED, 1L, users.get(0));
+
+        hub.invalidate(null);
+
+        assertEquals(List.of("created", ChangeStreamSubscriber.RESYNC), first.names());
+    }
+
+    private ChangeStreamSubscriber subscriber(SseEmitter emitter, ChangeStreamFilter filter, Executor executor) {
+        return new ChangeStreamSubscriber(emitter, filter, 10, executor, hub::unsubscribe);
+    }
+
+    /**
+     * Keeps the id and name lines of the sent events.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> {
+                if (part.getData() instanceof String text) {
+                    event.append(text);
+                }
+            });
+            sent.add(event.toString());
+        }
+
+        List<String> names() {
+            return lines("event:");
+        }
+
+        List<String> ids() {
+            return lines("id:");
+        }
+
+        private List<String> lines(String prefix) {
+            return sent.stream()
+                    .flatMap(event -> event.lines().filter(line -> line.startsWith(prefix)))
+                    .map(line -> line.substring(prefix.length()))
+                    .toList();
+        }
+    }
+}
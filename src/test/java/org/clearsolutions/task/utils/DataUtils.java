@@ -64,17 +64,25 @@ public class DataUtils {
 
     public static List<User> createUserList() {
         return List.of(
-                new User(1L, "Oleksii", "Ivanyuk", "o.ivanyuk@gmail.com",
-                        LocalDate.parse("1989-06-27"), "Kyiv, Urkaine", "+380 93 123 4567"),
-                new User(2L, "Ivan", "Piddubko", "dub123@gmail.com",
-                        LocalDate.parse("1991-02-21"), "Poltava, Urkaine", "+380 93 123 6565"),
-                new User(3L, "Oksana", "Stefanchuk", "oksana@gmail.com",
-                        LocalDate.parse("2000-02-01"), "Lviv, Urkaine", "+380 50 123 6565"),
-                new User(4L, "Iryna", "Stecko", "stec@gmail.com",
-                        LocalDate.parse("2005-11-15"), "Nighyn, Urkaine", "+380 50 123 6565")
+                toUser(createUserResponseList().get(0)),
+                toUser(createUserResponseList().get(1)),
+                toUser(createUserResponseList().get(2)),
+                toUser(createUserResponseList().get(3))
         );
     }
 
+    public static User toUser(UserResponse response) {
+        return User.builder()
+                .id(response.getId())
+                .firstName(response.getFirstName())
+                .lastName(response.getLastName())
+                .email(response.getEmail())
+                .birthDate(response.getBirthDate())
+                .address(response.getAddress())
+                .phoneNumber(response.getPhoneNumber())
+                .build();
+    }
+
     public static User toUser(UserCreateRequest request) {
         return User.builder()
                 .firstName(request.getFirstName())
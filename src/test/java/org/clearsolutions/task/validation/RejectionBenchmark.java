@@ -0,0 +1,146 @@
+package org.clearsolutions.task.validation;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Valid;
+import jakarta.validation.Validation;
+import lombok.Getter;
+import org.clearsolutions.task.controller.UserController;
+import org.clearsolutions.task.dto.UserCreateRequest;
+import org.clearsolutions.task.exception.YoungAgeException;
+import org.clearsolutions.task.exception.handler.ControllerExceptionHandler;
+import org.clearsolutions.task.service.*;
+import org.clearsolutions.task.utils.DataUtils;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Throughput of rejected registrations on the exception-free path of {@link UserController}
+ * against the previous path, where {@code @Valid} threw {@code MethodArgumentNotValidException}
+ * and the age check threw an exception with a stack trace, both rendered by
+ * {@link ControllerExceptionHandler}. Run by {@link RejectionThroughputBenchmarkTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RejectionBenchmark {
+
+    @Param({"wrongEmail", "tooYoung"})
+    private String scenario;
+
+    private MockMvc mockMvc;
+    private RequestBuilder throwing;
+    private RequestBuilder validating;
+
+    @Setup
+    public void setUp() throws Exception {
+        // The forked JVM has no Spring Boot logging setup, logback would log every request at DEBUG.
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        UserRequestValidator validator =
+                new UserRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+        validator.setAgeCondition(18);
+        StaticListableBeanFactory none = new StaticListableBeanFactory();
+        UserController controller = new UserController(mock(UserService.class),
+                none.getBeanProvider(UserBulkService.class), none.getBeanProvider(UserBulkJobService.class),
+                mock(UserStatsService.class), none.getBeanProvider(UserExportService.class),
+                mock(UserChangeStreamService.class), none.getBeanProvider(UserSegmentService.class), validator);
+        ControllerExceptionHandler handler = new ControllerExceptionHandler();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller, new ThrowingController())
+                .setControllerAdvice(handler, new ThrowingAdvice(handler))
+                .build();
+
+        UserCreateRequest request = DataUtils.createUserCreateRequest();
+        if (scenario.equals("wrongEmail")) {
+            request.setEmail("wrong.email#gmail.com");
+        } else {
+            request.setBirthDate(LocalDate.now().minusYears(10));
+        }
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        String json = objectMapper.writeValueAsString(request);
+        throwing = post("/benchmark/throwing-users").content(json).contentType(MediaType.APPLICATION_JSON);
+        validating = post("/api/v1/users").content(json).contentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public String exceptions() throws Exception {
+        return reject(throwing);
+    }
+
+    @Benchmark
+    public String validationResult() throws Exception {
+        return reject(validating);
+    }
+
+    private String reject(RequestBuilder request) throws Exception {
+        var response = mockMvc.perform(request).andReturn().getResponse();
+        if (response.getStatus() != HttpStatus.BAD_REQUEST.value()) {
+            throw new IllegalStateException("Expected a rejection, got " + response.getStatus());
+        }
+        return response.getContentAsString();
+    }
+
+    /**
+     * The registration endpoint as it was before the validation pipeline.
+     */
+    @RestController
+    static class ThrowingController {
+
+        @PostMapping("/benchmark/throwing-users")
+        @ResponseStatus(HttpStatus.CREATED)
+        public UserCreateRequest createUser(@Valid @RequestBody UserCreateRequest request) {
+            UserRequestValidator.checkAge(request.getBirthDate(), 18).ifPresent(problem -> {
+                throw new StackTraceYoungAgeException(problem.getMessage(), request.getBirthDate());
+            });
+            return request;
+        }
+    }
+
+    /**
+     * {@link YoungAgeException} as it was, with a stack trace.
+     */
+    @Getter
+    static class StackTraceYoungAgeException extends RuntimeException {
+
+        private final LocalDate birthDate;
+
+        StackTraceYoungAgeException(String message, LocalDate birthDate) {
+            super(message);
+            this.birthDate = birthDate;
+        }
+    }
+
+    @RestControllerAdvice
+    static class ThrowingAdvice {
+
+        private final ControllerExceptionHandler handler;
+
+        ThrowingAdvice(ControllerExceptionHandler handler) {
+            this.handler = handler;
+        }
+
+        @ExceptionHandler(StackTraceYoungAgeException.class)
+        public ProblemDetail handle(StackTraceYoungAgeException ex) {
+            return handler.handleYoungAgeException(
+                    new YoungAgeException(ex.getMessage(), ex.getBirthDate(), HttpStatus.BAD_REQUEST));
+        }
+    }
+}
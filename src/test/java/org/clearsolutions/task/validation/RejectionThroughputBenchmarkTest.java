@@ -0,0 +1,28 @@
+package org.clearsolutions.task.validation;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link RejectionBenchmark}, which JMH reports on the console. Excluded from the
+ * regular build, run it with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class RejectionThroughputBenchmarkTest {
+
+    @Test
+    void rejections() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(RejectionBenchmark.class.getName())
+                .build()).run();
+
+        assertEquals(4, results.size());
+    }
+}
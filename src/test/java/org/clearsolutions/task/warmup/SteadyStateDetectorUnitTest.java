@@ -0,0 +1,36 @@
+package org.clearsolutions.task.warmup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SteadyStateDetectorUnitTest {
+
+    @Test
+    void isSteady_WhenLatencyStopsDropping_Test() {
+        SteadyStateDetector detector = new SteadyStateDetector(2, 0.1);
+
+        detector.addRound(1000);
+        detector.addRound(500);
+        detector.addRound(200);
+        assertFalse(detector.isSteady());
+
+        detector.addRound(195);
+        assertFalse(detector.isSteady());
+        detector.addRound(205);
+        assertTrue(detector.isSteady());
+    }
+
+    @Test
+    void isSteady_WhenSpikeResetsCount_Test() {
+        SteadyStateDetector detector = new SteadyStateDetector(2, 0.1);
+
+        detector.addRound(100);
+        detector.addRound(100);
+        detector.addRound(300);
+        detector.addRound(300);
+
+        assertFalse(detector.isSteady());
+    }
+}